@@ -63,6 +63,7 @@ import com.servoy.j2db.server.ngclient.NGRuntimeWindowManager;
 import com.servoy.j2db.server.ngclient.WebFormUI;
 import com.servoy.j2db.server.ngclient.component.WebFormController;
 import com.servoy.j2db.server.ngclient.eventthread.NGClientWebsocketSessionWindows;
+import com.servoy.j2db.server.ngclient.less.CompiledLessCache;
 import com.servoy.j2db.server.ngclient.scripting.WebServiceScriptable;
 import com.servoy.j2db.util.Debug;
 import com.servoy.j2db.util.ILogLevel;
@@ -401,6 +402,11 @@ public class DebugNGClient extends NGClient implements IDebugNGClient
 		Solution solutionCopy = getFlattenedSolution().getSolutionCopy(false);
 		if (solutionCopy != null) solutionCopy.setRuntimeProperty(FormElementHelper.SOLUTION_MODEL_CACHE, null);
 
+		for (IPersist persist : changes)
+		{
+			if (persist instanceof Media) CompiledLessCache.mediaChanged((Media)persist);
+		}
+
 		Set<IFormController>[] scopesAndFormsToReload = DebugUtils.getScopesAndFormsToReload(this, changes);
 
 		for (IFormController controller : scopesAndFormsToReload[1])
@@ -0,0 +1,218 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the row and relation indexes of the {@link CalculationDependencyGraph}.
+ */
+@SuppressWarnings("nls")
+public class CalculationDependencyGraphTest
+{
+	private static PKHashKey pk(int id)
+	{
+		return PKHashKey.create(new Object[] { Integer.valueOf(id) });
+	}
+
+	private static Set<PKHashKey> pks(int... ids)
+	{
+		Set<PKHashKey> keys = new HashSet<>();
+		for (int id : ids)
+		{
+			keys.add(pk(id));
+		}
+		return keys;
+	}
+
+	@Test
+	public void rowsWithCalcUptodate()
+	{
+		CalculationDependencyGraph graph = new CalculationDependencyGraph();
+		graph.rowAdded(pk(1), List.of("total"));
+		graph.rowAdded(pk(2), null);
+		graph.rowAdded(pk(3), List.of("total", "label"));
+		graph.calcUptodate(pk(2), "label");
+		// rows that are not in the cache are not indexed
+		graph.calcUptodate(pk(4), "total");
+
+		assertEquals(3, graph.getRowCount());
+		assertEquals(pks(1, 3), new HashSet<>(graph.getRowsWithCalcUptodate("total")));
+		assertEquals(pks(2, 3), new HashSet<>(graph.getRowsWithCalcUptodate("label")));
+		assertTrue(graph.getRowsWithCalcUptodate("unknown").isEmpty());
+
+		graph.calcFlagged(pk(1), "total");
+		graph.calcFlagged(pk(2), "unknown");
+		assertEquals(pks(3), new HashSet<>(graph.getRowsWithCalcUptodate("total")));
+		assertEquals(pks(2, 3), new HashSet<>(graph.getRowsWithCalcUptodate("label")));
+	}
+
+	@Test
+	public void relationDependents()
+	{
+		CalculationDependencyGraph graph = new CalculationDependencyGraph();
+		graph.rowAdded(pk(1), null);
+		graph.rowAdded(pk(2), null);
+		graph.rowAdded(pk(3), null);
+		graph.addRelationDependency("orders_to_lines", "hash1", pk(1), "total");
+		graph.addRelationDependency("orders_to_lines", "hash1", pk(1), "total");
+		graph.addRelationDependency("orders_to_lines", "hash1", pk(2), "total");
+		graph.addRelationDependency("orders_to_lines", "hash1", pk(2), "line_count");
+		graph.addRelationDependency("orders_to_lines", "hash2", pk(3), "total");
+		graph.addRelationDependency("orders_to_customer", "hash1", pk(3), "customer_name");
+		// rows that are not in the cache are not indexed
+		graph.addRelationDependency("orders_to_lines", "hash1", pk(4), "total");
+
+		Map<String, List<PKHashKey>> dependents = graph.getRelationDependents("orders_to_lines", "hash1");
+		assertEquals(2, dependents.size());
+		assertEquals(pks(1, 2), new HashSet<>(dependents.get("total")));
+		assertEquals(List.of(pk(2)), dependents.get("line_count"));
+
+		assertEquals(Map.of("total", List.of(pk(3))), graph.getRelationDependents("orders_to_lines", "hash2"));
+		assertEquals(Map.of("customer_name", List.of(pk(3))), graph.getRelationDependents("orders_to_customer", "hash1"));
+		assertTrue(graph.getRelationDependents("orders_to_customer", "hash2").isEmpty());
+
+		// the relation keys of a removed row are cleaned up
+		graph.rowRemoved(pk(3));
+		assertTrue(graph.getRelationDependents("orders_to_lines", "hash2").isEmpty());
+		assertTrue(graph.getRelationDependents("orders_to_customer", "hash1").isEmpty());
+		assertEquals(2, graph.getRelationDependents("orders_to_lines", "hash1").size());
+	}
+
+	@Test
+	public void handleIsReusedAfterRowRemoved()
+	{
+		CalculationDependencyGraph graph = new CalculationDependencyGraph();
+		graph.rowAdded(pk(1), List.of("total"));
+		graph.addRelationDependency("orders_to_lines", "hash1", pk(1), "total");
+		graph.rowAdded(pk(2), List.of("total"));
+
+		graph.rowRemoved(pk(1));
+		graph.rowRemoved(pk(1));
+		assertEquals(1, graph.getRowCount());
+		assertEquals(List.of(pk(2)), graph.getRowsWithCalcUptodate("total"));
+		assertTrue(graph.getRelationDependents("orders_to_lines", "hash1").isEmpty());
+
+		// the new row gets the handle of the removed row without its calculations and relations
+		graph.rowAdded(pk(3), null);
+		assertEquals(2, graph.getRowCount());
+		assertEquals(List.of(pk(2)), graph.getRowsWithCalcUptodate("total"));
+		assertTrue(graph.getRelationDependents("orders_to_lines", "hash1").isEmpty());
+
+		graph.addRelationDependency("orders_to_lines", "hash1", pk(3), "total");
+		graph.calcUptodate(pk(3), "total");
+		assertEquals(Map.of("total", List.of(pk(3))), graph.getRelationDependents("orders_to_lines", "hash1"));
+		assertEquals(pks(2, 3), new HashSet<>(graph.getRowsWithCalcUptodate("total")));
+
+		// adding a row that is already in the cache keeps its handle
+		graph.rowAdded(pk(3), List.of("label"));
+		assertEquals(2, graph.getRowCount());
+		assertEquals(Map.of("total", List.of(pk(3))), graph.getRelationDependents("orders_to_lines", "hash1"));
+	}
+
+	@Test
+	public void growsPastInitialCapacity()
+	{
+		CalculationDependencyGraph graph = new CalculationDependencyGraph();
+		for (int i = 0; i < 1000; i++)
+		{
+			graph.rowAdded(pk(i), List.of("total"));
+			graph.addRelationDependency("orders_to_lines", "hash" + (i % 10), pk(i), "total");
+		}
+		for (int i = 0; i < 1000; i += 2)
+		{
+			graph.rowRemoved(pk(i));
+		}
+		for (int i = 1000; i < 1500; i++)
+		{
+			graph.rowAdded(pk(i), null);
+		}
+		assertEquals(1000, graph.getRowCount());
+		assertEquals(500, graph.getRowsWithCalcUptodate("total").size());
+		// the rows of hash1 have odd pks and are kept, the rows of hash2 were removed
+		assertEquals(100, graph.getRelationDependents("orders_to_lines", "hash1").get("total").size());
+		assertTrue(graph.getRelationDependents("orders_to_lines", "hash2").isEmpty());
+	}
+
+	/**
+	 * Compares finding the rows of a changed related foundset in a 100k row cache with the index and with a scan of all rows,
+	 * like the row manager does without the index.
+	 */
+	@Test
+	public void benchmarkLargeCache()
+	{
+		int rowCount = 100_000;
+		int dependentCount = 100;
+		int lookups = 1000;
+
+		CalculationDependencyGraph graph = new CalculationDependencyGraph();
+		Map<PKHashKey, Set<String>> scannedRows = new HashMap<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < rowCount; i++)
+		{
+			PKHashKey key = pk(i);
+			graph.rowAdded(key, List.of("total", "label"));
+			Set<String> relations = new HashSet<>();
+			if (i % (rowCount / dependentCount) == 0)
+			{
+				graph.addRelationDependency("orders_to_lines", "hash1", key, "total");
+				relations.add("orders_to_lines" + '\u0000' + "hash1");
+			}
+			scannedRows.put(key, relations);
+		}
+		long buildNanos = System.nanoTime() - start;
+
+		int found = 0;
+		start = System.nanoTime();
+		for (int l = 0; l < lookups; l++)
+		{
+			found += graph.getRelationDependents("orders_to_lines", "hash1").get("total").size();
+		}
+		long indexNanos = System.nanoTime() - start;
+
+		int scanned = 0;
+		start = System.nanoTime();
+		for (int l = 0; l < lookups; l++)
+		{
+			List<PKHashKey> dependents = new ArrayList<>();
+			for (Map.Entry<PKHashKey, Set<String>> entry : scannedRows.entrySet())
+			{
+				if (entry.getValue().contains("orders_to_lines" + '\u0000' + "hash1")) dependents.add(entry.getKey());
+			}
+			scanned += dependents.size();
+		}
+		long scanNanos = System.nanoTime() - start;
+
+		assertEquals(dependentCount * lookups, found);
+		assertEquals(dependentCount * lookups, scanned);
+		assertEquals(rowCount, graph.getRowsWithCalcUptodate("label").size());
+
+		System.out.println("CalculationDependencyGraph " + rowCount + " rows: build " + buildNanos / 1_000_000 + "ms, " + lookups + " relation lookups " +
+			indexNanos / 1_000_000 + "ms with the index, " + scanNanos / 1_000_000 + "ms scanning all rows");
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.servoy.j2db.util.UUID;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Tests that the {@link PKHashKey} keeps the equivalences of the pk hash string.
+ */
+@SuppressWarnings("nls")
+public class PKHashKeyTest
+{
+	private static PKHashKey key(Object... pk)
+	{
+		return PKHashKey.create(pk);
+	}
+
+	private static void assertSameKey(String hashString, Object[]... pks)
+	{
+		for (Object[] pk : pks)
+		{
+			assertEquals(hashString, key(pk).toString());
+			assertEquals(key(pks[0]), key(pk));
+			assertEquals(key(pks[0]).hashCode(), key(pk).hashCode());
+		}
+	}
+
+	@Test
+	public void integralNumbersDatesAndNumericStrings()
+	{
+		assertSameKey("1.1;", new Object[] { Integer.valueOf(1) }, new Object[] { Long.valueOf(1) }, new Object[] { Short.valueOf((short)1) },
+			new Object[] { Byte.valueOf((byte)1) }, new Object[] { Double.valueOf(1) }, new Object[] { Float.valueOf(1) },
+			new Object[] { BigInteger.ONE }, new Object[] { "1" });
+		assertSameKey("4.1000;", new Object[] { new Date(1000) }, new Object[] { Long.valueOf(1000) }, new Object[] { "1000" });
+		assertSameKey("2.-5;", new Object[] { Integer.valueOf(-5) }, new Object[] { "-5" });
+
+		// only the string of the number itself
+		assertNotEquals(key(Integer.valueOf(1)), key("01"));
+		assertNotEquals(key(Integer.valueOf(0)), key("-0"));
+		assertNotEquals(key(Integer.valueOf(1)), key("1.0"));
+		assertSameKey("3.1.5;", new Object[] { Double.valueOf(1.5) }, new Object[] { "1.5" });
+
+		// bigger than a long
+		assertSameKey("24.123456789012345678901234;", new Object[] { new BigInteger("123456789012345678901234") },
+			new Object[] { "123456789012345678901234" });
+	}
+
+	@Test
+	public void uuidsRegardlessOfCasing()
+	{
+		UUID uuid = UUID.randomUUID();
+		String lower = uuid.toString().toLowerCase();
+		assertSameKey("36." + lower + ';', new Object[] { uuid }, new Object[] { lower }, new Object[] { lower.toUpperCase() });
+
+		// not a valid uuid, still compared in lower case
+		assertSameKey("36.abcdefgh-ijkl-mnop-qrst-uvwxyzabcdef;", new Object[] { "ABCDEFGH-IJKL-MNOP-QRST-UVWXYZABCDEF" },
+			new Object[] { "abcdefgh-ijkl-mnop-qrst-uvwxyzabcdef" });
+	}
+
+	@Test
+	public void nullStringsAndComposites()
+	{
+		assertEquals("", PKHashKey.create(null).toString());
+		assertEquals(PKHashKey.EMPTY, key());
+		assertSameKey(".null;", new Object[] { null });
+		assertSameKey("3.abc;", new Object[] { "abc" });
+		assertNotEquals(key("abc"), key("ABC"));
+
+		assertSameKey("1.1;3.abc;", new Object[] { Integer.valueOf(1), "abc" }, new Object[] { "1", "abc" });
+		assertNotEquals(key(Integer.valueOf(1), "abc"), key("abc", Integer.valueOf(1)));
+		assertNotEquals(key(Integer.valueOf(1)), key(Integer.valueOf(1), null));
+
+		// array values are sorted
+		assertSameKey("5.[1,2];", new Object[] { new Object[] { Integer.valueOf(2), Integer.valueOf(1) } }, new Object[] { new Object[] { "1", "2" } });
+	}
+
+	@Test
+	public void bytes()
+	{
+		byte[] bytes = { 1, 2, 3 };
+		assertSameKey("4." + Utils.encodeBASE64(bytes) + ';', new Object[] { bytes }, new Object[] { new byte[] { 1, 2, 3 } });
+		assertNotEquals(key(bytes), key(new byte[] { 1, 2, 4 }));
+
+		// the one equivalence of the pk hash string that is dropped: a byte[] is not equal to its base64 string, although the strings are the same
+		String base64 = Utils.encodeBASE64(bytes);
+		assertEquals(key(bytes).toString(), key(base64).toString());
+		assertNotEquals(key(bytes), key(base64));
+	}
+}
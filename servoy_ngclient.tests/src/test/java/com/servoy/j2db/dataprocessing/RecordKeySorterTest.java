@@ -0,0 +1,72 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Tests for the key comparison and sorting of {@link FoundSet#sortByKey(Object, Boolean)}.
+ */
+@SuppressWarnings("nls")
+public class RecordKeySorterTest
+{
+	@Test
+	public void mixedTypesAreOrderedOnType()
+	{
+		Date date = new Date(0);
+		Object[] ordered = { null, Integer.valueOf(10), Double.valueOf(10.5), date, "10", "9", Boolean.TRUE };
+		for (int i = 0; i < ordered.length; i++)
+		{
+			for (int j = 0; j < ordered.length; j++)
+			{
+				assertEquals(ordered[i] + " <> " + ordered[j], Integer.signum(Integer.compare(i, j)),
+					Integer.signum(RecordKeySorter.compareValues(ordered[i], ordered[j])));
+			}
+		}
+	}
+
+	@Test
+	public void numberAndStringComparisonIsTransitive()
+	{
+		// compared as strings "10" < "9", as numbers 9 < 10; the type order keeps this consistent
+		Object a = Integer.valueOf(9);
+		Object b = Integer.valueOf(10);
+		Object c = "10";
+		assertTrue(RecordKeySorter.compareValues(a, b) < 0);
+		assertTrue(RecordKeySorter.compareValues(b, c) < 0);
+		assertTrue(RecordKeySorter.compareValues(a, c) < 0);
+	}
+
+	@Test
+	public void sortIsStable()
+	{
+		Object[][] pks = { { Integer.valueOf(1) }, { Integer.valueOf(2) }, { Integer.valueOf(3) }, { Integer.valueOf(4) } };
+		Object[][] keys = { { "b" }, { "a" }, { "b" }, { null } };
+
+		assertArrayEquals(new Object[][] { { Integer.valueOf(4) }, { Integer.valueOf(2) }, { Integer.valueOf(1) }, { Integer.valueOf(3) } },
+			RecordKeySorter.sort(pks, keys, false));
+		assertArrayEquals(new Object[][] { { Integer.valueOf(1) }, { Integer.valueOf(3) }, { Integer.valueOf(2) }, { Integer.valueOf(4) } },
+			RecordKeySorter.sort(pks, keys, true));
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.persistence.RepositoryException;
+import com.servoy.j2db.query.IQuerySelectValue;
+import com.servoy.j2db.query.Placeholder;
+import com.servoy.j2db.query.QueryColumn;
+import com.servoy.j2db.query.QueryColumnValue;
+import com.servoy.j2db.query.QueryInsert;
+import com.servoy.j2db.query.QuerySearchedCaseExpression;
+import com.servoy.j2db.query.QueryTable;
+import com.servoy.j2db.query.QueryUpdate;
+import com.servoy.j2db.query.QueryWhenClause;
+import com.servoy.j2db.query.SetCondition;
+import com.servoy.j2db.query.TablePlaceholderKey;
+
+/**
+ * Tests for merging update statements and mapping their results back to the rows.
+ */
+@SuppressWarnings("nls")
+public class UpdateStatementMergerTest
+{
+	private static QueryTable createTable()
+	{
+		return new QueryTable("orders", "db:/example/orders", null, null);
+	}
+
+	private static SQLStatement createUpdate(Integer pk, Object status)
+	{
+		return createUpdate(pk, status, "tx1");
+	}
+
+	private static SQLStatement createUpdate(Integer pk, Object status, String transactionID)
+	{
+		QueryTable table = createTable();
+		QueryUpdate update = new QueryUpdate(table);
+		update.addValue(new QueryColumn(table, 2, "status", Types.VARCHAR, 50, 0, null, 0), status);
+		TablePlaceholderKey pkKey = new TablePlaceholderKey(table, SQLGenerator.PLACEHOLDER_PRIMARY_KEY);
+		update.setCondition(new SetCondition(IBaseSQLCondition.EQUALS_OPERATOR,
+			new IQuerySelectValue[] { new QueryColumn(table, 1, "order_id", Types.INTEGER, 0, 0, null, 0) }, new Placeholder(pkKey), true));
+		update.setPlaceholderValue(pkKey, new Object[] { pk });
+
+		IDataSet pks = new BufferedDataSet();
+		pks.addRow(new Object[] { pk });
+		SQLStatement statement = new SQLStatement(ISQLActionTypes.UPDATE_ACTION, "example", "orders", pks, transactionID, update, null);
+		statement.setExpectedUpdateCount(1);
+		return statement;
+	}
+
+	private static SQLStatement createInsert(Integer... pks)
+	{
+		IDataSet pkSet = new BufferedDataSet();
+		for (Integer pk : pks)
+		{
+			pkSet.addRow(new Object[] { pk });
+		}
+		return new SQLStatement(ISQLActionTypes.INSERT_ACTION, "example", "orders", pkSet, new QueryInsert(createTable()));
+	}
+
+	@Test
+	public void updatesOfTheSameColumnsCanBeMerged()
+	{
+		assertTrue(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), "shipped"), createUpdate(Integer.valueOf(2), "shipped")));
+		assertTrue(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), "shipped"), createUpdate(Integer.valueOf(2), "open")));
+		assertFalse(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), "shipped"),
+			createUpdate(Integer.valueOf(2), ValueFactory.createNullValue(Types.VARCHAR))));
+		assertFalse(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), new byte[] { 1 }), createUpdate(Integer.valueOf(2), new byte[] { 2 })));
+		assertFalse(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), "shipped"), createInsert(Integer.valueOf(2))));
+
+		SQLStatement tracked = createUpdate(Integer.valueOf(2), "shipped");
+		tracked.setTrackingData(new String[] { "status" }, new Object[][] { { "open" } }, new Object[][] { { "shipped" } }, null, null, null);
+		assertFalse(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), "shipped"), tracked));
+	}
+
+	@Test
+	public void updatesOutsideATransactionAreNotMerged()
+	{
+		// a failing merged update would fail rows that were updated
+		assertFalse(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), "shipped", null), createUpdate(Integer.valueOf(2), "shipped", null)));
+		assertFalse(UpdateStatementMerger.canBeMerged(createUpdate(Integer.valueOf(1), "shipped", "tx1"), createUpdate(Integer.valueOf(2), "shipped", "tx2")));
+	}
+
+	@Test
+	public void differentValuesAreSetWithACaseOnThePk()
+	{
+		List<ISQLStatement> updates = Arrays.asList(createUpdate(Integer.valueOf(1), "shipped"), createUpdate(Integer.valueOf(2), "open"),
+			createUpdate(Integer.valueOf(3), "closed"));
+		SQLStatement merged = (SQLStatement)UpdateStatementMerger.merge(updates);
+
+		assertEquals(3, merged.getExpectedUpdateCount());
+		QueryUpdate update = (QueryUpdate)merged.getUpdate();
+		Placeholder placeholder = update.getPlaceholder(new TablePlaceholderKey(update.getTable(), SQLGenerator.PLACEHOLDER_PRIMARY_KEY));
+		assertArrayEquals(new Object[][] { { Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3) } }, (Object[][])placeholder.getValue());
+
+		QuerySearchedCaseExpression caseExpression = (QuerySearchedCaseExpression)update.getValues().get(0);
+		List<QueryWhenClause> whenClauses = caseExpression.getWhenClauses();
+		assertEquals(3, whenClauses.size());
+		String[] statuses = { "shipped", "open", "closed" };
+		for (int i = 0; i < whenClauses.size(); i++)
+		{
+			SetCondition pkCondition = (SetCondition)whenClauses.get(i).getCondition();
+			assertArrayEquals(new Object[][] { { Integer.valueOf(i + 1) } }, (Object[][])pkCondition.getValues());
+			assertEquals(statuses[i], ((QueryColumnValue)whenClauses.get(i).getResult()).getValue());
+		}
+		// rows that are not in the case keep their value
+		assertSame(update.getColumns().get(0), caseExpression.getOtherwiseResult());
+
+		// the original statements are not changed
+		assertEquals("shipped", ((QueryUpdate)updates.get(0).getUpdate()).getValues().get(0));
+	}
+
+	@Test
+	public void mergeCreatesOneStatementForAllPks()
+	{
+		List<ISQLStatement> updates = Arrays.asList(createUpdate(Integer.valueOf(1), "shipped"), createUpdate(Integer.valueOf(2), "shipped"),
+			createUpdate(Integer.valueOf(3), "shipped"));
+		SQLStatement merged = (SQLStatement)UpdateStatementMerger.merge(updates);
+
+		assertEquals(ISQLActionTypes.UPDATE_ACTION, merged.getAction());
+		assertEquals(3, merged.getPKs().getRowCount());
+		assertEquals(3, merged.getExpectedUpdateCount());
+		QueryUpdate update = (QueryUpdate)merged.getUpdate();
+		Placeholder placeholder = update.getPlaceholder(new TablePlaceholderKey(update.getTable(), SQLGenerator.PLACEHOLDER_PRIMARY_KEY));
+		assertArrayEquals(new Object[][] { { Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3) } }, (Object[][])placeholder.getValue());
+
+		// the original statements are not changed
+		QueryUpdate first = (QueryUpdate)updates.get(0).getUpdate();
+		assertArrayEquals(new Object[] { Integer.valueOf(1) },
+			(Object[])first.getPlaceholder(new TablePlaceholderKey(first.getTable(), SQLGenerator.PLACEHOLDER_PRIMARY_KEY)).getValue());
+		assertEquals(1, updates.get(0).getPKs().getRowCount());
+	}
+
+	@Test
+	public void resultsAreMappedPerRow() throws RepositoryException
+	{
+		ISQLStatement[] mergedUpdate = { createUpdate(Integer.valueOf(1), "shipped"), createUpdate(Integer.valueOf(2), "shipped"), createUpdate(
+			Integer.valueOf(3), "shipped") };
+		ISQLStatement[] statements = { UpdateStatementMerger.merge(Arrays.asList(mergedUpdate)), createInsert(Integer.valueOf(4), Integer.valueOf(5)), createUpdate(
+			Integer.valueOf(6), "open") };
+		Object[] results = { Boolean.TRUE, Integer.valueOf(4), Integer.valueOf(5), Boolean.FALSE };
+
+		Object[] rowResults = UpdateStatementMerger.getResultsPerRow(statements, Arrays.asList(mergedUpdate, null, null), results, 6);
+
+		assertArrayEquals(new Object[] { Boolean.TRUE, Boolean.TRUE, Boolean.TRUE, Integer.valueOf(4), Integer.valueOf(5), Boolean.FALSE }, rowResults);
+	}
+
+	@Test
+	public void failedMergedUpdateFailsAllItsRows() throws RepositoryException
+	{
+		ISQLStatement[] mergedUpdate = { createUpdate(Integer.valueOf(1), "shipped"), createUpdate(Integer.valueOf(2), "shipped") };
+		ISQLStatement[] statements = { UpdateStatementMerger.merge(Arrays.asList(mergedUpdate)), createUpdate(Integer.valueOf(3), "open") };
+		Exception exception = new RepositoryException("update count mismatch");
+
+		Object[] rowResults = UpdateStatementMerger.getResultsPerRow(statements, Arrays.asList(mergedUpdate, null), new Object[] { exception, Boolean.TRUE },
+			3);
+
+		assertArrayEquals(new Object[] { exception, exception, Boolean.TRUE }, rowResults);
+	}
+
+	@Test(expected = RepositoryException.class)
+	public void unexpectedNumberOfResults() throws RepositoryException
+	{
+		ISQLStatement[] mergedUpdate = { createUpdate(Integer.valueOf(1), "shipped"), createUpdate(Integer.valueOf(2), "shipped") };
+		ISQLStatement[] statements = { UpdateStatementMerger.merge(Arrays.asList(mergedUpdate)) };
+
+		// a result per row instead of per merged statement
+		UpdateStatementMerger.getResultsPerRow(statements, Arrays.<ISQLStatement[]> asList(mergedUpdate), new Object[] { Boolean.TRUE, Boolean.TRUE }, 2);
+	}
+}
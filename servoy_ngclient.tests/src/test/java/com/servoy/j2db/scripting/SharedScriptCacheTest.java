@@ -0,0 +1,102 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.scripting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.ScriptableObject;
+
+import com.servoy.j2db.util.UUID;
+
+/**
+ * Tests that the functions of the {@link SharedScriptCache} behave like functions of Context.compileFunction().
+ */
+@SuppressWarnings("nls")
+public class SharedScriptCacheTest
+{
+	// a method that uses its own name in its body, in a scope that has a variable or another method with that name
+	private static final String DECLARATION = "function myMethod() { return typeof myMethod != 'function' ? myMethod : myMethod === arguments.callee ? 'itself' : myMethod(); }";
+
+	private Context cx;
+
+	@Before
+	public void setUp()
+	{
+		cx = Context.enter();
+		cx.setOptimizationLevel(9);
+		SharedScriptCache.clear();
+	}
+
+	@After
+	public void tearDown()
+	{
+		SharedScriptCache.clear();
+		Context.exit();
+	}
+
+	private ScriptableObject createScope(Object myMethod)
+	{
+		ScriptableObject scope = cx.initStandardObjects();
+		scope.put("myMethod", scope, myMethod);
+		return scope;
+	}
+
+	private Object call(Function function, ScriptableObject scope)
+	{
+		return Context.jsToJava(function.call(cx, scope, scope, new Object[0]), Object.class);
+	}
+
+	private Object callCompiled(ScriptableObject scope)
+	{
+		return call(cx.compileFunction(scope, DECLARATION, "test", 1, null), scope);
+	}
+
+	@Test
+	public void functionNameResolvesAsWithCompileFunction()
+	{
+		UUID uuid = UUID.randomUUID();
+		long compiles = SharedScriptCache.getCompileCount();
+
+		ScriptableObject scope = createScope("scope variable");
+		Function shared = SharedScriptCache.getFunction(uuid, "test", DECLARATION, 1, scope, cx);
+		assertEquals(callCompiled(scope), call(shared, scope));
+
+		// the function of another client comes from the cache and resolves its name in its own scope like a compiled function
+		ScriptableObject otherScope = createScope("other scope variable");
+		Function other = SharedScriptCache.getFunction(uuid, "test", DECLARATION, 1, otherScope, cx);
+		assertEquals(callCompiled(otherScope), call(other, otherScope));
+		assertNotSame(shared, other);
+		assertSame(shared.getClass(), other.getClass());
+		assertSame(otherScope, other.getParentScope());
+
+		// a scope method with the same name
+		ScriptableObject methodScope = createScope(null);
+		methodScope.put("myMethod", methodScope, cx.compileFunction(methodScope, "function myMethod() { return 'scope method'; }", "test", 1, null));
+		Function method = SharedScriptCache.getFunction(uuid, "test", DECLARATION, 1, methodScope, cx);
+		assertEquals(callCompiled(methodScope), call(method, methodScope));
+
+		assertEquals(compiles + 1, SharedScriptCache.getCompileCount());
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.eventthread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.sablo.eventthread.Event;
+import org.sablo.eventthread.IEventDispatcher;
+import org.sablo.websocket.CurrentWindow;
+
+import com.servoy.j2db.IServiceProvider;
+import com.servoy.j2db.J2DBGlobals;
+import com.servoy.j2db.server.ngclient.INGApplication;
+import com.servoy.j2db.server.ngclient.INGClientWebsocketSession;
+import com.servoy.j2db.server.ngclient.INGClientWindow;
+import com.servoy.j2db.server.ngclient.NGRuntimeWindowManager;
+
+/**
+ * Load test harness for the {@link PooledNGEventDispatcher}, dispatches events of many simulated sessions and checks the threads that are used.
+ */
+@SuppressWarnings("nls")
+public class PooledNGEventDispatcherLoadTest
+{
+	private static final int SESSIONS = 5000;
+	private static final int EVENTS_PER_SESSION = 5;
+	private static final int MAX_THREADS = 16;
+
+	// shared by the dispatchers of the tests that do not need a pool of their own
+	private static final ThreadPoolExecutor pool = PooledNGEventDispatcher.createPool(0);
+
+	private static INGApplication createClient(String clientId)
+	{
+		return createClient(clientId, Collections.emptyList());
+	}
+
+	private static INGApplication createClient(String clientId, Collection<INGClientWindow> windows)
+	{
+		INGClientWebsocketSession session = (INGClientWebsocketSession)Proxy.newProxyInstance(PooledNGEventDispatcherLoadTest.class.getClassLoader(),
+			new Class[] { INGClientWebsocketSession.class },
+			(proxy, method, args) -> "getWindows".equals(method.getName()) ? windows : defaultValue(method.getReturnType()));
+		AtomicReference<NGRuntimeWindowManager> windowManager = new AtomicReference<>();
+		return (INGApplication)Proxy.newProxyInstance(PooledNGEventDispatcherLoadTest.class.getClassLoader(), new Class[] { INGApplication.class },
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "getClientID" :
+						return clientId;
+					case "getWebsocketSession" :
+						return session;
+					case "getRuntimeWindowManager" :
+						return windowManager.updateAndGet(manager -> manager != null ? manager : new NGRuntimeWindowManager((INGApplication)proxy));
+					case "hashCode" :
+						return Integer.valueOf(System.identityHashCode(proxy));
+					case "equals" :
+						return Boolean.valueOf(proxy == args[0]);
+					case "toString" :
+						return clientId;
+					default :
+						return defaultValue(method.getReturnType());
+				}
+			});
+	}
+
+	private static INGClientWindow createWindow(int nr)
+	{
+		return (INGClientWindow)Proxy.newProxyInstance(PooledNGEventDispatcherLoadTest.class.getClassLoader(), new Class[] { INGClientWindow.class },
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "getNr" :
+						return Integer.valueOf(nr);
+					case "hashCode" :
+						return Integer.valueOf(System.identityHashCode(proxy));
+					case "equals" :
+						return Boolean.valueOf(proxy == args[0]);
+					default :
+						return defaultValue(method.getReturnType());
+				}
+			});
+	}
+
+	private static Object defaultValue(Class< ? > type)
+	{
+		if (type == boolean.class) return Boolean.FALSE;
+		if (type == int.class) return Integer.valueOf(0);
+		if (type == long.class) return Long.valueOf(0);
+		if (type == double.class) return Double.valueOf(0);
+		if (type == float.class) return Float.valueOf(0);
+		if (type == short.class) return Short.valueOf((short)0);
+		if (type == byte.class) return Byte.valueOf((byte)0);
+		if (type == char.class) return Character.valueOf((char)0);
+		return null;
+	}
+
+	/**
+	 * Dispatcher with plain events, the {@link NGEvent} needs a running client to set the current window.
+	 */
+	private static PooledNGEventDispatcher createDispatcher(INGApplication client)
+	{
+		return createDispatcher(client, pool);
+	}
+
+	private static PooledNGEventDispatcher createDispatcher(INGApplication client, ThreadPoolExecutor pool)
+	{
+		return new PooledNGEventDispatcher(client, pool)
+		{
+			@Override
+			protected Event createEvent(Runnable event, int eventLevel)
+			{
+				return new Event(client.getWebsocketSession(), event, eventLevel)
+				{
+					@Override
+					protected void beforeExecute()
+					{
+					}
+
+					@Override
+					protected void afterExecute()
+					{
+					}
+				};
+			}
+		};
+	}
+
+	@Test
+	public void eventsRunOnPoolWithServiceProvider() throws Exception
+	{
+		INGApplication client = createClient("client1");
+		PooledNGEventDispatcher dispatcher = createDispatcher(client);
+		try
+		{
+			AtomicReference<IServiceProvider> serviceProvider = new AtomicReference<>();
+			AtomicReference<Boolean> isDispatchThread = new AtomicReference<>();
+			dispatcher.addEvent(() -> {
+				serviceProvider.set(J2DBGlobals.getServiceProvider());
+				isDispatchThread.set(Boolean.valueOf(dispatcher.isEventDispatchThread()));
+			});
+			assertSame(client, serviceProvider.get());
+			assertTrue(isDispatchThread.get().booleanValue());
+			assertFalse(dispatcher.isEventDispatchThread());
+
+			// the service provider is cleared when the thread is given back to the pool
+			AtomicReference<IServiceProvider> otherServiceProvider = new AtomicReference<>();
+			INGApplication client2 = createClient("client2");
+			PooledNGEventDispatcher dispatcher2 = createDispatcher(client2);
+			try
+			{
+				dispatcher2.addEvent(() -> otherServiceProvider.set(J2DBGlobals.getServiceProvider()));
+				assertSame(client2, otherServiceProvider.get());
+			}
+			finally
+			{
+				dispatcher2.destroy();
+			}
+		}
+		finally
+		{
+			dispatcher.destroy();
+		}
+	}
+
+	@Test
+	public void ngEventSetsCurrentWindow() throws Exception
+	{
+		INGApplication client = createClient("client1", List.of(createWindow(7)));
+		PooledNGEventDispatcher dispatcher = new PooledNGEventDispatcher(client);
+		try
+		{
+			AtomicReference<Integer> windowNr = new AtomicReference<>();
+			AtomicReference<String> windowName = new AtomicReference<>();
+			dispatcher.addEvent(() -> {
+				windowNr.set(Integer.valueOf(CurrentWindow.get().getNr()));
+				windowName.set(client.getRuntimeWindowManager().getCurrentWindowName());
+			});
+			assertEquals(Integer.valueOf(7), windowNr.get());
+			assertEquals("7", windowName.get());
+			// the previous current window of the client is restored after the event
+			assertNull(client.getRuntimeWindowManager().getCurrentWindowName());
+			assertFalse(CurrentWindow.exists());
+
+			// the current window is not left on the pool thread for the events of other sessions
+			AtomicReference<Boolean> windowOfOtherSession = new AtomicReference<>();
+			PooledNGEventDispatcher dispatcher2 = createDispatcher(createClient("client2"));
+			try
+			{
+				dispatcher2.addEvent(() -> windowOfOtherSession.set(Boolean.valueOf(CurrentWindow.exists())));
+				assertFalse(windowOfOtherSession.get().booleanValue());
+			}
+			finally
+			{
+				dispatcher2.destroy();
+			}
+		}
+		finally
+		{
+			dispatcher.destroy();
+		}
+	}
+
+	@Test
+	public void suspendDispatchesEventsUntilResumed() throws Exception
+	{
+		PooledNGEventDispatcher dispatcher = createDispatcher(createClient("client1"));
+		try
+		{
+			List<String> order = Collections.synchronizedList(new ArrayList<>());
+			Thread[] threads = new Thread[2];
+			CountDownLatch done = new CountDownLatch(1);
+			dispatcher.postEvent(() -> {
+				threads[0] = Thread.currentThread();
+				order.add("suspend");
+				try
+				{
+					dispatcher.suspend("dialog", IEventDispatcher.EVENT_LEVEL_DEFAULT, IEventDispatcher.NO_TIMEOUT);
+				}
+				catch (Exception e)
+				{
+					order.add(e.toString());
+				}
+				order.add("resumed");
+				done.countDown();
+			});
+			// returns when the first event is suspended
+			dispatcher.addEvent(() -> {
+				threads[1] = Thread.currentThread();
+				order.add("event while suspended");
+				dispatcher.resume("dialog");
+			});
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(List.of("suspend", "event while suspended", "resumed"), order);
+			assertSame(threads[0], threads[1]);
+		}
+		finally
+		{
+			dispatcher.destroy();
+		}
+	}
+
+	@Test
+	public void cancelSuspend() throws Exception
+	{
+		PooledNGEventDispatcher dispatcher = createDispatcher(createClient("client1"));
+		try
+		{
+			AtomicReference<Exception> exception = new AtomicReference<>();
+			CountDownLatch done = new CountDownLatch(1);
+			dispatcher.postEvent(() -> {
+				try
+				{
+					dispatcher.suspend(Integer.valueOf(1), IEventDispatcher.EVENT_LEVEL_DEFAULT, IEventDispatcher.NO_TIMEOUT);
+				}
+				catch (Exception e)
+				{
+					exception.set(e);
+				}
+				done.countDown();
+			});
+			dispatcher.addEvent(() -> dispatcher.cancelSuspend(Integer.valueOf(1), "browser refresh"));
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertTrue(exception.get() instanceof CancellationException);
+		}
+		finally
+		{
+			dispatcher.destroy();
+		}
+	}
+
+	private static long usedHeap()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+		{
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@Test
+	public void manySessions() throws Exception
+	{
+		ThreadPoolExecutor boundedPool = PooledNGEventDispatcher.createPool(MAX_THREADS);
+		List<INGApplication> clients = new ArrayList<>(SESSIONS);
+		for (int i = 0; i < SESSIONS; i++)
+		{
+			clients.add(createClient("client" + i));
+		}
+
+		long heapBefore = usedHeap();
+		List<PooledNGEventDispatcher> dispatchers = new ArrayList<>(SESSIONS);
+		for (INGApplication client : clients)
+		{
+			dispatchers.add(createDispatcher(client, boundedPool));
+		}
+		long heapPerSession = (usedHeap() - heapBefore) / SESSIONS;
+
+		AtomicInteger executed = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(SESSIONS * EVENTS_PER_SESSION);
+		for (int e = 0; e < EVENTS_PER_SESSION; e++)
+		{
+			for (PooledNGEventDispatcher dispatcher : dispatchers)
+			{
+				dispatcher.postEvent(() -> {
+					executed.incrementAndGet();
+					done.countDown();
+				});
+			}
+		}
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		assertEquals(SESSIONS * EVENTS_PER_SESSION, executed.get());
+
+		// the events of all sessions were dispatched by the bounded pool, the NGEventDispatcher would have a thread per session
+		int largestPoolSize = boundedPool.getLargestPoolSize();
+		assertTrue("largest pool size " + largestPoolSize, largestPoolSize <= MAX_THREADS);
+		System.out.println(SESSIONS + " sessions: " + largestPoolSize + " pool threads instead of " + SESSIONS + " event threads, " + heapPerSession +
+			" bytes heap per idle session dispatcher");
+
+		for (PooledNGEventDispatcher dispatcher : dispatchers)
+		{
+			dispatcher.destroy();
+		}
+		boundedPool.shutdown();
+	}
+
+	@Test
+	public void boundedPoolQueuesDispatchers() throws Exception
+	{
+		ThreadPoolExecutor boundedPool = PooledNGEventDispatcher.createPool(1);
+		PooledNGEventDispatcher dispatcher1 = createDispatcher(createClient("client1"), boundedPool);
+		PooledNGEventDispatcher dispatcher2 = createDispatcher(createClient("client2"), boundedPool);
+		try
+		{
+			// a broadcast to both sessions, the second dispatcher waits for the thread of the first
+			CountDownLatch release = new CountDownLatch(1);
+			CountDownLatch done = new CountDownLatch(2);
+			List<String> order = Collections.synchronizedList(new ArrayList<>());
+			dispatcher1.postEvent(() -> {
+				try
+				{
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				order.add("client1");
+				done.countDown();
+			});
+			dispatcher2.postEvent(() -> {
+				order.add("client2");
+				done.countDown();
+			});
+			assertEquals(1, boundedPool.getQueue().size());
+			release.countDown();
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(List.of("client1", "client2"), order);
+			assertEquals(1, boundedPool.getLargestPoolSize());
+		}
+		finally
+		{
+			dispatcher1.destroy();
+			dispatcher2.destroy();
+			boundedPool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,10 @@
+{
+	"name": "my-columnarcomponent",
+	"displayName": "My Component with a columnar viewport",
+	"definition": "mycolumnarcomponent.js",
+	"libraries": [],
+	"model":
+	{
+	        "myfoundset": { "type": "foundset", "dataproviders": ["firstname", "lastname"], "initialPreferredViewPortSize": 15, "columnarViewport": true }
+	}
+}
\ No newline at end of file
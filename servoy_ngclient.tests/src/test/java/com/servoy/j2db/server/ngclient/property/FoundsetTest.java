@@ -28,7 +28,9 @@ import java.awt.Dimension;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.json.JSONArray;
@@ -53,6 +55,7 @@ import com.servoy.base.solutionmodel.IBaseSMPart;
 import com.servoy.j2db.dataprocessing.BufferedDataSet;
 import com.servoy.j2db.dataprocessing.FoundSet;
 import com.servoy.j2db.dataprocessing.IFoundSetInternal;
+import com.servoy.j2db.dataprocessing.IRecordInternal;
 import com.servoy.j2db.persistence.Column;
 import com.servoy.j2db.persistence.Form;
 import com.servoy.j2db.persistence.IColumnTypes;
@@ -96,9 +99,16 @@ public class FoundsetTest extends AbstractSolutionTest
 		String comp2 = new String(bytes);
 		is.close();
 
+		is = getClass().getResourceAsStream("FoundSetTest-mycolumnarcomponent.spec");
+		bytes = new byte[is.available()];
+		is.read(bytes);
+		String comp3 = new String(bytes);
+		is.close();
+
 		HashMap<String, String> components = new HashMap<>();
 		components.put("mycomponent.spec", comp1);
 		components.put("mydynamiccomponent.spec", comp2);
+		components.put("mycolumnarcomponent.spec", comp3);
 		InMemPackageReader inMemPackageReader = new InMemPackageReader(manifest, components);
 		return inMemPackageReader;
 	}
@@ -122,6 +132,12 @@ public class FoundsetTest extends AbstractSolutionTest
 		WebComponent bean2 = form.createNewWebComponent("mycustomseparatefoundsetbean", "my-component");
 		bean2.setProperty("myfoundset", new ServoyJSONObject(
 			"{foundsetSelector: \"mem:testseparatefoundset\", loadAllRecords: true, dataproviders:{firstname:'test1',lastname:'test2'}}", false));
+
+		Form columnarForm = solution.createNewForm(validator, null, "testcolumnar", "mem:test", false, new Dimension(600, 400));
+		columnarForm.setNavigatorID(-1);
+		columnarForm.createNewPart(IBaseSMPart.BODY, 5);
+		WebComponent columnarBean = columnarForm.createNewWebComponent("mycolumnarbean", "my-columnarcomponent");
+		columnarBean.setProperty("myfoundset", new ServoyJSONObject("{foundsetSelector:'',dataproviders:{firstname:'test1',lastname:'test2'}}", false));
 	}
 
 	@Override
@@ -965,4 +981,97 @@ public class FoundsetTest extends AbstractSolutionTest
 		assertEquals("{\"n\":true}", stringWriter3.toString());
 	}
 
+
+	/**
+	 * Decodes the rows of a columnar viewport (see ColumnarViewportWriter) like viewport.ts does; cells that are not sent for a row are not in its object.
+	 */
+	private static List<JSONObject> decodeColumnarRows(JSONObject columnarRows)
+	{
+		List<JSONObject> rows = new ArrayList<>();
+		for (int r = 0; r < columnarRows.getInt("n"); r++)
+		{
+			rows.add(new JSONObject());
+		}
+		JSONArray keys = columnarRows.getJSONArray("k");
+		JSONArray columns = columnarRows.getJSONArray("c");
+		for (int c = 0; c < keys.length(); c++)
+		{
+			JSONArray values = columns.optJSONArray(c);
+			JSONArray indexes = null;
+			if (values == null)
+			{
+				values = columns.getJSONObject(c).getJSONArray("d");
+				indexes = columns.getJSONObject(c).getJSONArray("i");
+			}
+			for (int r = 0; r < rows.size(); r++)
+			{
+				int index = indexes == null ? r : indexes.getInt(r);
+				if (index >= 0) rows.get(r).put(keys.getString(c), values.get(index));
+			}
+		}
+		return rows;
+	}
+
+	@Test
+	public void columnarViewportFullValue() throws JSONException
+	{
+		IWebFormController form = (IWebFormController)client.getFormManager().showFormInCurrentContainer("testcolumnar");
+		assertNotNull(form);
+		WebFormComponent wc = form.getFormUI().getWebComponent("mycolumnarbean");
+		FoundsetTypeSabloValue rawPropertyValue = (FoundsetTypeSabloValue)wc.getRawPropertyValue("myfoundset");
+		rawPropertyValue.getViewPort().setBounds(0, 4);
+
+		StringWriter stringWriter = new StringWriter();
+		rawPropertyValue.toJSON(new JSONWriter(stringWriter), new BrowserConverterContext(wc, PushToServerEnum.allow));
+
+		JSONObject viewPort = new JSONObject(stringWriter.toString()).getJSONObject("viewPort");
+		assertEquals(4, viewPort.getInt("size"));
+		List<JSONObject> rows = decodeColumnarRows(viewPort.getJSONObject("rows"));
+		assertEquals(4, rows.size());
+		assertTrue(new JSONObject("{\"_svyRowId\":\"1.1;_0\",\"firstname\":\"value1\",\"lastname\":\"value2\"}").similar(rows.get(0)));
+		assertTrue(new JSONObject("{\"_svyRowId\":\"1.2;_1\",\"firstname\":\"value3\",\"lastname\":\"value4\"}").similar(rows.get(1)));
+		assertTrue(new JSONObject("{\"_svyRowId\":\"1.3;_2\",\"firstname\":\"value1\",\"lastname\":\"value2\"}").similar(rows.get(2)));
+		assertTrue(new JSONObject("{\"_svyRowId\":\"1.4;_3\",\"firstname\":\"value3\",\"lastname\":\"value4\"}").similar(rows.get(3)));
+	}
+
+	@Test
+	public void columnarViewportOnlySendsChangedCells() throws JSONException, ServoyException
+	{
+		IWebFormController form = (IWebFormController)client.getFormManager().showFormInCurrentContainer("testcolumnar");
+		assertNotNull(form);
+		WebFormComponent wc = form.getFormUI().getWebComponent("mycolumnarbean");
+		FoundsetTypeSabloValue rawPropertyValue = (FoundsetTypeSabloValue)wc.getRawPropertyValue("myfoundset");
+		BrowserConverterContext allowBrowserConverterContext = new BrowserConverterContext(wc, PushToServerEnum.allow);
+		rawPropertyValue.getViewPort().setBounds(0, 4);
+		rawPropertyValue.toJSON(new JSONWriter(new StringWriter()), allowBrowserConverterContext);
+
+		IRecordInternal record = rawPropertyValue.getFoundset().getRecord(1);
+		record.startEditing();
+		record.setValue("test2", "changed");
+		record.stopEditing();
+
+		StringWriter stringWriter = new StringWriter();
+		rawPropertyValue.changesToJSON(new JSONWriter(stringWriter), allowBrowserConverterContext);
+
+		JSONArray rowUpdates = new JSONObject(stringWriter.toString()).getJSONObject("upd_viewPort").getJSONArray("upd_rows");
+		assertEquals(1, rowUpdates.length());
+		JSONObject rowUpdate = rowUpdates.getJSONObject(0);
+		assertEquals(1, rowUpdate.getInt("startIndex"));
+		assertEquals(1, rowUpdate.getInt("endIndex"));
+		List<JSONObject> rows = decodeColumnarRows(rowUpdate.getJSONObject("rows"));
+		assertEquals(1, rows.size());
+		// the client already has the row id and the first name of the row
+		assertTrue(rows.get(0).toString(), new JSONObject("{\"lastname\":\"changed\"}").similar(rows.get(0)));
+
+		// changing it back sends the value again
+		record.startEditing();
+		record.setValue("test2", "value4");
+		record.stopEditing();
+
+		stringWriter = new StringWriter();
+		rawPropertyValue.changesToJSON(new JSONWriter(stringWriter), allowBrowserConverterContext);
+		rows = decodeColumnarRows(
+			new JSONObject(stringWriter.toString()).getJSONObject("upd_viewPort").getJSONArray("upd_rows").getJSONObject(0).getJSONObject("rows"));
+		assertTrue(rows.get(0).toString(), new JSONObject("{\"lastname\":\"value4\"}").similar(rows.get(0)));
+	}
 }
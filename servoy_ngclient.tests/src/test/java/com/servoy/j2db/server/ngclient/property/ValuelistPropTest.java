@@ -21,6 +21,8 @@ import java.awt.Dimension;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.json.JSONException;
@@ -39,6 +41,8 @@ import com.servoy.j2db.persistence.IColumnTypes;
 import com.servoy.j2db.persistence.IServer;
 import com.servoy.j2db.persistence.ValueList;
 import com.servoy.j2db.server.ngclient.IWebFormController;
+import com.servoy.j2db.server.ngclient.WebFormComponent;
+import com.servoy.j2db.server.ngclient.property.types.ValueListTypeSabloValue;
 import com.servoy.j2db.server.ngclient.utils.NGUtils;
 import com.servoy.j2db.util.JSONWrapperList;
 import com.servoy.j2db.util.ServoyException;
@@ -171,4 +175,34 @@ public class ValuelistPropTest extends AbstractSolutionTest
 		}
 	}
 
-}
\ No newline at end of file
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void loadMoreIsAnsweredForNonLazyValuelist() throws JSONException
+	{
+		IWebFormController form = (IWebFormController)client.getFormManager().showFormInCurrentContainer("test");
+		Assert.assertNotNull(form);
+
+		Context cx = Context.enter();
+		try
+		{
+			cx.evaluateString(form.getFormScope(), "elements.myCustomComponent.myFoundset = foundset;" +
+				"elements.myCustomComponent.columns = [{ myDataprovider: 'test1', myValuelist: 'myVl1' }];", "a", 1, null);
+			NGUtils.formChangesToString(((Container)form.getFormUI()), FullValueToJSONConverter.INSTANCE);
+
+			WebFormComponent component = form.getFormUI().getWebComponent("myCustomComponent");
+			List<Map<String, Object>> columns = (List<Map<String, Object>>)component.getProperty("columns");
+			ValueListTypeSabloValue valuelist = (ValueListTypeSabloValue)columns.get(0).get("myValuelist");
+
+			// a custom valuelist has all its values, a load more request is only answered
+			valuelist.fromJSON(new JSONObject("{ \"loadMore\": true, \"id\": 5 }"));
+			String changes = NGUtils.formChangesToString(((Container)form.getFormUI()), FullValueToJSONConverter.INSTANCE);
+			Assert.assertTrue("load more request should be answered: " + changes, changes.contains("\"handledID\":{\"id\":5,\"value\":true}"));
+			Assert.assertFalse("custom valuelist has no more rows: " + changes, changes.contains("hadMoreRows"));
+		}
+		finally
+		{
+			Context.exit();
+		}
+	}
+}
@@ -20,6 +20,7 @@ package com.servoy.j2db.server.ngclient.property;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.json.JSONString;
 import org.junit.Test;
@@ -265,4 +266,36 @@ public class ViewportClientSideTypesTests
 			expected.toJSONString(), jsonTypes, JSONCompareMode.NON_EXTENSIBLE);
 	}
 
+	@Test
+	public void coalesceWithReusedPairsForRows()
+	{
+		// FoundsetTypeSabloValue reuses the same list and pairs for all rows, only changing the types
+		ViewportClientSideTypes keeper = new ViewportClientSideTypes(0, 4);
+		Pair<String, JSONString> a = p("a", "date");
+		List<Pair<String, JSONString>> row = Arrays.asList(a);
+		keeper.registerClientSideType(0, row);
+		keeper.registerClientSideType(1, row);
+		a.setRight(null);
+		keeper.registerClientSideType(2, row);
+		a.setRight(new JSONStringWrapper("\"date\""));
+		keeper.registerClientSideType(3, row);
+		keeper.registerClientSideType(4, row);
+
+		String jsonTypes = keeper.getClientSideTypes().toJSONString();
+
+		// @formatter:off
+		EmbeddableJSONWriter expected = new EmbeddableJSONWriter(true);
+		expected.object().key(ViewportClientSideTypes.MAIN_TYPE).value("date").key(ViewportClientSideTypes.COL_TYPES).object()
+			.key("a").object().key(ViewportClientSideTypes.CELL_TYPES).array()
+				.object().key(JSONUtils.CONVERSION_CL_SIDE_TYPE_KEY).value(null).key(ViewportClientSideTypes.FOR_ROW_IDXS).array().value(2).endArray().endObject()
+			.endArray()
+			.endObject()
+			.endObject().endObject();
+		// @formatter:on
+
+		JSONAssert.assertEquals(
+			"Reused pairs with a different type in one row. Expected:\n" + expected.toJSONString() + "\nActual:\n" + jsonTypes + "\n\nJSONAssert explanation:\n",
+			expected.toJSONString(), jsonTypes, JSONCompareMode.NON_EXTENSIBLE);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.server.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the buckets and percentiles of the {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest
+{
+	@Test
+	public void emptyHistogram()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(0, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void smallValuesAreExact()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 16; i++)
+		{
+			histogram.record(i);
+		}
+		histogram.record(-10); // counted as 0
+		assertEquals(17, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(0));
+		assertEquals(0, histogram.getValueAtPercentile(10));
+		assertEquals(7, histogram.getValueAtPercentile(50));
+		assertEquals(15, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void bucketBoundaries()
+	{
+		// 16-31 have a bucket per value, 32-63 a bucket per 2 values, 64-127 per 4 values
+		assertEquals(16, valueOf(16));
+		assertEquals(31, valueOf(31));
+		assertEquals(33, valueOf(32));
+		assertEquals(33, valueOf(33));
+		assertEquals(63, valueOf(62));
+		assertEquals(67, valueOf(64));
+		assertEquals(127, valueOf(124));
+		assertEquals(1023, valueOf(1000));
+		assertEquals(Long.MAX_VALUE, valueOf(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void percentilesAreNeverLowerAndAtMostOneBucketHigher()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++)
+		{
+			histogram.record(i);
+		}
+		assertEquals(10000, histogram.getCount());
+		for (double percentile : new double[] { 1, 10, 50, 90, 95, 99, 99.9, 100 })
+		{
+			long exact = (long)Math.ceil(percentile / 100 * 10000);
+			long value = histogram.getValueAtPercentile(percentile);
+			assertTrue(percentile + ": " + value + " < " + exact, value >= exact);
+			assertTrue(percentile + ": " + value + " too high for " + exact, value <= exact + exact / 16);
+		}
+	}
+
+	@Test
+	public void percentileOfSkewedValues()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 99; i++)
+		{
+			histogram.record(10);
+		}
+		histogram.record(5000);
+		assertEquals(10, histogram.getValueAtPercentile(50));
+		assertEquals(10, histogram.getValueAtPercentile(99));
+		assertEquals(5119, histogram.getValueAtPercentile(99.5));
+		assertEquals(5119, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void addAndCopy()
+	{
+		LatencyHistogram a = new LatencyHistogram();
+		LatencyHistogram b = new LatencyHistogram();
+		a.record(1);
+		a.record(2);
+		b.record(1000);
+		a.add(b);
+		assertEquals(3, a.getCount());
+		assertEquals(1023, a.getValueAtPercentile(100));
+
+		LatencyHistogram copy = new LatencyHistogram(a);
+		a.record(3);
+		assertEquals(3, copy.getCount());
+		assertEquals(2, copy.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void slidingWindowsExpire()
+	{
+		LatencyHistogram.Sliding sliding = new LatencyHistogram.Sliding(1000, 3);
+		sliding.getWindow(10).record(1);
+		sliding.getWindow(11).record(2);
+		sliding.getWindow(12).record(3);
+		assertEquals(3, sliding.getHistogram(12).getCount());
+		assertEquals(2, sliding.getHistogram(13).getCount());
+		assertEquals(0, sliding.getHistogram(15).getCount());
+
+		// window 13 replaces window 10
+		sliding.getWindow(13).record(4);
+		sliding.getWindow(13).record(5);
+		assertEquals(4, sliding.getHistogram(13).getCount());
+		assertEquals(5, sliding.getHistogram(13).getValueAtPercentile(100));
+
+		// a late value of an older window is counted in the newer window at the same index
+		sliding.getWindow(10).record(6);
+		assertEquals(5, sliding.getHistogram(13).getCount());
+
+		LatencyHistogram.Sliding copy = new LatencyHistogram.Sliding(sliding);
+		sliding.getWindow(13).record(7);
+		assertEquals(5, copy.getHistogram(13).getCount());
+		assertEquals(3, copy.getWindowCount());
+		assertEquals(1000, copy.getWindowMs());
+	}
+
+	private static long valueOf(long value)
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(value);
+		return histogram.getValueAtPercentile(50);
+	}
+}
@@ -1125,6 +1125,100 @@ describe("Test foundset_custom_property suite", function() {
 		});
 	});
 
+	describe("Columnar viewport (foundset property with the 'columnarViewport' spec option)", function() {
+		var propertyContext;
+		var realClientValue;
+
+		beforeEach(function() {
+			propertyContext = {
+				getProperty: function(propertyName) { return undefined; },
+				getPushToServerCalculatedValue: function() { return pushToServerUtils.reject; },
+				isInsideModel: true
+			};
+			$compile('<div></div>')($scope);
+
+			// full value; the rows are sent per column, "firstname" uses a dictionary
+			realClientValue = sabloConverters.convertFromServerToClient({
+				"serverSize": 3,
+				"selectedRowIndexes": [0],
+				"multiSelect": false,
+				"viewPort": {
+					"startIndex": 0,
+					"size": 3,
+					"rows": {
+						"n": 3,
+						"k": [ "_svyRowId", "firstname", "lastname" ],
+						"c": [
+							[ "1.1;_0", "1.2;_1", "1.3;_2" ],
+							{ "d": [ "value1", "value3" ], "i": [ 0, 1, 0 ] },
+							[ "value2", "value4", null ]
+						]
+					}
+				}
+			}, foundsetType, undefined, undefined, undefined, $scope, propertyContext);
+			$scope.$digest();
+		});
+
+		it("Should decode the rows of a full viewport", function() {
+			var rows = realClientValue.viewPort.rows;
+			expect(rows.length).toEqual(3);
+			expect(rows[0]._svyRowId).toEqual("1.1;_0");
+			expect(rows[0].firstname).toEqual("value1");
+			expect(rows[0].lastname).toEqual("value2");
+			expect(rows[1]._svyRowId).toEqual("1.2;_1");
+			expect(rows[1].firstname).toEqual("value3");
+			expect(rows[1].lastname).toEqual("value4");
+			expect(rows[2]._svyRowId).toEqual("1.3;_2");
+			expect(rows[2].firstname).toEqual("value1");
+			expect(rows[2].lastname).toEqual(null);
+		});
+
+		it("Should only change the cells that are sent in a row change", function() {
+			realClientValue = sabloConverters.convertFromServerToClient({
+				"upd_viewPort": {
+					"upd_rows": [
+						{
+							// only the changed cell of the row, without the row id
+							"rows": { "n": 1, "k": [ "lastname" ], "c": [ { "d": [ "changed" ], "i": [ 0 ] } ] },
+							"startIndex": 1,
+							"endIndex": 1,
+							"type": 0
+						}
+					]
+				}
+			}, foundsetType, realClientValue, undefined, undefined, $scope, propertyContext);
+			$scope.$digest();
+
+			var rows = realClientValue.viewPort.rows;
+			expect(rows.length).toEqual(3);
+			expect(rows[1]._svyRowId).toEqual("1.2;_1");
+			expect(rows[1].firstname).toEqual("value3");
+			expect(rows[1].lastname).toEqual("changed");
+			expect(rows[0].lastname).toEqual("value2");
+		});
+
+		it("Should replace the whole row when the row id is sent", function() {
+			realClientValue = sabloConverters.convertFromServerToClient({
+				"upd_viewPort": {
+					"upd_rows": [
+						{
+							"rows": { "n": 1, "k": [ "_svyRowId", "firstname", "lastname" ], "c": [ [ "1.4;_2" ], [ "value5" ], [ "value6" ] ] },
+							"startIndex": 2,
+							"endIndex": 2,
+							"type": 0
+						}
+					]
+				}
+			}, foundsetType, realClientValue, undefined, undefined, $scope, propertyContext);
+			$scope.$digest();
+
+			var rows = realClientValue.viewPort.rows;
+			expect(rows[2]._svyRowId).toEqual("1.4;_2");
+			expect(rows[2].firstname).toEqual("value5");
+			expect(rows[2].lastname).toEqual("value6");
+		});
+	});
+
 });
 
 describe("Test $foundsetTypeUtils suite", function() {
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -106,6 +107,11 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 	private DLPropertyValueFoundsetFoundsetListener maxRecIndexPropertyValueListener;
 	private final Map<String, List<Pair<String, String>>> lookupDependency = new HashMap<String, List<Pair<String, String>>>();
 
+	// dataProviderID -> relations of visible child forms that use it as primary dataprovider, rebuilt when needed after child forms are added or removed
+	private Map<String, Set<String>> childFormRelationsByDataProvider;
+	// primary dataproviders of the relations in toWatchRelations, rebuilt when needed after data linked properties are added or removed
+	private Set<String> watchedRelationsDataProviders;
+
 	private IRecordInternal record;
 	private boolean findMode = false;
 	private boolean settingRecord;
@@ -445,6 +451,7 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 			}
 		}
 		visibleChildForms.put(form, relation);
+		childFormRelationsByDataProvider = null;
 	}
 
 	public void removeVisibleChildForm(IWebFormController form, boolean firstLevel)
@@ -461,6 +468,7 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 		if (visibleChildForms.containsKey(form))
 		{
 			visibleChildForms.remove(form);
+			childFormRelationsByDataProvider = null;
 			for (Object relWFC : form.getFormUI().getDataAdapterList().getParentRelatedForms().toArray())
 			{
 				((IWebFormController)relWFC).getFormUI().getDataAdapterList().removeVisibleChildForm(form, false);
@@ -591,6 +599,7 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 		{
 			if (toWatchRelations == null) toWatchRelations = new HashMap<>(3);
 			toWatchRelations.put(propertyValue, new Pair<Relation[], List<RelatedListener>>(targetDataLinks.relations, Collections.emptyList()));
+			watchedRelationsDataProviders = null;
 			createRelationListeners(propertyValue);
 		}
 	}
@@ -615,6 +624,7 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 			Pair<Relation[], List<RelatedListener>> toWatchRelationsForPropertyValue = toWatchRelations.remove(propertyValue);
 			if (toWatchRelationsForPropertyValue != null)
 			{
+				watchedRelationsDataProviders = null;
 				toWatchRelationsForPropertyValue.getRight().forEach(listener -> listener.dispose());
 				toWatchRelationsForPropertyValue.getRight().clear();
 			}
@@ -700,6 +710,69 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 
 	}
 
+	private Map<String, Set<String>> getChildFormRelationsByDataProvider()
+	{
+		if (childFormRelationsByDataProvider == null)
+		{
+			Map<String, Set<String>> relationsByDataProvider = new HashMap<>();
+			for (String relation : getVisibleChildFormCopy().values())
+			{
+				if (relation != null)
+				{
+					for (String dataProviderID : getPrimaryDataProviderIDs(getApplication().getFlattenedSolution().getRelationSequence(relation)))
+					{
+						relationsByDataProvider.computeIfAbsent(dataProviderID, dp -> new HashSet<>(3)).add(relation);
+					}
+				}
+			}
+			childFormRelationsByDataProvider = relationsByDataProvider;
+		}
+		return childFormRelationsByDataProvider;
+	}
+
+	private Set<String> getWatchedRelationsDataProviders()
+	{
+		if (watchedRelationsDataProviders == null)
+		{
+			Set<String> dataProviders = new HashSet<>();
+			if (toWatchRelations != null)
+			{
+				for (Pair<Relation[], List<RelatedListener>> pair : toWatchRelations.values())
+				{
+					dataProviders.addAll(getPrimaryDataProviderIDs(pair.getLeft()));
+				}
+			}
+			watchedRelationsDataProviders = dataProviders;
+		}
+		return watchedRelationsDataProviders;
+	}
+
+	private Set<String> getPrimaryDataProviderIDs(Relation[] relations)
+	{
+		if (relations == null) return Collections.emptySet();
+		Set<String> dataProviderIDs = new HashSet<>();
+		for (Relation relation : relations)
+		{
+			if (relation == null) continue;
+			try
+			{
+				IDataProvider[] primaryDataProviders = relation.getPrimaryDataProviders(getApplication().getFlattenedSolution());
+				if (primaryDataProviders != null)
+				{
+					for (IDataProvider primaryDataProvider : primaryDataProviders)
+					{
+						dataProviderIDs.add(primaryDataProvider.getDataProviderID());
+					}
+				}
+			}
+			catch (RepositoryException ex)
+			{
+				Debug.log(ex);
+			}
+		}
+		return dataProviderIDs;
+	}
+
 	private void createRelationListeners()
 	{
 		if (toWatchRelations != null) toWatchRelations.keySet().forEach(key -> createRelationListeners(key));
@@ -832,30 +905,17 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 	{
 		if (record != null && e != null && e.getName() != null)
 		{
-			for (Entry<IWebFormController, String> relatedFormEntry : getVisibleChildFormCopy().entrySet())
+			Set<String> dependentRelations = getChildFormRelationsByDataProvider().get(e.getName());
+			if (dependentRelations != null)
 			{
-				IWebFormController relatedForm = relatedFormEntry.getKey();
-				String relatedFormRelation = relatedFormEntry.getValue();
-				boolean depends = false;
-				Relation[] relations = getApplication().getFlattenedSolution().getRelationSequence(relatedFormRelation);
-				for (int r = 0; !depends && relations != null && r < relations.length; r++)
+				for (Entry<IWebFormController, String> relatedFormEntry : getVisibleChildFormCopy().entrySet())
 				{
-					try
+					IWebFormController relatedForm = relatedFormEntry.getKey();
+					String relatedFormRelation = relatedFormEntry.getValue();
+					if (dependentRelations.contains(relatedFormRelation))
 					{
-						IDataProvider[] primaryDataProviders = relations[r].getPrimaryDataProviders(getApplication().getFlattenedSolution());
-						for (int p = 0; !depends && primaryDataProviders != null && p < primaryDataProviders.length; p++)
-						{
-							depends = e.getName().equals(primaryDataProviders[p].getDataProviderID());
-						}
+						relatedForm.loadRecords(record.getRelatedFoundSet(relatedFormRelation, ((BasicFormController)relatedForm).getDefaultSortColumns()));
 					}
-					catch (RepositoryException ex)
-					{
-						Debug.log(ex);
-					}
-				}
-				if (depends)
-				{
-					relatedForm.loadRecords(record.getRelatedFoundSet(relatedFormRelation, ((BasicFormController)relatedForm).getDefaultSortColumns()));
 				}
 			}
 		}
@@ -875,7 +935,10 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 			}
 		}
 		// one of the relations could be changed make sure they are recreated.
-		createRelationListeners();
+		if (toWatchRelations != null && !toWatchRelations.isEmpty() && (e.getName() == null || getWatchedRelationsDataProviders().contains(e.getName())))
+		{
+			createRelationListeners();
+		}
 		if (getForm().isFormVisible())
 		{
 			pushChangedValues(e.getName(), true);
@@ -1263,6 +1326,7 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 		if (!b)
 		{
 			visibleChildForms.clear();
+			childFormRelationsByDataProvider = null;
 		}
 	}
 
@@ -1344,6 +1408,8 @@ public class DataAdapterList implements IModificationListener, ITagResolver, IDa
 		findModeAwareProperties.clear();
 		parentRelatedForms.clear();
 		visibleChildForms.clear();
+		childFormRelationsByDataProvider = null;
+		watchedRelationsDataProviders = null;
 	}
 
 	@Override
@@ -24,7 +24,13 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.ServletConfig;
@@ -56,7 +62,8 @@ import com.servoy.j2db.persistence.SolutionMetaData;
 import com.servoy.j2db.plugins.IMediaUploadCallback;
 import com.servoy.j2db.plugins.IUploadData;
 import com.servoy.j2db.scripting.JSMap;
-import com.servoy.j2db.server.ngclient.less.LessCompiler;
+import com.servoy.j2db.server.ngclient.less.CompiledLessCache;
+import com.servoy.j2db.server.ngclient.less.CompiledLessCache.CompiledCss;
 import com.servoy.j2db.server.shared.ApplicationServerRegistry;
 import com.servoy.j2db.server.shared.IApplicationServer;
 import com.servoy.j2db.util.Debug;
@@ -183,8 +190,8 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 				if (clientnr != null && (client = getClient(req, Integer.parseInt(clientnr))) != null)
 				{
 					String decrypt = client.getFlattenedSolution().getEncryptionHandler().decryptString(encrypted);
-					found = sendData(resp, MediaURLStreamHandler.getBlobLoaderMedia(client, decrypt),
-						MediaURLStreamHandler.getBlobLoaderMimeType(decrypt), MediaURLStreamHandler.getBlobLoaderFileName(decrypt), null);
+					found = sendData(req, resp, MediaURLStreamHandler.getBlobLoaderMedia(client, decrypt),
+						MediaURLStreamHandler.getBlobLoaderMimeType(decrypt), MediaURLStreamHandler.getBlobLoaderFileName(decrypt), null, -1);
 				}
 
 			}
@@ -208,7 +215,15 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 				mediaInfo.touch();
 				if (HTTPUtils.checkAndSetUnmodified(request, response, mediaInfo.getLastModifiedTimeStamp())) return true;
 
-				return sendData(response, mediaInfo.getData(), mediaInfo.getContentType(), mediaInfo.getFileName(), mediaInfo.getContentDisposition());
+				File file = mediaInfo.getFile();
+				if (file != null)
+				{
+					// large data is kept in a temp file, stream it
+					return sendFile(request, response, file, mediaInfo.getContentType(), mediaInfo.getFileName(), mediaInfo.getContentDisposition(),
+						mediaInfo.getLastModifiedTimeStamp());
+				}
+				return sendData(request, response, mediaInfo.getData(), mediaInfo.getContentType(), mediaInfo.getFileName(),
+					mediaInfo.getContentDisposition(), mediaInfo.getLastModifiedTimeStamp());
 			}
 
 		}
@@ -312,8 +327,37 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 		// cache resources on client until changed
 		if (HTTPUtils.checkAndSetUnmodified(request, response, media.getLastModifiedTime() != -1 ? media.getLastModifiedTime() : fs.getLastModifiedTime()))
 			return true;
-		return sendData(response, media.getName().endsWith(".less") ? LessCompiler.compileSolutionLessFile(media, fs).getBytes("UTF-8") : media.getMediaData(),
-			media.getName().endsWith(".less") ? "text/css" : media.getMimeType(), media.getName(), null);
+		if (media.getName().endsWith(".less"))
+		{
+			return sendCompiledCss(request, response, CompiledLessCache.getCompiledCss(media, fs), media.getName());
+		}
+		return sendData(request, response, media.getMediaData(), media.getMimeType(), media.getName(), null,
+			media.getLastModifiedTime() != -1 ? media.getLastModifiedTime() : fs.getLastModifiedTime());
+	}
+
+	private boolean sendCompiledCss(HttpServletRequest request, HttpServletResponse response, CompiledCss css, String fileName) throws IOException
+	{
+		String etag = css.getETag();
+		response.setHeader("ETag", etag);
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null && ("*".equals(ifNoneMatch.trim()) || Arrays.asList(ifNoneMatch.split("\\s*,\\s*")).contains(etag)))
+		{
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return true;
+		}
+
+		byte[] gzipped = css.getGzipBytes();
+		if (gzipped != null)
+		{
+			response.addHeader("Vary", "Accept-Encoding");
+			String acceptEncoding = request.getHeader("Accept-Encoding");
+			if (acceptEncoding != null && acceptEncoding.contains("gzip"))
+			{
+				response.setHeader("Content-Encoding", "gzip");
+				return sendData(null, response, gzipped, "text/css", fileName, null, -1);
+			}
+		}
+		return sendData(null, response, css.getBytes(), "text/css", fileName, null, -1);
 	}
 
 	private boolean sendClientFlattenedSolutionBasedMedia(HttpServletRequest request, HttpServletResponse response, int clientnr, String mediaName)
@@ -332,7 +376,11 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 		return false;
 	}
 
-	private boolean sendData(HttpServletResponse resp, byte[] mediaData, String contentType, String fileName, String contentDisposition) throws IOException
+	/**
+	 * Send the data, when a request is given a single byte range that is requested with the Range header is sent.
+	 */
+	private boolean sendData(HttpServletRequest request, HttpServletResponse resp, byte[] mediaData, String contentType, String fileName,
+		String contentDisposition, long lastModified) throws IOException
 	{
 		boolean dataWasSent = false;
 		if (mediaData != null && mediaData.length > 0)
@@ -342,21 +390,150 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 			{
 				ct = MimeTypes.getContentType(mediaData, fileName);
 			}
-			if (ct != null) resp.setContentType(ct);
-			resp.setContentLength(mediaData.length);
-			if (fileName != null)
+			long[] range = setResponseHeaders(request, resp, mediaData.length, ct, fileName, contentDisposition, lastModified);
+			if (range != null)
 			{
-				resp.setHeader("Content-disposition", (contentDisposition == null ? "attachment" : contentDisposition) + "; filename=\"" + fileName +
-					"\"; filename*=UTF-8''" + Rfc5987Util.encode(fileName, "UTF8") + "");
+				ServletOutputStream outputStream = resp.getOutputStream();
+				outputStream.write(mediaData, (int)range[0], (int)(range[1] - range[0] + 1));
+				outputStream.flush();
 			}
-			ServletOutputStream outputStream = resp.getOutputStream();
-			outputStream.write(mediaData);
-			outputStream.flush();
 			dataWasSent = true;
 		}
 		return dataWasSent;
 	}
 
+	/**
+	 * Stream the file to the response without loading it in memory, supports a single byte range.
+	 */
+	private boolean sendFile(HttpServletRequest request, HttpServletResponse resp, File file, String contentType, String fileName, String contentDisposition,
+		long lastModified) throws IOException
+	{
+		if (!file.isFile() || file.length() == 0) return false;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			String ct = contentType;
+			if (ct == null)
+			{
+				ByteBuffer header = ByteBuffer.allocate((int)Math.min(channel.size(), 1024));
+				channel.read(header, 0);
+				ct = MimeTypes.getContentType(header.array(), fileName);
+			}
+			long[] range = setResponseHeaders(request, resp, channel.size(), ct, fileName, contentDisposition, lastModified);
+			if (range != null)
+			{
+				ServletOutputStream outputStream = resp.getOutputStream();
+				WritableByteChannel out = Channels.newChannel(outputStream);
+				long position = range[0];
+				long remaining = range[1] - range[0] + 1;
+				while (remaining > 0)
+				{
+					long n = channel.transferTo(position, remaining, out);
+					if (n <= 0) break;
+					position += n;
+					remaining -= n;
+				}
+				outputStream.flush();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Set the headers of the response for the content of the given length.
+	 *
+	 * @return the first and last byte to send or null when nothing has to be sent (the range could not be satisfied)
+	 */
+	private static long[] setResponseHeaders(HttpServletRequest request, HttpServletResponse resp, long length, String contentType, String fileName,
+		String contentDisposition, long lastModified)
+	{
+		if (contentType != null) resp.setContentType(contentType);
+		if (fileName != null)
+		{
+			resp.setHeader("Content-disposition", (contentDisposition == null ? "attachment" : contentDisposition) + "; filename=\"" + fileName +
+				"\"; filename*=UTF-8''" + Rfc5987Util.encode(fileName, "UTF8") + "");
+		}
+
+		long[] range = null;
+		if (request != null)
+		{
+			resp.setHeader("Accept-Ranges", "bytes");
+			range = getRequestedRange(request, length, lastModified);
+			if (range != null && range.length == 0)
+			{
+				resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				resp.setHeader("Content-Range", "bytes */" + length);
+				return null;
+			}
+		}
+		if (range == null)
+		{
+			range = new long[] { 0, length - 1 };
+		}
+		else
+		{
+			resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			resp.setHeader("Content-Range", "bytes " + range[0] + '-' + range[1] + '/' + length);
+		}
+		resp.setContentLengthLong(range[1] - range[0] + 1);
+		return range;
+	}
+
+	/**
+	 * Parse the Range header, only a single byte range is supported, with multiple ranges the whole content is sent.
+	 *
+	 * @return null for the whole content, an empty array when the range cannot be satisfied, otherwise the first and last byte
+	 */
+	private static long[] getRequestedRange(HttpServletRequest request, long length, long lastModified)
+	{
+		String range = request.getHeader("Range");
+		if (range == null || !range.startsWith("bytes=") || range.indexOf(',') != -1) return null;
+
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange != null)
+		{
+			// only the last modified date is supported as validator, when the content has changed the whole content is sent
+			long ifRangeDate = -1;
+			try
+			{
+				ifRangeDate = request.getDateHeader("If-Range");
+			}
+			catch (IllegalArgumentException e)
+			{
+				// an etag
+			}
+			if (ifRangeDate == -1 || lastModified <= 0 || lastModified / 1000 > ifRangeDate / 1000) return null;
+		}
+
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash == -1) return null;
+		try
+		{
+			long start;
+			long end;
+			if (dash == 0)
+			{
+				// suffix range, the last n bytes
+				long suffix = Long.parseLong(spec.substring(1).trim());
+				if (suffix <= 0) return new long[0];
+				start = Math.max(0, length - suffix);
+				end = length - 1;
+			}
+			else
+			{
+				start = Long.parseLong(spec.substring(0, dash).trim());
+				end = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1).trim()), length - 1);
+			}
+			if (start >= length || start > end) return new long[0];
+			return new long[] { start, end };
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
 	@Override
 	protected void doPost(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException
 	{
@@ -469,7 +646,8 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 
 	public static final class MediaInfo
 	{
-		private static final long MAX_DATA_SIZE_FOR_IN_MEMORY = 5242880; // 5MB
+		private static final long MAX_DATA_SIZE_FOR_IN_MEMORY = Utils
+			.getAsLong(Settings.getInstance().getProperty("servoy.ng_web_client.dynamic.inmemory.maxsize", "5242880"), false); // 5MB, larger data is kept in a temp file
 
 		private final String name;
 		private final String fileName;
@@ -536,6 +714,18 @@ public class MediaResourcesServlet extends AbstractMediaResourceServlet
 			return mediaSize;
 		}
 
+		/**
+		 * @return the temp file of the data when it is too large to keep in memory, otherwise null
+		 */
+		public File getFile()
+		{
+			if (data == null && MediaResourcesServlet.tempDir != null)
+			{
+				return new File(MediaResourcesServlet.tempDir, name);
+			}
+			return null;
+		}
+
 		public byte[] getData()
 		{
 			if (data == null)
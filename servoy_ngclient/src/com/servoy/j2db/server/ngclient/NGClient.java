@@ -99,6 +99,7 @@ import com.servoy.j2db.server.shared.IApplicationServer;
 import com.servoy.j2db.server.shared.IPerformanceDataProvider;
 import com.servoy.j2db.server.shared.IPerformanceRegistry;
 import com.servoy.j2db.server.shared.PerformanceData;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
 import com.servoy.j2db.server.shared.PerformanceTiming;
 import com.servoy.j2db.server.shared.PerformanceTimingAggregate;
 import com.servoy.j2db.server.shared.WebCredentials;
@@ -114,6 +115,7 @@ import com.servoy.j2db.util.RendererParentWrapper;
 import com.servoy.j2db.util.SecuritySupport;
 import com.servoy.j2db.util.ServoyException;
 import com.servoy.j2db.util.ServoyScheduledExecutor;
+import com.servoy.j2db.util.SharedPoolScheduledExecutor;
 import com.servoy.j2db.util.UUID;
 import com.servoy.j2db.util.Utils;
 
@@ -130,7 +132,7 @@ public class NGClient extends AbstractApplication
 
 	private final INGClientWebsocketSession wsSession;
 
-	private transient volatile ServoyScheduledExecutor scheduledExecutorService;
+	private transient volatile ScheduledExecutorService scheduledExecutorService;
 
 	private volatile NGRuntimeWindowManager runtimeWindowManager;
 
@@ -608,6 +610,7 @@ public class NGClient extends AbstractApplication
 				IPerformanceRegistry registry = (getApplicationServerAccess() != null ? getApplicationServerAccess().getFunctionPerfomanceRegistry() : null);
 				if (registry != null)
 				{
+					PerformanceMetrics.register(registry);
 					performanceData = registry.getPerformanceData(solutionName);
 				}
 			}
@@ -946,7 +949,25 @@ public class NGClient extends AbstractApplication
 		{
 			synchronized (this)
 			{
-				if (scheduledExecutorService == null)
+				if (scheduledExecutorService == null && SharedPoolScheduledExecutor.isEnabled())
+				{
+					scheduledExecutorService = new SharedPoolScheduledExecutor("NGClient-" + getClientID())
+					{
+						@Override
+						protected void beforeExecute(Thread t, Runnable r)
+						{
+							// the threads of the shared pool run the tasks of all clients
+							J2DBGlobals.setServiceProvider(NGClient.this);
+						}
+
+						@Override
+						protected void afterExecute(Runnable r, Throwable t)
+						{
+							J2DBGlobals.setServiceProvider(null);
+						}
+					};
+				}
+				else if (scheduledExecutorService == null)
 				{
 					scheduledExecutorService = new ServoyScheduledExecutor(16, 1, "NGClient-Pool-" + getClientID())
 					{
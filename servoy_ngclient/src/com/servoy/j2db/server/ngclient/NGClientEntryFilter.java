@@ -58,6 +58,7 @@ import com.servoy.j2db.persistence.IRepository;
 import com.servoy.j2db.persistence.Media;
 import com.servoy.j2db.persistence.Solution;
 import com.servoy.j2db.persistence.SolutionMetaData;
+import com.servoy.j2db.server.ngclient.less.LessPrecompiler;
 import com.servoy.j2db.server.ngclient.property.types.Types;
 import com.servoy.j2db.server.ngclient.template.DesignFormLayoutStructureGenerator;
 import com.servoy.j2db.server.ngclient.template.FormLayoutGenerator;
@@ -226,6 +227,9 @@ public class NGClientEntryFilter extends WebEntry
 			}
 
 			super.init(fc);
+
+			// compile the less files of the solutions in the background before the browsers ask for them
+			LessPrecompiler.precompileAll();
 		}
 	}
 
@@ -72,6 +72,7 @@ import com.servoy.j2db.scripting.StartupArguments;
 import com.servoy.j2db.server.ngclient.INGClientWindow.IFormHTMLAndJSGenerator;
 import com.servoy.j2db.server.ngclient.eventthread.NGClientWebsocketSessionWindows;
 import com.servoy.j2db.server.ngclient.eventthread.NGEventDispatcher;
+import com.servoy.j2db.server.ngclient.eventthread.PooledNGEventDispatcher;
 import com.servoy.j2db.server.shared.ApplicationServerRegistry;
 import com.servoy.j2db.server.shared.IApplicationServerSingleton;
 import com.servoy.j2db.util.Debug;
@@ -211,7 +212,22 @@ public class NGClientWebsocketSession extends BaseWebsocketSession implements IN
 	@Override
 	protected IEventDispatcher createEventDispatcher()
 	{
-		return client == null ? null : new NGEventDispatcher(client);
+		if (client == null) return null;
+		return PooledNGEventDispatcher.isEnabled() ? new PooledNGEventDispatcher(client) : new NGEventDispatcher(client);
+	}
+
+	@Override
+	public IEventDispatcher getEventDispatcher(boolean create)
+	{
+		if (create && executor == null && client != null && PooledNGEventDispatcher.isEnabled())
+		{
+			synchronized (this)
+			{
+				// the pooled dispatcher runs on a shared pool, so it should not get a thread of its own
+				if (executor == null) executor = createEventDispatcher();
+			}
+		}
+		return super.getEventDispatcher(create);
 	}
 
 	@Override
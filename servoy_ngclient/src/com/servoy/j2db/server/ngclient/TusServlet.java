@@ -17,6 +17,7 @@
 
 package com.servoy.j2db.server.ngclient;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -241,7 +242,7 @@ public class TusServlet extends AbstractMediaResourceServlet
 		@Override
 		public InputStream getInputStream() throws IOException
 		{
-			return new FileInputStream(file);
+			return new BufferedInputStream(new FileInputStream(file));
 		}
 
 		@Override
@@ -265,20 +266,32 @@ public class TusServlet extends AbstractMediaResourceServlet
 		public String getString(final String charset)
 			throws UnsupportedEncodingException
 		{
-			return new String(get(), charset);
+			try
+			{
+				// decode while reading, so the file is not also fully in memory as bytes
+				return FileUtils.readFileToString(file, charset);
+			}
+			catch (UnsupportedEncodingException e)
+			{
+				throw e;
+			}
+			catch (IOException e)
+			{
+				Debug.error(e);
+			}
+			return null;
 		}
 
 		@Override
 		public String getString()
 		{
-			byte[] rawdata = get();
 			try
 			{
-				return new String(rawdata, "UTF-8");
+				return getString("UTF-8");
 			}
 			catch (UnsupportedEncodingException e)
 			{
-				return new String(rawdata);
+				return new String(get());
 			}
 		}
 
@@ -79,6 +79,11 @@ public class NGEventDispatcher extends EventDispatcher
 	protected void handleException(Event event, Throwable t)
 	{
 		super.handleException(event, t);
+		sendInternalError(event, t);
+	}
+
+	static void sendInternalError(Event event, Throwable t)
+	{
 		boolean restoreWindow = false;
 		if (CurrentWindow.safeGet() == null && event != null)
 		{
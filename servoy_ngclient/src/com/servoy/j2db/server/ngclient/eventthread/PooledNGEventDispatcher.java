@@ -0,0 +1,507 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+
+package com.servoy.j2db.server.ngclient.eventthread;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sablo.eventthread.Event;
+import org.sablo.eventthread.EventDispatcher;
+import org.sablo.eventthread.IEventDispatcher;
+import org.sablo.websocket.CurrentWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.servoy.j2db.J2DBGlobals;
+import com.servoy.j2db.server.ngclient.INGApplication;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Event dispatcher of a client that does not own a thread, enabled with servoy.ngclient.pooledEventDispatcher.
+ * <p>
+ * Where the {@link NGEventDispatcher} runs on its own thread for the lifetime of the session, this dispatcher takes a thread of a pool that is shared by all
+ * sessions when events are added and gives it back when there are no events left, so idle sessions do not have a thread. While the dispatcher is
+ * suspended (modal dialogs, sync api calls) it keeps its thread and dispatches the events of the session on it, like the {@link NGEventDispatcher}.
+ * <p>
+ * The service provider of {@link J2DBGlobals} is set on the pool thread while the dispatcher runs on it, {@link CurrentWindow} is set per event by the events
+ * and both are cleared when the thread is given back.
+ * <p>
+ * By default the pool grows to the number of sessions that have events at the same time, idle threads are stopped after a minute. So a broadcast of a
+ * data change to all sessions (ClientStub) can start a thread per session for a short time, like each session has a thread with the {@link NGEventDispatcher}.
+ * With servoy.ngclient.pooledEventDispatcher.maxThreads the pool is bounded and the dispatchers of other sessions wait in a queue for a thread.
+ * A suspended dispatcher keeps its thread, so the maximum must be higher than the number of sessions that can have a modal dialog or a
+ * sync api call open at the same time, otherwise the other sessions wait until one of those is resumed.
+ *
+ * @since 2024.3
+ */
+public class PooledNGEventDispatcher implements IEventDispatcher
+{
+	private static final Logger log = LoggerFactory.getLogger(PooledNGEventDispatcher.class);
+
+	private static final boolean ENABLED = Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.ngclient.pooledEventDispatcher", "false")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final int MAX_THREADS = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.ngclient.pooledEventDispatcher.maxThreads", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private static final ThreadPoolExecutor sharedPool = createPool(MAX_THREADS);
+
+	private final INGApplication client;
+	private final ThreadPoolExecutor pool;
+
+	// guarded by events
+	private final LinkedList<QueuedEvent> events = new LinkedList<>();
+	private final Map<Object, SuspendState> suspended = new HashMap<>();
+	private boolean dispatching = false;
+	private boolean exit = false;
+
+	// only changed while holding events, so interruptEventThread() can not interrupt the thread after it is given back to the pool
+	private volatile Thread dispatchThread;
+
+	// only used on the dispatch thread
+	private final ArrayDeque<QueuedEvent> executingEvents = new ArrayDeque<>();
+
+	public PooledNGEventDispatcher(INGApplication client)
+	{
+		this(client, sharedPool);
+	}
+
+	PooledNGEventDispatcher(INGApplication client, ThreadPoolExecutor pool)
+	{
+		this.client = client;
+		this.pool = pool;
+	}
+
+	/**
+	 * Pool for the dispatchers, idle threads are stopped after a minute.
+	 *
+	 * @param maxThreads the maximum number of threads, 0 for a pool that grows with the number of sessions that have events or are suspended.
+	 */
+	static ThreadPoolExecutor createPool(int maxThreads)
+	{
+		ThreadPoolExecutor executor;
+		if (maxThreads > 0)
+		{
+			executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				PooledNGEventDispatcher::newThread);
+			executor.allowCoreThreadTimeOut(true);
+		}
+		else
+		{
+			executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), PooledNGEventDispatcher::newThread);
+		}
+		return executor;
+	}
+
+	private static Thread newThread(Runnable runnable)
+	{
+		Thread thread = new Thread(runnable, "NGEventDispatcher-" + threadCount.incrementAndGet()); //$NON-NLS-1$
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	public static boolean isEnabled()
+	{
+		return ENABLED;
+	}
+
+	/**
+	 * @return the number of threads in the pool, running or idle.
+	 */
+	public static int getPoolSize()
+	{
+		return sharedPool.getPoolSize();
+	}
+
+	/**
+	 * @return the number of threads in the pool that run a dispatcher.
+	 */
+	public static int getActiveCount()
+	{
+		return sharedPool.getActiveCount();
+	}
+
+	protected Event createEvent(Runnable event, int eventLevel)
+	{
+		return new NGEvent(client, event, eventLevel);
+	}
+
+	/**
+	 * The dispatcher does not need a thread of its own, events are dispatched on the pool.
+	 */
+	@Override
+	public void run()
+	{
+	}
+
+	@Override
+	public boolean isEventDispatchThread()
+	{
+		return dispatchThread == Thread.currentThread();
+	}
+
+	@Override
+	public void addEvent(Runnable event)
+	{
+		addEvent(event, EVENT_LEVEL_DEFAULT);
+	}
+
+	@Override
+	public void addEvent(Runnable event, int eventLevel)
+	{
+		if (isEventDispatchThread())
+		{
+			event.run();
+			return;
+		}
+
+		QueuedEvent queuedEvent = queue(event, eventLevel);
+		if (queuedEvent == null) return;
+		synchronized (events)
+		{
+			// wait until the event is done or suspends, like the event thread
+			while (!queuedEvent.done && !queuedEvent.suspended && !exit)
+			{
+				try
+				{
+					events.wait();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void postEvent(Runnable event)
+	{
+		queue(event, EVENT_LEVEL_DEFAULT);
+	}
+
+	private QueuedEvent queue(Runnable event, int eventLevel)
+	{
+		QueuedEvent queuedEvent = new QueuedEvent(createEvent(event, eventLevel), eventLevel);
+		synchronized (events)
+		{
+			if (exit) return null;
+			events.add(queuedEvent);
+			if (dispatching)
+			{
+				// the dispatcher is running or suspended
+				events.notifyAll();
+			}
+			else
+			{
+				dispatching = true;
+				pool.execute(this::dispatch);
+			}
+		}
+		return queuedEvent;
+	}
+
+	/**
+	 * Dispatch the events on a pool thread until there are no events left.
+	 */
+	private void dispatch()
+	{
+		synchronized (events)
+		{
+			// the thread is shared, do not start with an interrupt that was meant for an earlier task of the pool
+			Thread.interrupted();
+			dispatchThread = Thread.currentThread();
+		}
+		J2DBGlobals.setServiceProvider(client);
+		try
+		{
+			QueuedEvent queuedEvent;
+			while ((queuedEvent = nextEvent(EVENT_LEVEL_DEFAULT)) != null)
+			{
+				execute(queuedEvent);
+			}
+		}
+		finally
+		{
+			J2DBGlobals.setServiceProvider(null);
+			CurrentWindow.set(null);
+			synchronized (events)
+			{
+				dispatchThread = null;
+				// the thread is shared, clear an interrupt of interruptEventThread()
+				Thread.interrupted();
+				dispatching = false;
+				if (!exit && hasEvent(EVENT_LEVEL_DEFAULT))
+				{
+					dispatching = true;
+					pool.execute(this::dispatch);
+				}
+			}
+		}
+	}
+
+	private QueuedEvent nextEvent(int minEventLevel)
+	{
+		synchronized (events)
+		{
+			if (exit) return null;
+			Iterator<QueuedEvent> it = events.iterator();
+			while (it.hasNext())
+			{
+				QueuedEvent queuedEvent = it.next();
+				if (queuedEvent.eventLevel >= minEventLevel)
+				{
+					it.remove();
+					return queuedEvent;
+				}
+			}
+			return null;
+		}
+	}
+
+	private boolean hasEvent(int minEventLevel)
+	{
+		synchronized (events)
+		{
+			for (QueuedEvent queuedEvent : events)
+			{
+				if (queuedEvent.eventLevel >= minEventLevel) return true;
+			}
+			return false;
+		}
+	}
+
+	private void execute(QueuedEvent queuedEvent)
+	{
+		executingEvents.push(queuedEvent);
+		try
+		{
+			queuedEvent.event.execute();
+		}
+		catch (Throwable t)
+		{
+			handleException(queuedEvent.event, t);
+		}
+		finally
+		{
+			executingEvents.pop();
+			synchronized (events)
+			{
+				queuedEvent.done = true;
+				events.notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public void suspend(Object suspendID)
+	{
+		try
+		{
+			suspend(suspendID, EVENT_LEVEL_DEFAULT, EventDispatcher.CONFIGURED_TIMEOUT);
+		}
+		catch (TimeoutException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void suspend(Object suspendID, int minEventLevelToDispatch, long timeout) throws CancellationException, TimeoutException
+	{
+		if (!isEventDispatchThread())
+		{
+			log.error("Suspend called in another thread than the event dispatcher of the client: " + Thread.currentThread(), new RuntimeException()); //$NON-NLS-1$
+			return;
+		}
+
+		QueuedEvent suspendedEvent = executingEvents.peek();
+		SuspendState state = new SuspendState();
+		if (suspendedEvent != null) suspendedEvent.event.willSuspend();
+		synchronized (events)
+		{
+			suspended.put(suspendID, state);
+			if (suspendedEvent != null) suspendedEvent.suspended = true;
+			// let the thread that added the event continue
+			events.notifyAll();
+		}
+		try
+		{
+			long deadline = timeout == NO_TIMEOUT || timeout <= 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeout;
+			while (true)
+			{
+				QueuedEvent queuedEvent;
+				synchronized (events)
+				{
+					if (state.resumed || state.cancelReason != null) break;
+					if (exit) throw new CancellationException("Event dispatcher destroyed while waiting for resume of suspended event with id " + suspendID); //$NON-NLS-1$
+					queuedEvent = nextEvent(minEventLevelToDispatch);
+					if (queuedEvent == null)
+					{
+						long wait = 0;
+						if (deadline != Long.MAX_VALUE)
+						{
+							wait = deadline - System.currentTimeMillis();
+							if (wait <= 0) throw new TimeoutException("Timeout while waiting for resume of suspended event with id " + suspendID); //$NON-NLS-1$
+						}
+						try
+						{
+							events.wait(wait);
+						}
+						catch (InterruptedException e)
+						{
+							Thread.currentThread().interrupt();
+							throw new CancellationException("Interrupted while waiting for resume of suspended event with id " + suspendID); //$NON-NLS-1$
+						}
+						continue;
+					}
+				}
+				execute(queuedEvent);
+			}
+		}
+		finally
+		{
+			synchronized (events)
+			{
+				suspended.remove(suspendID);
+				if (suspendedEvent != null) suspendedEvent.suspended = false;
+			}
+			if (suspendedEvent != null) suspendedEvent.event.willResume();
+		}
+		if (state.cancelReason != null) throw new CancellationException(state.cancelReason);
+	}
+
+	@Override
+	public void resume(Object suspendID)
+	{
+		synchronized (events)
+		{
+			SuspendState state = suspended.get(suspendID);
+			if (state != null)
+			{
+				state.resumed = true;
+				events.notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public void cancelSuspend(Integer suspendID, String cancelReason)
+	{
+		synchronized (events)
+		{
+			SuspendState state = suspended.get(suspendID);
+			if (state != null)
+			{
+				state.cancelReason = cancelReason != null ? cancelReason : "Suspended event cancelled"; //$NON-NLS-1$
+				events.notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public String interruptEventThread()
+	{
+		Thread thread = dispatchThread;
+		if (thread == null) return ""; //$NON-NLS-1$
+		StringBuilder stack = new StringBuilder();
+		for (StackTraceElement element : thread.getStackTrace())
+		{
+			stack.append("\tat ").append(element).append('\n'); //$NON-NLS-1$
+		}
+		synchronized (events)
+		{
+			// only interrupt when the thread still dispatches for this client
+			if (dispatching && dispatchThread == thread) thread.interrupt();
+		}
+		return stack.toString();
+	}
+
+	@Override
+	public void destroy()
+	{
+		synchronized (events)
+		{
+			if (exit) return;
+			exit = true;
+			events.clear();
+			events.notifyAll();
+		}
+
+		if (NGEventDispatcher.SHUTDOWNLOGGER.isDebugEnabled())
+			NGEventDispatcher.SHUTDOWNLOGGER.debug("Pooled event dispatcher destroyed for client: " + client.getWebsocketSession().getSessionKey()); //$NON-NLS-1$
+
+		// like the event thread that stops, make sure the client is shut down
+		pool.execute(() -> {
+			J2DBGlobals.setServiceProvider(client);
+			try
+			{
+				if (!client.isShutDown())
+				{
+					if (NGEventDispatcher.SHUTDOWNLOGGER.isDebugEnabled()) NGEventDispatcher.SHUTDOWNLOGGER
+						.debug("Client was not shutdown, calling it now: " + client.getWebsocketSession().getSessionKey()); //$NON-NLS-1$
+					client.shutDown(true);
+				}
+			}
+			finally
+			{
+				J2DBGlobals.setServiceProvider(null);
+			}
+		});
+	}
+
+	protected void handleException(Event event, Throwable t)
+	{
+		log.error("Exception in event dispatcher of client " + client.getClientID(), t); //$NON-NLS-1$
+		NGEventDispatcher.sendInternalError(event, t);
+	}
+
+	private static class QueuedEvent
+	{
+		private final Event event;
+		private final int eventLevel;
+		// guarded by the events of the dispatcher
+		private boolean done;
+		private boolean suspended;
+
+		QueuedEvent(Event event, int eventLevel)
+		{
+			this.event = event;
+			this.eventLevel = eventLevel;
+		}
+	}
+
+	private static class SuspendState
+	{
+		// guarded by the events of the dispatcher
+		private boolean resumed;
+		private String cancelReason;
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.server.ngclient.less;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.servoy.j2db.FlattenedSolution;
+import com.servoy.j2db.persistence.Media;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.UUID;
+import com.servoy.j2db.util.Utils;
+import com.servoy.j2db.util.xmlxport.SolutionImportNotifier;
+
+/**
+ * Cache of compiled solution less files.
+ * <p>
+ * The key is the solution, the media uuid and the last modified time of the media (or of the solution when the media has none), a cache hit does not
+ * look at the content. The names of the imported files are stored with the compiled css, when a media is changed {@link #mediaChanged(Media)} removes
+ * the css of that media and of the less files that import it. When multiple requests need the same css at the same time, only one of them compiles it.
+ * The css is kept with a gzip compressed variant and a strong etag.
+ *
+ * @since 2024.3
+ */
+@SuppressWarnings("nls")
+public class CompiledLessCache
+{
+	private static final int MAX_SIZE = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.less.cache.maxSize", "200"));
+
+	private static final Map<Key, CompletableFuture<CompiledCss>> cache = Collections.synchronizedMap(new LinkedHashMap<Key, CompletableFuture<CompiledCss>>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<CompiledCss>> eldest)
+		{
+			return size() > MAX_SIZE;
+		}
+	});
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong compiles = new AtomicLong();
+
+	static
+	{
+		SolutionImportNotifier.addImportListener(() -> {
+			clear();
+			LessPrecompiler.solutionsImported();
+		});
+		PerformanceMetrics.registerCounter("less_cache_hits_total", "Compiled less files found in the cache.", false, CompiledLessCache::getHitCount);
+		PerformanceMetrics.registerCounter("less_cache_compiles_total", "Less files compiled for the cache.", false, CompiledLessCache::getCompileCount);
+	}
+
+	private CompiledLessCache()
+	{
+	}
+
+	/**
+	 * Get the compiled css of a less media, compile it when it is not in the cache.
+	 */
+	public static CompiledCss getCompiledCss(Media media, FlattenedSolution fs)
+	{
+		if (MAX_SIZE <= 0)
+		{
+			return compile(media, fs);
+		}
+
+		// the last modified time of a media is set when its data is loaded lazily, load it first so the key does not change after the first compile
+		media.getMediaData();
+		Key key = new Key(fs.getName(), media.getUUID(), media.getLastModifiedTime() != -1 ? media.getLastModifiedTime() : fs.getLastModifiedTime());
+		CompletableFuture<CompiledCss> future;
+		boolean compile = false;
+		synchronized (cache)
+		{
+			future = cache.get(key);
+			if (future == null)
+			{
+				future = new CompletableFuture<>();
+				cache.put(key, future);
+				compile = true;
+			}
+		}
+
+		if (compile)
+		{
+			try
+			{
+				future.complete(compile(media, fs));
+			}
+			catch (RuntimeException e)
+			{
+				cache.remove(key);
+				future.completeExceptionally(e);
+			}
+		}
+		else
+		{
+			hits.incrementAndGet();
+		}
+
+		try
+		{
+			CompiledCss css = future.join();
+			if (!compile) setReferences(css, media, fs);
+			return css;
+		}
+		catch (CompletionException e)
+		{
+			// compile of another request failed, try it in this request
+			Debug.trace(e);
+			return compile(media, fs);
+		}
+	}
+
+	private static CompiledCss compile(Media media, FlattenedSolution fs)
+	{
+		compiles.incrementAndGet();
+		String css = LessCompiler.compileSolutionLessFile(media, fs);
+		Media compiled = fs.getMedia(media.getName());
+		List<Media> references = compiled != null ? compiled.getRuntimeProperty(Media.REFERENCES) : null;
+		String[] imports = references == null ? new String[0] : references.stream().map(Media::getName).distinct().toArray(String[]::new);
+		return new CompiledCss(css, imports);
+	}
+
+	/**
+	 * When the css was compiled for another flattened solution, the references of the less media of this one still have to be set (they are used in the url of the css).
+	 */
+	private static void setReferences(CompiledCss css, Media media, FlattenedSolution fs)
+	{
+		Media parent = fs.getMedia(media.getName());
+		if (parent != null && parent.getRuntimeProperty(Media.REFERENCES) == null)
+		{
+			List<Media> references = new ArrayList<>(css.imports.length);
+			for (String name : css.imports)
+			{
+				Media reference = fs.getMedia(name);
+				if (reference != null) references.add(reference);
+			}
+			parent.setRuntimeProperty(Media.REFERENCES, references);
+		}
+	}
+
+	private static String digest(byte[] data)
+	{
+		try
+		{
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data == null ? new byte[0] : data));
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// should not happen, SHA-256 is always available
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static void clear()
+	{
+		cache.clear();
+	}
+
+	/**
+	 * A media was changed (in developer), remove the compiled css of the media itself and of the less files that import it.
+	 * The css that is being compiled is removed as well, it may have read the old content.
+	 */
+	public static void mediaChanged(Media media)
+	{
+		String name = media.getName();
+		synchronized (cache)
+		{
+			Iterator<Map.Entry<Key, CompletableFuture<CompiledCss>>> it = cache.entrySet().iterator();
+			while (it.hasNext())
+			{
+				Map.Entry<Key, CompletableFuture<CompiledCss>> entry = it.next();
+				CompletableFuture<CompiledCss> future = entry.getValue();
+				if (entry.getKey().mediaUUID.equals(media.getUUID()) || !future.isDone() ||
+					(!future.isCompletedExceptionally() && future.join().importsMedia(name)))
+				{
+					it.remove();
+				}
+			}
+		}
+	}
+
+	public static long getHitCount()
+	{
+		return hits.get();
+	}
+
+	public static long getCompileCount()
+	{
+		return compiles.get();
+	}
+
+	/**
+	 * Compiled css with its gzipped variant.
+	 */
+	public static class CompiledCss
+	{
+		private final String css;
+		private final byte[] bytes;
+		private final byte[] gzipped;
+		private final String etag;
+		private final String[] imports;
+
+		CompiledCss(String css, String[] imports)
+		{
+			this.css = css == null ? "" : css;
+			this.bytes = this.css.getBytes(StandardCharsets.UTF_8);
+			this.gzipped = gzip(bytes);
+			this.etag = '"' + digest(bytes).substring(0, 32) + '"';
+			this.imports = imports;
+		}
+
+		private static byte[] gzip(byte[] data)
+		{
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 4 + 64);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(baos))
+			{
+				gzip.write(data);
+			}
+			catch (IOException e)
+			{
+				Debug.error(e);
+				return null;
+			}
+			byte[] result = baos.toByteArray();
+			// only use the compressed variant when it is smaller
+			return result.length < data.length ? result : null;
+		}
+
+		boolean importsMedia(String name)
+		{
+			for (String imported : imports)
+			{
+				if (imported.equals(name)) return true;
+			}
+			return false;
+		}
+
+		public String getCss()
+		{
+			return css;
+		}
+
+		public byte[] getBytes()
+		{
+			return bytes;
+		}
+
+		/**
+		 * @return the gzip compressed css or null when compressing does not make it smaller
+		 */
+		public byte[] getGzipBytes()
+		{
+			return gzipped;
+		}
+
+		/**
+		 * @return a strong etag (including the quotes) based on the content of the css
+		 */
+		public String getETag()
+		{
+			return etag;
+		}
+	}
+
+	private static final class Key
+	{
+		private final String solutionName;
+		private final UUID mediaUUID;
+		private final long lastModified;
+
+		Key(String solutionName, UUID mediaUUID, long lastModified)
+		{
+			this.solutionName = solutionName;
+			this.mediaUUID = mediaUUID;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode(new Object[] { solutionName, mediaUUID, Long.valueOf(lastModified) });
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key)obj;
+			return lastModified == other.lastModified && Objects.equals(solutionName, other.solutionName) && Objects.equals(mediaUUID, other.mediaUUID);
+		}
+	}
+}
@@ -19,6 +19,8 @@ package com.servoy.j2db.server.ngclient.less;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.script.Bindings;
 import javax.script.Compilable;
@@ -29,31 +31,40 @@ import javax.script.ScriptException;
 
 import com.servoy.j2db.FlattenedSolution;
 import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
 
 /**
+ * Compiles less with less.js in nashorn.
+ * Nashorn engines are not thread safe, a pool of engines (servoy.less.lessjs.poolSize) is used so that different less files can be compiled in parallel.
+ *
  * @author jcompagner
  * @since 2019.3
  */
 @SuppressWarnings("nls")
 public class LessJSCompiler
 {
-	private static ScriptEngine engine;
-	private static CompiledScript script;
-	private static Bindings bindings;
+	private static final int POOL_SIZE = Math.max(1,
+		Utils.getAsInteger(Settings.getInstance().getProperty("servoy.less.lessjs.poolSize",
+			Integer.toString(Math.min(4, Runtime.getRuntime().availableProcessors())))));
+
+	private static final BlockingQueue<LessEngine> pool = new LinkedBlockingQueue<>();
+	private static int created = 0;
 
 	public static String compileLessWithNashorn(String text, FlattenedSolution fs, String name)
 	{
-
+		LessEngine lessEngine = null;
 		try
 		{
-			createEngine();
-			synchronized (engine)
+			lessEngine = takeEngine();
+			if (lessEngine != null)
 			{
+				Bindings bindings = lessEngine.bindings;
 				bindings.put("lessStr", text);
 				bindings.put("lessc4j", fs != null ? new FlattenedSolutionLessFileManager(fs, name) : new LessFileMananger());
 				HashMap<String, String> _result = new HashMap<>();
 				bindings.put("_result", _result);
-				script.eval(bindings);
+				lessEngine.script.eval(bindings);
 				String result = _result.get("css");
 				if (result == null)
 				{
@@ -71,25 +82,78 @@ public class LessJSCompiler
 		{
 			Debug.log(e);
 		}
+		finally
+		{
+			if (lessEngine != null) pool.offer(lessEngine);
+		}
 		return "";
 	}
 
-	private static synchronized ScriptEngine createEngine() throws IOException, ScriptException
+	/**
+	 * Take an engine from the pool, create a new one when the pool is not full, otherwise wait for one to be returned.
+	 */
+	private static LessEngine takeEngine() throws IOException, ScriptException, InterruptedException
 	{
-		if (engine == null)
+		LessEngine lessEngine = pool.poll();
+		if (lessEngine == null)
 		{
-			//we have to pass in null as classloader if we want to acess the java 8 nashorn
-			engine = new ScriptEngineManager(null).getEngineByName("nashorn");
-			if (engine != null)
+			boolean create;
+			synchronized (pool)
+			{
+				create = created < POOL_SIZE;
+				if (create) created++;
+			}
+			if (create)
+			{
+				try
+				{
+					lessEngine = createEngine();
+				}
+				finally
+				{
+					if (lessEngine == null)
+					{
+						synchronized (pool)
+						{
+							created--;
+						}
+					}
+				}
+			}
+			else
 			{
-				LessFileMananger jsReader = new LessFileMananger();
-				bindings = engine.createBindings();
-				bindings.put("lessc4j", jsReader);
-				engine.eval(jsReader.readJs("/lessc4j/entry-point.js"), bindings);
-				script = ((Compilable)engine).compile(
-					"var options = {rewriteUrls:'all',ieCompat:false}; less.render(lessStr,options).then(function (output) {_result.put('css', output.css);},function (err) {_result.put('err', err);})");
+				lessEngine = pool.take();
 			}
 		}
-		return engine;
+		return lessEngine;
+	}
+
+	private static LessEngine createEngine() throws IOException, ScriptException
+	{
+		//we have to pass in null as classloader if we want to acess the java 8 nashorn
+		ScriptEngine engine = new ScriptEngineManager(null).getEngineByName("nashorn");
+		if (engine != null)
+		{
+			LessFileMananger jsReader = new LessFileMananger();
+			Bindings bindings = engine.createBindings();
+			bindings.put("lessc4j", jsReader);
+			engine.eval(jsReader.readJs("/lessc4j/entry-point.js"), bindings);
+			CompiledScript script = ((Compilable)engine).compile(
+				"var options = {rewriteUrls:'all',ieCompat:false}; less.render(lessStr,options).then(function (output) {_result.put('css', output.css);},function (err) {_result.put('err', err);})");
+			return new LessEngine(script, bindings);
+		}
+		return null;
+	}
+
+	private static class LessEngine
+	{
+		private final CompiledScript script;
+		private final Bindings bindings;
+
+		LessEngine(CompiledScript script, Bindings bindings)
+		{
+			this.script = script;
+			this.bindings = bindings;
+		}
 	}
 }
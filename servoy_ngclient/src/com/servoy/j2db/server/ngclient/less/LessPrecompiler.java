@@ -0,0 +1,194 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.server.ngclient.less;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.servoy.j2db.AbstractActiveSolutionHandler;
+import com.servoy.j2db.FlattenedSolution;
+import com.servoy.j2db.persistence.IRepository;
+import com.servoy.j2db.persistence.Media;
+import com.servoy.j2db.persistence.RootObjectMetaData;
+import com.servoy.j2db.persistence.SolutionMetaData;
+import com.servoy.j2db.server.shared.ApplicationServerRegistry;
+import com.servoy.j2db.server.shared.IApplicationServer;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.PersistHelper;
+import com.servoy.j2db.util.ServoyThreadPoolExecutor;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Compiles the less stylesheets of a solution and its modules in parallel into the {@link CompiledLessCache}, so that the first requests for the css
+ * do not have to wait for the compile. Only the stylesheets that are served to the clients (and their _ng2 variants) are compiled, the less files
+ * they import are compiled as part of them.
+ * <p>
+ * The solutions of the repository are precompiled when the application server starts (not in developer) and again after a solution import,
+ * so no client session has to start it. The number of compile threads is set with servoy.less.precompile.threads, 0 disables precompiling.
+ *
+ * @since 2024.3
+ */
+@SuppressWarnings("nls")
+public class LessPrecompiler
+{
+	private static final int THREADS = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.less.precompile.threads",
+		Integer.toString(Math.min(4, Runtime.getRuntime().availableProcessors()))));
+
+	private static final ExecutorService executor = THREADS > 0 ? new ServoyThreadPoolExecutor(THREADS, "LessPrecompiler", true) : null;
+
+	private static final AtomicLong compiledFiles = new AtomicLong();
+	private static final AtomicLong compileTime = new AtomicLong();
+
+	static
+	{
+		PerformanceMetrics.registerCounter("less_precompiled_files_total", "Less files that were precompiled.", false, LessPrecompiler::getCompiledFileCount);
+		PerformanceMetrics.registerCounter("less_precompile_time_ms_total", "Time spent precompiling less files.", false, LessPrecompiler::getCompileTimeMS);
+	}
+
+	private LessPrecompiler()
+	{
+	}
+
+	/**
+	 * Precompile the less stylesheets of all the (ng client) solutions in the repository in the background, called when the application server starts.
+	 * The modules are compiled as part of the solutions that include them.
+	 */
+	public static void precompileAll()
+	{
+		if (executor == null) return;
+		executor.execute(() -> {
+			try
+			{
+				IRepository repository = ApplicationServerRegistry.get().getLocalRepository();
+				for (RootObjectMetaData metaData : repository.getRootObjectMetaDatasForType(IRepository.SOLUTIONS))
+				{
+					int solutionType = metaData instanceof SolutionMetaData ? ((SolutionMetaData)metaData).getSolutionType() : 0;
+					if (solutionType == SolutionMetaData.SOLUTION || solutionType == SolutionMetaData.NG_CLIENT_ONLY ||
+						solutionType == SolutionMetaData.LOGIN_SOLUTION)
+					{
+						precompileSolution(metaData.getName());
+					}
+				}
+			}
+			catch (Exception e)
+			{
+				Debug.error("Could not precompile the less files of the solutions", e);
+			}
+		});
+	}
+
+	/**
+	 * The compiled css cache is cleared after a solution import, compile the less stylesheets of the solutions again.
+	 */
+	static void solutionsImported()
+	{
+		precompileAll();
+	}
+
+	private static void precompileSolution(String solutionName)
+	{
+		long start = System.currentTimeMillis();
+		FlattenedSolution fs = new FlattenedSolution(true);
+		try
+		{
+			IRepository repository = ApplicationServerRegistry.get().getLocalRepository();
+			RootObjectMetaData metaData = repository.getRootObjectMetaData(solutionName, IRepository.SOLUTIONS);
+			if (!(metaData instanceof SolutionMetaData))
+			{
+				fs.close(null);
+				return;
+			}
+			fs.setSolution((SolutionMetaData)metaData, false, true, new AbstractActiveSolutionHandler(ApplicationServerRegistry.getService(IApplicationServer.class))
+			{
+				@Override
+				public IRepository getRepository()
+				{
+					return ApplicationServerRegistry.get().getLocalRepository();
+				}
+			});
+			List<CompletableFuture<Void>> compiles = compileAll(fs);
+			CompletableFuture.allOf(compiles.toArray(new CompletableFuture[compiles.size()])).whenComplete((result, e) -> {
+				fs.close(null);
+				if (!compiles.isEmpty())
+				{
+					Debug.log("Precompiled " + compiles.size() + " less files of solution " + solutionName + " in " + (System.currentTimeMillis() - start) + "ms");
+				}
+			});
+		}
+		catch (Exception e)
+		{
+			Debug.error("Could not precompile the less files of solution " + solutionName, e);
+			fs.close(null);
+		}
+	}
+
+	private static List<CompletableFuture<Void>> compileAll(FlattenedSolution fs)
+	{
+		List<CompletableFuture<Void>> compiles = new ArrayList<>();
+		for (String styleSheet : PersistHelper.getOrderedStyleSheets(fs))
+		{
+			int lastPoint = styleSheet.lastIndexOf('.');
+			if (lastPoint > 0 && styleSheet.endsWith(".less"))
+			{
+				addCompile(compiles, fs.getMedia(styleSheet), fs);
+				addCompile(compiles, fs.getMedia(styleSheet.substring(0, lastPoint) + "_ng2" + styleSheet.substring(lastPoint)), fs);
+			}
+		}
+		return compiles;
+	}
+
+	private static void addCompile(List<CompletableFuture<Void>> compiles, Media media, FlattenedSolution fs)
+	{
+		if (media != null)
+		{
+			compiles.add(CompletableFuture.runAsync(() -> compile(media, fs), executor));
+		}
+	}
+
+	private static void compile(Media media, FlattenedSolution fs)
+	{
+		long start = System.currentTimeMillis();
+		try
+		{
+			CompiledLessCache.getCompiledCss(media, fs);
+			long time = System.currentTimeMillis() - start;
+			compiledFiles.incrementAndGet();
+			compileTime.addAndGet(time);
+			Debug.log("Precompiled less file " + media.getName() + " of solution " + fs.getName() + " in " + time + "ms");
+		}
+		catch (RuntimeException e)
+		{
+			Debug.error("Could not precompile less file " + media.getName() + " of solution " + fs.getName(), e);
+		}
+	}
+
+	public static long getCompiledFileCount()
+	{
+		return compiledFiles.get();
+	}
+
+	public static long getCompileTimeMS()
+	{
+		return compileTime.get();
+	}
+}
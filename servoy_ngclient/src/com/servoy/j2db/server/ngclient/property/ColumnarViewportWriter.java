@@ -0,0 +1,192 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.server.ngclient.property;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.json.JSONWriter;
+import org.sablo.websocket.utils.JSONUtils.JSONStringWrapper;
+
+/**
+ * Writes the rows of a viewport (or of a viewport operation) per column instead of per row, used by foundset properties with the "columnarViewport" spec option.<br/>
+ * Column keys are written only once and columns that repeat values write each distinct value only once.<br/><br/>
+ *
+ * IMPORTANT: If you update/change this format you have to also update ViewportService.decodeRows() in viewport.ts.
+ *
+ * <pre>
+ * {
+ *  "n": 3,
+ *  "k": [ "_svyRowId", "name", "city" ],
+ *  "c": [
+ *     [ "1.1;_0", "1.2;_1", "1.3;_2" ],
+ *     [ "Bubu", "Yogy", null ],
+ *     { "d": [ "Amsterdam", "Paris" ], "i": [ 0, 0, 1 ] }
+ *   ]
+ * }
+ *
+ * where
+ *   ColumnarViewportWriter.ROW_COUNT            == "n"
+ *   ColumnarViewportWriter.KEYS                 == "k"
+ *   ColumnarViewportWriter.COLUMNS              == "c" (one entry for each key; either the values of all rows or a dictionary)
+ *   ColumnarViewportWriter.DICTIONARY           == "d"
+ *   ColumnarViewportWriter.DICTIONARY_INDEXES   == "i" (the index in "d" of the value of each row; -1 if that row does not have a value for the column - partial row updates)
+ * </pre>
+ *
+ * @since 2024.3
+ */
+@SuppressWarnings("nls")
+final class ColumnarViewportWriter
+{
+
+	public static final String ROW_COUNT = "n";
+	public static final String KEYS = "k";
+	public static final String COLUMNS = "c";
+	public static final String DICTIONARY = "d";
+	public static final String DICTIONARY_INDEXES = "i";
+
+	private static final int DICTIONARY_OVERHEAD = 13; // {"d":[],"i":[]} compared to []
+
+	private final Map<String, List<String>> columns = new LinkedHashMap<>(); // JSON value of each row per column; null if that row has no value for the column
+	private int rowCount = 0;
+
+	/**
+	 * @param cells the JSON value for each column key of the row.
+	 */
+	void addRow(Map<String, String> cells)
+	{
+		for (Entry<String, String> cell : cells.entrySet())
+		{
+			List<String> column = columns.get(cell.getKey());
+			if (column == null)
+			{
+				column = new ArrayList<>(rowCount + 1);
+				for (int i = 0; i < rowCount; i++)
+					column.add(null); // previous rows didn't have this column
+				columns.put(cell.getKey(), column);
+			}
+			column.add(cell.getValue());
+		}
+		rowCount++;
+		for (List<String> column : columns.values())
+		{
+			if (column.size() < rowCount) column.add(null);
+		}
+	}
+
+	void write(JSONWriter w)
+	{
+		w.object().key(ROW_COUNT).value(rowCount);
+		w.key(KEYS).array();
+		for (String key : columns.keySet())
+		{
+			w.value(key);
+		}
+		w.endArray();
+
+		JSONStringWrapper t = new JSONStringWrapper();
+		w.key(COLUMNS).array();
+		for (List<String> column : columns.values())
+		{
+			writeColumn(w, column, t);
+		}
+		w.endArray().endObject();
+	}
+
+	private void writeColumn(JSONWriter w, List<String> column, JSONStringWrapper t)
+	{
+		// only simple values are shared between rows; objects and arrays could be changed on the client when they are converted
+		Map<String, Integer> simpleValueIndexes = new HashMap<>();
+		List<String> dictionary = new ArrayList<>();
+		int[] indexes = new int[rowCount];
+		boolean partial = false;
+		int plainLength = 0;
+		int dictionaryLength = 0;
+		for (int row = 0; row < rowCount; row++)
+		{
+			String value = column.get(row);
+			if (value == null)
+			{
+				indexes[row] = -1;
+				partial = true;
+			}
+			else
+			{
+				boolean simpleValue = isSimpleValue(value);
+				Integer index = simpleValue ? simpleValueIndexes.get(value) : null;
+				if (index == null)
+				{
+					index = Integer.valueOf(dictionary.size());
+					dictionary.add(value);
+					dictionaryLength += value.length() + 1;
+					if (simpleValue) simpleValueIndexes.put(value, index);
+				}
+				indexes[row] = index.intValue();
+				plainLength += value.length() + 1;
+			}
+			dictionaryLength += digits(indexes[row]) + 1;
+		}
+
+		if (partial || dictionaryLength + DICTIONARY_OVERHEAD < plainLength)
+		{
+			w.object().key(DICTIONARY).array();
+			for (String value : dictionary)
+			{
+				t.wrappedString = value;
+				w.value(t);
+			}
+			w.endArray().key(DICTIONARY_INDEXES).array();
+			for (int index : indexes)
+			{
+				w.value(index);
+			}
+			w.endArray().endObject();
+		}
+		else
+		{
+			w.array();
+			for (String value : column)
+			{
+				t.wrappedString = value;
+				w.value(t);
+			}
+			w.endArray();
+		}
+	}
+
+	private static boolean isSimpleValue(String json)
+	{
+		return json.length() == 0 || (json.charAt(0) != '{' && json.charAt(0) != '[');
+	}
+
+	private static int digits(int index)
+	{
+		if (index < 0) return 2;
+		int digits = 1;
+		for (int i = index; i >= 10; i /= 10)
+		{
+			digits++;
+		}
+		return digits;
+	}
+
+}
@@ -28,7 +28,9 @@ import org.sablo.specification.property.IBrowserConverterContext;
 import org.sablo.websocket.utils.JSONUtils;
 import org.sablo.websocket.utils.JSONUtils.IJSONStringWithClientSideType;
 
+import com.servoy.j2db.dataprocessing.IFoundSetInternal;
 import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.server.ngclient.property.types.DataproviderTypeSabloValue;
 import com.servoy.j2db.util.Pair;
 
 /**
@@ -67,6 +69,18 @@ public class FoundsetLinkedViewportRowDataProvider<YF, YT> extends ViewportRowDa
 		types.registerClientSideType(Arrays.asList(reuseablePairForCellType));
 	}
 
+	@Override
+	protected ViewportClientSideTypes writeRowData(int startIndex, int endIndex, Set<String> columnNames, IFoundSetInternal foundset, JSONWriter w,
+		Object sabloValueThatRequestedThisDataToBeWritten) throws JSONException
+	{
+		if (sabloValue.getWrappedValue() instanceof DataproviderTypeSabloValue)
+		{
+			// resolve the valuelist display values of all rows at once
+			((DataproviderTypeSabloValue)sabloValue.getWrappedValue()).lookupValuelistDisplayValues(foundset, startIndex, endIndex);
+		}
+		return super.writeRowData(startIndex, endIndex, columnNames, foundset, w, sabloValueThatRequestedThisDataToBeWritten);
+	}
+
 	@Override
 	protected boolean shouldGenerateRowIds()
 	{
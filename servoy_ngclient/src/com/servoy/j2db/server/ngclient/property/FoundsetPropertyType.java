@@ -362,6 +362,7 @@ public class FoundsetPropertyType extends DefaultPropertyType<FoundsetTypeSabloV
 		int initialPreferredViewPortSize = FoundsetPropertyTypeConfig.DEFAULT_INITIALL_PREFERRED_VIEWPORT_SIZE;
 		boolean sendSelectionViewportInitially = FoundsetPropertyTypeConfig.DEFAULT_SEND_SELECTION_VIEWPORT_INITIALLY;
 		boolean foundsetDefinitionListener = FoundsetPropertyTypeConfig.DEFAULT_FOUNDSET_DEFINITION_LISTENER;
+		boolean columnarViewport = FoundsetPropertyTypeConfig.DEFAULT_COLUMNAR_VIEWPORT;
 
 		if (rhinoValue instanceof Wrapper) rhinoValue = ((Wrapper)rhinoValue).unwrap();
 
@@ -411,6 +412,7 @@ public class FoundsetPropertyType extends DefaultPropertyType<FoundsetTypeSabloV
 				if (config instanceof FoundsetPropertyTypeConfig)
 				{
 					foundsetDefinitionListener = ((FoundsetPropertyTypeConfig)config).foundsetDefinitionListener;
+					columnarViewport = ((FoundsetPropertyTypeConfig)config).columnarViewport;
 				}
 				else
 				{
@@ -436,7 +438,7 @@ public class FoundsetPropertyType extends DefaultPropertyType<FoundsetTypeSabloV
 
 				newSabloValue = new FoundsetTypeSabloValue(designJSON, null, null,
 					new FoundsetPropertyTypeConfig(sendDefaultFormats, true, null, sendSelectionViewportInitially, initialPreferredViewPortSize,
-						foundsetDefinitionListener));
+						foundsetDefinitionListener, columnarViewport));
 				newSabloValue.updateFoundset(newFoundset);
 			}
 		}
@@ -458,15 +460,9 @@ public class FoundsetPropertyType extends DefaultPropertyType<FoundsetTypeSabloV
 
 		w.object();
 
-		ViewportClientSideTypes clientSideTypesForViewport = null;
 		// write actual data if necessary
-		if (op.type != ArrayOperation.DELETE)
-		{
-			w.key("rows");
-			clientSideTypesForViewport = rowDataProvider.writeRowData(viewportStartIndex + op.startIndex, viewportStartIndex + op.endIndex, op.cellNames,
-				foundset, w,
-				sabloValueThatRequestedThisDataToBeWritten);
-		}
+		ViewportClientSideTypes clientSideTypesForViewport = rowDataProvider.writeRowDataForOperation(op, viewportStartIndex, foundset, w,
+			sabloValueThatRequestedThisDataToBeWritten);
 
 		if (clientSideTypesForViewport != null) clientSideTypesForViewport.writeClientSideTypes(w, JSONUtils.CONVERSION_CL_SIDE_TYPE_KEY);
 
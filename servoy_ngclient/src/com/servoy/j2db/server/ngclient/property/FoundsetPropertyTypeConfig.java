@@ -37,6 +37,7 @@ public class FoundsetPropertyTypeConfig
 	public static final boolean DEFAULT_SEND_SELECTION_VIEWPORT_INITIALLY = false;
 	public static final int DEFAULT_INITIALL_PREFERRED_VIEWPORT_SIZE = 50;
 	public static final boolean DEFAULT_FOUNDSET_DEFINITION_LISTENER = false;
+	public static final boolean DEFAULT_COLUMNAR_VIEWPORT = false;
 
 	public static final String SEND_DEFAULT_FORMATS = "provideColumnFormats";
 	public static final String DATAPROVIDERS = "dataproviders";
@@ -44,6 +45,7 @@ public class FoundsetPropertyTypeConfig
 	public static final String SEND_SELECTION_VIEWPORT_INITIALLY = "sendSelectionViewportInitially";
 	public static final String INITIAL_PREFERRED_VIEWPORT_SIZE = "initialPreferredViewPortSize";
 	public static final String FOUNDSET_DEFINITION_LISTENER = "foundsetDefinitionListener";
+	public static final String COLUMNAR_VIEWPORT = "columnarViewport";
 
 	public final boolean sendDefaultFormats;
 	public final boolean hasDynamicDataproviders;
@@ -51,9 +53,20 @@ public class FoundsetPropertyTypeConfig
 	public final int initialPreferredViewPortSize;
 	public final boolean foundsetDefinitionListener;
 	public final boolean sendSelectionViewportInitially;
+	/**
+	 * Rows are sent to the client per column (see {@link ColumnarViewportWriter}) and row changes only contain the cells that changed; only used for clients that support it.
+	 */
+	public final boolean columnarViewport;
 
 	public FoundsetPropertyTypeConfig(boolean sendDefaultFormats, boolean hasDynamicDataproviders, String[] dataproviders,
 		boolean sendSelectionViewportInitially, int initialPreferredViewPortSize, boolean foundsetDefinitionListener)
+	{
+		this(sendDefaultFormats, hasDynamicDataproviders, dataproviders, sendSelectionViewportInitially, initialPreferredViewPortSize,
+			foundsetDefinitionListener, DEFAULT_COLUMNAR_VIEWPORT);
+	}
+
+	public FoundsetPropertyTypeConfig(boolean sendDefaultFormats, boolean hasDynamicDataproviders, String[] dataproviders,
+		boolean sendSelectionViewportInitially, int initialPreferredViewPortSize, boolean foundsetDefinitionListener, boolean columnarViewport)
 	{
 		this.sendDefaultFormats = sendDefaultFormats;
 		this.hasDynamicDataproviders = hasDynamicDataproviders;
@@ -61,6 +74,7 @@ public class FoundsetPropertyTypeConfig
 		this.sendSelectionViewportInitially = sendSelectionViewportInitially;
 		this.initialPreferredViewPortSize = initialPreferredViewPortSize;
 		this.foundsetDefinitionListener = foundsetDefinitionListener;
+		this.columnarViewport = columnarViewport;
 	}
 
 	public FoundsetPropertyTypeConfig(JSONObject config)
@@ -75,6 +89,7 @@ public class FoundsetPropertyTypeConfig
 			: DEFAULT_INITIALL_PREFERRED_VIEWPORT_SIZE);
 		this.foundsetDefinitionListener = (config != null && config.has(FOUNDSET_DEFINITION_LISTENER) ? config.optBoolean(FOUNDSET_DEFINITION_LISTENER)
 			: DEFAULT_FOUNDSET_DEFINITION_LISTENER);
+		this.columnarViewport = (config != null && config.has(COLUMNAR_VIEWPORT) ? config.optBoolean(COLUMNAR_VIEWPORT) : DEFAULT_COLUMNAR_VIEWPORT);
 		String[] dps = null;
 		if (config != null)
 		{
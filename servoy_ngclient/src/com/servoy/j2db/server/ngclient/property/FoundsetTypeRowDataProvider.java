@@ -17,23 +17,46 @@
 
 package com.servoy.j2db.server.ngclient.property;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
 import org.json.JSONWriter;
+import org.sablo.specification.property.ArrayOperation;
 import org.sablo.specification.property.IBrowserConverterContext;
 
+import com.servoy.j2db.dataprocessing.IFoundSetInternal;
 import com.servoy.j2db.dataprocessing.IRecordInternal;
 
 /**
  * @author acostescu
  */
+@SuppressWarnings("nls")
 public final class FoundsetTypeRowDataProvider extends ViewportRowDataProvider
 {
 
 	protected final FoundsetTypeSabloValue foundsetPropertyValue;
 	protected IBrowserConverterContext browserConverterContext;
 
+	// only used for columnar viewports: the pk hash of each row that the client has in its viewport (in the order of the viewport) and a SHA-256 digest of the
+	// JSON of the cells that were sent for those rows; so that changed rows can be sent with only the changed cells; clientRowPKs is null when it is not known
+	private List<String> clientRowPKs;
+	private final Map<String, Map<String, byte[]>> sentCells = new HashMap<>();
+	private MessageDigest cellDigest;
+
 	public FoundsetTypeRowDataProvider(FoundsetTypeSabloValue foundsetPropertyValue)
 	{
 		this.foundsetPropertyValue = foundsetPropertyValue;
@@ -44,10 +67,17 @@ public final class FoundsetTypeRowDataProvider extends ViewportRowDataProvider
 		throws JSONException
 	{
 		w.object();
+		populateRowData(record, columnNames, (key, value) -> w.key(key).value(value), generatedRowId, types);
+		w.endObject();
+	}
+
+	private void populateRowData(IRecordInternal record, Set<String> columnNames, BiConsumer<String, Object> cells, String generatedRowId,
+		ViewportClientSideTypes types) throws JSONException
+	{
 		if (columnNames == null)
 		{
 			// foundsetIndex in that "generatedRowId" is just a hint for where to start searching for the pk when needed
-			w.key(FoundsetTypeSabloValue.ROW_ID_COL_KEY).value(generatedRowId);
+			cells.accept(FoundsetTypeSabloValue.ROW_ID_COL_KEY, generatedRowId);
 		}
 		else if (foundsetPropertyValue.isOneOfTheFollowingAPk(columnNames))
 		{
@@ -55,12 +85,184 @@ public final class FoundsetTypeRowDataProvider extends ViewportRowDataProvider
 			// send only partial (some columns) updates for that row, the pk is only written again using ROW_ID_COL_KEY_PARTIAL_UPDATE if one of the written columns is a pk; this is for a client-side viewport 'if' that needs to differentiate between the two
 
 			// foundsetIndex in that "generatedRowId" is just a hint for where to start searching for the pk when needed
-			w.key(FoundsetTypeSabloValue.ROW_ID_COL_KEY_PARTIAL_UPDATE).value(generatedRowId);
+			cells.accept(FoundsetTypeSabloValue.ROW_ID_COL_KEY_PARTIAL_UPDATE, generatedRowId);
 		}
 
-		foundsetPropertyValue.populateRowData(record, columnNames, w, browserConverterContext, types);
+		foundsetPropertyValue.populateRowData(record, columnNames, cells, browserConverterContext, types);
+	}
 
-		w.endObject();
+	/**
+	 * Writes the rows of the whole viewport; per column if the foundset property uses a columnar viewport.
+	 */
+	protected ViewportClientSideTypes writeViewportRowData(int startIndex, int endIndex, IFoundSetInternal foundset, JSONWriter w) throws JSONException
+	{
+		sentCells.clear();
+		if (!foundsetPropertyValue.isColumnarViewport())
+		{
+			clientRowPKs = null;
+			return writeRowData(startIndex, endIndex, foundset, w);
+		}
+
+		clientRowPKs = new ArrayList<>();
+		return writeColumnarRowData(startIndex, endIndex, null, foundset, w, false);
+	}
+
+	@Override
+	protected ViewportClientSideTypes writeRowDataForOperation(ArrayOperation op, int viewportStartIndex, IFoundSetInternal foundset, JSONWriter w,
+		Object sabloValueThatRequestedThisDataToBeWritten) throws JSONException
+	{
+		if (!foundsetPropertyValue.isColumnarViewport())
+		{
+			return super.writeRowDataForOperation(op, viewportStartIndex, foundset, w, sabloValueThatRequestedThisDataToBeWritten);
+		}
+
+		if (op.type == ArrayOperation.DELETE)
+		{
+			if (clientRowPKs != null && op.endIndex < clientRowPKs.size())
+			{
+				List<String> deletedRows = clientRowPKs.subList(op.startIndex, op.endIndex + 1);
+				deletedRows.forEach(sentCells::remove);
+				deletedRows.clear();
+			}
+			else forgetSentRows();
+			return null;
+		}
+
+		if (clientRowPKs != null && op.startIndex > clientRowPKs.size()) forgetSentRows();
+		if (op.type == ArrayOperation.INSERT && clientRowPKs != null)
+		{
+			// reserve the places of the inserted rows, their pks are set when they are written
+			clientRowPKs.addAll(op.startIndex, Collections.nCopies(op.endIndex - op.startIndex + 1, (String)null));
+		}
+
+		w.key(FoundsetTypeSabloValue.ROWS);
+		return writeColumnarRowData(viewportStartIndex + op.startIndex, viewportStartIndex + op.endIndex, op.cellNames, foundset, w,
+			op.type == ArrayOperation.CHANGE && op.cellNames == null);
+	}
+
+	/**
+	 * @param onlyChangedCells true for a change of complete rows; then only the cells that are different from what the client has are written (as a partial row update).
+	 */
+	private ViewportClientSideTypes writeColumnarRowData(int startIndex, int endIndex, Set<String> columnNames, IFoundSetInternal foundset, JSONWriter w,
+		boolean onlyChangedCells) throws JSONException
+	{
+		int viewportStartIndex = foundsetPropertyValue.getViewPort().getStartIndex();
+		ColumnarViewportWriter columnarWriter = new ColumnarViewportWriter();
+		ViewportClientSideTypes types = writeRows(startIndex, endIndex, foundset, null, (rowTypes, foundsetIndex) -> {
+			IRecordInternal record = foundset.getRecord(foundsetIndex);
+			String pkHash = record.getPKHashKey();
+			String generatedRowId = pkHash + "_" + foundsetIndex;
+			Map<String, String> cells = new LinkedHashMap<>();
+			rowTypes.nextRecordWillBe(foundsetIndex);
+			populateRowData(record, columnNames, (key, value) -> cells.put(key, toJSON(value)), generatedRowId, rowTypes);
+			columnarWriter.addRow(rowSent(foundsetIndex - viewportStartIndex, pkHash, generatedRowId, cells, columnNames == null, onlyChangedCells));
+		});
+		columnarWriter.write(w);
+		return types;
+	}
+
+	/**
+	 * Remembers what the client has for the row at the given viewport index.
+	 *
+	 * @return the cells that have to be written for the row.
+	 */
+	private Map<String, String> rowSent(int viewportIndex, String pkHash, String generatedRowId, Map<String, String> cells, boolean allCells,
+		boolean onlyChangedCells)
+	{
+		String clientPKHash = null;
+		if (clientRowPKs != null && viewportIndex >= 0 && viewportIndex < clientRowPKs.size())
+		{
+			clientPKHash = clientRowPKs.set(viewportIndex, pkHash);
+		}
+		else forgetSentRows();
+
+		Map<String, String> cellsToWrite = cells;
+		Map<String, byte[]> clientCells = pkHash.equals(clientPKHash) ? sentCells.get(pkHash) : null;
+		if (clientPKHash != null && !pkHash.equals(clientPKHash)) sentCells.remove(clientPKHash);
+		if (onlyChangedCells)
+		{
+			// a partial row update; the client keeps the cells that are not written
+			cellsToWrite = new LinkedHashMap<>();
+			Set<String> changedDataproviders = new HashSet<>();
+			for (Entry<String, String> cell : cells.entrySet())
+			{
+				if (!isRowIdKey(cell.getKey()) && (clientCells == null || !MessageDigest.isEqual(cellDigest(cell.getValue()), clientCells.get(cell.getKey()))))
+				{
+					cellsToWrite.put(cell.getKey(), cell.getValue());
+					changedDataproviders.add(foundsetPropertyValue.getDataproviders().get(cell.getKey()));
+				}
+			}
+			if (clientCells == null || foundsetPropertyValue.isOneOfTheFollowingAPk(changedDataproviders))
+			{
+				// see ROW_ID_COL_KEY_PARTIAL_UPDATE; all cells are written when it's not known what the client has so it's like a full row update
+				cellsToWrite.put(FoundsetTypeSabloValue.ROW_ID_COL_KEY_PARTIAL_UPDATE, JSONObject.quote(generatedRowId));
+			}
+		}
+
+		if (clientRowPKs != null)
+		{
+			Map<String, byte[]> rowCells = null;
+			if (allCells || onlyChangedCells) rowCells = new HashMap<>();
+			else if (pkHash.equals(clientPKHash)) rowCells = sentCells.get(pkHash);
+
+			if (rowCells != null)
+			{
+				for (Entry<String, String> cell : cells.entrySet())
+				{
+					if (!isRowIdKey(cell.getKey())) rowCells.put(cell.getKey(), cellDigest(cell.getValue()));
+				}
+				sentCells.put(pkHash, rowCells);
+			}
+			else sentCells.remove(pkHash);
+		}
+		return cellsToWrite;
+	}
+
+	private static String toJSON(Object cellValue)
+	{
+		// cell values are JSON (converted dataprovider values) or the row id
+		String json = cellValue instanceof JSONString ? ((JSONString)cellValue).toJSONString() : (cellValue != null ? JSONObject.quote(cellValue.toString()) : null);
+		return json != null ? json : "null";
+	}
+
+	/**
+	 * SHA-256 digest of the JSON of a cell, so the JSON itself does not have to be kept for the rows of the client.
+	 */
+	private byte[] cellDigest(String json)
+	{
+		if (cellDigest == null)
+		{
+			try
+			{
+				cellDigest = MessageDigest.getInstance("SHA-256");
+			}
+			catch (NoSuchAlgorithmException e)
+			{
+				// every java platform has SHA-256
+				throw new IllegalStateException(e);
+			}
+		}
+		return cellDigest.digest(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static boolean isRowIdKey(String key)
+	{
+		return FoundsetTypeSabloValue.ROW_ID_COL_KEY.equals(key) || FoundsetTypeSabloValue.ROW_ID_COL_KEY_PARTIAL_UPDATE.equals(key);
+	}
+
+	/**
+	 * The client changed a value of the row itself; a next change of that row must be written completely.
+	 */
+	protected void forgetSentRow(String pkHash)
+	{
+		sentCells.remove(pkHash);
+	}
+
+	private void forgetSentRows()
+	{
+		// it's no longer known what rows the client has; changes will be written completely until the whole viewport is written again
+		clientRowPKs = null;
+		sentCells.clear();
 	}
 
 	@Override
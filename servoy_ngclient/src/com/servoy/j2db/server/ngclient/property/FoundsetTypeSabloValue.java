@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
@@ -172,6 +173,8 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 	protected final FoundsetPropertyTypeConfig specConfig;
 	private String lastSortString;
 
+	private ColumnPlan columnPlan; // property descriptions of the dataproviders, computed when rows are written; cleared when dataproviders or foundset change
+
 	public FoundsetTypeSabloValue(Object designJSONValue, String propertyName, DataAdapterList parentDAL, FoundsetPropertyTypeConfig specConfig)
 	{
 		this.designJSONValue = designJSONValue;
@@ -205,10 +208,12 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 				dataproviders.put(key, ServoyJSONObject.optString(key, dataProvidersJSON, null));
 			}
 		}
+		columnPlan = null;
 	}
 
 	protected void notifyDataProvidersUpdated()
 	{
+		columnPlan = null;
 		refreshColumnFormats();
 
 		if (getFoundset() != null)
@@ -240,6 +245,14 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 		return foundsetSelector;
 	}
 
+	/**
+	 * Rows are sent per column and row changes only with the changed cells when the spec asks for it; the NG1 client (viewport.ts) supports this, other clients get rows.
+	 */
+	protected boolean isColumnarViewport()
+	{
+		return specConfig.columnarViewport && webObjectContext != null && !getApplication().getRuntimeProperties().containsKey("NG2");
+	}
+
 	protected boolean isOneOfTheFollowingAPk(Set<String> columnNames)
 	{
 		if (columnNames == null) return false;
@@ -471,6 +484,7 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 				((ISwingFoundSet)foundset).removeTableModelListener(this);
 			}
 			foundset = newFoundset;
+			columnPlan = null;
 			viewPort.setFoundset(foundset);
 			if (oldServerSize != newServerSize) changeMonitor.newFoundsetSize();
 			changeMonitor.selectionChanged(false);
@@ -631,7 +645,7 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 		{
 
 			destinationJSON.key(ROWS);
-			ViewportClientSideTypes clientSideTypesForViewport = rowDataProvider.writeRowData(viewPort.getStartIndex(),
+			ViewportClientSideTypes clientSideTypesForViewport = rowDataProvider.writeViewportRowData(viewPort.getStartIndex(),
 				viewPort.getStartIndex() + viewPort.getSize() - 1, getFoundset(), destinationJSON);
 
 			// conversion info for websocket traffic (for example Date objects will turn into long or String to be usable in JSON and client-side needs to know about this)
@@ -829,18 +843,29 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 	protected void populateRowData(IRecordInternal record, Set<String> columnNames, JSONWriter w, IBrowserConverterContext browserConverterContext,
 		ViewportClientSideTypes types) throws JSONException
 	{
+		populateRowData(record, columnNames, (key, value) -> w.key(key).value(value), browserConverterContext, types);
+	}
+
+	/**
+	 * Same as {@link #populateRowData(IRecordInternal, Set, JSONWriter, IBrowserConverterContext, ViewportClientSideTypes)} but gives the client key and
+	 * JSON value of each cell to the cells consumer instead of writing them to a JSONWriter.
+	 */
+	protected void populateRowData(IRecordInternal record, Set<String> columnNames, BiConsumer<String, Object> cells,
+		IBrowserConverterContext browserConverterContext, ViewportClientSideTypes types) throws JSONException
+	{
+		ColumnPlan plan = getColumnPlan();
 		List<Pair<String/* forColumn */, JSONString/* type */>> typesOfColumns = null;
 		JSONString clientSideTypeOfCol;
 
-		for (Entry<String, String> entry : dataproviders.entrySet())
+		for (ColumnPlanEntry column : plan.columns)
 		{
-			String dataProvider = entry.getValue();
+			String dataProvider = column.dataProvider;
 			if (columnNames == null || columnNames.contains(dataProvider))
 			{
 				Object value = (dataProvider != null ? record.getValue(dataProvider) : null);
 				if (value == Scriptable.NOT_FOUND) value = null; // if the given DP is invalid, then record.getValue(dataProvider) can return Rhino Scriptable.NOT_FOUND; we must handle that as that can't be sent to client conversion directly
 
-				PropertyDescription pd = getDataProviderPropertyDescription(dataProvider);
+				PropertyDescription pd = column.propertyDescription;
 
 				// currently all that NGUtils.getDataProviderPropertyDescription can return is IConvertedProperty type or default types; so we don't need any special value pre-processing (like IWrapperType or IServoyAwareValue or others would need)
 				//			if (pd != null)
@@ -854,22 +879,43 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 					value = ((DbIdentValue)value).getPkValue();
 				}
 
-				w.key(entry.getKey());
 				IJSONStringWithClientSideType jsonValueRepresentationForWrappedValue = JSONUtils.FullValueToJSONConverter.INSTANCE
 					.getConvertedValueWithClientType(value, pd,
 						browserConverterContext, false);
 
-				w.value(jsonValueRepresentationForWrappedValue); // write it even if it is null
+				cells.accept(column.clientKey, jsonValueRepresentationForWrappedValue); // write it even if it is null
 				clientSideTypeOfCol = (jsonValueRepresentationForWrappedValue != null ? jsonValueRepresentationForWrappedValue.getClientSideType() : null);
-				Pair<String/* forColumn */, JSONString/* type */> cellType = new Pair<>(entry.getKey(),
-					clientSideTypeOfCol);
-				if (typesOfColumns == null) typesOfColumns = new ArrayList<>();
-				typesOfColumns.add(cellType);
+				// the types are only read during registerClientSideType, so the pair and the list are reused for all rows
+				column.cellType.setRight(clientSideTypeOfCol);
+				if (typesOfColumns == null)
+				{
+					typesOfColumns = plan.rowTypes;
+					typesOfColumns.clear();
+				}
+				typesOfColumns.add(column.cellType);
 			}
 		}
 		types.registerClientSideType(typesOfColumns);
 	}
 
+	/**
+	 * The dataproviders with their property descriptions, looked up once instead of for each cell that is written to the client.
+	 */
+	private ColumnPlan getColumnPlan()
+	{
+		ITable table = foundset != null ? foundset.getTable() : null;
+		if (columnPlan == null || columnPlan.table != table)
+		{
+			List<ColumnPlanEntry> columns = new ArrayList<>(dataproviders.size());
+			for (Entry<String, String> entry : dataproviders.entrySet())
+			{
+				columns.add(new ColumnPlanEntry(entry.getKey(), entry.getValue(), getDataProviderPropertyDescription(entry.getValue())));
+			}
+			columnPlan = new ColumnPlan(table, columns);
+		}
+		return columnPlan;
+	}
+
 	private PropertyDescription getDataProviderPropertyDescription(String dataProvider)
 	{
 		if (parentDAL != null)
@@ -1096,6 +1142,8 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 							{
 								Pair<String, Integer> splitHashAndIndex = splitPKHashAndIndex(rowIDValue);
 								int recordIndex = foundset.getRecordIndex(splitHashAndIndex.getLeft(), splitHashAndIndex.getRight().intValue());
+								// the client has its own value for the cell now, make sure a next change of the row is sent completely
+								rowDataProvider.forgetSentRow(splitHashAndIndex.getLeft());
 
 								if (recordIndex != -1)
 								{
@@ -1390,4 +1438,34 @@ public class FoundsetTypeSabloValue implements IDataLinkedPropertyValue, TableMo
 	{
 		return dataproviders;
 	}
+
+	private static class ColumnPlan
+	{
+		private final ITable table;
+		private final List<ColumnPlanEntry> columns;
+		private final List<Pair<String/* forColumn */, JSONString/* type */>> rowTypes;
+
+		ColumnPlan(ITable table, List<ColumnPlanEntry> columns)
+		{
+			this.table = table;
+			this.columns = columns;
+			this.rowTypes = new ArrayList<>(columns.size());
+		}
+	}
+
+	private static class ColumnPlanEntry
+	{
+		private final String clientKey;
+		private final String dataProvider;
+		private final PropertyDescription propertyDescription;
+		private final Pair<String/* forColumn */, JSONString/* type */> cellType;
+
+		ColumnPlanEntry(String clientKey, String dataProvider, PropertyDescription propertyDescription)
+		{
+			this.clientKey = clientKey;
+			this.dataProvider = dataProvider;
+			this.propertyDescription = propertyDescription;
+			this.cellType = new Pair<>(clientKey, null);
+		}
+	}
 }
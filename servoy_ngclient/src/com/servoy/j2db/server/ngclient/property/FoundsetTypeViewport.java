@@ -19,6 +19,7 @@ package com.servoy.j2db.server.ngclient.property;
 
 import org.slf4j.Logger;
 
+import com.servoy.j2db.dataprocessing.FoundSet;
 import com.servoy.j2db.dataprocessing.FoundSetEvent;
 import com.servoy.j2db.dataprocessing.IFoundSetEventListener;
 import com.servoy.j2db.dataprocessing.IFoundSetInternal;
@@ -255,6 +256,7 @@ public class FoundsetTypeViewport
 	{
 		if (foundset != null)
 		{
+			if (newSize > 0 && foundset instanceof FoundSet) ((FoundSet)foundset).setViewportSize(newSize); // load the records per viewport when adaptive chunk sizing is enabled
 			IRecordInternal firstRec = foundset.getRecord(newStartIndex); // this can trigger a query for more records if foundset hadMoreRows is true; that in turn can update through listener serverSize and hadMoreRows related flags on the change monitor
 
 			if (firstRec != null)
@@ -57,6 +57,9 @@ public class ViewportClientSideTypes
 	// if MediaDataproviderPropertyType ends up writing things for cells you might end up with multiple types in the list for one column);
 	// later we will see which type appears most often in the column and we optimize it when writing to JSON (as usually you will have only 1 or 2 types per column, like null and 'date' for example)
 
+	private Map<String, Pair<String, List<Integer>>> lastTypePerColumn = null; // the last registered (stringified) type of each column and its indexes; rows that repeat
+	// the type of the previous row in that column (which is the common case) are added directly instead of looking up the type in typesPerColumn again
+
 	public ViewportClientSideTypes(int startIdxOfAreaToBeWritten, int endIdxOfAreaToBeWritten)
 	{
 		this.startIdxOfAreaToBeWritten = startIdxOfAreaToBeWritten;
@@ -130,10 +133,21 @@ public class ViewportClientSideTypes
 
 	private void processOneClientSideType(String columnName, JSONString type)
 	{
-		if (typesPerColumn == null) typesPerColumn = new HashMap<>();
+		if (typesPerColumn == null)
+		{
+			typesPerColumn = new HashMap<>();
+			lastTypePerColumn = new HashMap<>();
+		}
 
 		String stringifiedType = toJSONString(type);
 
+		Pair<String, List<Integer>> lastType = lastTypePerColumn.get(columnName);
+		if (lastType != null && Objects.equals(lastType.getLeft(), stringifiedType))
+		{
+			lastType.getRight().add(Integer.valueOf(lastRegistered));
+			return;
+		}
+
 		Map<String, List<Integer>> columnTypes = typesPerColumn.get(columnName);
 
 		if (columnTypes == null)
@@ -150,6 +164,7 @@ public class ViewportClientSideTypes
 		}
 
 		typeIndexesInsideColumn.add(Integer.valueOf(lastRegistered));
+		lastTypePerColumn.put(columnName, new Pair<>(stringifiedType, typeIndexesInsideColumn));
 	}
 
 	public void writeClientSideTypes(JSONWriter w, String key)
@@ -332,6 +347,7 @@ public class ViewportClientSideTypes
 
 		typesPerColumn.clear(); // just to help GC
 		typesPerColumn = null;
+		lastTypePerColumn = null;
 
 		return rootEjw;
 	}
@@ -18,9 +18,11 @@
 package com.servoy.j2db.server.ngclient.property;
 
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 import org.json.JSONException;
 import org.json.JSONWriter;
+import org.sablo.specification.property.ArrayOperation;
 
 import com.servoy.j2db.dataprocessing.FireCollector;
 import com.servoy.j2db.dataprocessing.IFoundSetInternal;
@@ -69,8 +71,35 @@ public abstract class ViewportRowDataProvider
 	protected ViewportClientSideTypes writeRowData(int startIndex, int endIndex, Set<String> columnNames, IFoundSetInternal foundset, JSONWriter w,
 		Object sabloValueThatRequestedThisDataToBeWritten) throws JSONException
 	{
-		ViewportClientSideTypes types = null;
 		w.array();
+		ViewportClientSideTypes types = writeRows(startIndex, endIndex, foundset, sabloValueThatRequestedThisDataToBeWritten,
+			(rowTypes, foundsetIndex) -> writeRowData(foundsetIndex, columnNames, foundset, w, rowTypes));
+		w.endArray();
+		return types;
+	}
+
+	/**
+	 * Writes the "rows" of a viewport operation; nothing is written for {@link ArrayOperation#DELETE} operations.
+	 */
+	protected ViewportClientSideTypes writeRowDataForOperation(ArrayOperation op, int viewportStartIndex, IFoundSetInternal foundset, JSONWriter w,
+		Object sabloValueThatRequestedThisDataToBeWritten) throws JSONException
+	{
+		if (op.type == ArrayOperation.DELETE) return null;
+
+		w.key("rows");
+		return writeRowData(viewportStartIndex + op.startIndex, viewportStartIndex + op.endIndex, op.cellNames, foundset, w,
+			sabloValueThatRequestedThisDataToBeWritten);
+	}
+
+	/**
+	 * Calls the rowWriter for each row from startIndex to endIndex (foundset indexes) that exists in the foundset.
+	 *
+	 * @return the client side types that the rowWriter registered for the rows, null if no rows were written.
+	 */
+	protected ViewportClientSideTypes writeRows(int startIndex, int endIndex, IFoundSetInternal foundset, Object sabloValueThatRequestedThisDataToBeWritten,
+		ObjIntConsumer<ViewportClientSideTypes> rowWriter) throws JSONException
+	{
+		ViewportClientSideTypes types = null;
 		if (foundset != null)
 		{
 			int size = foundset.getSize();
@@ -98,7 +127,7 @@ public abstract class ViewportRowDataProvider
 					types = new ViewportClientSideTypes(startIndex, endIndex);
 					for (int i = startIndex; i <= endIndex; i++)
 					{
-						writeRowData(i, columnNames, foundset, w, types);
+						rowWriter.accept(types, i);
 					}
 				}
 				finally
@@ -111,7 +140,6 @@ public abstract class ViewportRowDataProvider
 				}
 			}
 		}
-		w.endArray();
 		return types;
 	}
 
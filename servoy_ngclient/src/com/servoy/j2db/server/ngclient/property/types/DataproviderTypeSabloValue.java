@@ -649,6 +649,30 @@ public class DataproviderTypeSabloValue implements IDataLinkedPropertyValue, IFi
 		}
 	}
 
+	/**
+	 * When this dataprovider shows the display values of a lazy db valuelist, look up the display values of the records in the range with one query
+	 * instead of one query per record when the rows are written.
+	 */
+	public void lookupValuelistDisplayValues(IFoundSetInternal foundset, int startIndex, int endIndex)
+	{
+		if (shouldResolveFromValuelistWithName == null || webObjectContext == null || foundset == null || findMode) return;
+
+		ValueListTypeSabloValue valuelistSabloValue = (ValueListTypeSabloValue)FoundsetLinkedTypeSabloValue.unwrapIfNeeded(
+			webObjectContext.getProperty(shouldResolveFromValuelistWithName));
+		if (valuelistSabloValue != null && valuelistSabloValue.getValueList() instanceof DBValueList &&
+			((DBValueList)valuelistSabloValue.getValueList()).isLazy())
+		{
+			List<Object> realValues = new ArrayList<>();
+			int end = Math.min(endIndex, foundset.getSize() - 1);
+			for (int i = startIndex; i <= end; i++)
+			{
+				IRecordInternal record = foundset.getRecord(i);
+				if (record != null) realValues.add(record.getValue(dataProviderID));
+			}
+			((DBValueList)valuelistSabloValue.getValueList()).lookupDisplayValues(realValues);
+		}
+	}
+
 	protected IJSONStringWithClientSideType getValueForToJSON(IBrowserConverterContext dataConverterContext) throws JSONException
 	{
 		if (uiValue instanceof DbIdentValue)
@@ -680,6 +704,13 @@ public class DataproviderTypeSabloValue implements IDataLinkedPropertyValue, IFi
 						Debug.error(ex);
 					}
 				}
+				else if (valuelistSabloValue.getValueList() instanceof DBValueList &&
+					((DBValueList)valuelistSabloValue.getValueList()).lookupDisplayValue(uiValue))
+				{
+					// looked up together with the other rows of the viewport, see lookupValuelistDisplayValues
+					Object displayValue = ((DBValueList)valuelistSabloValue.getValueList()).getLookedUpDisplayValue(uiValue);
+					if (displayValue != null) uiValue = displayValue;
+				}
 				else if (valuelistSabloValue.getValueList() instanceof DBValueList)
 				{
 					try
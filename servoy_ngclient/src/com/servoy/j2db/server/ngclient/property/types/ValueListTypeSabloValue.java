@@ -99,6 +99,8 @@ public class ValueListTypeSabloValue implements IDataLinkedPropertyValue, ListDa
 	private final String HANDLED = "handledID";
 	private final String FILTER = "filter";
 	private final String DISPLAYVALUE = "getDisplayValue";
+	private final String LOAD_MORE = "loadMore";
+	private final String HAD_MORE_ROWS = "hadMoreRows";
 
 	protected List<IChangeListener> underlyingValueChangeListeners = new ArrayList<>();
 
@@ -641,6 +643,12 @@ public class ValueListTypeSabloValue implements IDataLinkedPropertyValue, ListDa
 
 			writer.key("hasRealValues");
 			writer.value(valueList.hasRealValues() || !this.allowNewEntries);
+			if (filteredValuelist != null && filteredValuelist.hasMoreRows() && valueList instanceof DBValueList && ((DBValueList)valueList).isLazy())
+			{
+				// the client can ask for the next page of the filter with a LOAD_MORE request
+				writer.key(HAD_MORE_ROWS);
+				writer.value(true);
+			}
 			writer.key("values");
 			JSONUtils.toBrowserJSONFullValue(writer, null, newJavaValueForJSON, null, dataConverterContext);
 			writer.endObject();
@@ -954,6 +962,30 @@ public class ValueListTypeSabloValue implements IDataLinkedPropertyValue, ListDa
 		{
 			getDisplayValue(newJSONValue);
 		}
+		else if (newJSONValue.has(LOAD_MORE))
+		{
+			loadMoreFilteredValues(newJSONValue);
+		}
+	}
+
+	/**
+	 * Loads the next page of the last filter of a lazy db valuelist.
+	 */
+	private void loadMoreFilteredValues(JSONObject newJSONValue)
+	{
+		this.handledIDForResponse = Long.valueOf(newJSONValue.getLong(ID_KEY));
+		if (filteredValuelist != null)
+		{
+			try
+			{
+				filteredValuelist.loadMoreRows();
+			}
+			catch (ServoyException e)
+			{
+				Debug.error(e);
+			}
+		}
+		changeMonitor.markFullyChanged(true);
 	}
 
 	/**
@@ -979,7 +1011,12 @@ public class ValueListTypeSabloValue implements IDataLinkedPropertyValue, ListDa
 		}
 		else
 		{
-			if (valueList instanceof DBValueList)
+			if (valueList instanceof DBValueList && ((DBValueList)valueList).lookupDisplayValue(realValue))
+			{
+				Object lookedUp = ((DBValueList)valueList).getLookedUpDisplayValue(realValue);
+				if (lookedUp != null) displayValue = lookedUp;
+			}
+			else if (valueList instanceof DBValueList)
 			{
 				try
 				{
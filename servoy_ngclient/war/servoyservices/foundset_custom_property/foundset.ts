@@ -343,8 +343,6 @@ namespace ngclient.propertyTypes {
                         newValue[propName] = serverJSONValue[propName];
                     }
         
-                    const rows = newValue[FoundsetType.VIEW_PORT][FoundsetType.ROWS];
-        
                     // convert data if needed - specially done for Date send/receive as the rest are primitives anyway in case of foundset
                     // relocate conversion info in internal state and convert
                     newValue[FoundsetType.VIEW_PORT][FoundsetType.ROWS] = this.viewportModule.updateWholeViewport([] /* this is a full viewport replace; no need to give old/currentClientValue rows here I think */,
@@ -352,6 +350,8 @@ namespace ngclient.propertyTypes {
                             undefined, componentScope, internalState.propertyContextCreator, false);
                         delete newValue[FoundsetType.VIEW_PORT][this.sabloConverters.CONVERSION_CL_SIDE_TYPE_KEY];
                     
+                    const rows = newValue[FoundsetType.VIEW_PORT][FoundsetType.ROWS]; // can be a new array if the rows were received per column
+                    
                     for (let i = rows.length - 1; i >= 0; i--) {
                         rows[i] = new RowValue(rows[i], newValue);
                     }
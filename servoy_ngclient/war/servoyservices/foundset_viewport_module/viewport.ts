@@ -26,6 +26,13 @@ namespace ngclient.propertyTypes {
 		private static readonly CELL_TYPES = "eT";
 		private static readonly FOR_ROW_IDXS = "i";
 		
+		// keys of the columnar rows format, see ColumnarViewportWriter.java
+		private static readonly COLUMNAR_ROW_COUNT = "n";
+		private static readonly COLUMNAR_KEYS = "k";
+		private static readonly COLUMNAR_COLUMNS = "c";
+		private static readonly COLUMNAR_DICTIONARY = "d";
+		private static readonly COLUMNAR_DICTIONARY_INDEXES = "i";
+		
 		constructor(private readonly sabloConverters: sablo.ISabloConverters,
 				private readonly foundsetTypeConstants: foundsetType.FoundsetTypeConstants,
 				private readonly sabloUtils: sablo.ISabloUtils,
@@ -304,7 +311,31 @@ namespace ngclient.propertyTypes {
 		                           componentScope: angular.IScope, propertyContextCreator: sablo.IPropertyContextCreator, simpleRowValue: boolean): any[] {
 			// update conversion info; expand what we get from server to be easy to use on client (like main type and main column type from JSON are kept at cell level)
 			internalState.viewportTypes = {};
-			return this.expandTypeInfoAndApplyConversions(viewPortUpdateConversions, defaultColumnTypes, viewPortUpdate, 0, oldViewPort, internalState, componentScope, propertyContextCreator, simpleRowValue, true);
+			return this.expandTypeInfoAndApplyConversions(viewPortUpdateConversions, defaultColumnTypes, this.decodeRows(viewPortUpdate), 0, oldViewPort, internalState, componentScope, propertyContextCreator, simpleRowValue, true);
+		}
+		
+		/**
+		 * Foundset properties that have "columnarViewport" in their spec get rows from the server per column (see ColumnarViewportWriter.java):
+		 * { "n": 3, "k": [ "_svyRowId", "name", "city" ], "c": [ [ "1.1;_0", "1.2;_1", "1.3;_2" ], [ "Bubu", "Yogy", null ], { "d": [ "Amsterdam", "Paris" ], "i": [ 0, 0, 1 ] } ] }
+		 * This turns that into the usual array of rows. Rows that are already an array are returned as they are.
+		 */
+		private decodeRows(rows: any): any[] {
+			if (!rows || Array.isArray(rows)) return rows;
+			
+			const decodedRows = [];
+			for (let r = 0; r < rows[ViewportService.COLUMNAR_ROW_COUNT]; r++) decodedRows.push({});
+			rows[ViewportService.COLUMNAR_KEYS].forEach((key: string, c: number) => {
+				const column = rows[ViewportService.COLUMNAR_COLUMNS][c];
+				if (Array.isArray(column)) column.forEach((value: any, r: number) => decodedRows[r][key] = value);
+				else {
+					// dictionary; -1 means that row has no value for this column (partial row update)
+					const dictionary = column[ViewportService.COLUMNAR_DICTIONARY];
+					column[ViewportService.COLUMNAR_DICTIONARY_INDEXES].forEach((idx: number, r: number) => {
+						if (idx >= 0) decodedRows[r][key] = dictionary[idx];
+					});
+				}
+			});
+			return decodedRows;
 		}
 	
 		// see comment above, before updateWholeViewport()
@@ -322,6 +353,7 @@ namespace ngclient.propertyTypes {
 			// apply granular updates one by one
 			for (let i = 0; i < rowUpdates.length; i++) {
 				const rowUpdate = rowUpdates[i];
+				if (rowUpdate.rows) rowUpdate.rows = this.decodeRows(rowUpdate.rows);
 				if (rowUpdate.type == this.foundsetTypeConstants.ROWS_CHANGED) {
 					const wholeRowUpdates = simpleRowValue || rowUpdate.rows[0][this.foundsetTypeConstants.ROW_ID_COL_KEY]; // if the rowUpdate rows contain '_svyRowId' then we know it's the entire/complete row object; same if it's a one value per row (foundset linked)
 					
@@ -9,6 +9,8 @@ angular.module('valuelist_property', ['webSocketModule'])
 	var HANDLED = "handledID";
 	var FILTER = "filter";
 	var DISPLAYVALUE = "getDisplayValue";
+	var LOAD_MORE = "loadMore";
+	var HAD_MORE_ROWS = "hadMoreRows";
 
 	$typesRegistry.registerGlobalType('valuelist', {
 		fromServerToClient: function (serverJSONValue: any, currentClientValue: any, componentScope: angular.IScope, propertyContext: sablo.IPropertyContext): any {
@@ -41,6 +43,7 @@ angular.module('valuelist_property', ['webSocketModule'])
 						else $sabloDeferHelper.initInternalStateForDeferring(internalState, "svy valuelist * ");
 	
 						internalState.hasRealValues = serverJSONValue.hasRealValues; 
+						internalState.hadMoreRows = !!serverJSONValue[HAD_MORE_ROWS];
 						// PUBLIC API to components; initialize the property value; make it 'smart'
 						Object.defineProperty(newValue, 'filterList', {
 							value: function(filterString) {
@@ -59,6 +62,25 @@ angular.module('valuelist_property', ['webSocketModule'])
 							value: function() {
 								return internalState.hasRealValues;
 							}, enumerable: false });
+
+						// lazy db valuelists (servoy.client.valuelist.lazy) only send a page of the filtered values
+						Object.defineProperty(newValue, 'hadMoreRows', {
+							value: function() {
+								return internalState.hadMoreRows;
+							}, enumerable: false });
+
+						Object.defineProperty(newValue, 'loadMore', {
+							value: function() {
+								// the promise is resolved with the new valuelist value that has the next page of the last filter added
+								internalState.loadMoreReq = { };
+								internalState.loadMoreReq[LOAD_MORE] = true;
+								internalState.loadMoreReq[ID_KEY] = $sabloDeferHelper.getNewDeferId(internalState);
+								var promise = internalState.deferred[internalState.loadMoreReq[ID_KEY]].defer.promise;
+								
+								if (internalState.changeNotifier) internalState.changeNotifier();
+								
+								return promise;
+							}, enumerable: false });
 						// clear the cache
 						internalState.realToDisplayCache = {};
 						if (componentScope) {
@@ -109,7 +131,7 @@ angular.module('valuelist_property', ['webSocketModule'])
 						internalState.setChangeNotifier = function(changeNotifier) {
 							internalState.changeNotifier = changeNotifier; 
 						}
-						internalState.isChanged = function() { return angular.isDefined(internalState.filterStringReq) || angular.isDefined(internalState.diplayValueReq); }
+						internalState.isChanged = function() { return angular.isDefined(internalState.filterStringReq) || angular.isDefined(internalState.diplayValueReq) || angular.isDefined(internalState.loadMoreReq); }
 					} else internalState = newValue[$sabloConverters.INTERNAL_IMPL];
 				}
 				else if (serverJSONValue[DISPLAYVALUE] !== undefined) {
@@ -152,6 +174,11 @@ angular.module('valuelist_property', ['webSocketModule'])
 						delete newDataInternalState.diplayValueReq;
 						return tmp;
 					}
+					else if (newDataInternalState.loadMoreReq) {
+						var tmp = newDataInternalState.loadMoreReq;
+						delete newDataInternalState.loadMoreReq;
+						return tmp;
+					}
 				}
 			}
 			return null; // should never happen
@@ -52,6 +52,8 @@ import com.servoy.j2db.dataprocessing.IDataServer;
 import com.servoy.j2db.dataprocessing.IFoundSetManagerInternal;
 import com.servoy.j2db.dataprocessing.ISaveConstants;
 import com.servoy.j2db.dataprocessing.IValueList;
+import com.servoy.j2db.dataprocessing.ParallelQueryDataServer;
+import com.servoy.j2db.dataprocessing.ValueListCacheDataServer;
 import com.servoy.j2db.persistence.ClientMethodTemplatesLoader;
 import com.servoy.j2db.persistence.IActiveSolutionHandler;
 import com.servoy.j2db.persistence.IColumnTypes;
@@ -843,7 +845,17 @@ public abstract class ClientState extends ClientVersion implements IServiceProvi
 			IApplicationServerAccess asa = getApplicationServerAccess();
 			if (asa != null)
 			{
-				return asa.getDataServer();
+				IDataServer ds = asa.getDataServer();
+				if (ds != null && ValueListCacheDataServer.isEnabled())
+				{
+					ds = new ValueListCacheDataServer(ds);
+				}
+				if (ds != null && ParallelQueryDataServer.isEnabled() && !isRunningRemote() && ApplicationServerRegistry.exists())
+				{
+					// only for clients in the application server, for remote clients every query would be a separate roundtrip
+					ds = new ParallelQueryDataServer(ds);
+				}
+				return ds;
 			}
 		}
 		catch (RemoteException e)
@@ -18,18 +18,28 @@ package com.servoy.j2db;
 
 
 import java.rmi.RemoteException;
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.servoy.j2db.dataprocessing.DataServerProxy;
 import com.servoy.j2db.dataprocessing.FoundSetManager;
 import com.servoy.j2db.dataprocessing.IClient;
 import com.servoy.j2db.dataprocessing.IDataServer;
 import com.servoy.j2db.dataprocessing.IDataSet;
+import com.servoy.j2db.dataprocessing.ISQLActionTypes;
+import com.servoy.j2db.dataprocessing.PKHashKey;
+import com.servoy.j2db.dataprocessing.ValueListCacheDataServer;
 import com.servoy.j2db.scripting.StartupArguments;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
 import com.servoy.j2db.util.DataSourceUtils;
 import com.servoy.j2db.util.Debug;
 import com.servoy.j2db.util.IGetLastAccessed;
 import com.servoy.j2db.util.IGetStatusLine;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
 
 /**
  * Remote class for server calls to client
@@ -38,6 +48,29 @@ import com.servoy.j2db.util.IGetStatusLine;
  */
 public class ClientStub implements IClient
 {
+	// time in ms that data change notifications are collected before they are handled, 0 handles them as soon as possible
+	private static final long DATACHANGE_WINDOW = Utils.getAsLong(Settings.getInstance().getProperty("servoy.client.dataChange.window", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+	// number of merged pks of an update or delete above which the datasource is flushed instead
+	private static final int DATACHANGE_FLUSH_THRESHOLD = Utils.getAsInteger(
+		Settings.getInstance().getProperty("servoy.client.dataChange.flushThreshold", "1000")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final AtomicLong receivedDataChanges = new AtomicLong();
+	private static final AtomicLong mergedDataChanges = new AtomicLong();
+	private static final AtomicLong deliveredDataChanges = new AtomicLong();
+	private static final AtomicLong flushedDataChanges = new AtomicLong();
+
+	static
+	{
+		PerformanceMetrics.registerCounter("datachange_received_total", "Data change notifications received by the clients.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ClientStub::getReceivedDataChangeCount);
+		PerformanceMetrics.registerCounter("datachange_merged_total", "Data change notifications merged into pending notifications.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ClientStub::getMergedDataChangeCount);
+		PerformanceMetrics.registerCounter("datachange_delivered_total", "Data change notifications delivered to the clients.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ClientStub::getDeliveredDataChangeCount);
+		PerformanceMetrics.registerCounter("datachange_flushed_total", "Flushes of pending data change notifications.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ClientStub::getFlushedDataChangeCount);
+	}
+
 	protected transient final ClientState client;
 
 	public ClientStub(ClientState c)
@@ -115,6 +148,7 @@ public class ClientStub implements IClient
 		{
 			Debug.trace("Flush Cached Data received for datasource: " + dataSource);
 		}
+		ValueListCacheDataServer.clientDataChange(dataSource);
 
 		client.getScheduledExecutor().execute(new Runnable()
 		{
@@ -125,23 +159,7 @@ public class ClientStub implements IClient
 					public void run()
 					{
 						if (client.isShutDown() || !client.isSolutionLoaded()) return;
-						IDataServer dataServer = client.getDataServer();
-						if (dataServer instanceof DataServerProxy)
-						{
-							String[] dbServernameTablename = DataSourceUtils.getDBServernameTablename(dataSource);
-							if (dbServernameTablename != null)
-							{
-								// map from real db server to server names from before switch-server
-								for (String srv : ((DataServerProxy)dataServer).getReverseMappedServerNames(dbServernameTablename[0]))
-								{
-									((FoundSetManager)client.getFoundSetManager()).flushCachedDatabaseDataFromRemote(
-										DataSourceUtils.createDBTableDataSource(srv, dbServernameTablename[1]));
-								}
-								return;
-							}
-						}
-
-						((FoundSetManager)client.getFoundSetManager()).flushCachedDatabaseDataFromRemote(dataSource);
+						flushDataSource(dataSource);
 					}
 				};
 
@@ -157,8 +175,30 @@ public class ClientStub implements IClient
 		});
 	}
 
-	private final Stack<Object[]> datachanges = new Stack<Object[]>();
-	private Runnable datachangesHandler;
+	private void flushDataSource(String dataSource)
+	{
+		IDataServer dataServer = client.getDataServer();
+		if (dataServer instanceof DataServerProxy)
+		{
+			String[] dbServernameTablename = DataSourceUtils.getDBServernameTablename(dataSource);
+			if (dbServernameTablename != null)
+			{
+				// map from real db server to server names from before switch-server
+				for (String srv : ((DataServerProxy)dataServer).getReverseMappedServerNames(dbServernameTablename[0]))
+				{
+					((FoundSetManager)client.getFoundSetManager()).flushCachedDatabaseDataFromRemote(
+						DataSourceUtils.createDBTableDataSource(srv, dbServernameTablename[1]));
+				}
+				return;
+			}
+		}
+
+		((FoundSetManager)client.getFoundSetManager()).flushCachedDatabaseDataFromRemote(dataSource);
+	}
+
+	// pending data changes in the order they were received, a new change is only merged into the last one so the order between datasources is kept
+	private final ArrayDeque<DataChange> datachanges = new ArrayDeque<DataChange>();
+	private boolean datachangesScheduled;
 
 	public void notifyDataChange(final String server_name, final String table_name, final IDataSet pks, final int sql_action, final Object[] insertColumnData)
 	{
@@ -168,63 +208,132 @@ public class ClientStub implements IClient
 			Debug.trace("Notify Data Change get from the server for dataserver: " + server_name + " table: " + table_name + ". Pks: " + //$NON-NLS-1$//$NON-NLS-2$
 				(pks != null ? "not null" : "null") + ". Action type: " + sql_action);
 		}
+		receivedDataChanges.incrementAndGet();
+		// the shared valuelist cache is invalidated right away, not after the data change is handled
+		ValueListCacheDataServer.clientDataChange(DataSourceUtils.createDBTableDataSource(server_name, table_name));
 		synchronized (datachanges)
 		{
-			datachanges.push(new Object[] { server_name, table_name, pks, new Integer(sql_action), insertColumnData });
-			if (datachangesHandler == null)
+			DataChange last = datachanges.peekLast();
+			if (last == null || !last.merge(server_name, table_name, sql_action, pks, insertColumnData))
+			{
+				datachanges.add(new DataChange(server_name, table_name, pks, sql_action, insertColumnData));
+			}
+			else
+			{
+				mergedDataChanges.incrementAndGet();
+			}
+
+			if (!datachangesScheduled)
 			{
-				datachangesHandler = new Runnable()
+				datachangesScheduled = true;
+				Runnable scheduleHandler = new Runnable()
 				{
 					public void run()
 					{
-						while (datachangesHandler != null)
+						client.invokeLater(new Runnable()
 						{
-							final Object[] array;
-							synchronized (datachanges)
+							public void run()
 							{
-								if (datachanges.isEmpty())
-								{
-									datachangesHandler = null; // done
-									break;
-								}
-								array = datachanges.pop();
+								handleDataChanges();
 							}
-
-							client.invokeLater(new Runnable()
-							{
-								public void run()
-								{
-									if (client.isShutDown() || !client.isSolutionLoaded()) return;
-									String sname = (String)array[0];
-									String tname = (String)array[1];
-									IDataSet pksDataSet = (IDataSet)array[2];
-									int action = ((Integer)array[3]).intValue();
-									Object[] insertColumndata = (Object[])array[4];
-
-									IDataServer ds = client.getDataServer();
-									if (ds instanceof DataServerProxy)
-									{
-										// possibly switched from multiple servers to the same destination server.
-										for (String srv : ((DataServerProxy)ds).getReverseMappedServerNames(sname))
-										{
-											((FoundSetManager)client.getFoundSetManager()).notifyDataChange(DataSourceUtils.createDBTableDataSource(srv, tname),
-												pksDataSet, action, insertColumndata);
-										}
-										return;
-									}
-									// not switched
-									((FoundSetManager)client.getFoundSetManager()).notifyDataChange(DataSourceUtils.createDBTableDataSource(sname, tname),
-										pksDataSet, action, insertColumndata);
-								}
-							});
-						}
+						});
 					}
 				};
-				client.getScheduledExecutor().execute(datachangesHandler);
+				if (DATACHANGE_WINDOW > 0)
+				{
+					client.getScheduledExecutor().schedule(scheduleHandler, DATACHANGE_WINDOW, TimeUnit.MILLISECONDS);
+				}
+				else
+				{
+					client.getScheduledExecutor().execute(scheduleHandler);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Handle all pending data changes in one go in the event thread.
+	 */
+	private void handleDataChanges()
+	{
+		DataChange[] changes;
+		synchronized (datachanges)
+		{
+			changes = datachanges.toArray(new DataChange[datachanges.size()]);
+			datachanges.clear();
+			datachangesScheduled = false;
+		}
+		if (client.isShutDown() || !client.isSolutionLoaded()) return;
+
+		for (DataChange change : changes)
+		{
+			try
+			{
+				if (change.flush)
+				{
+					flushedDataChanges.incrementAndGet();
+					flushDataSource(DataSourceUtils.createDBTableDataSource(change.serverName, change.tableName));
+					continue;
+				}
+
+				deliveredDataChanges.incrementAndGet();
+				IDataServer ds = client.getDataServer();
+				if (ds instanceof DataServerProxy)
+				{
+					// possibly switched from multiple servers to the same destination server.
+					for (String srv : ((DataServerProxy)ds).getReverseMappedServerNames(change.serverName))
+					{
+						((FoundSetManager)client.getFoundSetManager()).notifyDataChange(DataSourceUtils.createDBTableDataSource(srv, change.tableName),
+							change.pks, change.action, change.insertColumnData);
+					}
+				}
+				else
+				{
+					// not switched
+					((FoundSetManager)client.getFoundSetManager()).notifyDataChange(
+						DataSourceUtils.createDBTableDataSource(change.serverName, change.tableName), change.pks, change.action, change.insertColumnData);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				// the other changes still have to be handled
+				Debug.error("Error handling data change of " + change.serverName + '.' + change.tableName, e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Number of data change notifications received from the server.
+	 */
+	public static long getReceivedDataChangeCount()
+	{
+		return receivedDataChanges.get();
+	}
+
+	/**
+	 * Number of data change notifications that were merged into a pending notification of the same datasource and action.
+	 */
+	public static long getMergedDataChangeCount()
+	{
+		return mergedDataChanges.get();
+	}
+
+	/**
+	 * Number of (merged) data change notifications that were delivered to the foundset manager.
+	 */
+	public static long getDeliveredDataChangeCount()
+	{
+		return deliveredDataChanges.get();
+	}
+
+	/**
+	 * Number of merged data change notifications that had too many pks and were handled as a flush of the datasource.
+	 */
+	public static long getFlushedDataChangeCount()
+	{
+		return flushedDataChanges.get();
+	}
+
 	public void activateSolutionMethod(final String globalMethodName, final StartupArguments argumentsScope)
 	{
 		client.getScheduledExecutor().execute(new Runnable()
@@ -263,5 +372,72 @@ public class ClientStub implements IClient
 		return 0l;
 	}
 
+	/**
+	 * A pending data change notification, consecutive notifications of the same datasource and action are merged into one.
+	 */
+	private static final class DataChange
+	{
+		private final String serverName;
+		private final String tableName;
+		private final int action;
+		private final Object[] insertColumnData;
+		private IDataSet pks;
+		private Set<PKHashKey> pkKeys;
+		private boolean flush;
 
+		DataChange(String serverName, String tableName, IDataSet pks, int action, Object[] insertColumnData)
+		{
+			this.serverName = serverName;
+			this.tableName = tableName;
+			this.pks = pks;
+			this.action = action;
+			this.insertColumnData = insertColumnData;
+		}
+
+		/**
+		 * Merge the pks of a new notification into this one, only for the same datasource and action and when there is no insert column data (that is per row).
+		 */
+		boolean merge(String newServerName, String newTableName, int newAction, IDataSet newPks, Object[] newInsertColumnData)
+		{
+			if (newAction != action || insertColumnData != null || newInsertColumnData != null || !serverName.equals(newServerName) ||
+				!tableName.equals(newTableName))
+			{
+				return false;
+			}
+			if (flush)
+			{
+				// the datasource is flushed anyway
+				return true;
+			}
+			if (pks == null || newPks == null)
+			{
+				return false;
+			}
+			if (pkKeys == null)
+			{
+				IDataSet merged = pks.clone();
+				pkKeys = new HashSet<PKHashKey>();
+				for (int i = 0; i < merged.getRowCount(); i++)
+				{
+					pkKeys.add(PKHashKey.create(merged.getRow(i)));
+				}
+				pks = merged;
+			}
+			for (int i = 0; i < newPks.getRowCount(); i++)
+			{
+				Object[] pk = newPks.getRow(i);
+				if (pkKeys.add(PKHashKey.create(pk)))
+				{
+					pks.addRow(pk);
+				}
+			}
+			if (action != ISQLActionTypes.INSERT_ACTION && DATACHANGE_FLUSH_THRESHOLD > 0 && pks.getRowCount() > DATACHANGE_FLUSH_THRESHOLD)
+			{
+				flush = true;
+				pks = null;
+				pkKeys = null;
+			}
+			return true;
+		}
+	}
 }
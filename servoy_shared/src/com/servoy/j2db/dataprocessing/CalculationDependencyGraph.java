@@ -0,0 +1,251 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reverse indexes of the calculations of the rows in a {@link RowManager} (enabled with servoy.foundset.calcDependencyIndex).
+ * <p>
+ * Keeps per calculation the rows of which the calculation value is up to date, and per related foundset (relation name and where-args hash) the
+ * calculations of rows that were calculated using that foundset. Rows get an int handle and calculations an interned id, the rows of a calculation are
+ * kept in a bit set of row handles. This way clearing a calculation or a change of a related foundset only visits the rows that are affected instead
+ * of all cached rows.
+ * <p>
+ * Only rows in the cache of the row manager get a handle (in {@link #rowAdded(PKHashKey, List)}), the handle is freed when the row is removed from
+ * the cache. Calculations of rows that are not in the cache are not indexed.
+ * <p>
+ * Dependencies on globals and aggregates are kept per calculation by the row manager, a change of those clears the calculations which uses the index
+ * of the rows with the calculation up to date.
+ * <p>
+ * The indexes may contain rows that are not affected anymore, the row manager checks the rows it gets from the index.
+ *
+ * @since 2024.3
+ */
+final class CalculationDependencyGraph
+{
+	private static final char KEY_SEPARATOR = '\u0000';
+
+	// row handles, released handles are reused
+	private final Map<PKHashKey, Integer> rowHandles = new HashMap<>();
+	private PKHashKey[] rows = new PKHashKey[64];
+	private int[] freeHandles = new int[16];
+	private int freeCount = 0;
+	private int nextHandle = 0;
+
+	// interned calculation names
+	private final Map<String, Integer> calcIds = new HashMap<>();
+	private final List<String> calcNames = new ArrayList<>();
+
+	// calc id -> handles of the rows with the calculation up to date
+	private final List<BitSet> uptodateRows = new ArrayList<>();
+
+	// relation name + where-args hash -> calc id -> handles of the rows whose calculation depends on that related foundset
+	private final Map<String, Map<Integer, BitSet>> relationDependents = new HashMap<>();
+	// row handle -> relation keys the row is registered under
+	private List<String>[] rowRelationKeys = newRelationKeysArray(64);
+
+	/**
+	 * The calculation of the row was calculated.
+	 */
+	synchronized void calcUptodate(PKHashKey pkHashKey, String calc)
+	{
+		Integer handle = rowHandles.get(pkHashKey);
+		if (handle != null)
+		{
+			uptodateRows.get(calcId(calc)).set(handle.intValue());
+		}
+	}
+
+	/**
+	 * The calculation of the row was flagged for recalculation.
+	 */
+	synchronized void calcFlagged(PKHashKey pkHashKey, String calc)
+	{
+		Integer handle = rowHandles.get(pkHashKey);
+		Integer id = calcIds.get(calc);
+		if (handle != null && id != null)
+		{
+			uptodateRows.get(id.intValue()).clear(handle.intValue());
+		}
+	}
+
+	/**
+	 * The row was added to the cache with the calculations that are up to date.
+	 */
+	synchronized void rowAdded(PKHashKey pkHashKey, List<String> calcsUptodate)
+	{
+		int handle = rowHandle(pkHashKey);
+		if (calcsUptodate != null)
+		{
+			for (String calc : calcsUptodate)
+			{
+				uptodateRows.get(calcId(calc)).set(handle);
+			}
+		}
+	}
+
+	/**
+	 * The row was removed from the cache.
+	 */
+	synchronized void rowRemoved(PKHashKey pkHashKey)
+	{
+		Integer h = rowHandles.remove(pkHashKey);
+		if (h == null) return;
+
+		int handle = h.intValue();
+		for (BitSet set : uptodateRows)
+		{
+			set.clear(handle);
+		}
+		List<String> relationKeys = rowRelationKeys[handle];
+		if (relationKeys != null)
+		{
+			for (String relationKey : relationKeys)
+			{
+				Map<Integer, BitSet> calcs = relationDependents.get(relationKey);
+				if (calcs != null)
+				{
+					Iterator<BitSet> it = calcs.values().iterator();
+					while (it.hasNext())
+					{
+						BitSet set = it.next();
+						set.clear(handle);
+						if (set.isEmpty()) it.remove();
+					}
+					if (calcs.isEmpty()) relationDependents.remove(relationKey);
+				}
+			}
+			rowRelationKeys[handle] = null;
+		}
+
+		rows[handle] = null;
+		if (freeCount == freeHandles.length)
+		{
+			freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+		}
+		freeHandles[freeCount++] = handle;
+	}
+
+	/**
+	 * The calculation of the row was calculated using the related foundset.
+	 */
+	synchronized void addRelationDependency(String relationName, String whereArgsHash, PKHashKey pkHashKey, String calc)
+	{
+		Integer h = rowHandles.get(pkHashKey);
+		if (h == null) return;
+
+		String relationKey = relationName + KEY_SEPARATOR + whereArgsHash;
+		int handle = h.intValue();
+		relationDependents.computeIfAbsent(relationKey, key -> new HashMap<>()).computeIfAbsent(Integer.valueOf(calcId(calc)), id -> new BitSet()).set(handle);
+		List<String> relationKeys = rowRelationKeys[handle];
+		if (relationKeys == null)
+		{
+			relationKeys = new ArrayList<>(2);
+			rowRelationKeys[handle] = relationKeys;
+		}
+		if (!relationKeys.contains(relationKey))
+		{
+			relationKeys.add(relationKey);
+		}
+	}
+
+	/**
+	 * The rows of which the calculation is up to date.
+	 */
+	synchronized List<PKHashKey> getRowsWithCalcUptodate(String calc)
+	{
+		Integer id = calcIds.get(calc);
+		return id == null ? Collections.<PKHashKey> emptyList() : getRows(uptodateRows.get(id.intValue()));
+	}
+
+	/**
+	 * The calculations and rows that depend on the related foundset.
+	 *
+	 * @return calc -> rows
+	 */
+	synchronized Map<String, List<PKHashKey>> getRelationDependents(String relationName, String whereArgsHash)
+	{
+		Map<Integer, BitSet> calcs = relationDependents.get(relationName + KEY_SEPARATOR + whereArgsHash);
+		if (calcs == null) return Collections.emptyMap();
+
+		Map<String, List<PKHashKey>> dependents = new HashMap<>();
+		for (Map.Entry<Integer, BitSet> entry : calcs.entrySet())
+		{
+			dependents.put(calcNames.get(entry.getKey().intValue()), getRows(entry.getValue()));
+		}
+		return dependents;
+	}
+
+	synchronized int getRowCount()
+	{
+		return rowHandles.size();
+	}
+
+	private List<PKHashKey> getRows(BitSet handles)
+	{
+		List<PKHashKey> keys = new ArrayList<>(handles.cardinality());
+		for (int handle = handles.nextSetBit(0); handle >= 0; handle = handles.nextSetBit(handle + 1))
+		{
+			keys.add(rows[handle]);
+		}
+		return keys;
+	}
+
+	private int rowHandle(PKHashKey pkHashKey)
+	{
+		Integer h = rowHandles.get(pkHashKey);
+		if (h != null) return h.intValue();
+
+		int handle = freeCount > 0 ? freeHandles[--freeCount] : nextHandle++;
+		if (handle >= rows.length)
+		{
+			rows = Arrays.copyOf(rows, rows.length * 2);
+			rowRelationKeys = Arrays.copyOf(rowRelationKeys, rows.length);
+		}
+		rows[handle] = pkHashKey;
+		rowHandles.put(pkHashKey, Integer.valueOf(handle));
+		return handle;
+	}
+
+	private int calcId(String calc)
+	{
+		Integer id = calcIds.get(calc);
+		if (id == null)
+		{
+			id = Integer.valueOf(calcNames.size());
+			calcIds.put(calc, id);
+			calcNames.add(calc);
+			uptodateRows.add(new BitSet());
+		}
+		return id.intValue();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String>[] newRelationKeysArray(int size)
+	{
+		return new List[size];
+	}
+}
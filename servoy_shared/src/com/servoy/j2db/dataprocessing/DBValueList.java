@@ -18,7 +18,13 @@ package com.servoy.j2db.dataprocessing;
 
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.servoy.base.persistence.constants.IValueListConstants;
 import com.servoy.base.query.BaseQueryTable;
@@ -39,6 +45,7 @@ import com.servoy.j2db.query.IQuerySort;
 import com.servoy.j2db.query.QuerySelect;
 import com.servoy.j2db.query.QuerySort;
 import com.servoy.j2db.query.QueryTable;
+import com.servoy.j2db.query.SetCondition;
 import com.servoy.j2db.query.SortOptions;
 import com.servoy.j2db.util.Debug;
 import com.servoy.j2db.util.SafeArrayList;
@@ -62,6 +69,16 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 
 	protected boolean fullyLoadedLogged = false;
 
+	// display values of real values that were not loaded and were looked up in lazy mode, null when the real value was not found
+	private final Map<Object, Object> lookedUpDisplayValues = new LinkedHashMap<Object, Object>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest)
+		{
+			return size() > 1000;
+		}
+	};
+
 /*
  * _____________________________________________________________ Declaration and definition of constructors
  */
@@ -186,6 +203,7 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 			stopBundlingEvents(); // to be on the safe side
 			realValues = new SafeArrayList<Object>();
 			removeAllElements();
+			lookedUpDisplayValues.clear();
 			if (size > 0)
 			{
 				fireIntervalRemoved(this, 0, size - 1);
@@ -259,6 +277,10 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 
 			boolean singleColumn = (total & 7) == 1 || (total & 7) == 2 || (total & 7) == 4;
 
+			// in lazy mode only the first page is loaded, other rows are loaded on demand when filtering and looked up when displayed
+			boolean lazy = isLazy();
+			int maxRows = lazy ? foundSetManager.config.valuelistPageSize() : maxValuelistRows;
+
 			try
 			{
 				startBundlingEvents();
@@ -296,8 +318,8 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 							foundSetManager.getTrackingInfo(), application.getClientID());
 					}
 					IDataSet set = application.getDataServer().performQuery(application.getClientID(), table.getServerName(), transaction_id, creationSQLParts,
-						null, tableFilterParams, !creationSQLParts.isUnique(), 0, maxValuelistRows, IDataServer.VALUELIST_QUERY, trackingInfo);
-					if (set.getRowCount() >= maxValuelistRows)
+						null, tableFilterParams, !creationSQLParts.isUnique(), 0, maxRows, IDataServer.VALUELIST_QUERY, trackingInfo);
+					if (!lazy && set.getRowCount() >= maxValuelistRows)
 					{
 						if (Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.client.report.max.valuelist.items", "true")))
 						{
@@ -337,7 +359,7 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 				}
 				else
 				{
-					IRecordInternal[] array = fs.getRecords(0, maxValuelistRows);
+					IRecordInternal[] array = fs.getRecords(0, maxRows);
 					String[] displayFormat = getDisplayFormat();
 					for (IRecordInternal r : array)
 					{
@@ -353,7 +375,7 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 							}
 						}
 					}
-					if (fs.getSize() >= maxValuelistRows)
+					if (!lazy && fs.getSize() >= maxValuelistRows)
 					{
 						if (Utils.getAsBoolean(Settings.getInstance().getProperty("servoy.client.report.max.valuelist.items", "true")))
 						{
@@ -387,6 +409,148 @@ public class DBValueList extends CustomValueList implements ITableChangeListener
 		}
 	}
 
+	/**
+	 * In lazy mode (servoy.client.valuelist.lazy) only the first page of the valuelist is loaded, more rows are loaded by the {@link LookupListModel}
+	 * when filtering and display values of other real values are looked up with {@link #lookupDisplayValues(Collection)}.
+	 */
+	public boolean isLazy()
+	{
+		return ((FoundSetManager)application.getFoundSetManager()).config.lazyValuelists() &&
+			valueList.getDatabaseValuesType() == IValueListConstants.TABLE_VALUES;
+	}
+
+	/**
+	 * Look up the display values of the real values that are not loaded, with one query per chunk of values.
+	 * Only done in lazy mode for valuelists with a single return column.
+	 */
+	@SuppressWarnings("nls")
+	public void lookupDisplayValues(Collection< ? > reals)
+	{
+		if (reals == null || reals.isEmpty() || !isLazy() || table == null || containsCalculation) return;
+
+		Column column = getReturnColumn();
+		if (column == null) return;
+
+		Set<Object> toLookup = new LinkedHashSet<>();
+		for (Object real : reals)
+		{
+			Object value = real == null ? null : column.getAsRightType(real);
+			if (value != null && !lookedUpDisplayValues.containsKey(value) && realValues.indexOf(value) == -1)
+			{
+				toLookup.add(value);
+			}
+		}
+		if (toLookup.isEmpty()) return;
+
+		FoundSetManager foundSetManager = ((FoundSetManager)application.getFoundSetManager());
+		int showValues = valueList.getShowDataProviders();
+		int returnValues = valueList.getReturnDataProviders();
+		boolean concatShowValues = willConcat(showValues);
+		String[] displayFormat = getDisplayFormat();
+		List<Object> values = new ArrayList<>(toLookup);
+		int chunkSize = foundSetManager.config.pkChunkSize();
+		try
+		{
+			for (int start = 0; start < values.size(); start += chunkSize)
+			{
+				List<Object> chunk = values.subList(start, Math.min(values.size(), start + chunkSize));
+				QuerySelect select = createValuelistQuery(application, valueList, table);
+				if (select == null) return;
+				select.setCondition(SQLGenerator.CONDITION_SEARCH, new SetCondition(IBaseSQLCondition.EQUALS_OPERATOR,
+					new IQuerySelectValue[] { getQuerySelectValue(table, select.getTable(), column.getDataProviderID()) }, new Object[][] { chunk.toArray() },
+					true));
+
+				ArrayList<TableFilter> tableFilterParams = foundSetManager.getTableFilterParams(table.getServerName(), select);
+				if (valueList.getUseTableFilter()) //apply name as filter on column valuelist_name
+				{
+					if (tableFilterParams == null)
+					{
+						tableFilterParams = new ArrayList<TableFilter>();
+					}
+					tableFilterParams.add(new TableFilter("dbValueList.nameFilter", table.getServerName(), table.getName(), table.getSQLName(), NAME_COLUMN,
+						IBaseSQLCondition.EQUALS_OPERATOR, valueList.getName()));
+				}
+				SQLStatement trackingInfo = null;
+				if (foundSetManager.getEditRecordList().hasAccess(table, IRepository.TRACKING_VIEWS))
+				{
+					trackingInfo = new SQLStatement(ISQLActionTypes.SELECT_ACTION, table.getServerName(), table.getName(), null, null);
+					trackingInfo.setTrackingData(select.getColumnNames(), new Object[][] { }, new Object[][] { }, application.getUserUID(),
+						foundSetManager.getTrackingInfo(), application.getClientID());
+				}
+				IDataSet set = application.getDataServer().performQuery(application.getClientID(), table.getServerName(),
+					foundSetManager.getTransactionID(table.getServerName()), select, null, tableFilterParams, !select.isUnique(), 0, chunk.size(),
+					IDataServer.VALUELIST_QUERY, trackingInfo);
+
+				for (Object value : chunk)
+				{
+					// not found, do not look it up again
+					lookedUpDisplayValues.put(value, null);
+				}
+				for (int i = 0; i < set.getRowCount(); i++)
+				{
+					Object[] row = CustomValueList.processRow(set.getRow(i), showValues, returnValues);
+					Object displayValue = displayFormat != null ? handleDisplayData(valueList, displayFormat, concatShowValues, showValues, row, application)
+						: handleRowData(valueList, concatShowValues, showValues, row, application);
+					Object realValue = column.getAsRightType(handleRowData(valueList, false, returnValues, row, application));
+					if (realValue != null && lookedUpDisplayValues.get(realValue) == null)
+					{
+						lookedUpDisplayValues.put(realValue, displayValue);
+					}
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			Debug.error("Could not look up the display values of valuelist " + getName(), e);
+		}
+	}
+
+	/**
+	 * Look up the display value of one real value that is not loaded, see {@link #lookupDisplayValues(Collection)}.
+	 *
+	 * @return true when the display value was looked up, get it with {@link #getLookedUpDisplayValue(Object)}
+	 */
+	public boolean lookupDisplayValue(Object real)
+	{
+		if (real == null || !isLazy()) return false;
+		lookupDisplayValues(Collections.singleton(real));
+		return isLookedUp(real);
+	}
+
+	/**
+	 * Whether the display value of the real value was looked up with {@link #lookupDisplayValues(Collection)}.
+	 */
+	public boolean isLookedUp(Object real)
+	{
+		Column column = real == null ? null : getReturnColumn();
+		return column != null && lookedUpDisplayValues.containsKey(column.getAsRightType(real));
+	}
+
+	/**
+	 * The looked up display value of the real value, null when it was not looked up or not found.
+	 */
+	public Object getLookedUpDisplayValue(Object real)
+	{
+		Column column = real == null ? null : getReturnColumn();
+		return column == null ? null : lookedUpDisplayValues.get(column.getAsRightType(real));
+	}
+
+	private Column getReturnColumn()
+	{
+		if (table == null) return null;
+		switch (valueList.getReturnDataProviders())
+		{
+			case 1 :
+				return table.getColumn(valueList.getDataProviderID1());
+			case 2 :
+				return table.getColumn(valueList.getDataProviderID2());
+			case 4 :
+				return table.getColumn(valueList.getDataProviderID3());
+			default :
+				return null;
+		}
+	}
+
 	public static boolean willConcat(int selectedColumnValuesBitmask)
 	{
 		boolean concatShowValues = false;
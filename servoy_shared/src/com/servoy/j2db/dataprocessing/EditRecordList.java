@@ -714,17 +714,35 @@ public class EditRecordList
 			List<RowUpdateInfo> infos = orderUpdatesForInsertOrder(rowUpdates, RowUpdateInfo::getRow, false);
 
 			ISQLStatement[] statements;
+			// the original statements of merged update statements, null for other statements
+			List<ISQLStatement[]> mergedUpdates = null;
 			if (fsm.config.statementBatching() && infos.size() > 1)
 			{
 				// Merge insert statements insert statements from all info's: multiple info's can share the same statement of the records are batched together on the statement level
+				// Consecutive updates of the same columns in a transaction are merged into one update statement for all their pks (see UpdateStatementMerger).
 				List<ISQLStatement> mergedStatements = new ArrayList<>(infos.size());
+				mergedUpdates = new ArrayList<>(infos.size());
+				List<ISQLStatement> updateBatch = new ArrayList<>();
 
 				ISQLStatement prevStatement = null;
 				for (RowUpdateInfo rowUpdateInfo : infos)
 				{
 					ISQLStatement statement = rowUpdateInfo.getISQLStatement();
 
-					if (statement.getAction() == ISQLActionTypes.INSERT_ACTION &&
+					if (statement.getAction() == ISQLActionTypes.UPDATE_ACTION && !updateBatch.isEmpty() &&
+						updateBatch.size() < fsm.config.pkChunkSize() && UpdateStatementMerger.canBeMerged(updateBatch.get(0), statement))
+					{
+						updateBatch.add(statement);
+						continue;
+					}
+					addUpdateBatch(updateBatch, mergedStatements, mergedUpdates);
+
+					if (statement.getAction() == ISQLActionTypes.UPDATE_ACTION && UpdateStatementMerger.canBeMerged(statement, statement))
+					{
+						updateBatch.add(statement);
+						prevStatement = null;
+					}
+					else if (statement.getAction() == ISQLActionTypes.INSERT_ACTION &&
 						prevStatement != null && prevStatement.getAction() == ISQLActionTypes.INSERT_ACTION &&
 						insertStatementsCanBeMerged(prevStatement, statement))
 					{
@@ -734,8 +752,10 @@ public class EditRecordList
 					{
 						prevStatement = statement;
 						mergedStatements.add(statement);
+						mergedUpdates.add(null);
 					}
 				}
+				addUpdateBatch(updateBatch, mergedStatements, mergedUpdates);
 
 				statements = mergedStatements.toArray(new ISQLStatement[mergedStatements.size()]);
 			}
@@ -749,6 +769,10 @@ public class EditRecordList
 			try
 			{
 				idents = fsm.getDataServer().performUpdates(fsm.getApplication().getClientID(), statements);
+				if (mergedUpdates != null)
+				{
+					idents = UpdateStatementMerger.getResultsPerRow(statements, mergedUpdates, idents, infos.size());
+				}
 			}
 			catch (Exception e)
 			{
@@ -777,7 +801,7 @@ public class EditRecordList
 				FoundSet foundSet = rowUpdateInfo.getFoundSet();
 				Row row = rowUpdateInfo.getRow();
 
-				String oldKey = row.getPKHashKey();
+				PKHashKey oldKey = row.getPKKey();
 				Record record = rowUpdateInfo.getRecord();
 				if (idents != null && i < idents.length && idents[i] != null)
 				{
@@ -1195,6 +1219,24 @@ public class EditRecordList
 		return true;
 	}
 
+	/**
+	 * Add the batch of update statements to the statements, merged into one statement when there are more than one.
+	 */
+	private static void addUpdateBatch(List<ISQLStatement> updateBatch, List<ISQLStatement> statements, List<ISQLStatement[]> mergedUpdates)
+	{
+		if (updateBatch.size() == 1)
+		{
+			statements.add(updateBatch.get(0));
+			mergedUpdates.add(null);
+		}
+		else if (updateBatch.size() > 1)
+		{
+			statements.add(UpdateStatementMerger.merge(updateBatch));
+			mergedUpdates.add(updateBatch.toArray(new ISQLStatement[updateBatch.size()]));
+		}
+		updateBatch.clear();
+	}
+
 	/**
 	 * Merge the src statement into the target statement.
 	 */
@@ -49,6 +49,7 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +57,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.function.Consumer;
 
 import org.mozilla.javascript.BaseFunction;
 import org.mozilla.javascript.Callable;
@@ -131,6 +133,7 @@ import com.servoy.j2db.scripting.DefaultJavaScope;
 import com.servoy.j2db.scripting.GlobalScope;
 import com.servoy.j2db.scripting.IExecutingEnviroment;
 import com.servoy.j2db.scripting.LazyCompilationScope;
+import com.servoy.j2db.scripting.ScriptVariableScope;
 import com.servoy.j2db.scripting.TableScope;
 import com.servoy.j2db.scripting.UsedDataProviderTracker;
 import com.servoy.j2db.scripting.annotations.JSReadonlyProperty;
@@ -167,6 +170,8 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	protected SQLSheet sheet; //SQL statements to perform on certain actions
 
 	private volatile PksAndRecordsHolder pksAndRecords;
+	private FoundSetChunkSizer chunkSizer;
+	private FoundSetPrefetcher prefetcher;
 
 	protected QuerySelect creationSqlSelect;
 	private List<TableFilter> foundSetFilters;
@@ -223,10 +228,12 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			throw new IllegalArgumentException(app.getApplication().getI18NMessage("servoy.foundSet.error.sqlsheet")); //$NON-NLS-1$
 		}
 		pksAndRecords = new PksAndRecordsHolder(this, fsm.config.chunkSize(), fsm.config.optimizedChangeFires());
+		chunkSizer = new FoundSetChunkSizer(fsm.config);
 		relationName = relation_name;
 		this.sheet = sheet;
 
 		rowManager = fsm.getRowManager(fsm.getDataSource(sheet.getTable()));
+		prefetcher = new FoundSetPrefetcher(this, fsm, rowManager);
 		// null default sort columns means: use sort columns from query
 		defaultSort = defaultSortColumns;
 		lastSortColumns = defaultSort;
@@ -472,6 +479,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			else
 			{
 				pks = performQuery(transaction_id, theQuery, getRowIdentColumnTypes(), 0, rowsToRetrieve, IDataServer.FOUNDSET_LOAD_QUERY);
+				chunkSizer.firstPksLoaded();
 			}
 			synchronized (pksAndRecords)
 			{
@@ -559,7 +567,8 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 					}
 					if (getSize() < oldSize && pks.hadMoreRows())
 					{
-						int hint = ((getSize() / fsm.config.pkChunkSize()) + 2) * fsm.config.pkChunkSize();
+						int pkChunkSize = chunkSizer.pkChunkSize();
+						int hint = ((getSize() / pkChunkSize) + 2) * pkChunkSize;
 						queryForMorePKs(pksAndRecords, pks.getRowCount(), hint, true);
 						changes = null;
 					}
@@ -2301,6 +2310,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		try
 		{
 			pk_data = performQuery(transaction_id, sqlSelect, getRowIdentColumnTypes(), 0, rowsToRetrieve, IDataServer.CUSTOM_QUERY);
+			chunkSizer.firstPksLoaded();
 		}
 		catch (RemoteException e)
 		{
@@ -2809,6 +2819,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			int size = getSize();
 			long time = System.currentTimeMillis();
 			IDataSet newpks = performQuery(transaction_id, sqlSelect, getRowIdentColumnTypes(), startRow, correctedMaxResult, IDataServer.FOUNDSET_LOAD_QUERY);
+			chunkSizer.pksLoaded(newpks.getRowCount());
 
 			if (Debug.tracing())
 			{
@@ -2950,6 +2961,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		try
 		{
 			IDataSet pks = performQuery(transaction_id, sqlSelect, getRowIdentColumnTypes(), 0, fsm.config.pkChunkSize(), IDataServer.FOUNDSET_LOAD_QUERY);
+			chunkSizer.firstPksLoaded();
 
 			changes = pksAndRecords.setPksAndQuery(pks, pks.getRowCount(), sqlSelect);
 		}
@@ -3031,7 +3043,15 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	 */
 	public IRecordInternal getRecord(int row)
 	{
-		return getRecord(row, fsm.config.chunkSize());
+		return getRecord(row, chunkSizer.chunkSize());
+	}
+
+	/**
+	 * The ui shows the given number of records of this foundset, used to determine the number of records to load in one roundtrip.
+	 */
+	public void setViewportSize(int size)
+	{
+		chunkSizer.setViewportSize(size);
 	}
 
 	private IRecordInternal getRecord(int row, int sizeHint)
@@ -3054,7 +3074,8 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 
 		if (row >= rowCount - 1)
 		{
-			int hint = ((row / fsm.config.pkChunkSize()) + 2) * fsm.config.pkChunkSize();
+			int pkChunkSize = chunkSizer.pkChunkSize();
+			int hint = ((row / pkChunkSize) + 2) * pkChunkSize;
 			int nQueried = 0;
 			if (hadMoreRows)
 			{
@@ -3498,6 +3519,119 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		}
 	}
 
+	/**
+	 * Sorts the foundset on a key per record, the key function is called once for every record and the keys are sorted in memory.
+	 * Tries to preserve selection based on primary key. If first record is selected or cannot select old record it will select first record after sort.
+	 * The key function gets a record as argument and returns the value to sort on, or an array of values that are compared in order.
+	 * Instead of a function an array of dataprovider names can be given, then the record values of those dataproviders are the key.
+	 *
+	 * Numbers are compared by value, dates by time and texts case sensitive. Values of different types are ordered on their type:
+	 * empty values first, then numbers, dates, texts and other values. Records with equal keys keep their current order.
+	 * When the key function throws an error the foundset is not sorted and the error is thrown to the caller.
+	 * This is much faster than sorting with a record comparator function for large foundsets because the function is called only once per record,
+	 * all records of the foundset are loaded before the keys are read.
+	 *
+	 * The key based sorting does not work with printing.
+	 * It is just a temporary in-memory sort.
+	 *
+	 * @sample
+	 * %%prefix%%foundset.sortByKey(function(record) { return [record.lastname, record.age] });
+	 * // or sort on the values of dataproviders (including calculations)
+	 * %%prefix%%foundset.sortByKey(['lastname', 'age']);
+	 *
+	 * @param keyExtractor function returning the sort key of a record, or an array of dataprovider names
+	 */
+	@JSFunction
+	@JSSignature(arguments = { Function.class })
+	public void sortByKey(Object keyExtractor)
+	{
+		sortByKey(keyExtractor, Boolean.FALSE);
+	}
+
+	/**
+	 * Sorts the foundset on a key per record, the key function is called once for every record and the keys are sorted in memory.
+	 * Tries to preserve selection based on primary key. If first record is selected or cannot select old record it will select first record after sort.
+	 *
+	 * @sampleas sortByKey(Object)
+	 *
+	 * @param keyExtractor function returning the sort key of a record, or an array of dataprovider names
+	 * @param descending when true the records are sorted from the highest to the lowest key
+	 */
+	@JSFunction
+	@JSSignature(arguments = { Function.class, Boolean.class })
+	public void sortByKey(Object keyExtractor, Boolean descending)
+	{
+		if (findMode) return;
+
+		Function func = keyExtractor instanceof Function ? (Function)keyExtractor : null;
+		Object dataProviders = func == null ? ScriptVariableScope.unwrap(keyExtractor) : null;
+		if (dataProviders instanceof List< ? >) dataProviders = ((List< ? >)dataProviders).toArray();
+		if (func == null && !(dataProviders instanceof Object[])) return;
+
+		// load all pks first, the records are then read in chunks of the pk chunk size
+		queryForAllPKs();
+		IDataSet pks;
+		synchronized (pksAndRecords)
+		{
+			pks = pksAndRecords.getPks();
+		}
+		if (pks == null) return;
+
+		IExecutingEnviroment scriptEngine = fsm.getApplication().getScriptEngine();
+		Scriptable scope = func == null ? null : func.getParentScope();
+		int chunkSize = chunkSizer.pkChunkSize();
+		Map<Object[], Object[]> keys = new IdentityHashMap<>();
+		for (int i = 0; i < pks.getRowCount(); i++)
+		{
+			IRecordInternal record = getRecord(i, chunkSize);
+			Object key = null;
+			if (record != null)
+			{
+				if (func != null)
+				{
+					try
+					{
+						key = scriptEngine.executeFunction(func, scope, scope, new Object[] { record }, false, true);
+					}
+					catch (Exception ex)
+					{
+						// do not sort on partial keys, let the caller see the error of the key function
+						throw new RuntimeException(ex);
+					}
+				}
+				else
+				{
+					Object[] dps = (Object[])dataProviders;
+					Object[] values = new Object[dps.length];
+					for (int d = 0; d < dps.length; d++)
+					{
+						values[d] = record.getValue(String.valueOf(ScriptVariableScope.unwrap(dps[d])));
+					}
+					key = values;
+				}
+			}
+			keys.put(pks.getRow(i), RecordKeySorter.toKey(key));
+		}
+
+		boolean desc = getBooleanAsbool(descending, false);
+		sortPks(pks2 -> {
+			int rowCount = pks2.getRowCount();
+			Object[][] rows = new Object[rowCount][];
+			Object[][] rowKeys = new Object[rowCount][];
+			for (int i = 0; i < rowCount; i++)
+			{
+				rows[i] = pks2.getRow(i);
+				Object[] key = keys.get(rows[i]);
+				rowKeys[i] = key == null ? new Object[0] : key;
+			}
+			Object[][] sorted = RecordKeySorter.sort(rows, rowKeys, desc);
+			for (int i = 0; i < rowCount; i++)
+			{
+				pks2.setRow(i, sorted[i], false);
+			}
+		});
+	}
+
 	/**
 	 * Delete all records in foundset, resulting in empty foundset.
 	 *
@@ -4040,6 +4174,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	private Record createRecord(int row, int sz, IDataSet pks, SafeArrayList<IRecordInternal> cachedRecords)
 	{
 		int a_sizeHint = (sz > fsm.config.pkChunkSize()) ? fsm.config.pkChunkSize() : sz; //safety, SQL in limit
+		int chunkSize = chunkSizer.chunkSize();
 
 		if (Math.abs(row - lastRecordCreatedIndex) > 30 && cachedRecords.get(row - 1) == null && cachedRecords.get(row + 1) == null)
 		{
@@ -4060,11 +4195,11 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 				{
 					if (cachedRecords.get(row + 1) != null)
 					{
-						startRow = row - fsm.config.chunkSize();
+						startRow = row - chunkSize;
 					}
 					else
 					{
-						startRow = row - fsm.config.chunkSize() / 2;
+						startRow = row - chunkSize / 2;
 					}
 					startRow = Math.max(startRow, 0);
 				}
@@ -4074,7 +4209,10 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 				sizeHint = ((cachedRecords.get(row + 1) != null || pks.getRowCount() == 1) ? 1 : a_sizeHint);
 			}
 			int oldSize = pks.getRowCount();
+			prefetcher.beforeLoad(pks, startRow);
 			List<Row> rows = rowManager.getRows(pks, startRow, sizeHint, false);
+			chunkSizer.recordsLoaded(startRow, rows.size());
+			prefetcher.recordsLoaded(pks, startRow, rows.size(), chunkSize);
 			//construct States
 			for (int r = rows.size(); --r >= 0;)
 			{
@@ -4151,7 +4289,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	// caller already synced on PksAndRecordsHolder
 	private void removeRecords(int row, boolean breakOnNull, SafeArrayList<IRecordInternal> cachedRecords)
 	{
-		int cacheSize = fsm.config.chunkSize() * 3;
+		int cacheSize = chunkSizer.chunkSize() * 3;
 		int selected = getSelectedIndex();
 		if (row > cacheSize)
 		{
@@ -4790,7 +4928,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 
 		if (state != null && !(state instanceof PrototypeState) && !findMode)
 		{
-			if (!fsm.getRowManager(fsm.getDataSource(sheet.getTable())).addRowToDeleteSet(state.getPKHashKey()))
+			if (!fsm.getRowManager(fsm.getDataSource(sheet.getTable())).addRowToDeleteSet(state.getRawData().getPKKey()))
 			{
 				// already being deleted in recursion
 				return;
@@ -5132,6 +5270,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			try
 			{
 				IDataSet pks = performQuery(transaction_id, sqlSelect, getRowIdentColumnTypes(), 0, fsm.config.pkChunkSize(), IDataServer.FOUNDSET_LOAD_QUERY);
+				chunkSizer.firstPksLoaded();
 
 				synchronized (pksAndRecords)
 				{
@@ -5616,6 +5755,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 			try
 			{
 				findPKs = performQuery(transaction_id, findSqlSelect, getRowIdentColumnTypes(), 0, fsm.config.pkChunkSize(), IDataServer.FIND_BROWSER_QUERY);
+				chunkSizer.firstPksLoaded();
 			}
 			catch (RemoteException e)
 			{
@@ -5843,6 +5983,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		try
 		{
 			pks = performQuery(transaction_id, sqlSelect, getRowIdentColumnTypes(), 0, rowsToRetrieve, IDataServer.FOUNDSET_LOAD_QUERY);
+			chunkSizer.firstPksLoaded();
 
 			synchronized (pksAndRecords)
 			{
@@ -5946,6 +6087,14 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	}
 
 	public void sort(Comparator<Object[]> recordPKComparator)
+	{
+		sortPks(pks -> pks.sort(recordPKComparator));
+	}
+
+	/**
+	 * Sort all pks of the foundset in memory with the sorter, the sorter gets a copy of the pks that it can reorder.
+	 */
+	private void sortPks(Consumer<PKDataSet> pksSorter)
 	{
 		if (findMode) return;
 		PksAndRecordsHolder pksAndRecordsHolderCopy;
@@ -5978,7 +6127,7 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 		}
 		if (pks != null)
 		{
-			pks2.sort(recordPKComparator);
+			pksSorter.accept(pks2);
 			IFoundSetChanges changes = null;
 			synchronized (pksAndRecords)
 			{
@@ -7059,6 +7208,8 @@ public abstract class FoundSet implements IFoundSetInternal, IFoundSetScriptMeth
 	{
 		FoundSet obj = (FoundSet)super.clone();
 		obj.pksAndRecords = new PksAndRecordsHolder(obj, fsm.config.chunkSize(), fsm.config.optimizedChangeFires());
+		obj.chunkSizer = new FoundSetChunkSizer(fsm.config);
+		obj.prefetcher = new FoundSetPrefetcher(obj, fsm, rowManager);
 		synchronized (pksAndRecords)
 		{
 			obj.pksAndRecords.setPksAndQuery(new BufferedDataSet(pksAndRecords.getPks()), pksAndRecords.getDbIndexLastPk(),
@@ -0,0 +1,190 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+import com.servoy.j2db.util.Settings;
+
+/**
+ * Determines the number of records and pks that a foundset loads in one roundtrip.
+ * <p>
+ * When adaptive chunk sizing is enabled (servoy.foundset.adaptiveChunkSize) the chunk sizes follow the access pattern of the foundset:
+ * sequential access (scrolling through a table view or grid) doubles the chunk size up to the configured maximum,
+ * random access shrinks it back towards the viewport size of the ui (or the configured minimum).
+ * The pk chunk size doubles every time more pks are loaded and halves (down to the configured pk chunk size) every time a new query is loaded
+ * of which the foundset was not traversed beyond the first chunk of pks.
+ * Otherwise the fixed chunk sizes of the {@link FoundSetManagerConfig} are used.
+ *
+ * @since 2024.3
+ */
+public final class FoundSetChunkSizer
+{
+	private static final AtomicLong recordQueries = new AtomicLong();
+	private static final AtomicLong recordsLoaded = new AtomicLong();
+	private static final AtomicLong pkQueries = new AtomicLong();
+	private static final AtomicLong pksLoaded = new AtomicLong();
+
+	static
+	{
+		FoundSetManagerConfig defaultConfig = new FoundSetManagerConfig(Settings.getInstance());
+		PerformanceMetrics.registerCounter("foundset_record_queries_total", "Queries that loaded records of foundsets.", false,
+			FoundSetChunkSizer::getRecordQueryCount);
+		PerformanceMetrics.registerCounter("foundset_records_loaded_total", "Records that were loaded in foundsets.", false,
+			FoundSetChunkSizer::getRecordsLoadedCount);
+		PerformanceMetrics.registerCounter("foundset_pk_queries_total", "Queries that loaded pks of foundsets.", false, FoundSetChunkSizer::getPKQueryCount);
+		PerformanceMetrics.registerCounter("foundset_pks_loaded_total", "Pks that were loaded in foundsets.", false, FoundSetChunkSizer::getPKsLoadedCount);
+		PerformanceMetrics.registerCounter("foundset_roundtrips_saved", "Estimate of the roundtrips saved by the adaptive chunk sizes.", true,
+			() -> getRoundTripsSaved(defaultConfig));
+	}
+
+	private final FoundSetManagerConfig config;
+
+	private int chunkSize;
+	private int pkChunkSize;
+	private int viewportSize;
+	private int lastStartRow = -1;
+	private int lastEndRow = -1;
+	private boolean morePksLoaded; // since the first chunk of pks of the current query was loaded
+
+	FoundSetChunkSizer(FoundSetManagerConfig config)
+	{
+		this.config = config;
+		this.chunkSize = config.chunkSize();
+		this.pkChunkSize = config.pkChunkSize();
+	}
+
+	/**
+	 * Number of records to load in one roundtrip.
+	 */
+	synchronized int chunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * Number of pks to load in one roundtrip when more pks are needed.
+	 */
+	synchronized int pkChunkSize()
+	{
+		return pkChunkSize;
+	}
+
+	/**
+	 * The number of records shown by the ui, records are at least loaded per viewport.
+	 */
+	synchronized void setViewportSize(int size)
+	{
+		if (config.adaptiveChunkSize() && size > 0)
+		{
+			viewportSize = size;
+			chunkSize = bound(Math.max(chunkSize, size), config.minChunkSize(), config.maxChunkSize());
+		}
+	}
+
+	/**
+	 * Records were loaded from the database in one roundtrip.
+	 */
+	synchronized void recordsLoaded(int startRow, int count)
+	{
+		recordQueries.incrementAndGet();
+		recordsLoaded.addAndGet(count);
+
+		if (config.adaptiveChunkSize() && count > 0)
+		{
+			int endRow = startRow + count;
+			// the new chunk is adjacent to the previous one, when scrolling down or up
+			boolean sequential = lastStartRow >= 0 &&
+				(Math.abs(startRow - lastEndRow) <= chunkSize || Math.abs(endRow - lastStartRow) <= chunkSize);
+			if (sequential)
+			{
+				chunkSize = bound(chunkSize * 2, config.minChunkSize(), config.maxChunkSize());
+			}
+			else if (lastStartRow >= 0)
+			{
+				chunkSize = bound(Math.max(chunkSize / 2, viewportSize), config.minChunkSize(), config.maxChunkSize());
+			}
+			lastStartRow = startRow;
+			lastEndRow = endRow;
+		}
+	}
+
+	/**
+	 * The first chunk of pks of a new query was loaded.
+	 */
+	synchronized void firstPksLoaded()
+	{
+		if (config.adaptiveChunkSize() && !morePksLoaded)
+		{
+			// the previous query was not traversed beyond its first chunk, get less next time
+			pkChunkSize = bound(pkChunkSize / 2, config.pkChunkSize(), config.maxPkChunkSize());
+		}
+		morePksLoaded = false;
+	}
+
+	/**
+	 * More pks were loaded from the database in one roundtrip.
+	 */
+	synchronized void pksLoaded(int count)
+	{
+		pkQueries.incrementAndGet();
+		pksLoaded.addAndGet(count);
+		morePksLoaded = true;
+
+		if (config.adaptiveChunkSize())
+		{
+			// the foundset is traversed beyond the loaded pks, next time get more
+			pkChunkSize = bound(pkChunkSize * 2, config.pkChunkSize(), config.maxPkChunkSize());
+		}
+	}
+
+	private static int bound(int value, int min, int max)
+	{
+		return Math.max(min, Math.min(max, value));
+	}
+
+	public static long getRecordQueryCount()
+	{
+		return recordQueries.get();
+	}
+
+	public static long getRecordsLoadedCount()
+	{
+		return recordsLoaded.get();
+	}
+
+	public static long getPKQueryCount()
+	{
+		return pkQueries.get();
+	}
+
+	public static long getPKsLoadedCount()
+	{
+		return pksLoaded.get();
+	}
+
+	/**
+	 * Estimate of the number of roundtrips that were saved compared to loading with the fixed chunk sizes, this can be negative when small chunks were loaded.
+	 */
+	public static long getRoundTripsSaved(FoundSetManagerConfig config)
+	{
+		return recordsLoaded.get() / Math.max(1, config.chunkSize()) - recordQueries.get() + pksLoaded.get() / Math.max(1, config.pkChunkSize()) -
+			pkQueries.get();
+	}
+}
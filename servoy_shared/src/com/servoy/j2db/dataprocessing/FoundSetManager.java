@@ -59,10 +59,13 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import org.jabsorb.serializer.MarshallException;
@@ -130,6 +133,7 @@ import com.servoy.j2db.querybuilder.impl.QBFactory;
 import com.servoy.j2db.querybuilder.impl.QBSelect;
 import com.servoy.j2db.scripting.GlobalScope;
 import com.servoy.j2db.scripting.IExecutingEnviroment;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
 import com.servoy.j2db.util.DataSourceUtils;
 import com.servoy.j2db.util.DatabaseUtils;
 import com.servoy.j2db.util.Debug;
@@ -137,8 +141,6 @@ import com.servoy.j2db.util.ILogLevel;
 import com.servoy.j2db.util.Pair;
 import com.servoy.j2db.util.ServoyException;
 import com.servoy.j2db.util.ServoyJSONObject;
-import com.servoy.j2db.util.SortedList;
-import com.servoy.j2db.util.StringComparator;
 import com.servoy.j2db.util.Utils;
 import com.servoy.j2db.util.WrappedObjectReference;
 import com.servoy.j2db.util.serialize.JSONSerializerWrapper;
@@ -164,6 +166,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 	private Map<ITable, CopyOnWriteArrayList<ITableChangeListener>> tableListeners; //table -> ArrayList(tableListeners)
 	protected SQLGenerator sqlGenerator;
 	private GlobalTransaction globalTransaction;
+	private volatile int transactionCount; // number of started transactions, used to detect a transaction that was started after reading ahead
 	private IInfoListener infoListener;//we allow only one
 	private final IFoundSetFactory foundsetfactory;
 	private boolean createEmptyFoundsets = false;
@@ -172,7 +175,22 @@ public class FoundSetManager implements IFoundSetManagerInternal
 	private Map<String, ITable> viewDataSources;
 	protected Map<String, ConcurrentMap<String, RelatedFoundSet>> cachedSubStates; // Map based on guava soft values cache
 	protected Map<String, List<RelatedHashedArguments>> dbIdentArguments;
-	protected List<String> locks = new SortedList<String>(StringComparator.INSTANCE);
+	// relation name + hash -> running load of that related foundset, the first caller loads and other callers wait for that load
+	private final ConcurrentMap<String, CompletableFuture<Void>> relatedFoundSetLoads = new ConcurrentHashMap<>();
+
+	private static final AtomicLong relatedFoundSetLoadCount = new AtomicLong();
+	private static final AtomicLong relatedFoundSetWaitCount = new AtomicLong();
+	private static final AtomicLong relatedFoundSetWaitTime = new AtomicLong();
+
+	static
+	{
+		PerformanceMetrics.registerCounter("related_foundset_loads_total", "Related foundsets that were loaded.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			FoundSetManager::getRelatedFoundSetLoadCount);
+		PerformanceMetrics.registerCounter("related_foundset_waits_total", "Waits for a related foundset that was loaded by another thread.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			FoundSetManager::getRelatedFoundSetWaitCount);
+		PerformanceMetrics.registerCounter("related_foundset_wait_time_ms_total", "Time waited for related foundsets that were loaded by another thread.", //$NON-NLS-1$ //$NON-NLS-2$
+			false, FoundSetManager::getRelatedFoundSetWaitTimeMS);
+	}
 
 	private final GlobalFoundSetEventListener globalFoundSetEventListener = new GlobalFoundSetEventListener();
 
@@ -180,6 +198,8 @@ public class FoundSetManager implements IFoundSetManagerInternal
 
 	public final FoundSetManagerConfig config;
 
+	private final ValueListFilterCache valueListFilterCache;
+
 	private final List<Runnable> fireRunabbles = new ArrayList<Runnable>();
 
 	// tracking info used for logging
@@ -190,6 +210,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 	{
 		application = app;
 		this.config = config;
+		valueListFilterCache = new ValueListFilterCache(config.lazyValuelists() ? config.valuelistFilterCacheSize() : 0);
 		initMembers();
 		editRecordList = new EditRecordList(this);
 		foundsetfactory = factory;
@@ -252,6 +273,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 			{
 				if (dataSource == null)
 				{
+					valueListFilterCache.clear();
 					for (RowManager element : rowManagers.values())
 					{
 						element.flushAllCachedRows();
@@ -261,6 +283,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 				}
 				else
 				{
+					valueListFilterCache.invalidate(dataSource);
 					RowManager element = rowManagers.get(dataSource);
 					if (element != null)
 					{
@@ -589,53 +612,57 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		if (retval == null)
 		{
 			String lockString = relationName + relatedArguments.hashedArguments.hash;
-			ConcurrentMap<String, RelatedFoundSet> rfs;
-			synchronized (locks)
+			ConcurrentMap<String, RelatedFoundSet> rfs = getCachedSubStates().computeIfAbsent(relationName,
+				name -> CacheBuilder.newBuilder().softValues().<String, RelatedFoundSet> build().asMap());
+			CompletableFuture<Void> load = new CompletableFuture<>();
+			while (retval == null && toFetch == null)
 			{
-				rfs = getCachedSubStates().get(relationName);
-				if (rfs == null)
-				{
-					rfs = CacheBuilder.newBuilder().softValues().<String, RelatedFoundSet> build().asMap();
-					getCachedSubStates().put(relationName, rfs);
-				}
-				while (locks.contains(lockString))
+				CompletableFuture<Void> running = relatedFoundSetLoads.putIfAbsent(lockString, load);
+				if (running != null)
 				{
-					try
-					{
-						locks.wait();
-					}
-					catch (InterruptedException e)
-					{
-						Debug.error(e);
-					}
+					// another thread is loading this related foundset, wait for it
+					awaitRelatedFoundSetLoad(running);
+					retval = rfs.get(relatedArguments.hashedArguments.hash);
+					continue;
 				}
+
 				retval = rfs.get(relatedArguments.hashedArguments.hash);
-				if (retval == null)
+				if (retval != null)
 				{
-					locks.add(lockString);
+					// loaded just before we got the lock
+					relatedFoundSetLoads.remove(lockString, load);
+					load.complete(null);
+					continue;
+				}
 
-					// pre-fetch a number of sibling related found sets
-					toFetch = new ArrayList<>();
-					toFetch.add(relatedArguments); // first to fetch is the one currently requested
+				// pre-fetch a number of sibling related found sets
+				toFetch = new ArrayList<>();
+				toFetch.add(relatedArguments); // first to fetch is the one currently requested
 
-					IFoundSetInternal parent = state.getParentFoundSet();
-					int currIndex = parent.getRecordIndex(state);
-					if (!disableRelatedSiblingsPrefetch && currIndex >= 0 && parent instanceof FoundSet)
+				IFoundSetInternal parent = state.getParentFoundSet();
+				int currIndex = parent.getRecordIndex(state);
+				if (!disableRelatedSiblingsPrefetch && currIndex >= 0 && parent instanceof FoundSet)
+				{
+					int relatedChunkSize = config.chunkSize() / 3;
+					Object[] siblingRecords = ((FoundSet)parent).getPksAndRecords().getCachedRecords().toArray(); // take a snapshot of cachedRecords
+					for (int s = currIndex + 1; s < siblingRecords.length && toFetch.size() < relatedChunkSize; s++)
 					{
-						int relatedChunkSize = config.chunkSize() / 3;
-						Object[] siblingRecords = ((FoundSet)parent).getPksAndRecords().getCachedRecords().toArray(); // take a snapshot of cachedRecords
-						for (int s = currIndex + 1; s < siblingRecords.length && toFetch.size() < relatedChunkSize; s++)
+						IRecordInternal sibling = (IRecordInternal)siblingRecords[s];
+						if (sibling != null)
 						{
-							IRecordInternal sibling = (IRecordInternal)siblingRecords[s];
-							if (sibling != null)
+							RelatedHashedArgumentsWithState extra = calculateFKHash(sibling, relation, true);
+							if (extra != null && !rfs.containsKey(extra.hashedArguments.hash) /* already cached */)
 							{
-								RelatedHashedArgumentsWithState extra = calculateFKHash(sibling, relation, true);
-								if (extra != null && !rfs.containsKey(extra.hashedArguments.hash) /* already cached */)
+								String extraLockString = relationName + extra.hashedArguments.hash;
+								if (relatedFoundSetLoads.putIfAbsent(extraLockString, load) == null)
 								{
-									String extraLockString = relationName + extra.hashedArguments.hash;
-									if (!locks.contains(extraLockString))
+									if (rfs.containsKey(extra.hashedArguments.hash))
+									{
+										// loaded by another thread in the meantime
+										relatedFoundSetLoads.remove(extraLockString, load);
+									}
+									else
 									{
-										locks.add(extraLockString);
 										toFetch.add(extra);
 									}
 								}
@@ -668,30 +695,23 @@ public class FoundSetManager implements IFoundSetManagerInternal
 				}
 				finally
 				{
-					synchronized (locks)
+					for (int f = 0; f < toFetch.size(); f++)
 					{
-						for (int f = 0; f < toFetch.size(); f++)
+						RelatedHashedArgumentsWithState relargs = toFetch.get(f);
+						if (retvals != null)
 						{
-							RelatedHashedArgumentsWithState relargs = toFetch.get(f);
-							if (retvals != null)
+							// store before the load is removed, waiting threads look in the cache when the load is done
+							rfs.put(relargs.hashedArguments.hash, retvals[f]);
+							if (relargs.hashedArguments.isDBIdentity())
 							{
-								rfs.put(relargs.hashedArguments.hash, retvals[f]);
-								if (relargs.hashedArguments.isDBIdentity())
-								{
-									List<RelatedHashedArguments> storedDBIdentArguments = dbIdentArguments.get(relationName);
-									if (storedDBIdentArguments == null)
-									{
-										storedDBIdentArguments = Collections.synchronizedList(new ArrayList<>());
-										dbIdentArguments.put(relationName, storedDBIdentArguments);
-									}
-									storedDBIdentArguments.add(relargs.hashedArguments);
-								}
+								dbIdentArguments.computeIfAbsent(relationName, name -> Collections.synchronizedList(new ArrayList<>()))
+									.add(relargs.hashedArguments);
 							}
-							locks.remove(relationName + relargs.hashedArguments.hash);
 						}
-
-						locks.notifyAll();
+						relatedFoundSetLoads.remove(relationName + relargs.hashedArguments.hash, load);
 					}
+					relatedFoundSetLoadCount.incrementAndGet();
+					load.complete(null);
 				}
 
 				// inform global foundset event listeners that a new foundset has been created
@@ -716,6 +736,50 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		return retval;
 	}
 
+	private static void awaitRelatedFoundSetLoad(CompletableFuture<Void> load)
+	{
+		relatedFoundSetWaitCount.incrementAndGet();
+		long start = System.currentTimeMillis();
+		try
+		{
+			load.get();
+		}
+		catch (InterruptedException e)
+		{
+			Debug.error(e);
+		}
+		catch (ExecutionException e)
+		{
+			// the loading thread failed, the caller will try to load it
+			Debug.trace(e);
+		}
+		finally
+		{
+			relatedFoundSetWaitTime.addAndGet(System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Number of related foundset loads (a load can create multiple sibling related foundsets) in all clients.
+	 */
+	public static long getRelatedFoundSetLoadCount()
+	{
+		return relatedFoundSetLoadCount.get();
+	}
+
+	/**
+	 * Number of times a client had to wait for a related foundset that was being loaded by another thread.
+	 */
+	public static long getRelatedFoundSetWaitCount()
+	{
+		return relatedFoundSetWaitCount.get();
+	}
+
+	public static long getRelatedFoundSetWaitTimeMS()
+	{
+		return relatedFoundSetWaitTime.get();
+	}
+
 	private RelatedFoundSet getCachedRelatedFoundset(String relationName, RelatedHashedArgumentsWithState relatedArguments)
 	{
 		ConcurrentMap<String, RelatedFoundSet> rfsCache = getCachedSubStates().get(relationName);
@@ -1992,6 +2056,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 
 	private void fireTableEvent(ITable table)
 	{
+		valueListFilterCache.invalidate(table.getDataSource());
 		final CopyOnWriteArrayList<ITableChangeListener> list = tableListeners.get(table);
 		if (list != null && list.size() > 0)
 		{
@@ -2303,10 +2368,16 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		if (globalTransaction == null)
 		{
 			globalTransaction = new GlobalTransaction(getDataServer(), application.getClientID());
+			transactionCount++;
 			if (infoListener != null) infoListener.showTransactionStatus(true);
 		}
 	}
 
+	int getTransactionCount()
+	{
+		return transactionCount;
+	}
+
 	public boolean hasTransaction()
 	{
 		return (globalTransaction != null);
@@ -2653,6 +2724,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
  */
 	public void notifyDataChange(final String ds, IDataSet pks, final int action, Object[] insertColumnData)
 	{
+		valueListFilterCache.invalidate(ds);
 		RowManager rm = rowManagers.get(ds);
 		if (rm != null)
 		{
@@ -2689,7 +2761,7 @@ public class FoundSetManager implements IFoundSetManagerInternal
 
 			for (int i = 0; i < fnewPks.getRowCount(); i++)
 			{
-				boolean b = rm.changeByOther(RowManager.createPKHashKey(fnewPks.getRow(i)), action, insertColumnData,
+				boolean b = rm.changeByOther(PKHashKey.create(fnewPks.getRow(i)), action, insertColumnData,
 					insertedRows == null ? null : insertedRows.get(i));
 				didHaveRowAndIsUpdated = (didHaveRowAndIsUpdated || b);
 			}
@@ -2767,6 +2839,14 @@ public class FoundSetManager implements IFoundSetManagerInternal
 		infoListener = listener;
 	}
 
+	/**
+	 * Recent type-ahead results of the db valuelists of this client.
+	 */
+	public ValueListFilterCache getValueListFilterCache()
+	{
+		return valueListFilterCache;
+	}
+
 	public EditRecordList getEditRecordList()
 	{
 		return editRecordList;
@@ -39,6 +39,18 @@ public class FoundSetManagerConfig
 	private final boolean optimizedChangeFires;
 	private final boolean uninitializedFoundsetWhenFiltersAreAdded;
 	private final boolean setRelationNameComment;
+	private final int rowCacheMaxSize;
+	private final boolean adaptiveChunkSize;
+	private final int minChunkSize;
+	private final int maxChunkSize;
+	private final int maxPkChunkSize;
+	private final boolean prefetch;
+	private final boolean relatedInQuery;
+	private final boolean relatedFKPKBulkLoad;
+	private final boolean calcDependencyIndex;
+	private final boolean lazyValuelists;
+	private final int valuelistPageSize;
+	private final int valuelistFilterCacheSize;
 
 	public FoundSetManagerConfig(Properties settings)
 	{
@@ -53,6 +65,18 @@ public class FoundSetManagerConfig
 		optimizedChangeFires = getAsBoolean(settings.getProperty("servoy.foundset.optimizedChangeFires", "true")); // whether to use new optimized mechanism to call notifyChange on IRowListeners
 		uninitializedFoundsetWhenFiltersAreAdded = getAsBoolean(settings.getProperty("servoy.foundset.unitializeWithFilter", "false")); // whether to set initialized to false for a foundset when fs filter params are added
 		setRelationNameComment = getAsBoolean(settings.getProperty("servoy.client.sql.setRelationComment", "true"));
+		rowCacheMaxSize = getAsInteger(settings.getProperty("servoy.foundset.rowCache.maxSize", "0")); // most recently used rows that are kept per table, 0 keeps all rows soft referenced
+		adaptiveChunkSize = getAsBoolean(settings.getProperty("servoy.foundset.adaptiveChunkSize", "false")); // whether to grow or shrink chunks based on the access pattern of the foundset
+		minChunkSize = Math.min(chunkSize, getAsInteger(settings.getProperty("servoy.foundset.adaptiveChunkSize.min", Integer.toString(10))));
+		maxChunkSize = Math.max(chunkSize, Math.min(pkChunkSize, getAsInteger(settings.getProperty("servoy.foundset.adaptiveChunkSize.max", Integer.toString(pkChunkSize))))); // records are loaded with pks in the sql, keep within the pk chunk
+		prefetch = getAsBoolean(settings.getProperty("servoy.foundset.prefetch", "false")); // whether to read the next chunk of records ahead in a background thread when scrolling through a foundset
+		relatedInQuery = getAsBoolean(settings.getProperty("servoy.foundset.relatedInQuery", "false")); // whether to load the related foundsets of sibling parent records with one IN-query
+		relatedFKPKBulkLoad = getAsBoolean(settings.getProperty("servoy.foundset.relatedFKPKBulkLoad", "false")); // whether to load the records of FK->PK relations of sibling parent records that are not cached with one PK-IN query
+		calcDependencyIndex = getAsBoolean(settings.getProperty("servoy.foundset.calcDependencyIndex", "false")); // whether to keep an index of the rows per calculation and related foundset so that invalidating calculations does not visit all cached rows
+		maxPkChunkSize = Math.max(pkChunkSize, getAsInteger(settings.getProperty("servoy.foundset.adaptiveChunkSize.maxPkChunkSize", Integer.toString(pkChunkSize * 5))));
+		lazyValuelists = getAsBoolean(settings.getProperty("servoy.client.valuelist.lazy", "false")); // whether db valuelists load only the first page and look up other values when needed instead of loading all rows
+		valuelistPageSize = Math.max(1, getAsInteger(settings.getProperty("servoy.client.valuelist.pageSize", Integer.toString(100)))); // rows of a valuelist to get in one roundtrip when filtering (type-ahead) or paging
+		valuelistFilterCacheSize = getAsInteger(settings.getProperty("servoy.client.valuelist.filterCacheSize", Integer.toString(50))); // recent valuelist filter results that are kept per client in lazy mode
 	}
 
 	public int pkChunkSize()
@@ -109,4 +133,64 @@ public class FoundSetManagerConfig
 	{
 		return setRelationNameComment;
 	}
+
+	public int rowCacheMaxSize()
+	{
+		return rowCacheMaxSize;
+	}
+
+	public boolean adaptiveChunkSize()
+	{
+		return adaptiveChunkSize;
+	}
+
+	public int minChunkSize()
+	{
+		return minChunkSize;
+	}
+
+	public int maxChunkSize()
+	{
+		return maxChunkSize;
+	}
+
+	public int maxPkChunkSize()
+	{
+		return maxPkChunkSize;
+	}
+
+	public boolean prefetch()
+	{
+		return prefetch;
+	}
+
+	public boolean relatedInQuery()
+	{
+		return relatedInQuery;
+	}
+
+	public boolean relatedFKPKBulkLoad()
+	{
+		return relatedFKPKBulkLoad;
+	}
+
+	public boolean calcDependencyIndex()
+	{
+		return calcDependencyIndex;
+	}
+
+	public boolean lazyValuelists()
+	{
+		return lazyValuelists;
+	}
+
+	public int valuelistPageSize()
+	{
+		return valuelistPageSize;
+	}
+
+	public int valuelistFilterCacheSize()
+	{
+		return valuelistFilterCacheSize;
+	}
 }
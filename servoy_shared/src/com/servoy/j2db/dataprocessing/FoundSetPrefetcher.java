@@ -0,0 +1,237 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.servoy.j2db.dataprocessing.RowManager.PrefetchQuery;
+import com.servoy.j2db.persistence.IRepository;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+import com.servoy.j2db.util.Debug;
+
+/**
+ * Reads the next chunk of records of a foundset ahead in a background thread when the foundset is traversed sequentially (enabled with servoy.foundset.prefetch).
+ * <p>
+ * The query is created in the client thread, only the query itself is performed in the background. When the event thread asks for the next chunk
+ * and the query has finished, the rows are installed in the {@link RowManager} cache. The event thread never waits for a running prefetch, it
+ * then just loads the records itself. Loading more pks is not done in the background because that changes the foundset and fires foundset events.
+ * No prefetch is done or used when a transaction is or was started in the mean time (the transaction connection is not used from multiple threads
+ * and the transaction may have changed the data) or when views are tracked. A prefetch is also thrown away when rows of the table were changed, deleted
+ * or flushed since the query was created (the change generation of the row manager changed).
+ *
+ * @since 2024.3
+ */
+public final class FoundSetPrefetcher
+{
+	private static final AtomicLong prefetches = new AtomicLong();
+	private static final AtomicLong prefetchedRows = new AtomicLong();
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong wasted = new AtomicLong();
+
+	static
+	{
+		PerformanceMetrics.registerCounter("foundset_prefetches_total", "Prefetches of the next chunk of records.", false, FoundSetPrefetcher::getPrefetchCount);
+		PerformanceMetrics.registerCounter("foundset_prefetched_rows_total", "Rows that were prefetched.", false, FoundSetPrefetcher::getPrefetchedRowCount);
+		PerformanceMetrics.registerCounter("foundset_prefetch_hits_total", "Prefetches that were used.", false, FoundSetPrefetcher::getHitCount);
+		PerformanceMetrics.registerCounter("foundset_prefetch_wasted_total", "Prefetches that were not used.", false, FoundSetPrefetcher::getWastedCount);
+	}
+
+	private final FoundSet foundset;
+	private final FoundSetManager fsm;
+	private final RowManager rowManager;
+
+	private int lastEndRow = -1;
+	private volatile Prefetch current;
+
+	FoundSetPrefetcher(FoundSet foundset, FoundSetManager fsm, RowManager rowManager)
+	{
+		this.foundset = foundset;
+		this.fsm = fsm;
+		this.rowManager = rowManager;
+	}
+
+	/**
+	 * Called before the records of the row are loaded, installs the rows of a finished prefetch that covers the row.
+	 * <p>
+	 * This is called while the records of the foundset are locked, so it does not wait for a running prefetch.
+	 */
+	void beforeLoad(IDataSet pks, int row)
+	{
+		Prefetch prefetch = checkCurrent(pks);
+		if (prefetch != null && prefetch.covers(pks, row))
+		{
+			current = null;
+			if (!prefetch.future.isDone() || fsm.getGlobalTransaction() != null || fsm.getTransactionCount() != prefetch.transactionCount)
+			{
+				// just load the records in the event thread
+				prefetch.future.cancel(false);
+				wasted.incrementAndGet();
+				return;
+			}
+			try
+			{
+				IDataSet rows = prefetch.future.get();
+				if (rows == null || rowManager.installPrefetchedRows(prefetch.query, rows) == null)
+				{
+					wasted.incrementAndGet();
+				}
+				else
+				{
+					hits.incrementAndGet();
+					prefetchedRows.addAndGet(rows.getRowCount());
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e)
+			{
+				Debug.trace(e);
+			}
+		}
+	}
+
+	/**
+	 * Records were loaded for the foundset, start reading the next chunk when records are loaded sequentially.
+	 */
+	void recordsLoaded(IDataSet pks, int startRow, int count, int chunkSize)
+	{
+		if (!fsm.config.prefetch() || count <= 0) return;
+
+		int endRow = startRow + count;
+		boolean sequential = lastEndRow >= 0 && startRow >= lastEndRow - chunkSize && startRow <= lastEndRow;
+		lastEndRow = endRow;
+		if (!sequential || endRow >= pks.getRowCount()) return;
+
+		Prefetch previous = checkCurrent(pks);
+		if (previous != null && previous.covers(pks, endRow)) return; // already reading ahead
+		if (fsm.getGlobalTransaction() != null || foundset.hasAccess(IRepository.TRACKING_VIEWS)) return;
+
+		int end = Math.min(endRow + chunkSize, pks.getRowCount());
+		List<Object[]> nextPks = new ArrayList<>(end - endRow);
+		for (int i = endRow; i < end; i++)
+		{
+			nextPks.add(pks.getRow(i));
+		}
+
+		if (previous != null)
+		{
+			// replaced before it was used
+			previous.future.cancel(false);
+			wasted.incrementAndGet();
+		}
+
+		PrefetchQuery query = rowManager.createPrefetchQuery(nextPks);
+		if (query == null)
+		{
+			// all cached
+			current = null;
+			return;
+		}
+
+		int transactionCount = fsm.getTransactionCount();
+		prefetches.incrementAndGet();
+		current = new Prefetch(pks, endRow, end, transactionCount, query, fsm.getApplication().getScheduledExecutor().submit(() -> {
+			if (fsm.getTransactionCount() != transactionCount)
+			{
+				return null;
+			}
+			try
+			{
+				return rowManager.performPrefetchQuery(query, nextPks.size());
+			}
+			catch (Exception e)
+			{
+				Debug.log("Error reading ahead rows of " + foundset.getDataSource(), e); //$NON-NLS-1$
+				return null;
+			}
+		}));
+	}
+
+	/**
+	 * When the pks of the foundset were reloaded, the current prefetch is not used anymore.
+	 */
+	private Prefetch checkCurrent(IDataSet pks)
+	{
+		Prefetch prefetch = current;
+		if (prefetch != null && prefetch.pks != pks)
+		{
+			current = null;
+			lastEndRow = -1;
+			wasted.incrementAndGet();
+			return null;
+		}
+		return prefetch;
+	}
+
+	public static long getPrefetchCount()
+	{
+		return prefetches.get();
+	}
+
+	public static long getPrefetchedRowCount()
+	{
+		return prefetchedRows.get();
+	}
+
+	public static long getHitCount()
+	{
+		return hits.get();
+	}
+
+	public static long getWastedCount()
+	{
+		return wasted.get();
+	}
+
+	public static double getHitRatio()
+	{
+		long n = prefetches.get();
+		return n == 0 ? 0 : (double)hits.get() / n;
+	}
+
+	private static class Prefetch
+	{
+		private final IDataSet pks;
+		private final int startRow;
+		private final int endRow;
+		private final int transactionCount;
+		private final PrefetchQuery query;
+		private final Future<IDataSet> future;
+
+		Prefetch(IDataSet pks, int startRow, int endRow, int transactionCount, PrefetchQuery query, Future<IDataSet> future)
+		{
+			this.pks = pks;
+			this.startRow = startRow;
+			this.endRow = endRow;
+			this.transactionCount = transactionCount;
+			this.query = query;
+			this.future = future;
+		}
+
+		boolean covers(IDataSet dataset, int row)
+		{
+			return pks == dataset && row >= startRow && row < endRow;
+		}
+	}
+}
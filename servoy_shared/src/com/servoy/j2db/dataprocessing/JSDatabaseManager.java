@@ -1961,7 +1961,7 @@ public class JSDatabaseManager implements IJSDatabaseManager
 	private void recalculateRecord(IRecordInternal record, List<String> calcnames)
 	{
 		record.startEditing();
-		record.getRawData().getRowManager().flagAllRowCalcsForRecalculation(record.getPKHashKey());
+		record.getRawData().getRowManager().flagAllRowCalcsForRecalculation(record.getRawData().getPKKey());
 		//recalc all stored calcs (required due to use of plugin methods in calc)
 		for (String calc : calcnames)
 		{
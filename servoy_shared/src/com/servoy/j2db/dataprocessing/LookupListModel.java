@@ -81,6 +81,12 @@ public class LookupListModel extends AbstractListModel
 	private TableFilter nameFilter;
 
 	private int secondColRedirectIndex = -1;
+
+	// the filter of the last db valuelist fill and the rows loaded for it, for loading more rows
+	private String dbValueListFilter;
+	private boolean dbValueListAlsoFilterOnRealValues;
+	private int dbValueListStart;
+	private int dbValueListRows;
 	private int thirdColRedirectIndex = -1;
 
 
@@ -619,10 +625,76 @@ public class LookupListModel extends AbstractListModel
 	 * @throws RemoteException
 	 */
 	private void fillDBValueListValues(String filter, boolean alsoFilterOnRealValues) throws ServoyException
+	{
+		dbValueListFilter = filter;
+		dbValueListAlsoFilterOnRealValues = alsoFilterOnRealValues;
+		dbValueListStart = alReal.size();
+		dbValueListRows = 0;
+
+		FoundSetManager foundSetManager = ((FoundSetManager)application.getFoundSetManager());
+		ValueListFilterCache filterCache = foundSetManager.getValueListFilterCache();
+		ValueList valueList = ((LookupValueList)lookup).getValueList();
+		ArrayList<TableFilter> tableFilterParams = getDBValueListTableFilterParams();
+		ValueListFilterCache.Result cached = filterCache.get(valueList.getUUID().toString(), filter, alsoFilterOnRealValues, tableFilterParams);
+		if (cached != null)
+		{
+			alReal.addAll(cached.realValues);
+			alDisplay.addAll(cached.displayValues);
+			dbValueListRows = cached.rowCount;
+			hadMoreRows = cached.hadMoreRows;
+			return;
+		}
+
+		fillDBValueListPage(0, tableFilterParams);
+		filterCache.put(valueList.getUUID().toString(), filter, alsoFilterOnRealValues, tableFilterParams, new ValueListFilterCache.Result(
+			alReal.subList(dbValueListStart, alReal.size()), alDisplay.subList(dbValueListStart, alDisplay.size()), dbValueListRows, hadMoreRows,
+			table.getDataSource()));
+	}
+
+	/**
+	 * Load the next page of rows of the last filter of a db valuelist, when lazy valuelists are enabled.
+	 *
+	 * @return true when rows were added
+	 */
+	public boolean loadMoreRows() throws ServoyException
+	{
+		if (!hadMoreRows || !(lookup instanceof LookupValueList) || ((LookupValueList)lookup).getValueList().getDatabaseValuesType() !=
+			IValueListConstants.TABLE_VALUES || !((FoundSetManager)application.getFoundSetManager()).config.lazyValuelists())
+		{
+			return false;
+		}
+
+		int prevSize = alReal.size();
+		ArrayList<TableFilter> tableFilterParams = getDBValueListTableFilterParams();
+		fillDBValueListPage(dbValueListRows, tableFilterParams);
+		ValueList valueList = ((LookupValueList)lookup).getValueList();
+		((FoundSetManager)application.getFoundSetManager()).getValueListFilterCache().put(valueList.getUUID().toString(), dbValueListFilter,
+			dbValueListAlsoFilterOnRealValues, tableFilterParams, new ValueListFilterCache.Result(alReal.subList(dbValueListStart, alReal.size()),
+				alDisplay.subList(dbValueListStart, alDisplay.size()), dbValueListRows, hadMoreRows, table.getDataSource()));
+		fireChanges(prevSize);
+		return alReal.size() > prevSize;
+	}
+
+	private ArrayList<TableFilter> getDBValueListTableFilterParams()
+	{
+		ArrayList<TableFilter> tableFilterParams = ((FoundSetManager)application.getFoundSetManager()).getTableFilterParams(table.getServerName(),
+			creationSQLParts);
+		if (nameFilter != null) //apply name as filter on column valuelist_name in creationSQLParts
+		{
+			if (tableFilterParams == null)
+			{
+				tableFilterParams = new ArrayList<TableFilter>();
+			}
+			tableFilterParams.add(nameFilter);
+		}
+		return tableFilterParams;
+	}
+
+	private void fillDBValueListPage(int startRow, ArrayList<TableFilter> tableFilterParams) throws ServoyException
 	{
 		ValueList valueList = ((LookupValueList)lookup).getValueList();
 		QuerySelect sqlParts = AbstractBaseQuery.deepClone(creationSQLParts);
-		if (!generateWherePart(filter, valueList, sqlParts, sqlParts.getTable(), alsoFilterOnRealValues))
+		if (!generateWherePart(dbValueListFilter, valueList, sqlParts, sqlParts.getTable(), dbValueListAlsoFilterOnRealValues))
 		{
 			ArrayList<IQuerySort> sorts = getSortColumnsForQuery(sqlParts);
 			if (sorts != null) sqlParts.setSorts(sorts);
@@ -632,15 +704,6 @@ public class LookupListModel extends AbstractListModel
 		{
 			FoundSetManager foundSetManager = ((FoundSetManager)application.getFoundSetManager());
 			String transaction_id = foundSetManager.getTransactionID(table.getServerName());
-			ArrayList<TableFilter> tableFilterParams = foundSetManager.getTableFilterParams(table.getServerName(), sqlParts);
-			if (nameFilter != null) //apply name as filter on column valuelist_name in creationSQLParts
-			{
-				if (tableFilterParams == null)
-				{
-					tableFilterParams = new ArrayList<TableFilter>();
-				}
-				tableFilterParams.add(nameFilter);
-			}
 			SQLStatement trackingInfo = null;
 			if (foundSetManager.getEditRecordList().hasAccess(table, IRepository.TRACKING_VIEWS))
 			{
@@ -648,8 +711,9 @@ public class LookupListModel extends AbstractListModel
 				trackingInfo.setTrackingData(sqlParts.getColumnNames(), new Object[][] { }, new Object[][] { }, application.getUserUID(),
 					foundSetManager.getTrackingInfo(), application.getClientID());
 			}
+			int pageSize = foundSetManager.config.lazyValuelists() ? foundSetManager.config.valuelistPageSize() : 100;
 			IDataSet set = application.getDataServer().performQuery(application.getClientID(), table.getServerName(), transaction_id, sqlParts, null,
-				tableFilterParams, !sqlParts.isUnique(), 0, 100, IDataServer.VALUELIST_QUERY, trackingInfo);
+				tableFilterParams, !sqlParts.isUnique(), startRow, pageSize, IDataServer.VALUELIST_QUERY, trackingInfo);
 			String[] displayFormat = (lookup instanceof LookupValueList) ? ((LookupValueList)lookup).getDisplayFormat() : null;
 			for (int i = 0; i < set.getRowCount(); i++)
 			{
@@ -661,6 +725,7 @@ public class LookupListModel extends AbstractListModel
 					alReal.add(CustomValueList.handleRowData(valueList, concatReturnValues, returnValues, row, application));
 				}
 			}
+			dbValueListRows = startRow + set.getRowCount();
 			hadMoreRows = set.hadMoreRows();
 		}
 		catch (RemoteException e)
@@ -0,0 +1,397 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.joining;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.servoy.j2db.dataprocessing.ValueFactory.DbIdentValue;
+import com.servoy.j2db.query.QueryColumnValue;
+import com.servoy.j2db.util.UUID;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Immutable key for a primary key value of a row, used by the {@link RowManager} caches.
+ * <p>
+ * The key normalizes values the same way the pk hash string does (see {@link RowManager#createPKHashKey(Object[])}): numbers, dates and numeric strings
+ * with the same integral value are equal, UUIDs and uuid strings are matched regardless of casing. Simple pks are kept as primitives (a long or the 128 bits
+ * of a UUID) so that no strings have to be created for a lookup.
+ * <p>
+ * {@link #toString()} returns exactly the pk hash string of the same pk.
+ * <p>
+ * One equivalence of the pk hash string is not kept: a byte[] value is only equal to a byte[] with the same content, not to the base64 string of it
+ * (the strings of both were the same).
+ *
+ * @since 2024.3
+ */
+public abstract class PKHashKey
+{
+	public static final PKHashKey EMPTY = new CompositeKey(new PKHashKey[0]);
+
+	private static final PKHashKey NULL = new StringKey(null);
+
+	PKHashKey()
+	{
+	}
+
+	/**
+	 * Create the key for a pk.
+	 */
+	public static PKHashKey create(Object[] pk)
+	{
+		if (pk == null || pk.length == 0)
+		{
+			return EMPTY;
+		}
+		if (pk.length == 1)
+		{
+			return valueKey(pk[0]);
+		}
+		PKHashKey[] parts = new PKHashKey[pk.length];
+		for (int i = 0; i < pk.length; i++)
+		{
+			parts[i] = valueKey(pk[i]);
+		}
+		return new CompositeKey(parts);
+	}
+
+	/**
+	 * The normalized string value of a single pk value, null for a null value.
+	 */
+	abstract String valueString();
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		appendValue(sb, valueString());
+		return sb.toString();
+	}
+
+	private static void appendValue(StringBuilder sb, String str)
+	{
+		if (str != null) sb.append(str.length());
+		sb.append('.');
+		sb.append(str);
+		sb.append(';');
+	}
+
+	private static PKHashKey valueKey(Object pkval)
+	{
+		Object val = pkval;
+		if (val instanceof DbIdentValue)
+		{
+			val = RowManager.createPKHashKeyFromDBIdent((DbIdentValue)val);
+		}
+		else if (val instanceof QueryColumnValue)
+		{
+			val = ((QueryColumnValue)val).getValue();
+		}
+
+		if (val == null)
+		{
+			return NULL;
+		}
+		if (val instanceof Integer || val instanceof Long || val instanceof Short || val instanceof Byte)
+		{
+			return new LongKey(((Number)val).longValue());
+		}
+		if (val instanceof String)
+		{
+			return stringKey((String)val);
+		}
+		if (val instanceof UUID)
+		{
+			return new UUIDKey(((UUID)val).getMostSignificantBits(), ((UUID)val).getLeastSignificantBits());
+		}
+		if (val instanceof byte[])
+		{
+			return new BytesKey((byte[])val);
+		}
+		if (val instanceof Date)
+		{
+			return new LongKey(((Date)val).getTime());
+		}
+		if (val instanceof Float && ((Float)val).longValue() == ((Float)val).floatValue())
+		{
+			return new LongKey(((Float)val).longValue());
+		}
+		if (val instanceof Double && ((Double)val).longValue() == ((Double)val).doubleValue())
+		{
+			return new LongKey(((Double)val).longValue());
+		}
+		if (val instanceof BigInteger && ((BigInteger)val).bitLength() < 64)
+		{
+			return new LongKey(((BigInteger)val).longValue());
+		}
+		if (val instanceof Object[])
+		{
+			return new StringKey("[" + stream((Object[])val).map(el -> String.valueOf(valueKey(el).valueString())).sorted().collect(joining(",")) + "]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+		return stringKey(Utils.convertToString(val));
+	}
+
+	private static PKHashKey stringKey(String str)
+	{
+		if (isCanonicalLong(str))
+		{
+			try
+			{
+				return new LongKey(Long.parseLong(str));
+			}
+			catch (NumberFormatException e)
+			{
+				// does not fit in a long
+			}
+		}
+		if (str.length() == 36 && str.split("-").length == 5) //$NON-NLS-1$
+		{
+			// make sure UUID PKs are matched regardless of casing (MSQ Sqlserver returns uppercase UUID strings for uniqueidentifier columns)
+			String lower = str.toLowerCase();
+			if (isCanonicalUUID(lower))
+			{
+				return new UUIDKey(parseHex(lower, 0, 8) << 32 | parseHex(lower, 9, 13) << 16 | parseHex(lower, 14, 18),
+					parseHex(lower, 19, 23) << 48 | parseHex(lower, 24, 36));
+			}
+			return new StringKey(lower);
+		}
+		return new StringKey(str);
+	}
+
+	/**
+	 * Only strings that are the exact result of Long.toString() are converted to a long key, otherwise "01" and "1" would match.
+	 */
+	private static boolean isCanonicalLong(String str)
+	{
+		int length = str.length();
+		if (length == 0 || length > 20)
+		{
+			return false;
+		}
+		int i = str.charAt(0) == '-' ? 1 : 0;
+		if (i == length)
+		{
+			return false;
+		}
+		if (str.charAt(i) == '0')
+		{
+			// "0" only, not "-0" or "01"
+			return length == 1;
+		}
+		for (; i < length; i++)
+		{
+			char c = str.charAt(i);
+			if (c < '0' || c > '9')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isCanonicalUUID(String lower)
+	{
+		for (int i = 0; i < 36; i++)
+		{
+			char c = lower.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23)
+			{
+				if (c != '-') return false;
+			}
+			else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long parseHex(String str, int start, int end)
+	{
+		long result = 0;
+		for (int i = start; i < end; i++)
+		{
+			result = result << 4 | Character.digit(str.charAt(i), 16);
+		}
+		return result;
+	}
+
+	private static final class LongKey extends PKHashKey
+	{
+		private final long value;
+
+		LongKey(long value)
+		{
+			this.value = value;
+		}
+
+		@Override
+		String valueString()
+		{
+			return Long.toString(value);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Long.hashCode(value);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof LongKey && ((LongKey)obj).value == value;
+		}
+	}
+
+	private static final class UUIDKey extends PKHashKey
+	{
+		private final long mostSigBits;
+		private final long leastSigBits;
+
+		UUIDKey(long mostSigBits, long leastSigBits)
+		{
+			this.mostSigBits = mostSigBits;
+			this.leastSigBits = leastSigBits;
+		}
+
+		@Override
+		String valueString()
+		{
+			return new UUID(mostSigBits, leastSigBits).toString().toLowerCase();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			long hilo = mostSigBits ^ leastSigBits;
+			return ((int)(hilo >> 32)) ^ (int)hilo;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof UUIDKey && ((UUIDKey)obj).mostSigBits == mostSigBits && ((UUIDKey)obj).leastSigBits == leastSigBits;
+		}
+	}
+
+	private static final class BytesKey extends PKHashKey
+	{
+		private final byte[] bytes;
+		private final int hash;
+
+		BytesKey(byte[] bytes)
+		{
+			this.bytes = bytes;
+			this.hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		String valueString()
+		{
+			return Utils.encodeBASE64(bytes);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof BytesKey && ((BytesKey)obj).hash == hash && Arrays.equals(((BytesKey)obj).bytes, bytes);
+		}
+	}
+
+	private static final class StringKey extends PKHashKey
+	{
+		private final String value;
+
+		StringKey(String value)
+		{
+			this.value = value;
+		}
+
+		@Override
+		String valueString()
+		{
+			return value;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return value == null ? 0 : value.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof StringKey && Utils.stringSafeEquals(((StringKey)obj).value, value);
+		}
+	}
+
+	private static final class CompositeKey extends PKHashKey
+	{
+		private final PKHashKey[] parts;
+		private final int hash;
+
+		CompositeKey(PKHashKey[] parts)
+		{
+			this.parts = parts;
+			this.hash = Arrays.hashCode(parts);
+		}
+
+		@Override
+		String valueString()
+		{
+			// composite keys are not nested
+			throw new IllegalStateException();
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			for (PKHashKey part : parts)
+			{
+				appendValue(sb, part.valueString());
+			}
+			return sb.toString();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof CompositeKey && ((CompositeKey)obj).hash == hash && Arrays.equals(((CompositeKey)obj).parts, parts);
+		}
+	}
+}
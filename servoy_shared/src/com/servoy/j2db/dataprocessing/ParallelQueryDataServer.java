@@ -0,0 +1,196 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.servoy.j2db.query.AbstractBaseQuery;
+import com.servoy.j2db.query.ISQLSelect;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.ServoyThreadPoolExecutor;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Data server that runs the queries of a multi-query call (related foundsets and their aggregates) concurrently (enabled with servoy.client.query.parallelism).
+ * <p>
+ * The queries are independent when no transaction is used, each query is performed as a single query call on a thread pool that is shared by all clients
+ * (servoy.client.query.threads), a client runs at most servoy.client.query.parallelism - 1 queries on the pool at the same time, the calling thread runs
+ * the other queries. Results are returned in the order of the queries. Calls with a transaction are performed as one call on the delegate.
+ * <p>
+ * Every query becomes a separate call on the delegate, so this is only used for clients running in the application server, not for remote clients.
+ *
+ * @since 2024.3
+ */
+public class ParallelQueryDataServer extends AbstractDelegateDataServer
+{
+	private static final int PARALLELISM = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.client.query.parallelism", "1")); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final int THREADS = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.client.query.threads", //$NON-NLS-1$
+		Integer.toString(Runtime.getRuntime().availableProcessors() * 2)));
+
+	private static final ExecutorService executor = isEnabled() ? new ServoyThreadPoolExecutor(THREADS, "ParallelQuery", true) : null; //$NON-NLS-1$
+
+	private static final AtomicLong parallelCalls = new AtomicLong();
+	private static final AtomicLong parallelQueries = new AtomicLong();
+
+	static
+	{
+		PerformanceMetrics.registerCounter("parallel_query_calls_total", "Data server calls of which the queries were run concurrently.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ParallelQueryDataServer::getParallelCallCount);
+		PerformanceMetrics.registerCounter("parallel_queries_total", "Queries that were run concurrently.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ParallelQueryDataServer::getParallelQueryCount);
+	}
+
+	// queries of this client running on the pool
+	private final Semaphore permits = new Semaphore(Math.max(0, PARALLELISM - 1));
+
+	public ParallelQueryDataServer(IDataServer dataserver)
+	{
+		super(dataserver);
+	}
+
+	public static boolean isEnabled()
+	{
+		return PARALLELISM > 1 && THREADS > 0;
+	}
+
+	@Override
+	public IDataSet[] performQuery(String client_id, String server_name, String transaction_id, QueryData[] array) throws ServoyException, RemoteException
+	{
+		if (transaction_id != null || array == null || array.length < 2 || executor == null)
+		{
+			return super.performQuery(client_id, server_name, transaction_id, array);
+		}
+
+		parallelCalls.incrementAndGet();
+		IDataSet[] results = new IDataSet[array.length];
+		List<Future<IDataSet>> futures = new ArrayList<>(array.length);
+		List<Integer> futureIndexes = new ArrayList<>(array.length);
+		List<Integer> inline = new ArrayList<>(array.length);
+		inline.add(Integer.valueOf(0));
+		for (int i = 1; i < array.length; i++)
+		{
+			if (permits.tryAcquire())
+			{
+				QueryData queryData = array[i];
+				futures.add(executor.submit(() -> {
+					try
+					{
+						return performSingleQuery(client_id, server_name, queryData);
+					}
+					finally
+					{
+						permits.release();
+					}
+				}));
+				futureIndexes.add(Integer.valueOf(i));
+				parallelQueries.incrementAndGet();
+			}
+			else
+			{
+				inline.add(Integer.valueOf(i));
+			}
+		}
+
+		Throwable failure = null;
+		try
+		{
+			for (Integer i : inline)
+			{
+				results[i.intValue()] = performSingleQuery(client_id, server_name, array[i.intValue()]);
+			}
+		}
+		catch (ServoyException | RemoteException | RuntimeException | Error e)
+		{
+			failure = e;
+		}
+
+		// always wait for the queries on the pool, so that no queries of this call are running when it returns
+		for (int f = 0; f < futures.size(); f++)
+		{
+			try
+			{
+				results[futureIndexes.get(f).intValue()] = getResult(futures.get(f));
+			}
+			catch (ServoyException | RemoteException | RuntimeException | Error e)
+			{
+				// throw the first error, the others are added to it so they are not lost
+				if (failure == null) failure = e;
+				else failure.addSuppressed(e);
+			}
+		}
+		if (failure != null) rethrow(failure);
+		return results;
+	}
+
+	private static void rethrow(Throwable failure) throws ServoyException, RemoteException
+	{
+		if (failure instanceof ServoyException) throw (ServoyException)failure;
+		if (failure instanceof RemoteException) throw (RemoteException)failure;
+		if (failure instanceof RuntimeException) throw (RuntimeException)failure;
+		throw (Error)failure;
+	}
+
+	private IDataSet performSingleQuery(String client_id, String server_name, QueryData queryData) throws ServoyException, RemoteException
+	{
+		// the queries of a call may have been packed, so they can share parts that must not be used by multiple threads
+		ISQLSelect sqlSelect = AbstractBaseQuery.deepClone(queryData.getSqlSelect());
+		return super.performQuery(client_id, server_name, null, sqlSelect, null, queryData.getFilters(), queryData.isDistinctInMemory(),
+			queryData.getStartRow(), queryData.getRowsToRetrieve(), queryData.getType(), queryData.getTrackingInfo());
+	}
+
+	private static IDataSet getResult(Future<IDataSet> future) throws ServoyException, RemoteException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted while waiting for query", e); //$NON-NLS-1$
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof ServoyException) throw (ServoyException)cause;
+			if (cause instanceof RemoteException) throw (RemoteException)cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new RemoteException("Error performing query", cause); //$NON-NLS-1$
+		}
+	}
+
+	public static long getParallelCallCount()
+	{
+		return parallelCalls.get();
+	}
+
+	public static long getParallelQueryCount()
+	{
+		return parallelQueries.get();
+	}
+}
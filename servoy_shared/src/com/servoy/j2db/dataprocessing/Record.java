@@ -278,7 +278,7 @@ public class Record implements Scriptable, IRecordInternal, IJSRecord
 			{
 				// if a calculation is set, then just flag this row for recalculation so that it will be recalculated when it is asked for.
 				// but only if it was in a mustRecalculate mode before (so it was it was never calculated or some depedency was changed)
-				row.getRowManager().flagRowCalcForRecalculation(getPKHashKey(), dataProviderID);
+				row.getRowManager().flagRowCalcForRecalculation(row.getPKKey(), dataProviderID);
 			}
 			return prevValue;
 		}
@@ -926,7 +926,7 @@ public class Record implements Scriptable, IRecordInternal, IJSRecord
 					RowManager rowManager = ((FoundSetManager)parent.getFoundSetManager()).getRowManager(usedColumn.dataSource);
 					if (rowManager != null)
 					{
-						rowManager.addCalculationDependency(usedColumn.pkHashKey, usedColumn.dataProviderId, parent.getDataSource(), getPKHashKey(), calc);
+						rowManager.addCalculationDependency(usedColumn.pkHashKey, usedColumn.dataProviderId, parent.getDataSource(), row.getPKKey(), calc);
 					}
 				}
 				catch (ServoyException e)
@@ -942,7 +942,7 @@ public class Record implements Scriptable, IRecordInternal, IJSRecord
 			for (UsedRelation usedRelation : uedRelations)
 			{
 				row.getRowManager()
-					.addCalculationRelationDependency(usedRelation.whereArgsHash, usedRelation.name, parent.getDataSource(), getPKHashKey(),
+					.addCalculationRelationDependency(usedRelation.whereArgsHash, usedRelation.name, parent.getDataSource(), row.getPKKey(),
 						calc);
 			}
 		}
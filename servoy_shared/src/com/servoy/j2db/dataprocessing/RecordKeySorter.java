@@ -0,0 +1,181 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Undefined;
+
+import com.servoy.j2db.scripting.ScriptVariableScope;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Sorts pks on keys that were extracted once per record, used by {@link FoundSet#sortByKey(Object, Boolean)}.
+ * <p>
+ * A key is one value or an array of values that are compared in order. Values are compared natively: numbers by value, dates by time and
+ * strings case sensitive (like the &lt; operator in javascript). Values of different types are ordered on their type: null, numbers, dates,
+ * strings and then other values. The sort is stable, so records with equal keys keep their current order.
+ *
+ * @since 2024.3
+ */
+final class RecordKeySorter
+{
+	private static final int RANK_NULL = 0;
+	private static final int RANK_NUMBER = 1;
+	private static final int RANK_DATE = 2;
+	private static final int RANK_STRING = 3;
+	private static final int RANK_OTHER = 4;
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = (e1, e2) -> compareKeys(e1.key, e2.key);
+
+	private RecordKeySorter()
+	{
+	}
+
+	/**
+	 * Convert the result of a key function or the values of a record to a key.
+	 */
+	static Object[] toKey(Object value)
+	{
+		Object unwrapped = ScriptVariableScope.unwrap(value);
+		Object[] values;
+		if (unwrapped instanceof Object[])
+		{
+			values = ((Object[])unwrapped).clone();
+		}
+		else if (unwrapped instanceof List< ? >)
+		{
+			// javascript arrays
+			values = ((List< ? >)unwrapped).toArray();
+		}
+		else
+		{
+			values = new Object[] { unwrapped };
+		}
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = toKeyValue(values[i]);
+		}
+		return values;
+	}
+
+	private static Object toKeyValue(Object value)
+	{
+		Object v = ScriptVariableScope.unwrap(value);
+		if (v == null || v == Undefined.instance) return null;
+		if (v instanceof Scriptable)
+		{
+			// javascript dates, other javascript objects are compared by their string value
+			return "Date".equals(((Scriptable)v).getClassName()) ? Context.jsToJava(v, Date.class) : v.toString(); //$NON-NLS-1$
+		}
+		return v;
+	}
+
+	/**
+	 * Sort the pks on the keys, keys[i] is the key of pks[i].
+	 *
+	 * @return the sorted pks
+	 */
+	static Object[][] sort(Object[][] pks, Object[][] keys, boolean descending)
+	{
+		Entry[] entries = new Entry[pks.length];
+		for (int i = 0; i < pks.length; i++)
+		{
+			entries[i] = new Entry(pks[i], keys[i]);
+		}
+		// stable, runs in parallel for large arrays
+		Arrays.parallelSort(entries, descending ? ENTRY_COMPARATOR.reversed() : ENTRY_COMPARATOR);
+		Object[][] sorted = new Object[entries.length][];
+		for (int i = 0; i < entries.length; i++)
+		{
+			sorted[i] = entries[i].pk;
+		}
+		return sorted;
+	}
+
+	static int compareKeys(Object[] key1, Object[] key2)
+	{
+		int length = Math.min(key1.length, key2.length);
+		for (int i = 0; i < length; i++)
+		{
+			int cmp = compareValues(key1[i], key2[i]);
+			if (cmp != 0) return cmp;
+		}
+		return Integer.compare(key1.length, key2.length);
+	}
+
+	/**
+	 * Compare 2 key values, values of different types are ordered on their type: null &lt; number &lt; date &lt; string &lt; other values.
+	 * This keeps the order transitive when a key has mixed types.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static int compareValues(Object value1, Object value2)
+	{
+		if (value1 == value2) return 0;
+
+		int rank1 = getTypeRank(value1);
+		int rank2 = getTypeRank(value2);
+		if (rank1 != rank2) return Integer.compare(rank1, rank2);
+
+		switch (rank1)
+		{
+			case RANK_NULL :
+				return 0;
+			case RANK_NUMBER :
+				return Utils.compare(((Number)value1).doubleValue(), ((Number)value2).doubleValue());
+			case RANK_DATE :
+				return Long.compare(((Date)value1).getTime(), ((Date)value2).getTime());
+			case RANK_STRING :
+				return ((String)value1).compareTo((String)value2);
+			default :
+				if (value1 instanceof Comparable && value1.getClass() == value2.getClass())
+				{
+					return ((Comparable)value1).compareTo(value2);
+				}
+				// other values of different classes, order on class name first so the order stays transitive
+				int cmp = value1.getClass().getName().compareTo(value2.getClass().getName());
+				return cmp != 0 ? cmp : value1.toString().compareTo(value2.toString());
+		}
+	}
+
+	private static int getTypeRank(Object value)
+	{
+		if (value == null) return RANK_NULL;
+		if (value instanceof Number) return RANK_NUMBER;
+		if (value instanceof Date) return RANK_DATE;
+		if (value instanceof String) return RANK_STRING;
+		return RANK_OTHER;
+	}
+
+	private static class Entry
+	{
+		private final Object[] pk;
+		private final Object[] key;
+
+		Entry(Object[] pk, Object[] key)
+		{
+			this.pk = pk;
+			this.key = key;
+		}
+	}
+}
@@ -24,7 +24,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -47,7 +50,9 @@ import com.servoy.j2db.query.IQuerySelectValue;
 import com.servoy.j2db.query.ISQLCondition;
 import com.servoy.j2db.query.ISQLSelect;
 import com.servoy.j2db.query.Placeholder;
+import com.servoy.j2db.query.QueryAggregate;
 import com.servoy.j2db.query.QuerySelect;
+import com.servoy.j2db.query.SetCondition;
 import com.servoy.j2db.query.TablePlaceholderKey;
 import com.servoy.j2db.querybuilder.impl.QBSelect;
 import com.servoy.j2db.util.Debug;
@@ -193,6 +198,7 @@ public abstract class RelatedFoundSet extends FoundSet
 		QuerySelect[] sqlSelects = new QuerySelect[whereArsgLists.length]; // all queries
 		QuerySelect[] aggregateSelects = new QuerySelect[whereArsgLists.length]; // all aggregates
 		List<Integer> queryIndex = new ArrayList<Integer>(whereArsgLists.length);
+		List<Integer> toQuery = new ArrayList<Integer>(whereArsgLists.length);
 		Map<Integer, Row> cachedRows = new HashMap<Integer, Row>();
 		List<QueryData> queryDatas = new ArrayList<QueryData>(whereArsgLists.length);
 
@@ -255,21 +261,7 @@ public abstract class RelatedFoundSet extends FoundSet
 			}
 			else
 			{
-				ISQLSelect selectStatement = deepClone((ISQLSelect)sqlSelect);
-				// Note: put a clone of sqlSelect in the queryDatas list, we will compress later over multiple queries using pack().
-				// Clone is needed because packed queries may not be save to manipulate.
-				SQLStatement trackingInfo = null;
-				if (fsm.getEditRecordList().hasAccess(sheet.getTable(), IRepository.TRACKING_VIEWS))
-				{
-					trackingInfo = new SQLStatement(ISQLActionTypes.SELECT_ACTION, sheet.getServerName(), sheet.getTable().getName(), null, null);
-					trackingInfo.setTrackingData(sheet.getColumnNames(), new Object[][] { }, new Object[][] { }, fsm.getApplication().getUserUID(),
-						fsm.getTrackingInfo(), fsm.getApplication().getClientID());
-				}
-				queryDatas.add(
-					new QueryData(selectStatement, sqlFilters, !sqlSelect.isUnique(), 0, fsm.config.initialRelatedChunkSize(), IDataServer.RELATION_QUERY,
-						trackingInfo));
-				queryIndex.add(Integer.valueOf(i));
-
+				toQuery.add(Integer.valueOf(i));
 				QuerySelect aggregateSelect = getAggregateSelect(sheet, sqlSelect);
 				if (aggregateSelect != null)
 				{
@@ -277,16 +269,52 @@ public abstract class RelatedFoundSet extends FoundSet
 					{
 						aggregateSelect.setComment("aggregate relation " + relation.getName());
 					}
-
-					// Note: see note about clone above.
-					queryDatas.add(new QueryData(deepClone(aggregateSelect),
-						fsm.getTableFilterParams(sheet.getServerName(), aggregateSelect), false, 0, 1, IDataServer.AGGREGATE_QUERY, null));
-					queryIndex.add(Integer.valueOf(i)); // same index for aggregates
 					aggregateSelects[i] = aggregateSelect;
 				}
 			}
 		}
 
+		if (fsm.config.relatedFKPKBulkLoad() && !toQuery.isEmpty() && relation.isFKPKRef(fsm.getApplication().getFlattenedSolution()))
+		{
+			loadFKPKRows(fsm, relation, whereArsgLists, aggregateSelects, toQuery, cachedRows);
+		}
+
+		// index -> data and aggregate data of the parents that were loaded together
+		Map<Integer, IDataSet[]> fusedDataSets = fsm.config.relatedInQuery() && toQuery.size() > 1
+			? performFusedRelatedQuery(fsm, relation, sheet, whereArsgLists, sqlSelects, aggregateSelects, toQuery, placeHolderKey, sqlFilters)
+			: Collections.<Integer, IDataSet[]> emptyMap();
+
+		for (Integer index : toQuery)
+		{
+			if (fusedDataSets.containsKey(index))
+			{
+				continue;
+			}
+			int i = index.intValue();
+			ISQLSelect selectStatement = deepClone((ISQLSelect)sqlSelects[i]);
+			// Note: put a clone of sqlSelect in the queryDatas list, we will compress later over multiple queries using pack().
+			// Clone is needed because packed queries may not be save to manipulate.
+			SQLStatement trackingInfo = null;
+			if (fsm.getEditRecordList().hasAccess(sheet.getTable(), IRepository.TRACKING_VIEWS))
+			{
+				trackingInfo = new SQLStatement(ISQLActionTypes.SELECT_ACTION, sheet.getServerName(), sheet.getTable().getName(), null, null);
+				trackingInfo.setTrackingData(sheet.getColumnNames(), new Object[][] { }, new Object[][] { }, fsm.getApplication().getUserUID(),
+					fsm.getTrackingInfo(), fsm.getApplication().getClientID());
+			}
+			queryDatas.add(
+				new QueryData(selectStatement, sqlFilters, !sqlSelects[i].isUnique(), 0, fsm.config.initialRelatedChunkSize(), IDataServer.RELATION_QUERY,
+					trackingInfo));
+			queryIndex.add(index);
+
+			if (aggregateSelects[i] != null)
+			{
+				// Note: see note about clone above.
+				queryDatas.add(new QueryData(deepClone(aggregateSelects[i]),
+					fsm.getTableFilterParams(sheet.getServerName(), aggregateSelects[i]), false, 0, 1, IDataServer.AGGREGATE_QUERY, null));
+				queryIndex.add(index); // same index for aggregates
+			}
+		}
+
 		IDataSet[] dataSets = null;
 		if (queryDatas.size() > 0)
 		{
@@ -339,8 +367,14 @@ public abstract class RelatedFoundSet extends FoundSet
 		{
 			IDataSet data;
 			IDataSet aggregateData = null;
+			IDataSet[] fused = fusedDataSets.get(Integer.valueOf(i));
 			int index = (d >= queryIndex.size()) ? -1 : queryIndex.get(d).intValue();
-			if (index == i)
+			if (fused != null)
+			{
+				data = fused[0];
+				aggregateData = fused[1];
+			}
+			else if (index == i)
 			{
 				// regular query
 				data = dataSets[d++];
@@ -381,6 +415,291 @@ public abstract class RelatedFoundSet extends FoundSet
 		return foundsets;
 	}
 
+	/**
+	 * Load the rows of a FK->PK relation that were not cached for all parents with PK-IN queries via the row manager of the foreign table.
+	 * The rows are stored in the row cache and in cachedRows, the loaded parents are removed from toQuery.
+	 * Parents for which the relation has aggregates or the foreign key has a null or db identity value are still queried with the relation query.
+	 */
+	private static void loadFKPKRows(FoundSetManager fsm, Relation relation, Object[][] whereArsgLists, QuerySelect[] aggregateSelects, List<Integer> toQuery,
+		Map<Integer, Row> cachedRows) throws ServoyException
+	{
+		RowManager rowManager = fsm.getRowManager(relation.getForeignDataSource());
+		if (rowManager == null) return;
+
+		List<Integer> toLoad = new ArrayList<>(toQuery.size());
+		for (Integer index : toQuery)
+		{
+			int i = index.intValue();
+			if (aggregateSelects[i] == null && stream(whereArsgLists[i]).noneMatch(arg -> arg == null || arg instanceof DbIdentValue))
+			{
+				toLoad.add(index);
+			}
+		}
+		if (toLoad.isEmpty()) return;
+
+		int chunkSize = fsm.config.pkChunkSize();
+		for (int start = 0; start < toLoad.size(); start += chunkSize)
+		{
+			List<Integer> chunk = toLoad.subList(start, Math.min(start + chunkSize, toLoad.size()));
+			BufferedDataSet pks = new BufferedDataSet();
+			for (Integer index : chunk)
+			{
+				pks.addRow(whereArsgLists[index.intValue()]);
+			}
+			List<Row> rows = rowManager.getRows(pks, 0, pks.getRowCount(), true);
+			for (int r = 0; r < chunk.size(); r++)
+			{
+				// a missing row means the record does not exist or is filtered out, the related foundset is empty like with the relation query
+				Row row = r < rows.size() ? rows.get(r) : null;
+				if (row != null)
+				{
+					cachedRows.put(chunk.get(r), row);
+				}
+			}
+		}
+		if (Debug.tracing())
+		{
+			Debug.trace(Thread.currentThread().getName() + ": Loaded " + toLoad.size() + " FK records of relation " + relation.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		toQuery.removeAll(toLoad);
+	}
+
+	/**
+	 * Load the related foundsets of multiple parents with one query (and one aggregate query grouped by the foreign key).
+	 * <p>
+	 * This is only done for relations that compare all keys with equals, the rows are partitioned over the parents by the values of the foreign columns.
+	 * The query returns at most initialRelatedChunkSize + 1 rows per parent, when it returns more rows in total, the parents for which it cannot be
+	 * determined that all rows were loaded are left out of the result so that they are queried separately.
+	 *
+	 * @return index -> data and aggregate data of the parents that were loaded
+	 */
+	private static Map<Integer, IDataSet[]> performFusedRelatedQuery(FoundSetManager fsm, Relation relation, SQLSheet sheet, Object[][] whereArsgLists,
+		QuerySelect[] sqlSelects, QuerySelect[] aggregateSelects, List<Integer> toQuery, TablePlaceholderKey placeHolderKey, ArrayList<TableFilter> sqlFilters)
+		throws ServoyException
+	{
+		if (fsm.getEditRecordList().hasAccess(sheet.getTable(), IRepository.TRACKING_VIEWS))
+		{
+			return Collections.emptyMap();
+		}
+
+		int first = toQuery.get(0).intValue();
+		SetCondition relationCondition = getEqualsRelationCondition(sqlSelects[first]);
+		Column[] foreignColumns = relation.getForeignColumns(fsm.getApplication().getFlattenedSolution());
+		if (relationCondition == null || foreignColumns == null || foreignColumns.length != relationCondition.getKeys().length)
+		{
+			return Collections.emptyMap();
+		}
+		int[] foreignIndexes = new int[foreignColumns.length];
+		for (int k = 0; k < foreignColumns.length; k++)
+		{
+			foreignIndexes[k] = sheet.getColumnIndex(foreignColumns[k].getDataProviderID());
+			if (foreignIndexes[k] < 0) return Collections.emptyMap();
+		}
+
+		// parents with the same foreign key get the same data
+		Map<PKHashKey, List<Integer>> parentsByKey = new LinkedHashMap<>();
+		for (Integer index : toQuery)
+		{
+			Object[] whereArgs = whereArsgLists[index.intValue()];
+			// null compares and value arrays are left to the separate queries
+			if (whereArgs.length == foreignColumns.length && stream(whereArgs).noneMatch(arg -> arg == null || arg instanceof Object[]))
+			{
+				parentsByKey.computeIfAbsent(PKHashKey.create(whereArgs), key -> new ArrayList<>(1)).add(index);
+			}
+		}
+		if (parentsByKey.size() < 2)
+		{
+			return Collections.emptyMap();
+		}
+
+		Object[][] values = new Object[foreignColumns.length][parentsByKey.size()];
+		int p = 0;
+		for (List<Integer> parents : parentsByKey.values())
+		{
+			Object[] whereArgs = whereArsgLists[parents.get(0).intValue()];
+			for (int k = 0; k < whereArgs.length; k++)
+			{
+				values[k][p] = whereArgs[k];
+			}
+			p++;
+		}
+
+		QuerySelect fusedSelect = deepClone(sqlSelects[first]);
+		if (!fusedSelect.setPlaceholderValue(placeHolderKey, values))
+		{
+			return Collections.emptyMap();
+		}
+
+		int chunkSize = fsm.config.initialRelatedChunkSize();
+		int maxRows = (int)Math.min(Integer.MAX_VALUE - 1, (long)(chunkSize + 1) * parentsByKey.size());
+		List<QueryData> queryDatas = new ArrayList<>(2);
+		queryDatas.add(new QueryData(deepClone(fusedSelect), sqlFilters, !fusedSelect.isUnique(), 0, maxRows, IDataServer.RELATION_QUERY, null));
+
+		QuerySelect fusedAggregateSelect = null;
+		if (aggregateSelects[first] != null)
+		{
+			fusedAggregateSelect = getAggregateSelect(sheet, fusedSelect);
+			SetCondition groupCondition = getEqualsRelationCondition(fusedAggregateSelect);
+			if (groupCondition == null)
+			{
+				return Collections.emptyMap();
+			}
+			ArrayList<IQuerySelectValue> groupBy = new ArrayList<>();
+			for (IQuerySelectValue key : groupCondition.getKeys())
+			{
+				groupBy.add(deepClone(key));
+				fusedAggregateSelect.addColumn(deepClone(key));
+			}
+			fusedAggregateSelect.setGroupBy(groupBy);
+			if (fsm.config.setRelationNameComment())
+			{
+				fusedAggregateSelect.setComment("aggregate relation " + relation.getName());
+			}
+			queryDatas.add(new QueryData(deepClone(fusedAggregateSelect), fsm.getTableFilterParams(sheet.getServerName(), fusedAggregateSelect), false, 0,
+				parentsByKey.size() + 1, IDataServer.AGGREGATE_QUERY, null));
+		}
+
+		String clientID = fsm.getApplication().getClientID();
+		IDataSet[] dataSets;
+		try
+		{
+			QueryData[] qDatas = queryDatas.toArray(new QueryData[queryDatas.size()]);
+			AbstractBaseQuery.acceptVisitor(qDatas, new PackVisitor());
+			long time = System.currentTimeMillis();
+			dataSets = fsm.getDataServer().performQuery(clientID, sheet.getServerName(), fsm.getTransactionID(sheet), qDatas);
+			if (Debug.tracing())
+			{
+				Debug.trace(Thread.currentThread().getName() + ": Relation IN-query: " + relation.getName() + " for " + parentsByKey.size() + //$NON-NLS-1$ //$NON-NLS-2$
+					" parents,time: " + (System.currentTimeMillis() - time) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		catch (RepositoryException re)
+		{
+			testException(clientID, re);
+			throw re;
+		}
+		catch (RemoteException e)
+		{
+			testException(clientID, e.getCause());
+			throw new RepositoryException(e);
+		}
+
+		// partition the rows over the parents, the rows of a parent stay in the sort order of the query
+		IDataSet data = dataSets[0];
+		Map<PKHashKey, List<Object[]>> rowsByKey = new HashMap<>();
+		for (int r = 0; r < data.getRowCount(); r++)
+		{
+			Object[] row = data.getRow(r);
+			PKHashKey key = PKHashKey.create(getValues(row, foreignIndexes));
+			if (!parentsByKey.containsKey(key))
+			{
+				// the database matched a value differently (for example case insensitive), use the separate queries
+				return Collections.emptyMap();
+			}
+			rowsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+		}
+
+		Map<PKHashKey, Object[]> aggregatesByKey = new HashMap<>();
+		if (fusedAggregateSelect != null)
+		{
+			IDataSet aggregateData = dataSets[1];
+			int aggregateColumns = aggregateSelects[first].getColumns().size();
+			int[] keyIndexes = IntStream.range(aggregateColumns, aggregateColumns + foreignColumns.length).toArray();
+			for (int r = 0; r < aggregateData.getRowCount(); r++)
+			{
+				Object[] row = aggregateData.getRow(r);
+				aggregatesByKey.put(PKHashKey.create(getValues(row, keyIndexes)), Arrays.copyOf(row, aggregateColumns));
+			}
+		}
+
+		Map<Integer, IDataSet[]> result = new HashMap<>();
+		for (Map.Entry<PKHashKey, List<Integer>> entry : parentsByKey.entrySet())
+		{
+			List<Object[]> rows = rowsByKey.getOrDefault(entry.getKey(), Collections.emptyList());
+			IDataSet parentData;
+			if (rows.size() > chunkSize)
+			{
+				parentData = new BufferedDataSet(data.getColumnNames(), null, new ArrayList<>(rows.subList(0, chunkSize)), true);
+			}
+			else if (!data.hadMoreRows())
+			{
+				parentData = new BufferedDataSet(data.getColumnNames(), null, new ArrayList<>(rows), false);
+			}
+			else
+			{
+				// the query was cut off, there may be more rows for this parent
+				continue;
+			}
+
+			IDataSet parentAggregateData = null;
+			if (fusedAggregateSelect != null)
+			{
+				Object[] aggregates = aggregatesByKey.get(entry.getKey());
+				parentAggregateData = new BufferedDataSet(null, null, Collections.singletonList(
+					aggregates != null ? aggregates : getEmptyAggregates(aggregateSelects[first])), false);
+			}
+
+			for (Integer index : entry.getValue())
+			{
+				result.put(index, new IDataSet[] { parentData, parentAggregateData });
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The relation condition of the select, only when it compares all keys with equals.
+	 */
+	private static SetCondition getEqualsRelationCondition(QuerySelect select)
+	{
+		List<ISQLCondition> conditions = select.getConditions(SQLGenerator.CONDITION_RELATION);
+		if (conditions == null || conditions.size() != 1 || !(conditions.get(0) instanceof SetCondition))
+		{
+			return null;
+		}
+		SetCondition condition = (SetCondition)conditions.get(0);
+		if (!condition.isAndCondition())
+		{
+			return null;
+		}
+		for (int operator : condition.getOperators())
+		{
+			if ((operator & IBaseSQLCondition.OPERATOR_MASK) != IBaseSQLCondition.EQUALS_OPERATOR ||
+				(operator & ~(IBaseSQLCondition.OPERATOR_MASK | IBaseSQLCondition.CAST_TO_MODIFIER)) != 0)
+			{
+				return null;
+			}
+		}
+		return condition;
+	}
+
+	private static Object[] getValues(Object[] row, int[] indexes)
+	{
+		Object[] values = new Object[indexes.length];
+		for (int k = 0; k < indexes.length; k++)
+		{
+			values[k] = row[indexes[k]];
+		}
+		return values;
+	}
+
+	/**
+	 * Aggregates of a parent without related rows, these are not returned by the grouped aggregate query.
+	 */
+	private static Object[] getEmptyAggregates(QuerySelect aggregateSelect)
+	{
+		List<IQuerySelectValue> columns = aggregateSelect.getColumns();
+		Object[] row = new Object[columns.size()];
+		for (int c = 0; c < row.length; c++)
+		{
+			if (columns.get(c) instanceof QueryAggregate && ((QueryAggregate)columns.get(c)).getType() == QueryAggregate.COUNT)
+			{
+				row[c] = Integer.valueOf(0);
+			}
+		}
+		return row;
+	}
+
 	private static void testException(String clientID, Throwable t)
 	{
 		if (Debug.tracing() && t instanceof RepositoryException)
@@ -61,6 +61,7 @@ public class Row
 	private final Map<String, Object> unstoredCalcCache; // dataProviderID -> Value
 	private boolean existInDB;
 	private String pkHashKey;
+	private PKHashKey pkKey;
 	private final WeakHashMap<IRowChangeListener, Object> listeners;
 
 	private static Object dummy = new Object();
@@ -463,11 +464,11 @@ public class Row
 		if (column != null && (column.getFlags() & IBaseColumn.IDENT_COLUMNS) != 0)
 		{
 			// PK update, recalc hash, update calculation dependencies and fire depending calcs
-			getRowManager().fireDependingCalcsForPKUpdate(this, getPKHashKey());
+			getRowManager().fireDependingCalcsForPKUpdate(this, getPKKey());
 		}
 		else
 		{
-			getRowManager().fireDependingCalcs(getPKHashKey(), dataProviderID, null);
+			getRowManager().fireDependingCalcs(getPKKey(), dataProviderID, null);
 		}
 	}
 
@@ -539,16 +540,26 @@ public class Row
 		}
 	}
 
-	String recalcPKHashKey()
+	PKHashKey recalcPKHashKey()
 	{
 		pkHashKey = null;
-		return getPKHashKey();
+		pkKey = null;
+		return getPKKey();
 	}
 
 	//See ALSO RowManager.createPKHashKey
 	public String getPKHashKey()
 	{
 		if (pkHashKey == null)
+		{
+			pkHashKey = getPKKey().toString();
+		}
+		return pkHashKey;
+	}
+
+	public PKHashKey getPKKey()
+	{
+		if (pkKey == null)
 		{
 			SQLSheet sheet = parent.getSQLSheet();
 			int[] pkpos = sheet.getPKIndexes();
@@ -564,9 +575,9 @@ public class Row
 					pks[i] = columndata[pkpos[i]];
 				}
 			}
-			pkHashKey = RowManager.createPKHashKey(pks);
+			pkKey = PKHashKey.create(pks);
 		}
-		return pkHashKey;
+		return pkKey;
 	}
 
 	public Object[] getPK()
@@ -738,9 +749,9 @@ public class Row
 		{
 			for (String dataProviderID : changedColumns.keySet())
 			{
-				parent.fireDependingCalcs(getPKHashKey(), dataProviderID, null);
+				parent.fireDependingCalcs(getPKKey(), dataProviderID, null);
 			}
-			parent.fireNotifyChange(null, this, this.getPKHashKey(), changedColumns.keySet().toArray(), RowEvent.UPDATE);
+			parent.fireNotifyChange(null, this, this.getPKKey(), changedColumns.keySet().toArray(), RowEvent.UPDATE);
 			FireCollector collector = FireCollector.getFireCollector();
 			try
 			{
@@ -819,7 +830,11 @@ public class Row
 		{
 			if (!calcsUptodate.contains(dataProviderID))
 			{
-				if (!justTesting) calcsUptodate.add(dataProviderID);
+				if (!justTesting)
+				{
+					calcsUptodate.add(dataProviderID);
+					if (parent != null) parent.calcUptodate(this, dataProviderID);
+				}
 				return true;
 			}
 		}
@@ -36,14 +36,14 @@ class RowEvent extends EventObject
 	private final int type;
 	private final Object data;
 	private final boolean isAggregateChange;
-	private final String pkHashKey;
+	private final PKHashKey pkHashKey;
 
 	RowEvent(Object source, Row row, int type, Object data)
 	{
-		this(source, row, row.getPKHashKey(), type, data, false);
+		this(source, row, row.getPKKey(), type, data, false);
 	}
 
-	RowEvent(Object source, Row row, String pkHashKey, int type, Object data, boolean isAggregateChange)
+	RowEvent(Object source, Row row, PKHashKey pkHashKey, int type, Object data, boolean isAggregateChange)
 	{
 		super(source);
 		this.row = row;
@@ -78,8 +78,16 @@ class RowEvent extends EventObject
 	 */
 	public String getPkHashKey()
 	{
-		if (pkHashKey == null && row != null) return row.getPKHashKey();
-		return pkHashKey;
+		if (pkHashKey == null)
+		{
+			return row != null ? row.getPKHashKey() : null;
+		}
+		if (row != null && pkHashKey.equals(row.getPKKey()))
+		{
+			// row caches the string
+			return row.getPKHashKey();
+		}
+		return pkHashKey.toString();
 	}
 
 	/**
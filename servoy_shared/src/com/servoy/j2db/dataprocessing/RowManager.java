@@ -17,29 +17,32 @@
 package com.servoy.j2db.dataprocessing;
 
 
+import static com.servoy.j2db.query.AbstractBaseQuery.deepClone;
 import static com.servoy.j2db.query.AbstractBaseQuery.setPlaceholderValue;
 import static com.servoy.j2db.query.AbstractBaseQuery.setPlaceholderValueChecked;
 import static java.util.Arrays.stream;
-import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
+import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.rmi.RemoteException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Streams;
@@ -69,13 +72,13 @@ import com.servoy.j2db.query.QueryUpdate;
 import com.servoy.j2db.query.SetCondition;
 import com.servoy.j2db.query.TablePlaceholderKey;
 import com.servoy.j2db.scripting.GlobalScope;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
 import com.servoy.j2db.util.ConcurrentSoftvaluesMultimap;
 import com.servoy.j2db.util.Debug;
 import com.servoy.j2db.util.Pair;
 import com.servoy.j2db.util.SafeArrayList;
 import com.servoy.j2db.util.ServoyException;
 import com.servoy.j2db.util.SoftReferenceWithData;
-import com.servoy.j2db.util.UUID;
 import com.servoy.j2db.util.Utils;
 
 /**
@@ -87,16 +90,35 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 {
 	private final FoundSetManager fsm;
 	private final ReferenceQueue<Row> referenceQueue;
-	private final Map<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> pkRowMap; // pkString -> SoftReference(Row)
+	private final Map<PKHashKey, CachedRowReference> pkRowMap; // pk -> Soft or WeakReference(Row)
+	private final Map<PKHashKey, Row> recentRows; // most recently used rows when the cache size is bounded, null for an unbounded soft references cache
+	private final Set<PKHashKey> clearedRowsWithData = new HashSet<>(); // garbage collected rows of which the entry is kept for calculation dependencies
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+	private final AtomicLong cacheEvictions = new AtomicLong();
+	private static final AtomicLong totalCacheHits = new AtomicLong(); // of all row managers in the JVM, see PerformanceMetrics
+	private static final AtomicLong totalCacheMisses = new AtomicLong();
+	private static final AtomicLong totalCacheEvictions = new AtomicLong();
+	private final AtomicLong changeGeneration = new AtomicLong(); // increased when cached rows may be outdated, see FoundSetPrefetcher
+
+	static
+	{
+		PerformanceMetrics.registerCounter("row_cache_hits_total", "Rows that were found in the row caches.", false, RowManager::getTotalCacheHitCount);
+		PerformanceMetrics.registerCounter("row_cache_misses_total", "Rows that were not found in the row caches.", false,
+			RowManager::getTotalCacheMissCount);
+		PerformanceMetrics.registerCounter("row_cache_evictions_total", "Rows that were evicted from the bounded row caches.", false,
+			RowManager::getTotalCacheEvictionCount);
+	}
 	private final SQLSheet sheet;
 	private final ConcurrentMap<IRowListener, Object> listeners;
-	private final ConcurrentHashMap<String, ConcurrentSoftvaluesMultimap<String, RelatedFoundSet>> listenersByRelationEqualValues;
+	private final ConcurrentHashMap<String, ConcurrentSoftvaluesMultimap<PKHashKey, RelatedFoundSet>> listenersByRelationEqualValues;
 	private final Set<NamedLock> lockedRowPKs;
 	private final Map<String, Set<String>> globalCalcDependencies = new HashMap<String, Set<String>>();
 	private final Map<String, Set<String>> relationsUsedInCalcs = new HashMap<String, Set<String>>();
 	private final Map<String, Map<String, Set<String>>> aggregateCalcDependencies = new HashMap<String, Map<String, Set<String>>>();
+	private final CalculationDependencyGraph calcDependencyGraph; // null when the calculations are found by iterating over all rows
 
-	private Set<String> deleteSet;
+	private Set<PKHashKey> deleteSet;
 
 	private volatile FSMTableNotifier fsmNotifier;
 
@@ -106,6 +128,42 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		this.sheet = sheet;
 		pkRowMap = new ConcurrentHashMap<>(64);
 		referenceQueue = new ReferenceQueue<Row>();
+		calcDependencyGraph = fsm.config.calcDependencyIndex() ? new CalculationDependencyGraph() : null;
+		int rowCacheMaxSize = fsm.config.rowCacheMaxSize();
+		recentRows = rowCacheMaxSize > 0 ? Collections.synchronizedMap(new LinkedHashMap<PKHashKey, Row>(64, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PKHashKey, Row> eldest)
+			{
+				if (size() <= rowCacheMaxSize) return false;
+
+				// evict the least recently used rows that have no calculations depending on them, only rows with calculation dependents
+				// can keep the cache above its maximum size; these are moved to the tail so they are not checked again on the next put
+				List<PKHashKey> notEvictable = null;
+				Iterator<PKHashKey> it = keySet().iterator();
+				while (size() > rowCacheMaxSize && it.hasNext())
+				{
+					PKHashKey key = it.next();
+					if (canEvict(key))
+					{
+						it.remove();
+						cacheEvictions.incrementAndGet();
+						totalCacheEvictions.incrementAndGet();
+					}
+					else
+					{
+						if (notEvictable == null) notEvictable = new ArrayList<>();
+						notEvictable.add(key);
+					}
+				}
+				if (notEvictable != null)
+				{
+					// access order, get() moves the row to the tail
+					notEvictable.forEach(this::get);
+				}
+				return false;
+			}
+		}) : null;
 		listeners = CacheBuilder.newBuilder().weakKeys().<IRowListener, Object> build().asMap();
 		listenersByRelationEqualValues = new ConcurrentHashMap<>();
 		lockedRowPKs = Collections.synchronizedSet(new HashSet<>()); //my locks
@@ -132,16 +190,16 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				Object[] eqArgs = relatedFoundSet.getWhereArgs(true);
 				if (eqArgs != null && !stream(eqArgs).anyMatch(DbIdentValue.class::isInstance))
 				{
-					ConcurrentSoftvaluesMultimap<String, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
+					ConcurrentSoftvaluesMultimap<PKHashKey, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
 					if (listenersByEqualValues == null)
 					{
-						listenersByEqualValues = new ConcurrentSoftvaluesMultimap<String, RelatedFoundSet>();
-						ConcurrentSoftvaluesMultimap<String, RelatedFoundSet> prevValue = listenersByRelationEqualValues.putIfAbsent(relation.getName(),
+						listenersByEqualValues = new ConcurrentSoftvaluesMultimap<PKHashKey, RelatedFoundSet>();
+						ConcurrentSoftvaluesMultimap<PKHashKey, RelatedFoundSet> prevValue = listenersByRelationEqualValues.putIfAbsent(relation.getName(),
 							listenersByEqualValues);
 						if (prevValue != null) listenersByEqualValues = prevValue;
 					}
 
-					listenersByEqualValues.add(createPKHashKey(eqArgs), relatedFoundSet);
+					listenersByEqualValues.add(PKHashKey.create(eqArgs), relatedFoundSet);
 					listenersByEqualValuesAdded = true;
 				}
 			}
@@ -166,10 +224,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				Object[] eqArgs = relatedFoundSet.getWhereArgs(true);
 				if (eqArgs != null)
 				{
-					ConcurrentSoftvaluesMultimap<String, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
+					ConcurrentSoftvaluesMultimap<PKHashKey, RelatedFoundSet> listenersByEqualValues = listenersByRelationEqualValues.get(relation.getName());
 					if (listenersByEqualValues != null)
 					{
-						listenersByEqualValues.remove(createPKHashKey(eqArgs), relatedFoundSet);
+						listenersByEqualValues.remove(PKHashKey.create(eqArgs), relatedFoundSet);
 					}
 				}
 			}
@@ -200,65 +258,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	//See ALSO Row.getPKHashKey
 	public static String createPKHashKey(Object[] pk)
 	{
-		StringBuilder sb = new StringBuilder();
-		if (pk != null)
-		{
-			for (Object val : pk)
-			{
-				String str = valueHash(val);
-				if (str != null) sb.append(str.length());
-				sb.append('.');
-				sb.append(str);
-				sb.append(';');
-			}
-		}
-		return sb.toString();
-	}
-
-	private static String valueHash(Object pkval)
-	{
-		Object val = pkval;
-		if (val instanceof DbIdentValue)
-		{
-			val = createPKHashKeyFromDBIdent((DbIdentValue)val);
-		}
-		else if (val instanceof QueryColumnValue)
-		{
-			val = ((QueryColumnValue)val).getValue();
-		}
-
-		if (val instanceof byte[])
-		{
-			return Utils.encodeBASE64((byte[])val); // UUID
-		}
-		if (val instanceof UUID)
-		{
-			// make sure UUID PKs are matched regardless of casing
-			return val.toString().toLowerCase();
-		}
-		if (val instanceof String && ((String)val).length() == 36 && ((String)val).split("-").length == 5) //$NON-NLS-1$
-		{
-			// make sure UUID PKs are matched regardless of casing (MSQ Sqlserver returns uppercase UUID strings for uniqueidentifier columns)
-			return ((String)val).toLowerCase();
-		}
-		if (val instanceof Date)
-		{
-			return Long.toString(((Date)val).getTime());
-		}
-		if (val instanceof Float && ((Float)val).longValue() == ((Float)val).floatValue())
-		{
-			return Long.toString(((Float)val).longValue());
-		}
-		if (val instanceof Double && ((Double)val).longValue() == ((Double)val).doubleValue())
-		{
-			return Long.toString(((Double)val).longValue());
-		}
-		if (val instanceof Object[])
-		{
-			return "[" + stream((Object[])val).map(el -> String.valueOf(valueHash(el))).sorted().collect(joining(",")) + "]";
-		}
-
-		return val == null ? null : Utils.convertToString(val);
+		return PKHashKey.create(pk).toString();
 	}
 
 	/**
@@ -276,32 +276,55 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 
 	Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getCachedRow(Object[] pk)
 	{
-		return getCachedRow(createPKHashKey(pk));
+		return getCachedRow(PKHashKey.create(pk));
 	}
 
-	private Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getCachedRow(String pkhashKey)
+	private Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> getCachedRow(PKHashKey pkhashKey)
 	{
 		Row rowData = null;
 		Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data = null;
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkhashKey);
+		CachedRowReference sr = pkRowMap.get(pkhashKey);
 		if (sr != null)
 		{
 			data = sr.getData();
 			rowData = sr.get();
-			if (rowData == null)
+			if (rowData != null)
 			{
+				cacheHits.incrementAndGet();
+				totalCacheHits.incrementAndGet();
+				// mark as recently used, re-add it when it was evicted but still weakly reachable
+				if (recentRows != null && recentRows.get(pkhashKey) == null) recentRows.put(pkhashKey, rowData);
+			}
+			else
+			{
+				cacheMisses.incrementAndGet();
+				totalCacheMisses.incrementAndGet();
 				Debug.trace("-----------CacheMiss"); //$NON-NLS-1$
 				if (canRemove(sr))
 				{
 					removeRowReferences(pkhashKey, null);
-					pkRowMap.remove(pkhashKey);
+					removeRow(pkhashKey);
 					data = null;
 				}
 			}
 		}
+		else
+		{
+			cacheMisses.incrementAndGet();
+			totalCacheMisses.incrementAndGet();
+		}
 		return new Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(rowData, data);
 	}
 
+	/**
+	 * Check if the row is cached without counting it as a cache hit or miss and without marking it as recently used.
+	 */
+	private boolean isCached(PKHashKey pkhashKey)
+	{
+		CachedRowReference sr = pkRowMap.get(pkhashKey);
+		return sr != null && sr.get() != null;
+	}
+
 	Row getRowBasedonPKFromEntireColumnArray(Object[] columndata)
 	{
 		return getRowBasedonPKFromEntireColumnArrayEx(columndata, null /* row notifies are fired immediately */);
@@ -338,26 +361,16 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			pk[i] = val;
 		}
 		Row rowData = null;
-		String pkHashKey = createPKHashKey(pk);
+		PKHashKey pkHashKey = PKHashKey.create(pk);
 		boolean fireCalcs = false;
 		synchronized (this)
 		{
 			Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> cachedRow = getCachedRow(pkHashKey);
 			rowData = cachedRow.getLeft();
-			Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data = cachedRow.getRight();
 			if (rowData == null)
 			{
-				rowData = createExistInDBRowObject(columndata);
-				SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(
-					rowData, referenceQueue);
-				pkRowMap.put(rowData.getPKHashKey(), sr);
-				if (data != null)
-				{
-					// use existing dependencies if row was GD'd before
-					sr.setData(data);
-					fireCalcs = true;
-				}
-				clearAndCheckCache();
+				rowData = putExistInDBRow(columndata, cachedRow.getRight());
+				fireCalcs = cachedRow.getRight() != null;
 			}
 		}
 		if (fireCalcs)
@@ -367,6 +380,22 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		return rowData;
 	}
 
+	/*
+	 * Must be called while synchronized on this, returns the new cached row.
+	 */
+	private Row putExistInDBRow(Object[] columndata, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data)
+	{
+		Row rowData = createExistInDBRowObject(columndata);
+		CachedRowReference sr = putRow(rowData.getPKKey(), rowData);
+		if (data != null)
+		{
+			// use existing dependencies if row was GD'd before
+			sr.setData(data);
+		}
+		clearAndCheckCache();
+		return rowData;
+	}
+
 	Row createNotYetExistInDBRowObject(Object[] data, boolean addToMap)
 	{
 		return createRowObject(data, false, addToMap);
@@ -382,8 +411,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		Row row = new Row(this, data, sheet.getAllUnstoredCalculationNamesWithNoValue(), existInDB);
 		if (addToMap)
 		{
-			pkRowMap.put(row.getPKHashKey(),
-				new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));
+			putRow(row.getPKKey(), row);
 			clearAndCheckCache();
 		}
 		return row;
@@ -436,19 +464,20 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 		// else // whoa, row is deleted or pk is updated!
 
-		if (doFires) fireNotifyChange(null, row, row.getPKHashKey(), null, found ? RowEvent.UPDATE : RowEvent.DELETE);
+		if (doFires) fireNotifyChange(null, row, row.getPKKey(), null, found ? RowEvent.UPDATE : RowEvent.DELETE);
 		return found;
 	}
 
-	private final ThreadLocal<String> adjustingForChangeByOtherPKHashKey = new ThreadLocal<String>();
+	private final ThreadLocal<PKHashKey> adjustingForChangeByOtherPKHashKey = new ThreadLocal<PKHashKey>();
 
 	//return true if i had row and did update
 	@SuppressWarnings("nls")
-	boolean changeByOther(String pkHashKey, int action, Object[] insertColumnDataOrChangedColumns, Row insertedRow)
+	boolean changeByOther(PKHashKey pkHashKey, int action, Object[] insertColumnDataOrChangedColumns, Row insertedRow)
 	{
 		Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> cachedRow;
 		synchronized (this)
 		{
+			changeGeneration.incrementAndGet();
 			cachedRow = getCachedRow(pkHashKey);
 		}
 		Row rowData = cachedRow.getLeft();
@@ -467,7 +496,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				}
 				try
 				{
-					adjustingForChangeByOtherPKHashKey.set(rowData.getPKHashKey());
+					adjustingForChangeByOtherPKHashKey.set(rowData.getPKKey());
 					boolean found = rollbackFromDB(rowData, false, Row.ROLLBACK_MODE.UPDATE_CHANGES);
 					int eventType = RowEvent.UPDATE;
 					if (!found && rowData.existInDB())
@@ -504,7 +533,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				// the row is in memory but not longer referenced from any record or it was deleted.
 				// do remove it so that it will be re queried when needed (when it was not deleted)
 				removeRowReferences(pkHashKey, null);
-				pkRowMap.remove(pkHashKey);
+				removeRow(pkHashKey);
 			}
 			return false;
 		}
@@ -513,11 +542,11 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		{
 			if (insertedRow != null)
 			{
-				fireNotifyChange(null, insertedRow, insertedRow.getPKHashKey(), null, RowEvent.INSERT, false, true);
+				fireNotifyChange(null, insertedRow, insertedRow.getPKKey(), null, RowEvent.INSERT, false, true);
 				if (!insertedRow.hasListeners() && canRemove(pkRowMap.get(pkHashKey))) //new row is not in use
 				{
 					removeRowReferences(pkHashKey, null);
-					pkRowMap.remove(pkHashKey);
+					removeRow(pkHashKey);
 					return false;
 				}
 				return true;
@@ -525,20 +554,18 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			else if (insertColumnDataOrChangedColumns != null && insertColumnDataOrChangedColumns.length == sheet.getColumnNames().length) //last test is just to make sure
 			{
 				rowData = createExistInDBRowObject(insertColumnDataOrChangedColumns);
-				fireNotifyChange(null, rowData, rowData.getPKHashKey(), null, RowEvent.INSERT, false, true);
+				fireNotifyChange(null, rowData, rowData.getPKKey(), null, RowEvent.INSERT, false, true);
 				if (rowData.hasListeners())//new row is in use
 				{
 					boolean fireCalcs = false;
 					synchronized (this)
 					{
-						SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(
-							rowData, referenceQueue);
+						CachedRowReference sr = putRow(rowData.getPKKey(), rowData);
 						if (cachedRow.getRight() != null)
 						{
 							sr.setData(cachedRow.getRight());
 							fireCalcs = true;
 						}
-						pkRowMap.put(rowData.getPKHashKey(), sr);
 					}
 					if (fireCalcs)
 					{
@@ -649,19 +676,20 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			}
 
 			//construct Rows
+			Map<PKHashKey, Row> rowsByPK = new HashMap<>(formdata.getRowCount() * 2);
+			for (int r = 0; r < formdata.getRowCount(); r++)
+			{
+				Object[] columndata = formdata.getRow(r);
+				rowData = getRowBasedonPKFromEntireColumnArray(columndata);
+				rowsByPK.putIfAbsent(PKHashKey.create(rowData.getPK()), rowData);
+			}
+			//reorder based on pk in mem,cannot do related sort icw SELECT_IN
 			for (int k = row; k < maxRow; k++)
 			{
-				String pkHash = createPKHashKey(pks.getRow(k));
-				//reorder based on pk in mem,cannot do related sort icw SELECT_IN
-				for (int r = 0; r < formdata.getRowCount(); r++)
+				rowData = rowsByPK.get(PKHashKey.create(pks.getRow(k)));
+				if (rowData != null)
 				{
-					Object[] columndata = formdata.getRow(r);
-					rowData = getRowBasedonPKFromEntireColumnArray(columndata);
-					if (pkHash.equals(createPKHashKey(rowData.getPK())))
-					{
-						retval.set(k - row, rowData);
-						break;
-					}
+					retval.set(k - row, rowData);
 				}
 			}
 			if (retval.size() < maxRow - row)
@@ -691,12 +719,143 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		return retval;
 	}
 
-	void fireNotifyChange(IRowListener skip, Row r, String pkHashKey, Object[] changedColumns, int eventType)
+	/**
+	 * Create the query for loading the rows of the pks that are not cached yet, used for reading ahead in a background thread.
+	 * Must be called in the client thread, the query and table filters are created from the client state.
+	 *
+	 * @return the query or null when all rows are cached.
+	 */
+	PrefetchQuery createPrefetchQuery(List<Object[]> pks)
+	{
+		long generation;
+		List<Object[]> toLoad;
+		synchronized (this)
+		{
+			generation = changeGeneration.get();
+			toLoad = pks.stream()
+				.filter(pk -> pk != null && stream(pk).noneMatch(DbIdentValue.class::isInstance) && !isCached(PKHashKey.create(pk)))
+				.collect(toList());
+		}
+		if (toLoad.isEmpty())
+		{
+			return null;
+		}
+
+		int ncols = toLoad.get(0).length;
+		Object[][] values = new Object[ncols][toLoad.size()];
+		for (int i = 0; i < toLoad.size(); i++)
+		{
+			Object[] pk = toLoad.get(i);
+			if (pk.length != ncols)
+			{
+				throw new RuntimeException("Inconsistent PK set width"); //$NON-NLS-1$
+			}
+			for (int c = 0; c < ncols; c++)
+			{
+				values[c][i] = pk[c];
+			}
+		}
+
+		QuerySelect select = deepClone((QuerySelect)sheet.getSQL(SQLSheet.SELECT));
+		if (!select.setPlaceholderValue(new TablePlaceholderKey(select.getTable(), SQLGenerator.PLACEHOLDER_PRIMARY_KEY), values))
+		{
+			return null;
+		}
+		return new PrefetchQuery(select, fsm.getTableFilterParams(sheet.getServerName(), select), generation);
+	}
+
+	/**
+	 * Perform a query created with {@link #createPrefetchQuery(List)}, can be called from a background thread.
+	 */
+	IDataSet performPrefetchQuery(PrefetchQuery query, int maxRows) throws ServoyException
+	{
+		try
+		{
+			return fsm.getDataServer()
+				.performQuery(fsm.getApplication().getClientID(), sheet.getServerName(), null, query.select, null /* use types as reported by the db */,
+					query.filters, false, 0, maxRows, IDataServer.FOUNDSET_LOAD_QUERY, null);
+		}
+		catch (RemoteException e)
+		{
+			throw new RepositoryException(e);
+		}
+	}
+
+	/**
+	 * Install the rows that were read ahead in the cache, row notifies are fired in the event thread.
+	 * <p>
+	 * Nothing is installed when rows were changed, deleted or flushed since the query was created, the prefetched data may be outdated then.
+	 *
+	 * @return the rows, the caller has to keep them referenced until they are used, or null when the prefetched rows were not installed.
+	 */
+	List<Row> installPrefetchedRows(PrefetchQuery query, IDataSet formdata)
+	{
+		List<PKHashKey> fireCalcs = new ArrayList<>();
+		List<Row> rows = new ArrayList<>(formdata.getRowCount());
+		int[] pkpos = sheet.getPKIndexes();
+		synchronized (this)
+		{
+			// checked while locked, changeByOther increases the generation before it looks for the row in the cache
+			if (changeGeneration.get() != query.changeGeneration)
+			{
+				return null;
+			}
+			for (int r = 0; r < formdata.getRowCount(); r++)
+			{
+				Object[] columndata = formdata.getRow(r);
+				Object[] pk = new Object[pkpos.length];
+				for (int i = 0; i < pkpos.length; i++)
+				{
+					pk[i] = columndata[pkpos[i]];
+				}
+				PKHashKey pkHashKey = PKHashKey.create(pk);
+				Pair<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> cachedRow = getCachedRow(pkHashKey);
+				Row row = cachedRow.getLeft();
+				if (row == null)
+				{
+					row = putExistInDBRow(columndata, cachedRow.getRight());
+					if (cachedRow.getRight() != null)
+					{
+						fireCalcs.add(pkHashKey);
+					}
+				}
+				rows.add(row);
+			}
+		}
+
+		// fire depending calcs outside the lock, they may lock other row managers
+		List<RowFireNotifyChange> fires = new ArrayList<>();
+		fireCalcs.forEach(pkHashKey -> fireDependingCalcs(pkHashKey, null, fires));
+		if (!fires.isEmpty())
+		{
+			Utils.invokeLater(fsm.getApplication(), Collections.<Runnable> singletonList(() -> fireRowNotifyChanges(fires)));
+		}
+		return rows;
+	}
+
+	/**
+	 * Query for reading rows ahead, created with {@link RowManager#createPrefetchQuery(List)}.
+	 */
+	static final class PrefetchQuery
+	{
+		private final QuerySelect select;
+		private final ArrayList<TableFilter> filters;
+		private final long changeGeneration;
+
+		private PrefetchQuery(QuerySelect select, ArrayList<TableFilter> filters, long changeGeneration)
+		{
+			this.select = select;
+			this.filters = filters;
+			this.changeGeneration = changeGeneration;
+		}
+	}
+
+	void fireNotifyChange(IRowListener skip, Row r, PKHashKey pkHashKey, Object[] changedColumns, int eventType)
 	{
 		fireNotifyChange(skip, r, pkHashKey, changedColumns, eventType, false, false);
 	}
 
-	void fireNotifyChange(IRowListener skip, Row row, String pkHashKey, Object[] changedColumns, int eventType, boolean isAggregateChange, boolean skipFSM)
+	void fireNotifyChange(IRowListener skip, Row row, PKHashKey pkHashKey, Object[] changedColumns, int eventType, boolean isAggregateChange, boolean skipFSM)
 	{
 		List<IRowListener> toNotify = new ArrayList<>();
 		if (eventType == RowEvent.INSERT && fsm.config.optimizedNotifyChange())
@@ -709,8 +868,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				if (!columns.isEmpty())
 				{
 					Object[] eqArgs = columns.stream().map(column -> row.getValue(column.getDataProviderID())).toArray();
-					String eqHash = RowManager.createPKHashKey(eqArgs);
-					toNotify.addAll(entry.getValue().get(eqHash));
+					toNotify.addAll(entry.getValue().get(PKHashKey.create(eqArgs)));
 				}
 			});
 		}
@@ -750,7 +908,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				throw new IllegalArgumentException("I'm not the row manager from row"); //$NON-NLS-1$
 			}
 
-			if (adjustingForChangeByOtherPKHashKey.get() != null && adjustingForChangeByOtherPKHashKey.get().equals(row.getPKHashKey()))
+			if (adjustingForChangeByOtherPKHashKey.get() != null && adjustingForChangeByOtherPKHashKey.get().equals(row.getPKKey()))
 			{
 				row.flagExistInDB();
 				//we ignore changes here because stored calc with time element are always changed,resulting in endlessloop between clients
@@ -976,12 +1134,13 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 	}
 
-	void rowUpdated(final Row row, final String oldKeyHash, final IRowListener src, List<Runnable> runnables, String[] changedColumnNames)
+	void rowUpdated(final Row row, final PKHashKey oldKeyHash, final IRowListener src, List<Runnable> runnables, String[] changedColumnNames)
 	{
+		changeGeneration.incrementAndGet();
 		final boolean doesExistInDB = row.existInDB();
 		row.flagExistInDB();//always needed flushes stuff
 
-		String newKeyHash = row.recalcPKHashKey();
+		PKHashKey newKeyHash = row.recalcPKHashKey();
 		if (!oldKeyHash.equals(newKeyHash))
 		{
 			// fire pk updated to IRowListeners
@@ -989,7 +1148,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 			{
 				public void run()
 				{
-					firePKUpdated(row, oldKeyHash);
+					firePKUpdated(row, oldKeyHash.toString());
 				}
 			});
 		}
@@ -1043,7 +1202,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		{
 			public void run()
 			{
-				fireNotifyChange(src, row, row.getPKHashKey(), changedColumnNames, doesExistInDB ? RowEvent.UPDATE : RowEvent.INSERT, false, true);
+				fireNotifyChange(src, row, row.getPKKey(), changedColumnNames, doesExistInDB ? RowEvent.UPDATE : RowEvent.INSERT, false, true);
 			}
 		});
 
@@ -1057,7 +1216,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		fireDependingCalcsForPKUpdate(row, oldKeyHash, runnables);
 	}
 
-	void fireDependingCalcsForPKUpdate(Row row, String oldKeyHash)
+	void fireDependingCalcsForPKUpdate(Row row, PKHashKey oldKeyHash)
 	{
 		List<Runnable> runnables = new ArrayList<Runnable>(1);
 		fireDependingCalcsForPKUpdate(row, oldKeyHash, runnables);
@@ -1073,15 +1232,14 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param oldKeyHash pkhash
 	 * @param runnables
 	 */
-	synchronized void fireDependingCalcsForPKUpdate(final Row row, final String oldKeyHash, List<Runnable> runnables)
+	synchronized void fireDependingCalcsForPKUpdate(final Row row, final PKHashKey oldKeyHash, List<Runnable> runnables)
 	{
 		// do recalcPKHashKey incase its called before and pk did not yet exist
-		String newKeyHash = row.recalcPKHashKey();
+		PKHashKey newKeyHash = row.recalcPKHashKey();
 		if (!oldKeyHash.equals(newKeyHash))
 		{
-			final SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> srOld = pkRowMap.get(oldKeyHash);
-			pkRowMap.put(newKeyHash,
-				new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));// (over)write new
+			final CachedRowReference srOld = pkRowMap.get(oldKeyHash);
+			putRow(newKeyHash, row);// (over)write new
 			if (srOld != null)
 			{
 				// run fires later
@@ -1091,7 +1249,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 					{
 						// calcs depending on old pk are invalid
 						fireDependingCalcs(srOld, null, null);
-						pkRowMap.remove(oldKeyHash);//remove old
+						removeRow(oldKeyHash);//remove old
 					}
 				});
 			}
@@ -1100,8 +1258,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		{
 			if (!pkRowMap.containsKey(newKeyHash))
 			{
-				pkRowMap.put(newKeyHash,
-					new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));
+				putRow(newKeyHash, row);
 				clearAndCheckCache();
 			}
 		}
@@ -1109,41 +1266,124 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 
 	void pkUpdated(Row row)
 	{
-		String newKeyHash = row.recalcPKHashKey();
+		PKHashKey newKeyHash = row.recalcPKHashKey();
 		if (!pkRowMap.containsKey(newKeyHash))
 		{
-			pkRowMap.put(newKeyHash,
-				new SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>(row, referenceQueue));
+			putRow(newKeyHash, row);
 			clearAndCheckCache();
 		}
 	}
 
 	void clearAndCheckCache()
 	{
-		if (referenceQueue.poll() != null)
+		Reference< ? extends Row> ref = referenceQueue.poll();
+		if (ref != null)
 		{
-			// quicly clear the whole queue, so that it is empty for the next time.
-			while (referenceQueue.poll() != null)
+			synchronized (clearedRowsWithData)
 			{
-			}
+				// only remove the entries of the rows that were garbage collected, the reference knows its key
+				while (ref != null)
+				{
+					PKHashKey key = ((CachedRowReference)ref).getKey();
+					if (pkRowMap.get(key) == ref)
+					{
+						clearedRowsWithData.add(key);
+					}
+					ref = referenceQueue.poll();
+				}
 
-			// test the hashmap for empty  Softreferences
-			Iterator<Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>> it = pkRowMap
-				.entrySet()
-				.iterator();
-			while (it.hasNext())
-			{
-				Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry = it.next();
-				SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> value = entry.getValue();
-				if (value == null || (value.get() == null && canRemove(value)))
+				Iterator<PKHashKey> it = clearedRowsWithData.iterator();
+				while (it.hasNext())
 				{
-					removeRowReferences(entry.getKey(), null);
-					it.remove();
+					PKHashKey key = it.next();
+					CachedRowReference value = pkRowMap.get(key);
+					if (value == null || value.get() != null)
+					{
+						// removed or replaced
+						it.remove();
+					}
+					else if (canRemove(value))
+					{
+						removeRowReferences(key, null);
+						pkRowMap.remove(key);
+						if (calcDependencyGraph != null) calcDependencyGraph.rowRemoved(key);
+						it.remove();
+					}
+					// else keep the calculation dependencies, test again next time
 				}
 			}
 		}
 	}
 
+	/**
+	 * Add the row to the cache.
+	 */
+	private CachedRowReference putRow(PKHashKey key, Row row)
+	{
+		CachedRowReference ref = recentRows == null ? new SoftCachedRowReference(key, row, referenceQueue)
+			: new WeakCachedRowReference(key, row, referenceQueue);
+		pkRowMap.put(key, ref);
+		if (recentRows != null) recentRows.put(key, row);
+		if (calcDependencyGraph != null) calcDependencyGraph.rowAdded(key, row.getCalcsUptodate());
+		return ref;
+	}
+
+	private CachedRowReference removeRow(PKHashKey key)
+	{
+		if (recentRows != null) recentRows.remove(key);
+		if (calcDependencyGraph != null) calcDependencyGraph.rowRemoved(key);
+		return pkRowMap.remove(key);
+	}
+
+	/**
+	 * The calculation of the row was calculated, called from the row.
+	 */
+	void calcUptodate(Row row, String calc)
+	{
+		if (calcDependencyGraph != null) calcDependencyGraph.calcUptodate(row.getPKKey(), calc);
+	}
+
+	/**
+	 * Called when the recent rows cache is full, return true when the row can be dropped from the recent rows (it will stay in the cache as long as it is referenced).
+	 * Rows that have calculations of other rows depending on it are kept.
+	 */
+	private boolean canEvict(PKHashKey key)
+	{
+		CachedRowReference sr = pkRowMap.get(key);
+		Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data = sr == null ? null : sr.getData();
+		return data == null || data.getLeft() == null || data.getLeft().isEmpty();
+	}
+
+	public long getCacheHitCount()
+	{
+		return cacheHits.get();
+	}
+
+	public long getCacheMissCount()
+	{
+		return cacheMisses.get();
+	}
+
+	public long getCacheEvictionCount()
+	{
+		return cacheEvictions.get();
+	}
+
+	public static long getTotalCacheHitCount()
+	{
+		return totalCacheHits.get();
+	}
+
+	public static long getTotalCacheMissCount()
+	{
+		return totalCacheMisses.get();
+	}
+
+	public static long getTotalCacheEvictionCount()
+	{
+		return totalCacheEvictions.get();
+	}
+
 	int getRowCount()
 	{
 		return pkRowMap.size();
@@ -1163,6 +1403,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	{
 		if (r.getRowManager() != this) throw new IllegalArgumentException("I'm not the row manager from row"); //$NON-NLS-1$
 
+		changeGeneration.incrementAndGet();
 		r.flagExistInDB();//prevent it processed by any update, changed is false now
 		if (!partOfBiggerDelete)
 		{
@@ -1211,10 +1452,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				throw new RepositoryException(e);
 			}
 
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> removed;
+			CachedRowReference removed;
 			synchronized (this)
 			{
-				removed = pkRowMap.remove(r.getPKHashKey());
+				removed = removeRow(r.getPKKey());
 			}
 			fireDependingCalcs(removed, null, null);
 		}
@@ -1222,10 +1463,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		{
 			synchronized (this)
 			{
-				pkRowMap.remove(r.getPKHashKey());
+				removeRow(r.getPKKey());
 			}
 		}
-		fireNotifyChange(src, r, r.getPKHashKey(), null, RowEvent.DELETE);
+		fireNotifyChange(src, r, r.getPKKey(), null, RowEvent.DELETE);
 	}
 
 	void clearRow(Row r)
@@ -1234,7 +1475,8 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		{
 			synchronized (this)
 			{
-				pkRowMap.remove(r.getPKHashKey());
+				changeGeneration.incrementAndGet();
+				removeRow(r.getPKKey());
 			}
 		}
 	}
@@ -1276,7 +1518,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 					if (!Utils.equalObjects(data, currentData))
 					{
 						rowData.setRollbackData(data, Row.ROLLBACK_MODE.UPDATE_CHANGES);
-						fireNotifyChange(null, rowData, rowData.getPKHashKey(), null, RowEvent.UPDATE);
+						fireNotifyChange(null, rowData, rowData.getPKKey(), null, RowEvent.UPDATE);
 					}
 				}
 				return true;
@@ -1328,25 +1570,32 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 */
 	synchronized void flushAllCachedRows()
 	{
+		changeGeneration.incrementAndGet();
 		//expensive but safe
 		@SuppressWarnings("unchecked")
-		Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>[] array = pkRowMap.entrySet()
+		Entry<PKHashKey, CachedRowReference>[] array = pkRowMap.entrySet()
 			.toArray(
 				new Entry[pkRowMap.size()]);
-		for (Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry : array)
+		for (Entry<PKHashKey, CachedRowReference> entry : array)
 		{
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> ref = entry.getValue();
+			CachedRowReference ref = entry.getValue();
 			Row row = ref.get();
 			if (row == null || !row.isChanged())
 			{
 				if (canRemove(ref))
 				{
 					removeRowReferences(entry.getKey(), null);
-					pkRowMap.remove(entry.getKey());
+					removeRow(entry.getKey());
 				}
 				else
 				{
+					if (recentRows != null) recentRows.remove(entry.getKey());
 					ref.clear();
+					// a cleared reference is not enqueued, test it again in clearAndCheckCache
+					synchronized (clearedRowsWithData)
+					{
+						clearedRowsWithData.add(entry.getKey());
+					}
 				}
 			}
 		}
@@ -1480,42 +1729,40 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 					String whereArgsHash = ((RelatedFoundSet)sourceFoundset).getWhereArgsHash();
 					List<CalculationDependency> calculationDependencies = new ArrayList<CalculationDependency>();
 
-					for (Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry : pkRowMap
-						.entrySet())
+					if (calcDependencyGraph != null)
 					{
-						String pkHash = entry.getKey();
-						SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = entry.getValue();
-						synchronized (sr)
+						// only check the rows that registered a dependency on this related foundset
+						for (Entry<String, List<PKHashKey>> entry : calcDependencyGraph.getRelationDependents(relationName, whereArgsHash).entrySet())
 						{
-							Row row = sr.get();
-							if (row != null)
+							String calc = entry.getKey();
+							if (calcs.contains(calc))
 							{
-								Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data = sr.getData();
-								if (data != null)
+								for (PKHashKey pkHash : entry.getValue())
 								{
-									CalculationDependencyData calcRowrefs = data.getRight();
-									if (calcRowrefs != null)
+									CachedRowReference sr = pkRowMap.get(pkHash);
+									if (sr != null && hasRelationDependency(sr, calc, relationName, whereArgsHash))
 									{
-										for (String calc : calcs)
-										{
-											List<RelationDependency> deps = calcRowrefs.getRelationDependencies(calc);
-											if (deps != null)
-											{
-												for (RelationDependency dep : deps)
-												{
-													if (relationName.equals(dep.relationName) && whereArgsHash.equals(dep.whereArgsHash))
-													{
-														// the calc depends on this related foundset
-														calculationDependencies.add(new CalculationDependency(sheet.getTable().getDataSource(), pkHash, calc));
-													}
-												}
-											}
-										}
+										calculationDependencies.add(new CalculationDependency(sheet.getTable().getDataSource(), pkHash, calc));
 									}
 								}
 							}
 						}
 					}
+					else
+					{
+						for (Entry<PKHashKey, CachedRowReference> entry : pkRowMap
+							.entrySet())
+						{
+							for (String calc : calcs)
+							{
+								if (hasRelationDependency(entry.getValue(), calc, relationName, whereArgsHash))
+								{
+									// the calc depends on this related foundset
+									calculationDependencies.add(new CalculationDependency(sheet.getTable().getDataSource(), entry.getKey(), calc));
+								}
+							}
+						}
+					}
 
 					if (calculationDependencies.size() > 0)
 					{
@@ -1540,6 +1787,40 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 	}
 
+	/**
+	 * Was the calc of the cached row calculated using the related foundset.
+	 */
+	private static boolean hasRelationDependency(CachedRowReference sr, String calc, String relationName, String whereArgsHash)
+	{
+		synchronized (sr)
+		{
+			Row row = sr.get();
+			if (row != null)
+			{
+				Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data = sr.getData();
+				if (data != null)
+				{
+					CalculationDependencyData calcRowrefs = data.getRight();
+					if (calcRowrefs != null)
+					{
+						List<RelationDependency> deps = calcRowrefs.getRelationDependencies(calc);
+						if (deps != null)
+						{
+							for (RelationDependency dep : deps)
+							{
+								if (relationName.equals(dep.relationName) && whereArgsHash.equals(dep.whereArgsHash))
+								{
+									return true;
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * @param calcs
 	 */
@@ -1599,17 +1880,26 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	private synchronized boolean clearCalc(String dp, List<RowFireNotifyChange> fires)
 	{
 		boolean changed = false;
-		Iterator<Map.Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>>> it = pkRowMap
+		if (calcDependencyGraph != null)
+		{
+			// only the rows with the calc up to date have to be flagged
+			for (PKHashKey pkHashKey : calcDependencyGraph.getRowsWithCalcUptodate(dp))
+			{
+				if (fireCalculationFlagged(pkHashKey, dp, fires)) changed = true;
+			}
+			return changed;
+		}
+		Iterator<Map.Entry<PKHashKey, CachedRowReference>> it = pkRowMap
 			.entrySet()
 			.iterator();
 		while (it.hasNext())
 		{
-			Entry<String, SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>> entry = it.next();
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = entry.getValue();
+			Entry<PKHashKey, CachedRowReference> entry = it.next();
+			CachedRowReference sr = entry.getValue();
 			Row row = sr.get();
 			if (row != null)
 			{
-				if (fireCalculationFlagged(row.getPKHashKey(), dp, fires) && !changed) changed = true;
+				if (fireCalculationFlagged(row.getPKKey(), dp, fires) && !changed) changed = true;
 			}
 			else if (canRemove(sr))
 			{
@@ -1620,9 +1910,9 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		return changed;
 	}
 
-	public void flagAllRowCalcsForRecalculation(String pkHashKey)
+	public void flagAllRowCalcsForRecalculation(PKHashKey pkHashKey)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		CachedRowReference sr = pkRowMap.get(pkHashKey);
 		if (sr != null)
 		{
 			List<String> calcsUptodate = null;
@@ -1638,11 +1928,11 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 	}
 
-	public void flagRowCalcsForRecalculation(String pkHashKey, List<String> calcs)
+	public void flagRowCalcsForRecalculation(PKHashKey pkHashKey, List<String> calcs)
 	{
 		if (calcs != null && calcs.size() > 0)
 		{
-			SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+			CachedRowReference sr = pkRowMap.get(pkHashKey);
 			if (sr != null)
 			{
 				List<RowFireNotifyChange> myFires = new ArrayList<RowFireNotifyChange>();
@@ -1655,14 +1945,15 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 	}
 
-	public boolean flagRowCalcForRecalculation(String pkHashKey, String calc)
+	public boolean flagRowCalcForRecalculation(PKHashKey pkHashKey, String calc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		CachedRowReference sr = pkRowMap.get(pkHashKey);
 		if (sr != null)
 		{
 			Row row = sr.get();
 			if (row != null && row.internalFlagCalcForRecalculation(calc))
 			{
+				if (calcDependencyGraph != null) calcDependencyGraph.calcFlagged(pkHashKey, calc);
 				// check the calculation dependencies registered for the calc
 				removeRowReferences(pkHashKey, calc);
 				return true;
@@ -1676,9 +1967,9 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param pkHashKey
 	 * @param calc, null for all
 	 */
-	public void removeRowReferences(String pkHashKey, String calc)
+	public void removeRowReferences(PKHashKey pkHashKey, String calc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		CachedRowReference sr = pkRowMap.get(pkHashKey);
 		if (sr != null)
 		{
 			CalculationDependencyData rowRefs = null;
@@ -1737,11 +2028,11 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		deleteSet = null;
 	}
 
-	public boolean addRowToDeleteSet(String pkHashKey)
+	public boolean addRowToDeleteSet(PKHashKey pkHashKey)
 	{
 		if (deleteSet == null)
 		{
-			deleteSet = new HashSet<String>();
+			deleteSet = new HashSet<PKHashKey>();
 		}
 		return deleteSet.add(pkHashKey);
 	}
@@ -1828,7 +2119,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 	}
 
-	private boolean canRemove(SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr)
+	private boolean canRemove(CachedRowReference sr)
 	{
 		if (sr != null)
 		{
@@ -1887,7 +2178,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param pkHashKey
 	 * @param dataProviderId, null for all
 	 */
-	public void fireDependingCalcs(String pkHashKey, String dataProviderId, List<RowFireNotifyChange> fires)
+	public void fireDependingCalcs(PKHashKey pkHashKey, String dataProviderId, List<RowFireNotifyChange> fires)
 	{
 		fireDependingCalcs(pkRowMap.get(pkHashKey), dataProviderId, fires);
 	}
@@ -1898,7 +2189,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param pkHashKey
 	 * @param dataProviderId, null for all
 	 */
-	protected void fireDependingCalcs(SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr,
+	protected void fireDependingCalcs(CachedRowReference sr,
 		String dataProviderId, List<RowFireNotifyChange> fires)
 	{
 		List<CalculationDependency> deps = null;
@@ -1972,7 +2263,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param fires
 	 * @return
 	 */
-	private boolean fireCalculationFlagged(String pkHashKey, String calc, List<RowFireNotifyChange> fires)
+	private boolean fireCalculationFlagged(PKHashKey pkHashKey, String calc, List<RowFireNotifyChange> fires)
 	{
 		if (flagRowCalcForRecalculation(pkHashKey, calc))
 		{
@@ -1988,7 +2279,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				{
 					myFires = fires;
 				}
-				row.getRowManager().fireDependingCalcs(row.getPKHashKey(), calc, myFires);
+				row.getRowManager().fireDependingCalcs(row.getPKKey(), calc, myFires);
 				myFires.add(new RowFireNotifyChange(row, null, calc, null));
 
 				if (fires == null)
@@ -2011,9 +2302,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param dependingPkHashKey
 	 * @param dependingCalc
 	 */
-	public void addCalculationDependency(String pkHashKey, String dataproviderId, String dependingDataSource, String dependingPkHashKey, String dependingCalc)
+	public void addCalculationDependency(PKHashKey pkHashKey, String dataproviderId, String dependingDataSource, PKHashKey dependingPkHashKey,
+		String dependingCalc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		CachedRowReference sr = pkRowMap.get(pkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
@@ -2061,10 +2353,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param dependingPkHashKey
 	 * @param dependingCalc
 	 */
-	public void removeCalculationDependency(String pkHashKey, String dataproviderId, String dependingDataSource, String dependingPkHashKey,
+	public void removeCalculationDependency(PKHashKey pkHashKey, String dataproviderId, String dependingDataSource, PKHashKey dependingPkHashKey,
 		String dependingCalc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		CachedRowReference sr = pkRowMap.get(pkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
@@ -2108,9 +2400,9 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param pkHashKey
 	 * @param calc
 	 */
-	private void addCalculationDependencyBackReference(RowReference rowReference, String pkHashKey, String calc)
+	private void addCalculationDependencyBackReference(RowReference rowReference, PKHashKey pkHashKey, String calc)
 	{
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(pkHashKey);
+		CachedRowReference sr = pkRowMap.get(pkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
@@ -2140,7 +2432,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	 * @param dependingPkHashKey
 	 * @param dependingCalc
 	 */
-	public void addCalculationRelationDependency(String whereArgsHash, String relationName, String dependingDataSource, String dependingPkHashKey,
+	public void addCalculationRelationDependency(String whereArgsHash, String relationName, String dependingDataSource, PKHashKey dependingPkHashKey,
 		String dependingCalc)
 	{
 		// keep a global list of relations that some calcs depend on
@@ -2158,7 +2450,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 
 		// add a relation dependency for the calc
-		SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>> sr = pkRowMap.get(dependingPkHashKey);
+		CachedRowReference sr = pkRowMap.get(dependingPkHashKey);
 		if (sr != null)
 		{
 			synchronized (sr)
@@ -2177,6 +2469,7 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 				}
 				rowRefs.addRelationDependency(dependingCalc, new RelationDependency(relationName, whereArgsHash));
 			}
+			if (calcDependencyGraph != null) calcDependencyGraph.addRelationDependency(relationName, whereArgsHash, dependingPkHashKey, dependingCalc);
 		}
 
 		if (first)
@@ -2198,10 +2491,10 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	public static class CalculationDependency
 	{
 		public final String dataSource;
-		public final String pkHashKey;
+		public final PKHashKey pkHashKey;
 		public final String calc;
 
-		public CalculationDependency(String dataSource, String pkHashKey, String calc)
+		public CalculationDependency(String dataSource, PKHashKey pkHashKey, String calc)
 		{
 			this.dataSource = dataSource;
 			this.pkHashKey = pkHashKey;
@@ -2277,9 +2570,9 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 	{
 		public final String dataSource;
 		public final String dataproviderId;
-		public final String pkHashKey;
+		public final PKHashKey pkHashKey;
 
-		public RowReference(String dataSource, String dataproviderId, String pkHashKey)
+		public RowReference(String dataSource, String dataproviderId, PKHashKey pkHashKey)
 		{
 			this.dataSource = dataSource;
 			this.dataproviderId = dataproviderId;
@@ -2447,6 +2740,69 @@ public class RowManager implements IModificationListener, IFoundSetEventListener
 		}
 	}
 
+	/**
+	 * Reference to a cached row with the calculation dependency data of the row, the data is kept when the row itself is garbage collected.
+	 */
+	private interface CachedRowReference
+	{
+		PKHashKey getKey();
+
+		Row get();
+
+		void clear();
+
+		Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> getData();
+
+		void setData(Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data);
+	}
+
+	private static class SoftCachedRowReference extends SoftReferenceWithData<Row, Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData>>
+		implements CachedRowReference
+	{
+		private final PKHashKey key;
+
+		SoftCachedRowReference(PKHashKey key, Row row, ReferenceQueue<Row> queue)
+		{
+			super(row, queue);
+			this.key = key;
+		}
+
+		public PKHashKey getKey()
+		{
+			return key;
+		}
+	}
+
+	/**
+	 * Used when the row cache is bounded, the recent rows keep the rows that are not used anymore reachable.
+	 */
+	private static class WeakCachedRowReference extends WeakReference<Row> implements CachedRowReference
+	{
+		private final PKHashKey key;
+		private Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data;
+
+		WeakCachedRowReference(PKHashKey key, Row row, ReferenceQueue<Row> queue)
+		{
+			super(row, queue);
+			this.key = key;
+		}
+
+		public PKHashKey getKey()
+		{
+			return key;
+		}
+
+		public Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> getData()
+		{
+			return data;
+		}
+
+		public void setData(Pair<Map<String, List<CalculationDependency>>, CalculationDependencyData> data)
+		{
+			this.data = data;
+		}
+	}
+
 	private class FSMTableNotifier implements Runnable
 	{
 
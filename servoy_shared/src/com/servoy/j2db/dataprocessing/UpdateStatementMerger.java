@@ -0,0 +1,301 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.servoy.base.query.IBaseSQLCondition;
+import com.servoy.j2db.dataprocessing.ValueFactory.DbIdentValue;
+import com.servoy.j2db.dataprocessing.ValueFactory.NullValue;
+import com.servoy.j2db.persistence.RepositoryException;
+import com.servoy.j2db.query.AbstractBaseQuery;
+import com.servoy.j2db.query.AndCondition;
+import com.servoy.j2db.query.IQuerySelectValue;
+import com.servoy.j2db.query.ISQLCondition;
+import com.servoy.j2db.query.Placeholder;
+import com.servoy.j2db.query.QueryColumnValue;
+import com.servoy.j2db.query.QuerySearchedCaseExpression;
+import com.servoy.j2db.query.QueryUpdate;
+import com.servoy.j2db.query.QueryWhenClause;
+import com.servoy.j2db.query.SetCondition;
+import com.servoy.j2db.query.TablePlaceholderKey;
+
+/**
+ * Merges update statements of the same columns into one update statement for all their pks (used with servoy.foundset.statementBatching).
+ * A column that is set to the same value in all statements keeps that value, a column with different values per row (like edits in a grid)
+ * is set with a case expression on the pk that holds the values of all rows as parameters.
+ * <p>
+ * The data server returns one result per performed statement, except for (merged) insert statements that give one result per pk row.
+ * So a merged update statement has one result for all its rows, {@link #getResultsPerRow(ISQLStatement[], List, Object[], int)} maps the results back to the rows.
+ * Updates are only merged within a transaction: when the merged update fails, all its rows fail and the transaction has to be rolled back,
+ * without a transaction the rows that were updated could not be told apart from the ones that were not.
+ *
+ * @since 2024.3
+ */
+public final class UpdateStatementMerger
+{
+	private UpdateStatementMerger()
+	{
+	}
+
+	/**
+	 * Check if these 2 update statements can be merged into one update statement for the pks of both.
+	 * This is only possible in a transaction when the same columns are updated. Statements with db ident values are not merged,
+	 * neither are statements that set a column to different null, blob or expression values.
+	 */
+	public static boolean canBeMerged(ISQLStatement statement1, ISQLStatement statement2)
+	{
+		if (!(statement1 instanceof SQLStatement) || !(statement2 instanceof SQLStatement) || !(statement1.getUpdate() instanceof QueryUpdate) ||
+			!(statement2.getUpdate() instanceof QueryUpdate))
+		{
+			return false;
+		}
+		SQLStatement sqlStatement1 = (SQLStatement)statement1;
+		SQLStatement sqlStatement2 = (SQLStatement)statement2;
+
+		// table, transaction and filters
+		if (statement1.getTransactionID() == null || !statement1.getServerName().equals(statement2.getServerName()) || !statement1.getTableName().equals(statement2.getTableName()) ||
+			!Objects.equals(statement1.getTransactionID(), statement2.getTransactionID()) ||
+			!Objects.equals(sqlStatement1.getFilters(), sqlStatement2.getFilters()))
+		{
+			return false;
+		}
+
+		// requery, tracking, lobs and identity columns are handled per row
+		if (statement1.getRequerySelect() != null || statement2.getRequerySelect() != null || sqlStatement1.isTracking() || sqlStatement2.isTracking() ||
+			statement1.isOracleFixTrackingData() || statement2.isOracleFixTrackingData() || statement1.getIdentityColumn() != null ||
+			statement2.getIdentityColumn() != null || statement1.getDataType() != statement2.getDataType())
+		{
+			return false;
+		}
+
+		// one pk per statement, checked for 1 updated row
+		if (statement1.getPKs() == null || statement2.getPKs() == null || statement1.getPKs().getRowCount() != 1 || statement2.getPKs().getRowCount() != 1 ||
+			sqlStatement1.getExpectedUpdateCount() != 1 || sqlStatement2.getExpectedUpdateCount() != 1 || hasDbIdentValue(statement1.getPKs().getRow(0)) ||
+			hasDbIdentValue(statement2.getPKs().getRow(0)))
+		{
+			return false;
+		}
+
+		// the same columns, different values are only allowed when they can be parameters of a case expression
+		QueryUpdate update1 = (QueryUpdate)statement1.getUpdate();
+		QueryUpdate update2 = (QueryUpdate)statement2.getUpdate();
+		if (!update1.getColumns().equals(update2.getColumns()) || update1.getValues().size() != update2.getValues().size())
+		{
+			return false;
+		}
+		for (int i = 0; i < update1.getValues().size(); i++)
+		{
+			Object value1 = update1.getValues().get(i);
+			Object value2 = update2.getValues().get(i);
+			if (value1 instanceof DbIdentValue || value2 instanceof DbIdentValue)
+			{
+				return false;
+			}
+			if (!sameValue(value1, value2) && !(isCaseParameter(value1) && isCaseParameter(value2)))
+			{
+				return false;
+			}
+		}
+
+		return update1.getPlaceholder(new TablePlaceholderKey(update1.getTable(), SQLGenerator.PLACEHOLDER_PRIMARY_KEY)) != null &&
+			update2.getPlaceholder(new TablePlaceholderKey(update2.getTable(), SQLGenerator.PLACEHOLDER_PRIMARY_KEY)) != null;
+	}
+
+	/**
+	 * Different values are set as parameter in a case expression, null values (typed for the update) and blobs are not.
+	 */
+	private static boolean isCaseParameter(Object value)
+	{
+		return value != null && !(value instanceof NullValue) && !(value instanceof byte[]) && !(value instanceof IQuerySelectValue);
+	}
+
+	private static boolean sameValue(Object value1, Object value2)
+	{
+		if (value1 instanceof NullValue && value2 instanceof NullValue)
+		{
+			return ((NullValue)value1).getType() == ((NullValue)value2).getType();
+		}
+		return Objects.deepEquals(value1, value2);
+	}
+
+	private static boolean hasDbIdentValue(Object[] values)
+	{
+		for (Object value : values)
+		{
+			if (value instanceof DbIdentValue) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Create one update statement for the pks of all the statements, the statements themselves are not changed.
+	 */
+	public static ISQLStatement merge(List<ISQLStatement> updateStatements)
+	{
+		SQLStatement first = (SQLStatement)updateStatements.get(0);
+		int pkColumns = first.getPKs().getColumnCount();
+		IDataSet pks = new BufferedDataSet();
+		Object[][] pkValues = new Object[pkColumns][updateStatements.size()];
+		for (int row = 0; row < updateStatements.size(); row++)
+		{
+			Object[] pk = updateStatements.get(row).getPKs().getRow(0);
+			pks.addRow(pk);
+			for (int c = 0; c < pkColumns; c++)
+			{
+				pkValues[c][row] = pk[c];
+			}
+		}
+
+		QueryUpdate update = AbstractBaseQuery.deepClone((QueryUpdate)first.getUpdate());
+		TablePlaceholderKey pkKey = new TablePlaceholderKey(update.getTable(), SQLGenerator.PLACEHOLDER_PRIMARY_KEY);
+		List<Object> values = update.getValues();
+		for (int i = 0; i < values.size(); i++)
+		{
+			if (!sameValueInAll(updateStatements, i))
+			{
+				values.set(i, createCaseOnPK(update, pkKey, updateStatements, i));
+			}
+		}
+		update.setPlaceholderValue(pkKey, pkValues);
+
+		SQLStatement statement = new SQLStatement(ISQLActionTypes.UPDATE_ACTION, first.getServerName(), first.getTableName(), pks, first.getTransactionID(),
+			update, first.getFilters());
+		statement.setExpectedUpdateCount(updateStatements.size()); // check that all rows are updated
+		statement.setChangedColumns(first.getChangedColumns());
+		statement.setDataType(first.getDataType());
+		return statement;
+	}
+
+	private static boolean sameValueInAll(List<ISQLStatement> updateStatements, int valueIndex)
+	{
+		Object value = ((QueryUpdate)updateStatements.get(0).getUpdate()).getValues().get(valueIndex);
+		for (int i = 1; i < updateStatements.size(); i++)
+		{
+			if (!sameValue(value, ((QueryUpdate)updateStatements.get(i).getUpdate()).getValues().get(valueIndex)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Case expression that selects the value of the row by its pk: CASE WHEN pk = ? THEN ? ... ELSE column END.
+	 */
+	private static QuerySearchedCaseExpression createCaseOnPK(QueryUpdate update, TablePlaceholderKey pkKey, List<ISQLStatement> updateStatements,
+		int valueIndex)
+	{
+		IQuerySelectValue[] pkColumns = getPKColumns(update, pkKey);
+		List<QueryWhenClause> whenClauses = new ArrayList<>(updateStatements.size());
+		for (ISQLStatement statement : updateStatements)
+		{
+			Object[] pk = statement.getPKs().getRow(0);
+			Object[][] pkValue = new Object[pk.length][];
+			for (int c = 0; c < pk.length; c++)
+			{
+				pkValue[c] = new Object[] { pk[c] };
+			}
+			whenClauses.add(new QueryWhenClause(new SetCondition(IBaseSQLCondition.EQUALS_OPERATOR, pkColumns, pkValue, true),
+				new QueryColumnValue(((QueryUpdate)statement.getUpdate()).getValues().get(valueIndex), null)));
+		}
+		return new QuerySearchedCaseExpression(whenClauses, update.getColumns().get(valueIndex), null);
+	}
+
+	private static IQuerySelectValue[] getPKColumns(QueryUpdate update, TablePlaceholderKey pkKey)
+	{
+		for (ISQLCondition condition : ((AndCondition)update.getCondition()).getAllConditions())
+		{
+			if (condition instanceof SetCondition && ((SetCondition)condition).getValues() instanceof Placeholder &&
+				pkKey.equals(((Placeholder)((SetCondition)condition).getValues()).getKey()))
+			{
+				return ((SetCondition)condition).getKeys();
+			}
+		}
+		// checked in canBeMerged
+		throw new IllegalStateException("No pk condition in update statement"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Map the results of the performed statements to a result per row.
+	 * <p>
+	 * A merged update statement has one result that is used for all its rows, when that is an exception all its rows failed with that exception;
+	 * the rows are not updated again one by one because without a transaction a part of them may already be updated.
+	 * An insert statement has a result per pk row, other statements have one result.
+	 *
+	 * @param statements the performed statements
+	 * @param mergedUpdates per statement the update statements that were merged into it, null for statements that are not merged updates
+	 * @param results the results of the performed statements
+	 * @param rowCount the number of rows that were saved
+	 *
+	 * @throws RepositoryException when the number of results or rows does not match the statements
+	 */
+	public static Object[] getResultsPerRow(ISQLStatement[] statements, List<ISQLStatement[]> mergedUpdates, Object[] results, int rowCount)
+		throws RepositoryException
+	{
+		int expectedResults = 0;
+		int expectedRows = 0;
+		for (int i = 0; i < statements.length; i++)
+		{
+			ISQLStatement[] merged = mergedUpdates.get(i);
+			int count = getResultCount(statements[i]);
+			expectedResults += merged == null ? count : 1;
+			expectedRows += merged == null ? count : merged.length;
+		}
+		if (results == null || results.length != expectedResults || expectedRows != rowCount)
+		{
+			throw new RepositoryException("Unexpected number of results for batched statements, results: " + //$NON-NLS-1$
+				(results == null ? "null" : Integer.toString(results.length)) + '/' + expectedResults + ", rows: " + expectedRows + '/' + rowCount); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		Object[] rowResults = new Object[rowCount];
+		int r = 0;
+		int row = 0;
+		for (int i = 0; i < statements.length; i++)
+		{
+			ISQLStatement[] merged = mergedUpdates.get(i);
+			if (merged == null)
+			{
+				for (int c = getResultCount(statements[i]); c > 0; c--)
+				{
+					rowResults[row++] = results[r++];
+				}
+			}
+			else
+			{
+				Object result = results[r++];
+				for (int m = 0; m < merged.length; m++)
+				{
+					rowResults[row++] = result;
+				}
+			}
+		}
+		return rowResults;
+	}
+
+	private static int getResultCount(ISQLStatement statement)
+	{
+		if (statement.getAction() == ISQLActionTypes.INSERT_ACTION && statement.getPKs() != null)
+		{
+			return Math.max(1, statement.getPKs().getRowCount());
+		}
+		return 1;
+	}
+}
@@ -0,0 +1,463 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.servoy.base.query.BaseQueryTable;
+import com.servoy.j2db.persistence.RepositoryException;
+import com.servoy.j2db.plugins.IDataNotifyListener;
+import com.servoy.j2db.plugins.IDataNotifyService;
+import com.servoy.j2db.plugins.IServerAccess;
+import com.servoy.j2db.query.AbstractBaseQuery;
+import com.servoy.j2db.query.ColumnType;
+import com.servoy.j2db.query.ISQLSelect;
+import com.servoy.j2db.server.shared.ApplicationServerRegistry;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+import com.servoy.j2db.util.DataSourceUtils;
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.ServoyException;
+import com.servoy.j2db.util.Settings;
+import com.servoy.j2db.util.Utils;
+import com.servoy.j2db.util.visitor.IVisitor;
+
+/**
+ * Data server that shares the results of valuelist queries between all clients in the JVM (enabled with servoy.client.valuelist.sharedCache.size).
+ * <p>
+ * Results are keyed by the server, the query (including its parameter values), the table filters of the client and the row range,
+ * so clients with the same table filters share one result. Queries in a transaction or with tracking are not cached.
+ * The cached results of a table are dropped when a data change for that table is broadcast, when the table is updated via this
+ * data server outside a transaction or when a transaction that updated the table ends. Broadcasts are handled once for the whole server
+ * by a data notify listener, only when that cannot be registered they are handled per client.
+ *
+ * @since 2024.3
+ */
+public class ValueListCacheDataServer extends AbstractDelegateDataServer
+{
+	private static final int MAX_SIZE = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.client.valuelist.sharedCache.size", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final long TTL = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.client.valuelist.sharedCache.ttl", "0")) * 1000L; //$NON-NLS-1$ //$NON-NLS-2$
+
+	// access ordered, guarded by itself
+	private static final Map<CacheKey, CacheEntry> cache = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest)
+		{
+			if (size() > MAX_SIZE)
+			{
+				unindex(eldest.getKey(), eldest.getValue().dataSources);
+				return true;
+			}
+			return false;
+		}
+	};
+	// datasource -> keys of the cached results that read from it, guarded by cache
+	private static final Map<String, Set<CacheKey>> keysByDataSource = new HashMap<>();
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	private static final AtomicLong invalidations = new AtomicLong();
+	// datasource -> number of invalidates of that datasource, results of queries that ran during an invalidate of one of their datasources are not cached
+	private static final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+	private static final AtomicLong clears = new AtomicLong();
+
+	private static final AtomicBoolean dataNotifyListenerRegistered = new AtomicBoolean();
+
+	static
+	{
+		PerformanceMetrics.registerCounter("valuelist_cache_size", "Valuelist query results in the shared cache.", true, ValueListCacheDataServer::getSize); //$NON-NLS-1$ //$NON-NLS-2$
+		PerformanceMetrics.registerCounter("valuelist_cache_hits_total", "Valuelist queries answered from the shared cache.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ValueListCacheDataServer::getHitCount);
+		PerformanceMetrics.registerCounter("valuelist_cache_misses_total", "Valuelist queries not found in the shared cache.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ValueListCacheDataServer::getMissCount);
+		PerformanceMetrics.registerCounter("valuelist_cache_invalidations_total", "Invalidations of the shared valuelist cache.", false, //$NON-NLS-1$ //$NON-NLS-2$
+			ValueListCacheDataServer::getInvalidationCount);
+	}
+
+	// transaction id -> datasources updated in that transaction
+	private final ConcurrentMap<String, Set<String>> transactionDataSources = new ConcurrentHashMap<>();
+
+	public ValueListCacheDataServer(IDataServer dataserver)
+	{
+		super(dataserver);
+		registerDataNotifyListener();
+	}
+
+	/**
+	 * Listen to the data broadcasts of the server, so the cache is invalidated once per change instead of once for every client that gets the change.
+	 */
+	private static void registerDataNotifyListener()
+	{
+		if (dataNotifyListenerRegistered.get() || !ApplicationServerRegistry.exists()) return;
+		try
+		{
+			IServerAccess serverAccess = ApplicationServerRegistry.get().getServerAccess();
+			IDataNotifyService dataNotifyService = serverAccess != null ? serverAccess.getDataNotifyService() : null;
+			if (dataNotifyService != null && dataNotifyListenerRegistered.compareAndSet(false, true))
+			{
+				dataNotifyService.registerDataNotifyListener(new IDataNotifyListener()
+				{
+					@Override
+					public void notifyDataChange(String server_name, String table_name, IDataSet pks, int action, Object[] insertColumnData,
+						BroadcastFilter[] broadcastFilters)
+					{
+						invalidate(DataSourceUtils.createDBTableDataSource(server_name, table_name));
+					}
+
+					@Override
+					public void flushCachedDatabaseData(String dataSource, BroadcastFilter[] broadcastFilters)
+					{
+						if (dataSource == null)
+						{
+							clear();
+						}
+						else
+						{
+							invalidate(dataSource);
+						}
+					}
+				});
+			}
+		}
+		catch (RuntimeException e)
+		{
+			Debug.error("Could not register the data notify listener of the shared valuelist cache, data changes are handled per client", e); //$NON-NLS-1$
+		}
+	}
+
+	public static boolean isEnabled()
+	{
+		return MAX_SIZE > 0;
+	}
+
+	/**
+	 * Drop the cached results that read from the datasource.
+	 */
+	public static void invalidate(String dataSource)
+	{
+		if (!isEnabled() || dataSource == null) return;
+		getGeneration(dataSource).incrementAndGet();
+		synchronized (cache)
+		{
+			Set<CacheKey> keys = keysByDataSource.remove(dataSource);
+			if (keys != null)
+			{
+				for (CacheKey key : keys)
+				{
+					CacheEntry entry = cache.remove(key);
+					if (entry != null)
+					{
+						unindex(key, entry.dataSources);
+						invalidations.incrementAndGet();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A data change or flush of the datasource was received by a client. This only invalidates when the data broadcasts are not already
+	 * handled once for the whole server.
+	 */
+	public static void clientDataChange(String dataSource)
+	{
+		if (!dataNotifyListenerRegistered.get())
+		{
+			invalidate(dataSource);
+		}
+	}
+
+	public static void clear()
+	{
+		clears.incrementAndGet();
+		synchronized (cache)
+		{
+			cache.clear();
+			keysByDataSource.clear();
+		}
+	}
+
+	private static AtomicLong getGeneration(String dataSource)
+	{
+		return generations.computeIfAbsent(dataSource, ds -> new AtomicLong());
+	}
+
+	/**
+	 * The sum of the invalidate counts of the datasources, this changes when one of the datasources was invalidated.
+	 */
+	private static long getGeneration(Set<String> dataSources)
+	{
+		long generation = clears.get();
+		for (String dataSource : dataSources)
+		{
+			generation += getGeneration(dataSource).get();
+		}
+		return generation;
+	}
+
+	// called while holding the cache lock
+	private static void unindex(CacheKey key, Set<String> dataSources)
+	{
+		for (String dataSource : dataSources)
+		{
+			Set<CacheKey> keys = keysByDataSource.get(dataSource);
+			if (keys != null)
+			{
+				keys.remove(key);
+				if (keys.isEmpty()) keysByDataSource.remove(dataSource);
+			}
+		}
+	}
+
+	@Override
+	public IDataSet performQuery(String client_id, String server_name, String transaction_id, ISQLSelect sqlSelect, ColumnType[] resultTypes,
+		ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve, int type, ITrackingSQLStatement trackingInfo)
+		throws ServoyException, RemoteException
+	{
+		if (type != IDataServer.VALUELIST_QUERY || transaction_id != null || trackingInfo != null || resultTypes != null || !isEnabled())
+		{
+			return super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow, rowsToRetrieve,
+				type, trackingInfo);
+		}
+
+		CacheKey key = new CacheKey(server_name, sqlSelect, filters, distinctInMemory, startRow, rowsToRetrieve);
+		CacheEntry entry;
+		synchronized (cache)
+		{
+			entry = cache.get(key);
+		}
+		if (entry != null && (TTL <= 0 || System.currentTimeMillis() - entry.created < TTL))
+		{
+			hits.incrementAndGet();
+			return entry.set.clone();
+		}
+		misses.incrementAndGet();
+
+		Set<String> dataSources = getDataSources(sqlSelect);
+		// the key must not change when the caller changes its query after the call
+		CacheKey storeKey = new CacheKey(server_name, AbstractBaseQuery.deepClone(sqlSelect), filters == null ? null : new ArrayList<>(filters),
+			distinctInMemory, startRow, rowsToRetrieve);
+		long created = System.currentTimeMillis();
+		long startGeneration = dataSources == null ? 0 : getGeneration(dataSources);
+		IDataSet set = super.performQuery(client_id, server_name, transaction_id, sqlSelect, resultTypes, filters, distinctInMemory, startRow,
+			rowsToRetrieve, type, trackingInfo);
+		if (set != null && dataSources != null)
+		{
+			synchronized (cache)
+			{
+				if (getGeneration(dataSources) == startGeneration)
+				{
+					cache.put(storeKey, new CacheEntry(set.clone(), dataSources, created));
+					for (String dataSource : dataSources)
+					{
+						keysByDataSource.computeIfAbsent(dataSource, ds -> new HashSet<>()).add(storeKey);
+					}
+				}
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * The db datasources the query reads from, null when the query uses tables that are not shared between clients.
+	 */
+	private static Set<String> getDataSources(ISQLSelect sqlSelect)
+	{
+		Set<String> dataSources = new HashSet<>();
+		boolean[] shared = { true };
+		sqlSelect.acceptVisitor(new IVisitor()
+		{
+			@Override
+			public Object visit(Object o)
+			{
+				if (o instanceof BaseQueryTable)
+				{
+					String dataSource = ((BaseQueryTable)o).getDataSource();
+					if (dataSource == null || DataSourceUtils.getDBServernameTablename(dataSource) == null)
+					{
+						// in-memory and view foundset tables are per client
+						shared[0] = false;
+					}
+					else
+					{
+						dataSources.add(dataSource);
+					}
+				}
+				return o;
+			}
+		});
+		return shared[0] && !dataSources.isEmpty() ? dataSources : null;
+	}
+
+	@Override
+	public Object[] performUpdates(String clientId, ISQLStatement[] statements) throws ServoyException, RemoteException
+	{
+		try
+		{
+			return super.performUpdates(clientId, statements);
+		}
+		finally
+		{
+			if (isEnabled() && statements != null)
+			{
+				// once per datasource, updates in a transaction are invalidated when the transaction ends
+				Set<String> dataSources = new HashSet<>();
+				for (ISQLStatement statement : statements)
+				{
+					String dataSource = DataSourceUtils.createDBTableDataSource(statement.getServerName(), statement.getTableName());
+					if (statement.getTransactionID() != null)
+					{
+						transactionDataSources.computeIfAbsent(statement.getTransactionID(), tid -> ConcurrentHashMap.newKeySet()).add(dataSource);
+					}
+					else
+					{
+						dataSources.add(dataSource);
+					}
+				}
+				dataSources.forEach(ValueListCacheDataServer::invalidate);
+			}
+		}
+	}
+
+	@Override
+	public boolean notifyDataChange(String client_id, String server_name, String tableName, IDataSet pks, int action, String transaction_id)
+		throws RemoteException
+	{
+		clientDataChange(DataSourceUtils.createDBTableDataSource(server_name, tableName));
+		return super.notifyDataChange(client_id, server_name, tableName, pks, action, transaction_id);
+	}
+
+	@Override
+	public boolean notifyDataChange(String client_id, boolean notifySelf, String server_name, String tableName, IDataSet pks, int action,
+		String transaction_id) throws RemoteException
+	{
+		clientDataChange(DataSourceUtils.createDBTableDataSource(server_name, tableName));
+		return super.notifyDataChange(client_id, notifySelf, server_name, tableName, pks, action, transaction_id);
+	}
+
+	@Override
+	public boolean endTransactions(String client_id, String[] transaction_id, boolean commit) throws RepositoryException, RemoteException
+	{
+		try
+		{
+			return super.endTransactions(client_id, transaction_id, commit);
+		}
+		finally
+		{
+			if (transaction_id != null)
+			{
+				for (String tid : transaction_id)
+				{
+					Set<String> dataSources = transactionDataSources.remove(tid);
+					if (dataSources != null)
+					{
+						// other clients may have read the old values while the transaction was running
+						dataSources.forEach(ValueListCacheDataServer::invalidate);
+					}
+				}
+			}
+		}
+	}
+
+	public static int getSize()
+	{
+		synchronized (cache)
+		{
+			return cache.size();
+		}
+	}
+
+	public static long getHitCount()
+	{
+		return hits.get();
+	}
+
+	public static long getMissCount()
+	{
+		return misses.get();
+	}
+
+	public static long getInvalidationCount()
+	{
+		return invalidations.get();
+	}
+
+	private static class CacheEntry
+	{
+		private final IDataSet set;
+		private final Set<String> dataSources;
+		private final long created;
+
+		CacheEntry(IDataSet set, Set<String> dataSources, long created)
+		{
+			this.set = set;
+			this.dataSources = dataSources;
+			this.created = created;
+		}
+	}
+
+	private static class CacheKey
+	{
+		private final String serverName;
+		private final ISQLSelect sqlSelect;
+		private final ArrayList<TableFilter> filters;
+		private final boolean distinctInMemory;
+		private final int startRow;
+		private final int rowsToRetrieve;
+		private final int hash;
+
+		CacheKey(String serverName, ISQLSelect sqlSelect, ArrayList<TableFilter> filters, boolean distinctInMemory, int startRow, int rowsToRetrieve)
+		{
+			this.serverName = serverName;
+			this.sqlSelect = sqlSelect;
+			this.filters = filters;
+			this.distinctInMemory = distinctInMemory;
+			this.startRow = startRow;
+			this.rowsToRetrieve = rowsToRetrieve;
+			this.hash = Objects.hash(serverName, sqlSelect, filters, Boolean.valueOf(distinctInMemory), Integer.valueOf(startRow),
+				Integer.valueOf(rowsToRetrieve));
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj) return true;
+			if (!(obj instanceof CacheKey)) return false;
+			CacheKey other = (CacheKey)obj;
+			return hash == other.hash && distinctInMemory == other.distinctInMemory && startRow == other.startRow && rowsToRetrieve == other.rowsToRetrieve &&
+				Objects.equals(serverName, other.serverName) && Objects.equals(sqlSelect, other.sqlSelect) && Objects.equals(filters, other.filters);
+		}
+	}
+}
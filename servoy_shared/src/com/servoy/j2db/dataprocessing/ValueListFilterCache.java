@@ -0,0 +1,157 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.dataprocessing;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recent results of filtering (type-ahead) db valuelists of one client, used by the {@link LookupListModel} when lazy valuelists are enabled.
+ * <p>
+ * Results are kept per valuelist, filter and table filters of the client, and are dropped when the table of the valuelist changes.
+ *
+ * @since 2024.3
+ */
+public class ValueListFilterCache
+{
+	private final int maxSize;
+
+	// access ordered, guarded by itself
+	private final Map<Key, Result> results;
+
+	ValueListFilterCache(int maxSize)
+	{
+		this.maxSize = maxSize;
+		this.results = new LinkedHashMap<Key, Result>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest)
+			{
+				return size() > ValueListFilterCache.this.maxSize;
+			}
+		};
+	}
+
+	public boolean isEnabled()
+	{
+		return maxSize > 0;
+	}
+
+	Result get(String valueListUUID, String filter, boolean alsoFilterOnRealValues, List<TableFilter> tableFilters)
+	{
+		if (!isEnabled()) return null;
+		synchronized (results)
+		{
+			return results.get(new Key(valueListUUID, filter, alsoFilterOnRealValues, tableFilters));
+		}
+	}
+
+	void put(String valueListUUID, String filter, boolean alsoFilterOnRealValues, List<TableFilter> tableFilters, Result result)
+	{
+		if (!isEnabled()) return;
+		synchronized (results)
+		{
+			results.put(new Key(valueListUUID, filter, alsoFilterOnRealValues, tableFilters == null ? null : new ArrayList<>(tableFilters)), result);
+		}
+	}
+
+	/**
+	 * Drop the results of valuelists on the datasource.
+	 */
+	void invalidate(String dataSource)
+	{
+		if (!isEnabled() || dataSource == null) return;
+		synchronized (results)
+		{
+			Iterator<Result> it = results.values().iterator();
+			while (it.hasNext())
+			{
+				if (dataSource.equals(it.next().dataSource))
+				{
+					it.remove();
+				}
+			}
+		}
+	}
+
+	void clear()
+	{
+		synchronized (results)
+		{
+			results.clear();
+		}
+	}
+
+	/**
+	 * Real and display values of the loaded pages of a filter.
+	 */
+	static class Result
+	{
+		final List<Object> realValues;
+		final List<Object> displayValues;
+		// number of rows read from the database, can be more than the values when rows had no display value
+		final int rowCount;
+		final boolean hadMoreRows;
+		final String dataSource;
+
+		Result(List<Object> realValues, List<Object> displayValues, int rowCount, boolean hadMoreRows, String dataSource)
+		{
+			this.realValues = new ArrayList<>(realValues);
+			this.displayValues = new ArrayList<>(displayValues);
+			this.rowCount = rowCount;
+			this.hadMoreRows = hadMoreRows;
+			this.dataSource = dataSource;
+		}
+	}
+
+	private static class Key
+	{
+		private final String valueListUUID;
+		private final String filter;
+		private final boolean alsoFilterOnRealValues;
+		private final List<TableFilter> tableFilters;
+
+		Key(String valueListUUID, String filter, boolean alsoFilterOnRealValues, List<TableFilter> tableFilters)
+		{
+			this.valueListUUID = valueListUUID;
+			this.filter = filter;
+			this.alsoFilterOnRealValues = alsoFilterOnRealValues;
+			this.tableFilters = tableFilters;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(valueListUUID, filter, Boolean.valueOf(alsoFilterOnRealValues), tableFilters);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key)obj;
+			return alsoFilterOnRealValues == other.alsoFilterOnRealValues && Objects.equals(valueListUUID, other.valueListUUID) &&
+				Objects.equals(filter, other.filter) && Objects.equals(tableFilters, other.tableFilters);
+		}
+	}
+}
@@ -64,7 +64,6 @@ import com.servoy.j2db.util.ITaskExecuter;
 import com.servoy.j2db.util.Pair;
 import com.servoy.j2db.util.ScopesUtils;
 import com.servoy.j2db.util.ServoyException;
-import com.servoy.j2db.util.ServoyScheduledExecutor;
 import com.servoy.j2db.util.ThreadingRemoteInvocationHandler;
 import com.servoy.j2db.util.toolbar.IToolbarPanel;
 
@@ -250,7 +249,7 @@ public class ClientPluginAccessProvider implements IClientPluginAccess
 	@Deprecated
 	public ITaskExecuter getThreadPool()
 	{
-		return (ServoyScheduledExecutor)application.getScheduledExecutor();
+		return (ITaskExecuter)application.getScheduledExecutor();
 	}
 
 	public ScheduledExecutorService getExecutor()
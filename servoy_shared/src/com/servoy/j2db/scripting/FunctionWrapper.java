@@ -68,7 +68,7 @@ public class FunctionWrapper implements Function
 
 	public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args)
 	{
-		Long pfId = performanceData.startAction(name, System.currentTimeMillis(), IDataServer.METHOD_CALL, application.getClientID(),
+		long pfId = performanceData.startAction(name, System.currentTimeMillis(), IDataServer.METHOD_CALL, application.getClientID(),
 			application.getSolutionName());
 		try
 		{
@@ -76,10 +76,7 @@ public class FunctionWrapper implements Function
 		}
 		finally
 		{
-			if (pfId != null)
-			{
-				performanceData.endAction(pfId, application.getClientID());
-			}
+			performanceData.endAction(pfId, application.getClientID());
 		}
 	}
 
@@ -574,6 +574,10 @@ public class ScriptEngine implements IScriptSupport
 				cx.setOptimizationLevel(9);
 			}
 			cx.setGeneratingSource(Boolean.getBoolean("servoy.generateJavascriptSource"));
+			if (useSharedScriptCache())
+			{
+				return compileSharedScriptProvider(sp, scope, cx, sourceName);
+			}
 			return compileScriptProvider(sp, scope, cx, sourceName);
 		}
 		catch (Exception e)
@@ -597,31 +601,12 @@ public class ScriptEngine implements IScriptSupport
 	@SuppressWarnings("nls")
 	protected Function compileScriptProvider(IScriptProvider sp, Scriptable scope, Context cx, String sourceName)
 	{
-		String declaration = sp.getDeclaration();
-		// for script calcs we change the name a bit so that references to itself
-		// dont return the calc function itself but still the value.
-		if (sp instanceof ScriptCalculation)
-		{
-			declaration = extractFunction(declaration, "function $1_");
-		}
-		else
-		{
-			declaration = extractFunction(declaration, "function $1");
-		}
+		String declaration = getFunctionDeclaration(sp);
 
 		// f below always seems to be NativeFunction instance as both Codegen.createFunctionObject and Interpreter.createFunctionObject return
 		// a NativeFunction instance; and that is what cx.compileFunction(...) ends up calling
 		Function f = cx.compileFunction(scope, declaration, sourceName, sp.getLineNumberOffset(), null);
-		if (!(sp instanceof ScriptCalculation))
-		{
-			if (sp.getScopeName() != null)
-			{
-				f.put("_scopename_", f, sp.getScopeName()); //$NON-NLS-1$
-			}
-			f.put("_methodname_", f, sp.getDataProviderID()); //$NON-NLS-1$
-			f.put("_AllowToRunInFind_", f, Boolean.valueOf(sp.getDeclaration().indexOf("@AllowToRunInFind") != -1 || declaration.indexOf(".search") != -1 || //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
-				declaration.indexOf("controller.loadAllRecords") != -1));
-		}
+		initFunction(sp, f, declaration);
 
 		// for now disabled the old way with a Wrapper, now we use the Debugger interface of rhino
 //		String methodName = sp.getName();
@@ -653,6 +638,53 @@ public class ScriptEngine implements IScriptSupport
 		return f;
 	}
 
+	/**
+	 * Same as {@link #compileScriptProvider(IScriptProvider, Scriptable, Context, String)} but the compiled code is taken from (or put in) the
+	 * {@link SharedScriptCache} so that it is shared with all other clients of this server; only a new function instance is created for the given scope.
+	 */
+	protected Function compileSharedScriptProvider(IScriptProvider sp, Scriptable scope, Context cx, String sourceName)
+	{
+		String declaration = getFunctionDeclaration(sp);
+		Function f = SharedScriptCache.getFunction(sp.getUUID(), sourceName, declaration, sp.getLineNumberOffset(), scope, cx);
+		initFunction(sp, f, declaration);
+		return f;
+	}
+
+	/**
+	 * The shared script cache is only used in server side clients (that share a jvm), the smart client and the debug clients compile per client.
+	 */
+	protected boolean useSharedScriptCache()
+	{
+		return application.getApplicationType() != IApplication.CLIENT && SharedScriptCache.isEnabled();
+	}
+
+	@SuppressWarnings("nls")
+	private static String getFunctionDeclaration(IScriptProvider sp)
+	{
+		// for script calcs we change the name a bit so that references to itself
+		// dont return the calc function itself but still the value.
+		if (sp instanceof ScriptCalculation)
+		{
+			return extractFunction(sp.getDeclaration(), "function $1_");
+		}
+		return extractFunction(sp.getDeclaration(), "function $1");
+	}
+
+	@SuppressWarnings("nls")
+	private static void initFunction(IScriptProvider sp, Function f, String declaration)
+	{
+		if (!(sp instanceof ScriptCalculation))
+		{
+			if (sp.getScopeName() != null)
+			{
+				f.put("_scopename_", f, sp.getScopeName());
+			}
+			f.put("_methodname_", f, sp.getDataProviderID());
+			f.put("_AllowToRunInFind_", f, Boolean.valueOf(sp.getDeclaration().indexOf("@AllowToRunInFind") != -1 || declaration.indexOf(".search") != -1 ||
+				declaration.indexOf("controller.loadAllRecords") != -1));
+		}
+	}
+
 	/**
 	 * @param sp
 	 * @param scopeName
@@ -1038,7 +1070,7 @@ final class ProfilingDebugFrame implements DebugFrame
 	private final PerformanceData performanceData;
 	private final IApplication application;
 	private final String name;
-	private Long pfId;
+	private long pfId = PerformanceData.NO_TIMING;
 
 	public ProfilingDebugFrame(PerformanceData performanceData, IApplication application, String name)
 	{
@@ -1067,10 +1099,7 @@ final class ProfilingDebugFrame implements DebugFrame
 	@Override
 	public void onExit(Context cx, boolean byThrow, Object resultOrException)
 	{
-		if (pfId != null)
-		{
-			performanceData.endAction(pfId, application.getClientID());
-		}
+		performanceData.endAction(pfId, application.getClientID());
 	}
 
 	@Override
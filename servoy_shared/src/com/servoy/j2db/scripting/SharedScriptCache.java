@@ -0,0 +1,200 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.scripting;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Scriptable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+import com.servoy.j2db.util.UUID;
+import com.servoy.j2db.util.Utils;
+import com.servoy.j2db.util.xmlxport.SolutionImportNotifier;
+
+/**
+ * JVM wide cache of compiled script providers (methods, calculations, entity methods).
+ * <p>
+ * A script provider is compiled once with {@link Context#compileFunction(Scriptable, String, String, int, Object)}, the generated class of that function
+ * is shared between all clients of the server. Each client only creates a new instance of that class for its own scope, just like
+ * Context.compileFunction() does itself, so the function behaves exactly the same (for example its name in its own body still refers to the scope)
+ * without generating or loading any new bytecode.
+ * <p>
+ * The key contains the declaration itself, so solution model changes (that change the declaration) will result in a new entry,
+ * the whole cache is cleared when a solution is imported. Interpreted functions (optimization level -1) have no class to share and are not cached.
+ *
+ * @since 2024.3
+ */
+@SuppressWarnings("nls")
+public final class SharedScriptCache
+{
+	public static final String SERVOY_SHARED_SCRIPT_CACHE_PROPERTY = "servoy.script.sharedCompileCache";
+	public static final String SERVOY_SHARED_SCRIPT_CACHE_SIZE_PROPERTY = "servoy.script.sharedCompileCache.maxSize";
+
+	private static final Cache<ScriptKey, Constructor< ? >> functions = CacheBuilder.newBuilder()
+		.maximumSize(Utils.getAsInteger(System.getProperty(SERVOY_SHARED_SCRIPT_CACHE_SIZE_PROPERTY, "20000")))
+		.build();
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong compiles = new AtomicLong();
+
+	static
+	{
+		SolutionImportNotifier.addImportListener(SharedScriptCache::clear);
+
+		PerformanceMetrics.registerCounter("script_cache_size", "Compiled scripts in the shared script cache.", true, SharedScriptCache::size);
+		PerformanceMetrics.registerCounter("script_cache_hits_total", "Scripts found in the shared script cache.", false, SharedScriptCache::getHitCount);
+		PerformanceMetrics.registerCounter("script_cache_compiles_total", "Scripts compiled for the shared script cache.", false,
+			SharedScriptCache::getCompileCount);
+	}
+
+	private SharedScriptCache()
+	{
+	}
+
+	/**
+	 * Get the function for the given declaration in the given scope, the function is compiled in the given context if it is not already compiled.
+	 *
+	 * @param uuid the uuid of the script provider
+	 * @param sourceName the source name that is compiled into the function (shows up in stack traces)
+	 * @param declaration the (already rewritten) function declaration
+	 * @param lineNumberOffset the line number of the declaration
+	 * @param scope the scope of the function
+	 * @param cx the current context, its optimization level and language version are part of the key.
+	 */
+	public static Function getFunction(UUID uuid, String sourceName, String declaration, int lineNumberOffset, Scriptable scope, Context cx)
+	{
+		if (cx.getOptimizationLevel() < 0)
+		{
+			return cx.compileFunction(scope, declaration, sourceName, lineNumberOffset, null);
+		}
+
+		ScriptKey key = new ScriptKey(uuid, sourceName, declaration, lineNumberOffset, cx.getOptimizationLevel(), cx.getLanguageVersion(),
+			cx.getDebugger() != null);
+		Constructor< ? > constructor = functions.getIfPresent(key);
+		if (constructor == null)
+		{
+			Function[] compiled = new Function[1];
+			try
+			{
+				constructor = functions.get(key, () -> {
+					compiles.incrementAndGet();
+					compiled[0] = cx.compileFunction(scope, declaration, sourceName, lineNumberOffset, null);
+					// the constructor that Context.compileFunction() (Codegen.createFunctionObject) uses itself
+					return compiled[0].getClass().getConstructor(Scriptable.class, Context.class, int.class);
+				});
+			}
+			catch (ExecutionException | UncheckedExecutionException e)
+			{
+				if (e.getCause() instanceof RuntimeException re) throw re;
+				throw new RuntimeException(e.getCause());
+			}
+			// compiled in this call for this scope
+			if (compiled[0] != null) return compiled[0];
+		}
+		hits.incrementAndGet();
+		try
+		{
+			return (Function)constructor.newInstance(scope, cx, Integer.valueOf(0));
+		}
+		catch (InvocationTargetException e)
+		{
+			if (e.getCause() instanceof RuntimeException re) throw re;
+			throw new RuntimeException(e.getCause());
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new RuntimeException("Unable to instantiate compiled function " + sourceName, e);
+		}
+	}
+
+	public static boolean isEnabled()
+	{
+		return Utils.getAsBoolean(System.getProperty(SERVOY_SHARED_SCRIPT_CACHE_PROPERTY, "true"));
+	}
+
+	public static void clear()
+	{
+		functions.invalidateAll();
+	}
+
+	public static long getHitCount()
+	{
+		return hits.get();
+	}
+
+	public static long getCompileCount()
+	{
+		return compiles.get();
+	}
+
+	public static long size()
+	{
+		return functions.size();
+	}
+
+	private static final class ScriptKey
+	{
+		private final UUID uuid;
+		private final String sourceName;
+		private final String declaration;
+		private final int lineNumberOffset;
+		private final int optimizationLevel;
+		private final int languageVersion;
+		private final boolean debug;
+		private final int hash;
+
+		ScriptKey(UUID uuid, String sourceName, String declaration, int lineNumberOffset, int optimizationLevel, int languageVersion, boolean debug)
+		{
+			this.uuid = uuid;
+			this.sourceName = sourceName;
+			this.declaration = declaration;
+			this.lineNumberOffset = lineNumberOffset;
+			this.optimizationLevel = optimizationLevel;
+			this.languageVersion = languageVersion;
+			this.debug = debug;
+			this.hash = Objects.hash(uuid, sourceName, declaration, Integer.valueOf(lineNumberOffset), Integer.valueOf(optimizationLevel),
+				Integer.valueOf(languageVersion), Boolean.valueOf(debug));
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj) return true;
+			if (!(obj instanceof ScriptKey)) return false;
+			ScriptKey other = (ScriptKey)obj;
+			return hash == other.hash && lineNumberOffset == other.lineNumberOffset && optimizationLevel == other.optimizationLevel &&
+				languageVersion == other.languageVersion && debug == other.debug && Objects.equals(uuid, other.uuid) &&
+				Objects.equals(sourceName, other.sourceName) && Objects.equals(declaration, other.declaration);
+		}
+	}
+}
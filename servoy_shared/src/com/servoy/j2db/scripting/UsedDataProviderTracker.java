@@ -26,6 +26,7 @@ import org.mozilla.javascript.Scriptable;
 import com.servoy.j2db.FlattenedSolution;
 import com.servoy.j2db.dataprocessing.IFoundSetInternal;
 import com.servoy.j2db.dataprocessing.IRecordInternal;
+import com.servoy.j2db.dataprocessing.PKHashKey;
 import com.servoy.j2db.dataprocessing.PrototypeState;
 import com.servoy.j2db.dataprocessing.RelatedFoundSet;
 import com.servoy.j2db.persistence.IDataProvider;
@@ -147,7 +148,7 @@ public class UsedDataProviderTracker
 								}
 								else
 								{
-									usedColumn(currentRecord.getParentFoundSet().getDataSource(), currentRecord.getRawData().getPKHashKey(), primdp);
+									usedColumn(currentRecord.getParentFoundSet().getDataSource(), currentRecord.getRawData().getPKKey(), primdp);
 								}
 							}
 						}
@@ -192,7 +193,7 @@ public class UsedDataProviderTracker
 								}
 								else
 								{
-									usedColumn(foundSet.getDataSource(), currentRecord.getRawData().getPKHashKey(), part);
+									usedColumn(foundSet.getDataSource(), currentRecord.getRawData().getPKKey(), part);
 								}
 							}
 						}
@@ -242,7 +243,7 @@ public class UsedDataProviderTracker
 		usedAggregates.add(new UsedAggregate(foundSet, name));
 	}
 
-	public void usedColumn(String dataSource, String pkHashKey, String dataProviderId)
+	public void usedColumn(String dataSource, PKHashKey pkHashKey, String dataProviderId)
 	{
 		if (usedColumns == null)
 		{
@@ -327,10 +328,10 @@ public class UsedDataProviderTracker
 	public static class UsedDataProvider
 	{
 		public final String dataSource;
-		public final String pkHashKey;
+		public final PKHashKey pkHashKey;
 		public final String dataProviderId;
 
-		public UsedDataProvider(String dataSource, String pkHashKey, String dataProviderId)
+		public UsedDataProvider(String dataSource, PKHashKey pkHashKey, String dataProviderId)
 		{
 			this.dataSource = dataSource;
 			this.pkHashKey = pkHashKey;
@@ -0,0 +1,288 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.server.shared;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free histogram of latencies (in ms) with log-linear buckets, used to get percentiles of performance timings.
+ * <p>
+ * Values are counted in buckets of 16 sub-buckets per power of 2, so a percentile is at most 1/16 (6.25%) higher than the real value.
+ * The buckets of a magnitude are only allocated when a value of that magnitude is recorded.
+ * Recording is striped over a number of recorders (selected by the recording thread) so that threads do not contend on the same counters,
+ * the recorders are merged when the histogram is read.
+ *
+ * @since 2024.3
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// magnitude 0 holds the values 0-15, magnitude m holds the values with the highest bit at position m + 3
+	private static final int MAGNITUDES = 64 - SUB_BUCKET_BITS + 1;
+	private static final int STRIPES = Integer.highestOneBit(Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors())));
+
+	private final AtomicReferenceArray<AtomicLongArray> buckets = new AtomicReferenceArray<>(STRIPES * MAGNITUDES);
+
+	public LatencyHistogram()
+	{
+	}
+
+	public LatencyHistogram(LatencyHistogram copy)
+	{
+		add(copy);
+	}
+
+	/**
+	 * Record a value, negative values are recorded as 0.
+	 */
+	public void record(long value)
+	{
+		long v = Math.max(0, value);
+		int magnitude = magnitude(v);
+		int stripe = (int)Thread.currentThread().getId() & (STRIPES - 1);
+		getBuckets(stripe * MAGNITUDES + magnitude).incrementAndGet(subBucket(v, magnitude));
+	}
+
+	/**
+	 * Add all recorded values of the other histogram to this histogram.
+	 */
+	public void add(LatencyHistogram other)
+	{
+		int stripe = (int)Thread.currentThread().getId() & (STRIPES - 1);
+		for (int magnitude = 0; magnitude < MAGNITUDES; magnitude++)
+		{
+			long[] counts = other.getCounts(magnitude);
+			if (counts != null)
+			{
+				AtomicLongArray target = getBuckets(stripe * MAGNITUDES + magnitude);
+				for (int sub = 0; sub < SUB_BUCKETS; sub++)
+				{
+					if (counts[sub] != 0) target.addAndGet(sub, counts[sub]);
+				}
+			}
+		}
+	}
+
+	public long getCount()
+	{
+		long count = 0;
+		for (int magnitude = 0; magnitude < MAGNITUDES; magnitude++)
+		{
+			long[] counts = getCounts(magnitude);
+			if (counts != null)
+			{
+				for (long c : counts)
+				{
+					count += c;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The value at the percentile (0-100) of the recorded values, 0 when nothing was recorded.
+	 * The highest value that falls in the same bucket is returned, so the result is never lower than the real value.
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long[][] counts = new long[MAGNITUDES][];
+		long total = 0;
+		for (int magnitude = 0; magnitude < MAGNITUDES; magnitude++)
+		{
+			counts[magnitude] = getCounts(magnitude);
+			if (counts[magnitude] != null)
+			{
+				for (long c : counts[magnitude])
+				{
+					total += c;
+				}
+			}
+		}
+		if (total == 0) return 0;
+
+		long target = Math.max(1, (long)Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+		long seen = 0;
+		for (int magnitude = 0; magnitude < MAGNITUDES; magnitude++)
+		{
+			if (counts[magnitude] != null)
+			{
+				for (int sub = 0; sub < SUB_BUCKETS; sub++)
+				{
+					seen += counts[magnitude][sub];
+					if (seen >= target)
+					{
+						return highestValue(magnitude, sub);
+					}
+				}
+			}
+		}
+		// counts were recorded while reading
+		return 0;
+	}
+
+	/**
+	 * Counts of the sub-buckets of the magnitude over all stripes, null when no value of that magnitude was recorded.
+	 */
+	private long[] getCounts(int magnitude)
+	{
+		long[] counts = null;
+		for (int stripe = 0; stripe < STRIPES; stripe++)
+		{
+			AtomicLongArray array = buckets.get(stripe * MAGNITUDES + magnitude);
+			if (array != null)
+			{
+				if (counts == null) counts = new long[SUB_BUCKETS];
+				for (int sub = 0; sub < SUB_BUCKETS; sub++)
+				{
+					counts[sub] += array.get(sub);
+				}
+			}
+		}
+		return counts;
+	}
+
+	private AtomicLongArray getBuckets(int index)
+	{
+		AtomicLongArray array = buckets.get(index);
+		if (array == null)
+		{
+			buckets.compareAndSet(index, null, new AtomicLongArray(SUB_BUCKETS));
+			array = buckets.get(index);
+		}
+		return array;
+	}
+
+	private static int magnitude(long value)
+	{
+		if (value < SUB_BUCKETS) return 0;
+		return 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+	}
+
+	private static int subBucket(long value, int magnitude)
+	{
+		if (magnitude == 0) return (int)value;
+		return (int)(value >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+	}
+
+	private static long highestValue(int magnitude, int subBucket)
+	{
+		if (magnitude == 0) return subBucket;
+		long lowest = (long)(SUB_BUCKETS + subBucket) << (magnitude - 1);
+		return lowest + (1L << (magnitude - 1)) - 1;
+	}
+
+	/**
+	 * Histogram of the values recorded in the last couple of time windows, older windows are dropped when a new window starts.
+	 */
+	public static class Sliding
+	{
+		private final long windowMs;
+		private final AtomicReferenceArray<Window> windows;
+
+		public Sliding(long windowMs, int windowCount)
+		{
+			this.windowMs = Math.max(1, windowMs);
+			this.windows = new AtomicReferenceArray<>(Math.max(1, windowCount));
+		}
+
+		public Sliding(Sliding copy)
+		{
+			this(copy.windowMs, copy.windows.length());
+			for (int i = 0; i < windows.length(); i++)
+			{
+				Window window = copy.windows.get(i);
+				if (window != null)
+				{
+					windows.set(i, new Window(window.epoch, new LatencyHistogram(window.histogram)));
+				}
+			}
+		}
+
+		public void record(long value)
+		{
+			getWindow(System.currentTimeMillis() / windowMs).record(value);
+		}
+
+		LatencyHistogram getWindow(long epoch)
+		{
+			int index = (int)(epoch % windows.length());
+			Window window = windows.get(index);
+			while (window == null || window.epoch < epoch)
+			{
+				Window newWindow = new Window(epoch, new LatencyHistogram());
+				if (windows.compareAndSet(index, window, newWindow))
+				{
+					return newWindow.histogram;
+				}
+				window = windows.get(index);
+			}
+			// a value of an older window (the clock was read just before a new window started) is counted in the current window
+			return window.histogram;
+		}
+
+		/**
+		 * Merged histogram of the windows that are not expired yet.
+		 */
+		public LatencyHistogram getHistogram()
+		{
+			return getHistogram(System.currentTimeMillis() / windowMs);
+		}
+
+		LatencyHistogram getHistogram(long epoch)
+		{
+			LatencyHistogram histogram = new LatencyHistogram();
+			for (int i = 0; i < windows.length(); i++)
+			{
+				Window window = windows.get(i);
+				if (window != null && epoch - window.epoch < windows.length())
+				{
+					histogram.add(window.histogram);
+				}
+			}
+			return histogram;
+		}
+
+		public long getWindowMs()
+		{
+			return windowMs;
+		}
+
+		public int getWindowCount()
+		{
+			return windows.length();
+		}
+
+		/**
+		 * The histogram of a window with the epoch (time / window size) it was started for, replaced as a whole when a new window starts.
+		 */
+		private static final class Window
+		{
+			private final long epoch;
+			private final LatencyHistogram histogram;
+
+			Window(long epoch, LatencyHistogram histogram)
+			{
+				this.epoch = epoch;
+				this.histogram = histogram;
+			}
+		}
+	}
+}
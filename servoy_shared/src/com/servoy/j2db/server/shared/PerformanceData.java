@@ -19,6 +19,10 @@ import com.servoy.j2db.util.Pair;
  */
 public class PerformanceData
 {
+	/**
+	 * The id returned by {@link #startAction(String, long, int, String, String)} when nothing is timed.
+	 */
+	public static final long NO_TIMING = -1;
 
 	/**
 	 * Static, so 1 instance per thread/client for the whole PerformanceData class (no matter how many instances of it there are).<br/>
@@ -60,15 +64,15 @@ public class PerformanceData
 		this.aggregator = aggregator;
 	}
 
-	public Long startAction(String action, long start_ms, int type, String clientUUID, String customObject)
+	public long startAction(String action, long start_ms, int type, String clientUUID, String customObject)
 	{
-		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF) return null;
+		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF) return NO_TIMING;
 		PerformanceTiming startedTimingPerClientForThisInstance = startedTimingPerClientForThisInstanceTL.get();
 		if (startedTimingPerClientForThisInstance == null)
 		{
-			Long parentId = getID();
+			long parentId = getID();
 			PerformanceTiming sharedTopTimingOfClient = sharedTopTimingOfClientTL.get();
-			if (parentId == null && sharedTopTimingOfClient != null && "sql".equals(contextId)) //$NON-NLS-1$
+			if (parentId == NO_TIMING && sharedTopTimingOfClient != null && "sql".equals(contextId)) //$NON-NLS-1$
 			{
 				PerformanceTiming methodCallCurrentlyRunning = sharedTopTimingOfClient;
 				PerformanceTiming[] startedActions = methodCallCurrentlyRunning.getStartedActions(); // startedActions can only be max size 1 on PerformanceTiming instances; see javadoc
@@ -82,7 +86,7 @@ public class PerformanceData
 			startedTimingPerClientForThisInstance = new PerformanceTiming(action, type, parentId, customObject, start_ms, clientUUID, registry, log, contextId,
 				this.aggregator);
 			startedTimingPerClientForThisInstanceTL.set(startedTimingPerClientForThisInstance);
-			startedTimings.put(startedTimingPerClientForThisInstance.getID(), startedTimingPerClientForThisInstance);
+			startedTimings.put(startedTimingPerClientForThisInstance.getKey(), startedTimingPerClientForThisInstance);
 			if (sharedTopTimingOfClient == null) sharedTopTimingOfClientTL.set(startedTimingPerClientForThisInstance);
 			return startedTimingPerClientForThisInstance.getID();
 		}
@@ -93,39 +97,39 @@ public class PerformanceData
 	}
 
 	/**
-	 * return the ID of this performace data, the default one is just null
+	 * return the ID of this performace data, the default one is just NO_TIMING
 	 */
-	protected Long getID()
+	protected long getID()
 	{
-		return null;
+		return NO_TIMING;
 	}
 
-	public void intervalAction(Long timingId)
+	public void intervalAction(long timingId)
 	{
-		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF || timingId == null) return;
+		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF || timingId == NO_TIMING) return;
 
-		PerformanceTiming timing = startedTimings.get(timingId);
+		PerformanceTiming timing = startedTimings.get(Long.valueOf(timingId));
 		if (timing != null) timing.setIntervalTime();
 	}
 
-	public void endAction(Long timingId, String clientUUID)
+	public void endAction(long timingId, String clientUUID)
 	{
 		endAction(timingId, 1, clientUUID);
 	}
 
-	public void endAction(Long timingId, int nrecords, String clientUUID)
+	public void endAction(long timingId, int nrecords, String clientUUID)
 	{
-		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF || timingId == null) return;
+		if (registry.getMaxNumberOfEntriesPerContext() == IPerformanceRegistry.OFF || timingId == NO_TIMING) return;
 		PerformanceTiming startedTimingPerClientForThisInstance = startedTimingPerClientForThisInstanceTL.get();
 		PerformanceTiming timingThatEnded = startedTimingPerClientForThisInstance;
 		if (startedTimingPerClientForThisInstance != null)
 		{
 			// is this the uuid that is on this stack? then this one should be ended.
 			// else a child/sub timing should be searched for.
-			if (timingId.equals(startedTimingPerClientForThisInstance.getID()))
+			if (timingId == startedTimingPerClientForThisInstance.getID())
 			{
 				startedTimingPerClientForThisInstanceTL.remove();
-				startedTimings.remove(timingId);
+				startedTimings.remove(startedTimingPerClientForThisInstance.getKey());
 				PerformanceTiming sharedTopTimingOfClient = sharedTopTimingOfClientTL.get();
 				if (sharedTopTimingOfClient == startedTimingPerClientForThisInstance) sharedTopTimingOfClientTL.remove(); // so the static thread local is also the timing that is now ending
 				else if ("sql".equals(contextId)) //$NON-NLS-1$
@@ -155,7 +159,7 @@ public class PerformanceData
 		}
 		else
 		{
-			timingThatEnded = startedTimings.remove(timingId);
+			timingThatEnded = startedTimings.remove(Long.valueOf(timingId));
 		}
 		if (timingThatEnded != null)
 		{
@@ -188,8 +192,8 @@ public class PerformanceData
 		PerformanceTiming lastStartedTiming = startedTimingPerClientForThisInstanceTL.get();
 		if (lastStartedTiming == null) return null; // probably a Servoy internal service API call that gets called outside any user method; ignore
 
-		Long subTimingUUID = lastStartedTiming.startAction(action, start_ms, type, clientUUID, customObject); // this call will go to (recursively) last started action on this client's stack
-		return new Pair<>(lastStartedTiming.getID(), subTimingUUID);
+		long subTimingUUID = lastStartedTiming.startAction(action, start_ms, type, clientUUID, customObject); // this call will go to (recursively) last started action on this client's stack
+		return new Pair<>(lastStartedTiming.getKey(), Long.valueOf(subTimingUUID));
 	}
 
 	public void endSubAction(Pair<Long, Long> subActionIDs, String clientUUID)
@@ -200,7 +204,7 @@ public class PerformanceData
 		PerformanceTiming timingWithSubAction = startedTimings.get(subActionIDs.getLeft());
 		if (timingWithSubAction != null)
 		{
-			timingWithSubAction.endAction(subActionIDs.getRight(), clientUUID);
+			timingWithSubAction.endAction(subActionIDs.getRight().longValue(), clientUUID);
 		}
 	}
 
@@ -0,0 +1,234 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.server.shared;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.servoy.j2db.util.Debug;
+import com.servoy.j2db.util.Utils;
+
+/**
+ * Exports the timings of a {@link IPerformanceRegistry} with their percentiles, as Prometheus text or through JMX (enabled with servoy.performance.jmx).
+ * <p>
+ * The JVM wide counters that the caches, pools and data loaders register themselves are exported with the timings,
+ * see {@link #registerCounter(String, String, boolean, LongSupplier)}.
+ *
+ * @since 2024.3
+ */
+@SuppressWarnings("nls")
+public final class PerformanceMetrics implements PerformanceMetricsMXBean
+{
+	public static final String SERVOY_PERFORMANCE_JMX_PROPERTY = "servoy.performance.jmx";
+
+	private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+
+	private static final Map<String, PerformanceMetrics> registered = new ConcurrentHashMap<>();
+
+	private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+
+	private final IPerformanceRegistry registry;
+
+	public PerformanceMetrics(IPerformanceRegistry registry)
+	{
+		this.registry = registry;
+	}
+
+	/**
+	 * Register the metrics of the registry in the platform MBean server, only once per registry id and only when enabled.
+	 */
+	public static void register(IPerformanceRegistry registry)
+	{
+		if (registry == null || !Utils.getAsBoolean(System.getProperty(SERVOY_PERFORMANCE_JMX_PROPERTY, "false"))) return;
+
+		String id = registry.getId() == null ? "default" : registry.getId();
+		registered.computeIfAbsent(id, key -> {
+			PerformanceMetrics metrics = new PerformanceMetrics(registry);
+			try
+			{
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				ObjectName name = new ObjectName("com.servoy:type=PerformanceMetrics,id=" + ObjectName.quote(key));
+				if (!server.isRegistered(name))
+				{
+					server.registerMBean(metrics, name);
+				}
+			}
+			catch (Exception e)
+			{
+				Debug.error("Could not register the performance metrics of " + key, e);
+			}
+			return metrics;
+		});
+	}
+
+	/**
+	 * Register a JVM wide counter, it is exported as servoy_&lt;name&gt;. Called by the class that owns the counter when it is loaded.
+	 *
+	 * @param gauge true when the value can go down (like a size), false for a counter that only increases
+	 */
+	public static void registerCounter(String name, String help, boolean gauge, LongSupplier value)
+	{
+		counters.put(name, new Counter(help, gauge, value));
+	}
+
+	@Override
+	public Map<String, Long> getCounters()
+	{
+		Map<String, Long> values = new LinkedHashMap<>();
+		counters.forEach((name, counter) -> values.put(name, Long.valueOf(counter.value.getAsLong())));
+		return values;
+	}
+
+	@Override
+	public String[] getContexts()
+	{
+		return registry.getPerformanceTimingContexts();
+	}
+
+	@Override
+	public String getPrometheusText()
+	{
+		StringBuilder sb = new StringBuilder();
+		try
+		{
+			writePrometheus(registry, sb);
+			writeCounters(sb);
+		}
+		catch (IOException e)
+		{
+			// cannot happen for a StringBuilder
+			Debug.error(e);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public long getPercentileTimeMS(String context, String action, double percentile)
+	{
+		PerformanceTimingAggregate timing = getTiming(context, action);
+		return timing == null ? -1 : timing.getPercentileTimeMS(percentile);
+	}
+
+	@Override
+	public long getRecentPercentileTimeMS(String context, String action, double percentile)
+	{
+		PerformanceTimingAggregate timing = getTiming(context, action);
+		return timing == null ? -1 : timing.getRecentPercentileTimeMS(percentile);
+	}
+
+	private PerformanceTimingAggregate getTiming(String context, String action)
+	{
+		PerformanceTimingAggregate[] timings = registry.getPerformanceTiming(context);
+		if (timings != null)
+		{
+			for (PerformanceTimingAggregate timing : timings)
+			{
+				if (timing.getAction().equals(action)) return timing;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Write the timings of all contexts of the registry in the Prometheus text exposition format (version 0.0.4).
+	 * <p>
+	 * Every action is a summary with the p50, p95 and p99 of all its running times, the recent percentiles (of the last time windows) are written as a gauge.
+	 * The percentiles are only written when the histograms are enabled (see {@link PerformanceTimingAggregate#HISTOGRAM_PROPERTY}).
+	 */
+	public static void writePrometheus(IPerformanceRegistry registry, Appendable out) throws IOException
+	{
+		out.append("# HELP servoy_action_duration_ms Running time of the actions in ms.\n");
+		out.append("# TYPE servoy_action_duration_ms summary\n");
+		StringBuilder recent = new StringBuilder();
+		recent.append("# HELP servoy_action_recent_duration_ms Running time of the actions in ms in the last ")
+			.append(PerformanceTimingAggregate.getRecentWindowMS() / 1000).append(" seconds.\n");
+		recent.append("# TYPE servoy_action_recent_duration_ms gauge\n");
+
+		String[] contexts = registry.getPerformanceTimingContexts();
+		if (contexts != null)
+		{
+			for (String context : contexts)
+			{
+				PerformanceTimingAggregate[] timings = registry.getPerformanceTiming(context);
+				if (timings == null) continue;
+				for (PerformanceTimingAggregate timing : timings)
+				{
+					String labels = "registry=\"" + escape(registry.getId()) + "\",context=\"" + escape(context) + "\",action=\"" +
+						escape(timing.getAction()) + "\",type=\"" + escape(timing.getTypeString()) + "\"";
+					LatencyHistogram recentHistogram = timing.getRecentHistogram();
+					if (recentHistogram != null)
+					{
+						for (double quantile : QUANTILES)
+						{
+							out.append("servoy_action_duration_ms{").append(labels).append(",quantile=\"").append(Double.toString(quantile)).append("\"} ")
+								.append(Long.toString(timing.getPercentileTimeMS(quantile * 100))).append('\n');
+							recent.append("servoy_action_recent_duration_ms{").append(labels).append(",quantile=\"").append(Double.toString(quantile))
+								.append("\"} ").append(recentHistogram.getValueAtPercentile(quantile * 100)).append('\n');
+						}
+					}
+					out.append("servoy_action_duration_ms_sum{").append(labels).append("} ").append(Long.toString(timing.getTotalTimeMS())).append('\n');
+					out.append("servoy_action_duration_ms_count{").append(labels).append("} ").append(Integer.toString(timing.getCount())).append('\n');
+				}
+			}
+		}
+		out.append(recent);
+	}
+
+	/**
+	 * Write the registered counters in the Prometheus text exposition format (version 0.0.4).
+	 */
+	public static void writeCounters(Appendable out) throws IOException
+	{
+		for (Map.Entry<String, Counter> entry : counters.entrySet())
+		{
+			String name = "servoy_" + entry.getKey();
+			Counter counter = entry.getValue();
+			out.append("# HELP ").append(name).append(' ').append(counter.help).append('\n');
+			out.append("# TYPE ").append(name).append(counter.gauge ? " gauge\n" : " counter\n");
+			out.append(name).append(' ').append(Long.toString(counter.value.getAsLong())).append('\n');
+		}
+	}
+
+	private static String escape(String value)
+	{
+		if (value == null) return "";
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static final class Counter
+	{
+		private final String help;
+		private final boolean gauge;
+		private final LongSupplier value;
+
+		Counter(String help, boolean gauge, LongSupplier value)
+		{
+			this.help = help;
+			this.gauge = gauge;
+			this.value = value;
+		}
+	}
+}
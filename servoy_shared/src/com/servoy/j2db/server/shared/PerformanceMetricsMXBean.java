@@ -0,0 +1,50 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+*/
+
+package com.servoy.j2db.server.shared;
+
+import java.util.Map;
+
+/**
+ * JMX view on the timings of a {@link IPerformanceRegistry}, see {@link PerformanceMetrics}.
+ *
+ * @since 2024.3
+ */
+public interface PerformanceMetricsMXBean
+{
+	String[] getContexts();
+
+	/**
+	 * All timings of the registry in the Prometheus text exposition format.
+	 */
+	String getPrometheusText();
+
+	/**
+	 * The running time at the percentile (0-100) of the action in the context, -1 when the action is not found.
+	 */
+	long getPercentileTimeMS(String context, String action, double percentile);
+
+	/**
+	 * The running time at the percentile (0-100) of the action in the context in the recent time windows, -1 when the action is not found.
+	 */
+	long getRecentPercentileTimeMS(String context, String action, double percentile);
+
+	/**
+	 * The current values of the JVM wide counters, see {@link PerformanceMetrics#registerCounter(String, String, boolean, java.util.function.LongSupplier)}.
+	 */
+	Map<String, Long> getCounters();
+}
@@ -34,25 +34,28 @@ import com.servoy.j2db.dataprocessing.IDataServer;
 public class PerformanceTiming extends PerformanceData
 {
 	private final static AtomicLong ID_GEN = new AtomicLong();
-	private final Long id;
-	private final Long parentId;
+	private final long id;
+	private final Long key; // the id as key of the started timings, boxed once
+	private final long parentId;
 	private final String action;
 	private final String customObject;
 	private final int type;
 	private final String clientUUID;
 	private final AtomicLong start_ms = new AtomicLong(0);
-	private final AtomicLong end_ms = new AtomicLong(0);
-	private final AtomicLong interval_ms = new AtomicLong(0);
+	// only set once from the thread that runs the action, no need for atomics
+	private volatile long end_ms;
+	private volatile long interval_ms;
 
 	private final ConcurrentLinkedQueue<PerformanceTiming> subTimings = new ConcurrentLinkedQueue<>();
 
-	public PerformanceTiming(String action, int type, Long parentId, String customObject, long start_ms, String clientUUID, IPerformanceRegistry registry,
+	public PerformanceTiming(String action, int type, long parentId, String customObject, long start_ms, String clientUUID, IPerformanceRegistry registry,
 		Logger log,
 		String contextId, PerformanceAggregator aggregator)
 	{
 		super(registry, log, contextId, aggregator);
 
-		this.id = Long.valueOf(ID_GEN.getAndIncrement());
+		this.id = ID_GEN.getAndIncrement();
+		this.key = Long.valueOf(id);
 		this.parentId = parentId;
 		this.action = action;
 		this.type = type;
@@ -83,11 +86,16 @@ public class PerformanceTiming extends PerformanceData
 	}
 
 	@Override
-	public Long getID()
+	public long getID()
 	{
 		return id;
 	}
 
+	Long getKey()
+	{
+		return key;
+	}
+
 	public String getAction()
 	{
 		return action;
@@ -161,24 +169,25 @@ public class PerformanceTiming extends PerformanceData
 
 	public long getRunningTimeMS()
 	{
-		long end = end_ms.get();
+		long end = end_ms;
 		if (end == 0) end = System.currentTimeMillis();
 		return end - start_ms.get();
 	}
 
 	public long getIntervalTimeMS()
 	{
-		return (interval_ms.get() == 0 ? System.currentTimeMillis() : interval_ms.get()) - start_ms.get();
+		long interval = interval_ms;
+		return (interval == 0 ? System.currentTimeMillis() : interval) - start_ms.get();
 	}
 
 	public void setIntervalTime()
 	{
-		interval_ms.set(System.currentTimeMillis());
+		interval_ms = System.currentTimeMillis();
 	}
 
 	public void setEndTime()
 	{
-		end_ms.set(System.currentTimeMillis());
+		end_ms = System.currentTimeMillis();
 	}
 
 	public Queue<PerformanceTiming> getSubTimings()
@@ -191,7 +200,7 @@ public class PerformanceTiming extends PerformanceData
 		return customObject;
 	}
 
-	public Long getParentID()
+	public long getParentID()
 	{
 		return parentId;
 	}
@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.servoy.j2db.dataprocessing.IDataServer;
+import com.servoy.j2db.util.Utils;
 
 /**
  * Timing of actions like queries in the server.
@@ -30,6 +31,15 @@ import com.servoy.j2db.dataprocessing.IDataServer;
  */
 public class PerformanceTimingAggregate extends PerformanceAggregator
 {
+	public static final String HISTOGRAM_PROPERTY = "servoy.performance.histogram"; //$NON-NLS-1$
+	public static final String WINDOW_SECONDS_PROPERTY = "servoy.performance.histogram.windowSeconds"; //$NON-NLS-1$
+	public static final String WINDOW_COUNT_PROPERTY = "servoy.performance.histogram.windowCount"; //$NON-NLS-1$
+
+	// the histograms take a few kB per action, so percentiles are only recorded when enabled
+	private static final boolean HISTOGRAM_ENABLED = Utils.getAsBoolean(System.getProperty(HISTOGRAM_PROPERTY, "false")); //$NON-NLS-1$
+	private static final long WINDOW_MS = Math.max(1, Utils.getAsInteger(System.getProperty(WINDOW_SECONDS_PROPERTY, "60"))) * 1000L; //$NON-NLS-1$
+	private static final int WINDOW_COUNT = Math.max(1, Utils.getAsInteger(System.getProperty(WINDOW_COUNT_PROPERTY, "5"))); //$NON-NLS-1$
+
 	private final String action;
 	private final int type;
 	private final AtomicLong min_ms = new AtomicLong(-1);
@@ -38,6 +48,8 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 	private final AtomicLong xtotal_ms = new AtomicLong();
 	private final AtomicLong total_interval_ms = new AtomicLong();
 	private final AtomicInteger count = new AtomicInteger();
+	private final LatencyHistogram histogram; // running times of all actions, null when not enabled
+	private final LatencyHistogram.Sliding recentHistogram; // running times of the actions in the last windows, null when not enabled
 
 	private final PerformanceTimingAggregate totalSubActionTimes;
 
@@ -46,6 +58,8 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		super(registry);
 		this.action = action;
 		this.type = type;
+		this.histogram = HISTOGRAM_ENABLED ? new LatencyHistogram() : null;
+		this.recentHistogram = HISTOGRAM_ENABLED ? new LatencyHistogram.Sliding(WINDOW_MS, WINDOW_COUNT) : null;
 		totalSubActionTimes = new PerformanceTimingAggregate(action + " - subactions", registry); //$NON-NLS-1$
 	}
 
@@ -61,6 +75,8 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		this.count.set(copy.getCount());
 		this.xtotal_ms.set(copy.getTotalTimeMS());
 		this.total_interval_ms.set(copy.getTotalIntervalTimeMS());
+		this.histogram = copy.histogram != null ? new LatencyHistogram(copy.histogram) : null;
+		this.recentHistogram = copy.recentHistogram != null ? new LatencyHistogram.Sliding(copy.recentHistogram) : null;
 		if (copy.totalSubActionTimes != null)
 		{
 			totalSubActionTimes = new PerformanceTimingAggregate(copy.totalSubActionTimes);
@@ -76,6 +92,9 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		super(registry);
 		this.action = action;
 		this.type = IDataServer.METHOD_CALL;
+		// no percentiles for the total of the sub-actions
+		this.histogram = null;
+		this.recentHistogram = null;
 		totalSubActionTimes = null;
 	}
 
@@ -116,6 +135,11 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 	public void updateTime(long interval_ms, long running_ms, int nrecords)
 	{
 		updateTime(interval_ms, running_ms, running_ms, running_ms, (running_ms * running_ms), nrecords);
+		if (histogram != null)
+		{
+			histogram.record(running_ms);
+			recentHistogram.record(running_ms);
+		}
 	}
 
 	public String getAction()
@@ -191,4 +215,47 @@ public class PerformanceTimingAggregate extends PerformanceAggregator
 		return s2.get();
 	}
 
+	/**
+	 * The running time at the percentile (0-100) of all timed actions, for example 99 for the p99.
+	 * This is an upper bound that is at most 6.25% higher than the real value, -1 when the histograms are not enabled (see {@link #HISTOGRAM_PROPERTY}).
+	 */
+	public long getPercentileTimeMS(double percentile)
+	{
+		return histogram == null ? -1 : histogram.getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * The running time at the percentile (0-100) of the actions timed in the recent windows (see {@link #WINDOW_SECONDS_PROPERTY} and {@link #WINDOW_COUNT_PROPERTY}).
+	 */
+	public long getRecentPercentileTimeMS(double percentile)
+	{
+		return recentHistogram == null ? -1 : recentHistogram.getHistogram().getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * The histogram of the running times, null when the histograms are not enabled (see {@link #HISTOGRAM_PROPERTY}).
+	 */
+	public LatencyHistogram getHistogram()
+	{
+		return histogram;
+	}
+
+	/**
+	 * A merged copy of the histograms of the recent windows.
+	 */
+	public LatencyHistogram getRecentHistogram()
+	{
+		return recentHistogram == null ? null : recentHistogram.getHistogram();
+	}
+
+	public static boolean isHistogramEnabled()
+	{
+		return HISTOGRAM_ENABLED;
+	}
+
+	public static long getRecentWindowMS()
+	{
+		return WINDOW_MS * WINDOW_COUNT;
+	}
+
 }
@@ -0,0 +1,525 @@
+/*
+ This file belongs to the Servoy development and deployment environment, Copyright (C) 1997-2024 Servoy BV
+
+ This program is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Affero General Public License as published by the Free
+ Software Foundation; either version 3 of the License, or (at your option) any
+ later version.
+
+ This program is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License along
+ with this program; if not, see http://www.gnu.org/licenses or write to the Free
+ Software Foundation,Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301
+ */
+package com.servoy.j2db.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.servoy.j2db.server.shared.PerformanceMetrics;
+
+/**
+ * A {@link ScheduledExecutorService} of one client that runs its tasks on a thread pool that is shared by all clients (enabled with servoy.client.executor.threads).
+ * <p>
+ * The tasks of a client are queued in order in the executor of the client, at most servoy.client.executor.maxConcurrentTasks tasks of a client
+ * (the thread count of the pool that a client used to have for itself) are handed to the shared pool at the same time, and never more than half of the
+ * threads of the pool, so one client can not take all the threads of the pool. With a maximum of 1 the tasks of a client run serially in the order they
+ * were submitted.
+ * <p>
+ * A task that waits for another task of the same client can deadlock when all the concurrent tasks of that client wait like that, the other task is
+ * then never handed to the pool. So when a task of this executor waits on the future of a task (from {@link #submit(Callable)} or
+ * {@link #invokeAll(java.util.Collection)}) of this executor that is still queued, that task is run in the waiting thread. This is not done for
+ * scheduled tasks, a task should not wait for a scheduled task of its own client.
+ * <p>
+ * Scheduled tasks wait on one shared scheduler thread and are then queued in the executor of the client. Like with a {@link ScheduledThreadPoolExecutor}
+ * periodic tasks do not run concurrently with themselves and are not run anymore after they throw an exception. Shutting down the executor cancels
+ * the scheduled tasks, tasks that are already queued still run unless {@link #shutdownNow()} is used.
+ *
+ * @since 2024.3
+ */
+public class SharedPoolScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService, ITaskExecuter
+{
+	private static final int THREADS = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.client.executor.threads", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final int MAX_CONCURRENT_TASKS = Utils.getAsInteger(Settings.getInstance().getProperty("servoy.client.executor.maxConcurrentTasks", "16")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static volatile ThreadPoolExecutor sharedPool;
+	private static volatile ScheduledThreadPoolExecutor scheduler;
+
+	// executors that are not shut down, for the metrics
+	private static final Set<SharedPoolScheduledExecutor> executors = ConcurrentHashMap.newKeySet();
+
+	static
+	{
+		PerformanceMetrics.registerCounter("shared_pool_queue_size", "Tasks waiting in the shared client pool.", true, //$NON-NLS-1$ //$NON-NLS-2$
+			SharedPoolScheduledExecutor::getSharedPoolQueueSize);
+		PerformanceMetrics.registerCounter("shared_pool_active_threads", "Threads of the shared client pool running a task.", true, //$NON-NLS-1$ //$NON-NLS-2$
+			SharedPoolScheduledExecutor::getSharedPoolActiveCount);
+		PerformanceMetrics.registerCounter("shared_pool_client_queue_size", //$NON-NLS-1$
+			"Tasks waiting in the client executors because of their maximum of concurrent tasks.", true, SharedPoolScheduledExecutor::getClientQueueSize); //$NON-NLS-1$
+	}
+
+	private final String name;
+	private final int maxConcurrentTasks;
+
+	// guarded by this
+	private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+	private final Set<Thread> runningThreads = new HashSet<>();
+	private int dispatchedCount = 0;
+	private long completedTaskCount = 0;
+	private boolean shutdown = false;
+
+	private final Set<ScheduledTask< ? >> scheduledTasks = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param name The name of the client executor, used in the metrics.
+	 */
+	public SharedPoolScheduledExecutor(String name)
+	{
+		this(name, MAX_CONCURRENT_TASKS);
+	}
+
+	/**
+	 * @param name The name of the client executor, used in the metrics.
+	 * @param maxConcurrentTasks The maximum number of tasks of this executor that run at the same time on the shared pool, at most half of the threads of the pool.
+	 */
+	public SharedPoolScheduledExecutor(String name, int maxConcurrentTasks)
+	{
+		this.name = name;
+		this.maxConcurrentTasks = Math.max(1, Math.min(maxConcurrentTasks, THREADS / 2));
+		executors.add(this);
+	}
+
+	public static boolean isEnabled()
+	{
+		return THREADS > 0;
+	}
+
+	private static ThreadPoolExecutor getSharedPool()
+	{
+		if (sharedPool == null)
+		{
+			synchronized (SharedPoolScheduledExecutor.class)
+			{
+				if (sharedPool == null)
+				{
+					ThreadPoolExecutor pool = new ThreadPoolExecutor(Math.max(1, THREADS), Math.max(1, THREADS), 4, TimeUnit.MINUTES,
+						new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("Client-Pool", true)); //$NON-NLS-1$
+					pool.allowCoreThreadTimeOut(true);
+					sharedPool = pool;
+				}
+			}
+		}
+		return sharedPool;
+	}
+
+	private static ScheduledThreadPoolExecutor getScheduler()
+	{
+		if (scheduler == null)
+		{
+			synchronized (SharedPoolScheduledExecutor.class)
+			{
+				if (scheduler == null)
+				{
+					ScheduledThreadPoolExecutor s = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("Client-Scheduler", true)); //$NON-NLS-1$
+					s.setRemoveOnCancelPolicy(true);
+					scheduler = s;
+				}
+			}
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Called on the pool thread before the task is run, like {@link ThreadPoolExecutor#beforeExecute(Thread, Runnable)}.
+	 */
+	protected void beforeExecute(Thread t, Runnable r)
+	{
+	}
+
+	/**
+	 * Called on the pool thread after the task is run, like {@link ThreadPoolExecutor#afterExecute(Runnable, Throwable)}.
+	 */
+	protected void afterExecute(Runnable r, Throwable t)
+	{
+	}
+
+	public void execute(Runnable command)
+	{
+		if (command == null) throw new NullPointerException();
+		synchronized (this)
+		{
+			if (shutdown) throw new RejectedExecutionException("Executor " + name + " is shut down"); //$NON-NLS-1$ //$NON-NLS-2$
+			queue.add(command);
+			dispatch();
+		}
+	}
+
+	/**
+	 * Hand the next tasks in the queue to the shared pool, up to the maximum of concurrent tasks of this executor.
+	 */
+	private void dispatch()
+	{
+		while (dispatchedCount < maxConcurrentTasks && !queue.isEmpty())
+		{
+			Runnable task = queue.poll();
+			dispatchedCount++;
+			getSharedPool().execute(() -> runTask(task));
+		}
+	}
+
+	private void runTask(Runnable task)
+	{
+		Thread thread = Thread.currentThread();
+		synchronized (this)
+		{
+			runningThreads.add(thread);
+		}
+		try
+		{
+			Throwable thrown = null;
+			beforeExecute(thread, task);
+			try
+			{
+				task.run();
+			}
+			catch (RuntimeException | Error e)
+			{
+				thrown = e;
+				throw e;
+			}
+			finally
+			{
+				afterExecute(task, thrown);
+			}
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				runningThreads.remove(thread);
+				// the thread is shared, clear an interrupt of shutdownNow()
+				Thread.interrupted();
+				dispatchedCount--;
+				completedTaskCount++;
+				dispatch();
+				if (isTerminated()) notifyAll();
+			}
+		}
+	}
+
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable)
+	{
+		return new ClientTask<T>(callable);
+	}
+
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value)
+	{
+		return new ClientTask<T>(runnable, value);
+	}
+
+	public void addTask(Runnable task) throws IllegalArgumentException
+	{
+		execute(task);
+	}
+
+	public ScheduledFuture< ? > schedule(Runnable command, long delay, TimeUnit unit)
+	{
+		return schedule(Executors.callable(command), delay, unit);
+	}
+
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
+	{
+		ScheduledTask<V> task = new ScheduledTask<V>(callable);
+		task.scheduleHandoff(delay, unit);
+		return task;
+	}
+
+	public ScheduledFuture< ? > scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+	{
+		if (period <= 0) throw new IllegalArgumentException();
+		ScheduledTask<Object> task = new ScheduledTask<Object>(command, unit.toNanos(period));
+		task.scheduleHandoff(initialDelay, unit);
+		return task;
+	}
+
+	public ScheduledFuture< ? > scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
+	{
+		if (delay <= 0) throw new IllegalArgumentException();
+		ScheduledTask<Object> task = new ScheduledTask<Object>(command, -unit.toNanos(delay));
+		task.scheduleHandoff(initialDelay, unit);
+		return task;
+	}
+
+	public void shutdown()
+	{
+		synchronized (this)
+		{
+			shutdown = true;
+			if (isTerminated()) notifyAll();
+		}
+		cancelScheduledTasks();
+		executors.remove(this);
+	}
+
+	public List<Runnable> shutdownNow()
+	{
+		List<Runnable> notRun;
+		synchronized (this)
+		{
+			shutdown = true;
+			notRun = new ArrayList<>(queue);
+			queue.clear();
+			runningThreads.forEach(Thread::interrupt);
+			if (isTerminated()) notifyAll();
+		}
+		cancelScheduledTasks();
+		executors.remove(this);
+		return notRun;
+	}
+
+	private void cancelScheduledTasks()
+	{
+		for (ScheduledTask< ? > task : scheduledTasks.toArray(new ScheduledTask< ? >[0]))
+		{
+			task.cancel(false);
+		}
+	}
+
+	public synchronized boolean isShutdown()
+	{
+		return shutdown;
+	}
+
+	public synchronized boolean isTerminated()
+	{
+		return shutdown && dispatchedCount == 0 && queue.isEmpty();
+	}
+
+	public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!isTerminated())
+		{
+			long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (wait <= 0) return false;
+			wait(wait);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of tasks that are waiting to be handed to the shared pool.
+	 */
+	public synchronized int getQueueSize()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * @return the number of tasks that are handed to the shared pool (running or waiting for a thread of the pool).
+	 */
+	public synchronized int getActiveCount()
+	{
+		return dispatchedCount;
+	}
+
+	public synchronized long getCompletedTaskCount()
+	{
+		return completedTaskCount;
+	}
+
+	public int getScheduledTaskCount()
+	{
+		return scheduledTasks.size();
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the number of tasks that wait in the executors of all clients to be handed to the shared pool, because of the maximum of concurrent tasks.
+	 */
+	public static int getClientQueueSize()
+	{
+		int size = 0;
+		for (SharedPoolScheduledExecutor executor : executors)
+		{
+			size += executor.getQueueSize();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of tasks of all clients that wait for a thread of the shared pool.
+	 */
+	public static int getSharedPoolQueueSize()
+	{
+		ThreadPoolExecutor pool = sharedPool;
+		return pool == null ? 0 : pool.getQueue().size();
+	}
+
+	public static int getSharedPoolActiveCount()
+	{
+		ThreadPoolExecutor pool = sharedPool;
+		return pool == null ? 0 : pool.getActiveCount();
+	}
+
+	/**
+	 * A submitted task, when a task of this executor waits for it while it is still queued it is run in the waiting thread.
+	 */
+	private class ClientTask<V> extends FutureTask<V>
+	{
+		ClientTask(Callable<V> callable)
+		{
+			super(callable);
+		}
+
+		ClientTask(Runnable runnable, V result)
+		{
+			super(runnable, result);
+		}
+
+		@Override
+		public V get() throws InterruptedException, ExecutionException
+		{
+			runIfWaitedOnByOwnTask();
+			return super.get();
+		}
+
+		@Override
+		public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+		{
+			runIfWaitedOnByOwnTask();
+			return super.get(timeout, unit);
+		}
+
+		private void runIfWaitedOnByOwnTask()
+		{
+			if (isDone()) return;
+			boolean removed;
+			synchronized (SharedPoolScheduledExecutor.this)
+			{
+				removed = runningThreads.contains(Thread.currentThread()) && queue.remove(this);
+			}
+			if (removed) run();
+		}
+	}
+
+	/**
+	 * A task that is handed to the executor by the shared scheduler, periodic tasks schedule the next hand off after they are run.
+	 */
+	private class ScheduledTask<V> extends FutureTask<V> implements ScheduledFuture<V>
+	{
+		// 0 for a one shot task, positive for fixed rate and negative for fixed delay, in nanos
+		private final long period;
+		private volatile long time;
+		private volatile ScheduledFuture< ? > handoff;
+
+		ScheduledTask(Callable<V> callable)
+		{
+			super(callable);
+			this.period = 0;
+		}
+
+		ScheduledTask(Runnable runnable, long period)
+		{
+			super(runnable, null);
+			this.period = period;
+		}
+
+		void scheduleHandoff(long delay, TimeUnit unit)
+		{
+			long delayNanos = Math.max(0, unit.toNanos(delay));
+			time = System.nanoTime() + delayNanos;
+			scheduledTasks.add(this);
+			try
+			{
+				handoff = getScheduler().schedule(this::handoff, delayNanos, TimeUnit.NANOSECONDS);
+			}
+			catch (RejectedExecutionException e)
+			{
+				scheduledTasks.remove(this);
+				throw e;
+			}
+		}
+
+		private void handoff()
+		{
+			try
+			{
+				execute(this);
+			}
+			catch (RejectedExecutionException e)
+			{
+				cancel(false);
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			if (period == 0)
+			{
+				super.run();
+			}
+			else if (runAndReset() && !isCancelled())
+			{
+				long delayNanos = period > 0 ? Math.max(0, time + period - System.nanoTime()) : -period;
+				scheduleHandoff(delayNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		@Override
+		protected void done()
+		{
+			scheduledTasks.remove(this);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			ScheduledFuture< ? > h = handoff;
+			if (h != null) h.cancel(false);
+			scheduledTasks.remove(this);
+			return cancelled;
+		}
+
+		public long getDelay(TimeUnit unit)
+		{
+			return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		public int compareTo(Delayed other)
+		{
+			if (other == this) return 0;
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+}